@@ -1,9 +1,11 @@
 package application;
 
-import java.sql.SQLException;
-
+import databasePart1.AuditEvent;
 import databasePart1.DatabaseHelper;
+import databasePart1.UserQuery;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -12,12 +14,50 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * AdminEditUsersPage lets an admin edit, delete and reset users. Users are shown one page at a
+ * time using a keyset cursor; the next page is prefetched in the background and rows are
+ * refreshed individually after a change instead of reloading the table. Searching, role
+ * filtering, sorting and every edit run as database calls off the JavaFX thread.
+ *
+ * Several rows can be selected to delete them, change their roles or reset their passwords
+ * at once; each bulk action is a single database call and only the affected rows change.
+ */
 public class AdminEditUsersPage {
+    private static final int PAGE_SIZE = 50;
+
     private final DatabaseHelper databaseHelper;
     private final TableView<User> userTable = new TableView<>();
+    private final ObservableList<User> pageItems = FXCollections.observableArrayList();
+
+    // Search state: filters and sort order, without a cursor. Each new search bumps the
+    // generation so results of an older search that arrive late are ignored.
+    private UserQuery searchQuery = new UserQuery().withLimit(PAGE_SIZE);
+    private int searchGeneration = 0;
+
+    // Paging state: the user the current page starts after (null for the first page), the
+    // cursors of earlier pages and the prefetched page that follows the current one
+    private User pageCursor = null;
+    private final List<User> previousCursors = new ArrayList<>();
+    private User prefetchCursor = null;
+    private CompletableFuture<List<User>> prefetchedPage = null;
+    private int pageNumber = 1;
+
+    private final Button previousPageButton = new Button("Previous");
+    private final Button nextPageButton = new Button("Next");
+    private final Label pageLabel = new Label();
+    private final ProgressIndicator spinner = FxAsync.newSpinner();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(300));
 
     public AdminEditUsersPage(DatabaseHelper databaseHelper) {
         this.databaseHelper = databaseHelper;
@@ -76,10 +116,10 @@ public class AdminEditUsersPage {
                     roleSelectionBox.setAlignment(Pos.CENTER);
                     List<CheckBox> roleCheckBoxes = new ArrayList<>();
                     
-                    String[] roles = {"Admin", "User", "Student", "Reviewer", "Instructor", "Staff"};
-                    for (String r : roles) {
-                        CheckBox checkBox = new CheckBox(r);
-                        if (selectedUser.getRole().contains(r.toLowerCase())) {
+                    for (Role r : Role.values()) {
+                        CheckBox checkBox = new CheckBox(r.getDisplayName());
+                        checkBox.setUserData(r);
+                        if (selectedUser.hasRole(r)) {
                             checkBox.setSelected(true);
                         }
                         roleCheckBoxes.add(checkBox);
@@ -140,25 +180,26 @@ public class AdminEditUsersPage {
             	    
             	    dialog.setResultConverter(dialogButton -> {
             	        if (dialogButton == saveButtonType) {
-            	            List<String> selectedRoles = new ArrayList<>();
+            	            EnumSet<Role> selectedRoles = EnumSet.noneOf(Role.class);
             	            for (CheckBox checkBox : roleCheckBoxes) {
             	                if (checkBox.isSelected()) {
-            	                    selectedRoles.add(checkBox.getText().toLowerCase());
+            	                    selectedRoles.add((Role) checkBox.getUserData());
             	                }
             	            }
-            	            String role = String.join(",", selectedRoles);
-            	            return new User(usernameField.getText(), passwordField.getText(), role, emailField.getText());
+            	            return new User(usernameField.getText(), passwordField.getText(), selectedRoles, emailField.getText());
             	        }
             	        return null;
             	    });
             	    
             	    dialog.showAndWait().ifPresent(updatedUser -> {
-            	        try {
-            	            databaseHelper.updateUser(selectedUser.getUserName(), updatedUser);
-            	            loadAllUsers(); 
-            	        } catch (Exception e) {
-            	            e.printStackTrace();
-            	        }
+            	        spinner.setVisible(true);
+            	        FxAsync.whenDone(databaseHelper.async().updateUser(selectedUser.getUserName(), updatedUser), updated -> {
+            	            if (updated) {
+            	                databaseHelper.audit(AuditEvent.Type.USER_UPDATED, user.getUserName(), selectedUser.getUserName(),
+            	                        "now " + updatedUser.getUserName() + " with roles " + updatedUser.getRoles());
+            	            }
+            	            refreshRow(selectedUser.getUserName(), updatedUser.getUserName());
+            	        }, e -> spinner.setVisible(false));
             	    });
             	});
 
@@ -168,8 +209,16 @@ public class AdminEditUsersPage {
                     Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to delete this user?", ButtonType.YES, ButtonType.NO);
                     alert.showAndWait().ifPresent(response -> {
                         if (response == ButtonType.YES) {
-                            databaseHelper.deleteUser(selectedUser.getUserName());
-                            loadAllUsers();
+                            spinner.setVisible(true);
+                            FxAsync.whenDone(databaseHelper.async().deleteUser(selectedUser.getUserName()), deleted -> {
+                                spinner.setVisible(false);
+                                if (deleted) {
+                                    databaseHelper.audit(AuditEvent.Type.USER_DELETED, user.getUserName(),
+                                            selectedUser.getUserName(), null);
+                                    pageItems.remove(selectedUser);
+                                    invalidatePrefetch();
+                                }
+                            }, e -> spinner.setVisible(false));
                         }
                     });
                 });
@@ -207,18 +256,19 @@ public class AdminEditUsersPage {
                     });
 
                     dialog.showAndWait().ifPresent(newPassword -> {
-                        try {
-                            selectedUser.setPassword(newPassword);
-                            databaseHelper.updateUser(selectedUser.getUserName(), selectedUser);
-                            databaseHelper.setPasswordReset(selectedUser.getUserName(), true);
-                            
+                        selectedUser.setPassword(newPassword);
+                        spinner.setVisible(true);
+                        FxAsync.whenDone(databaseHelper.async().submit(db -> {
+                            db.updateUser(selectedUser.getUserName(), selectedUser);
+                            return db.setPasswordReset(selectedUser.getUserName(), true);
+                        }), reset -> {
                             System.out.println("Set password:" + newPassword);
-                        	loadAllUsers();
+                            databaseHelper.audit(AuditEvent.Type.PASSWORD_RESET, user.getUserName(),
+                                    selectedUser.getUserName(), null);
+                            refreshRow(selectedUser.getUserName(), selectedUser.getUserName());
                             Alert successAlert = new Alert(Alert.AlertType.INFORMATION, "Password successfully reset!");
                             successAlert.show();
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
+                        }, e -> spinner.setVisible(false));
                     });
                 });
             }
@@ -236,19 +286,321 @@ public class AdminEditUsersPage {
         });
 
         userTable.getColumns().addAll(usernameColumn, passwordColumn, emailColumn, roleColumn, actionColumn);
-        loadAllUsers();
+        userTable.setItems(pageItems);
+        userTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        
+        // Bulk actions on the selected rows
+        Label selectionLabel = new Label();
+        Button bulkDeleteButton = new Button("Delete Selected");
+        Button bulkRolesButton = new Button("Change Roles");
+        Button bulkResetButton = new Button("Reset Passwords");
+        bulkDeleteButton.setOnAction(e -> bulkDelete(user));
+        bulkRolesButton.setOnAction(e -> bulkChangeRoles(user));
+        bulkResetButton.setOnAction(e -> bulkResetPasswords(user));
+        userTable.getSelectionModel().getSelectedItems().addListener((ListChangeListener<User>) change -> {
+            int selected = userTable.getSelectionModel().getSelectedItems().size();
+            selectionLabel.setText(selected == 0 ? "" : selected + " selected");
+            bulkDeleteButton.setDisable(selected == 0);
+            bulkRolesButton.setDisable(selected == 0);
+            bulkResetButton.setDisable(selected == 0);
+        });
+        bulkDeleteButton.setDisable(true);
+        bulkRolesButton.setDisable(true);
+        bulkResetButton.setDisable(true);
+        HBox bulkBox = new HBox(10, selectionLabel, bulkDeleteButton, bulkRolesButton, bulkResetButton);
+        bulkBox.setAlignment(Pos.CENTER);
+        
+        // Search, filter and sort controls; typing is debounced so only the final text is queried
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search username or email prefix");
+        searchField.setPrefWidth(250);
+        
+        ComboBox<String> roleFilter = new ComboBox<>();
+        roleFilter.getItems().add("All Roles");
+        for (Role r : Role.values()) {
+            roleFilter.getItems().add(r.getDisplayName());
+        }
+        roleFilter.setValue("All Roles");
+        
+        ComboBox<UserQuery.SortColumn> sortColumn = new ComboBox<>();
+        sortColumn.getItems().addAll(UserQuery.SortColumn.values());
+        sortColumn.setValue(UserQuery.SortColumn.USERNAME);
+        CheckBox descendingBox = new CheckBox("Descending");
+        
+        Runnable runSearch = () -> {
+            String text = searchField.getText().trim();
+            Role role = Role.fromName(roleFilter.getValue()); // null for "All Roles"
+            // a prefix containing @ can only match an email
+            UserQuery query = new UserQuery().withLimit(PAGE_SIZE).withRole(role)
+                    .sortedBy(sortColumn.getValue(), descendingBox.isSelected());
+            query = text.contains("@") ? query.withEmailPrefix(text) : query.withUserNamePrefix(text);
+            search(query);
+        };
+        searchDebounce.setOnFinished(e -> runSearch.run());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
+        roleFilter.setOnAction(e -> runSearch.run());
+        sortColumn.setOnAction(e -> runSearch.run());
+        descendingBox.setOnAction(e -> runSearch.run());
+        
+        HBox searchBox = new HBox(10, searchField, roleFilter, new Label("Sort by:"), sortColumn, descendingBox);
+        searchBox.setAlignment(Pos.CENTER);
+        
+        // Paging controls
+        previousPageButton.setOnAction(e -> showPreviousPage());
+        nextPageButton.setOnAction(e -> showNextPage());
+        HBox pagingBox = new HBox(10, previousPageButton, pageLabel, nextPageButton, spinner);
+        pagingBox.setAlignment(Pos.CENTER);
+        loadPage(pageCursor);
 
         Button backButton = new Button("Back");
         backButton.setOnAction(e -> new AdminHomePage(databaseHelper).show(primaryStage, user));
 
-        layout.getChildren().addAll(userTable, backButton);
+        layout.getChildren().addAll(searchBox, userTable, bulkBox, pagingBox, backButton);
         Scene scene = new Scene(layout, 800, 400);
         primaryStage.setScene(scene);
         primaryStage.setTitle("Edit Users");
     }
 
-    private void loadAllUsers() {
-        ObservableList<User> users = FXCollections.observableArrayList(databaseHelper.getAllUsers());
-        userTable.setItems(users);
+    // Starts a new search from its first page
+    private void search(UserQuery query) {
+        searchQuery = query;
+        searchGeneration++;
+        previousCursors.clear();
+        pageNumber = 1;
+        invalidatePrefetch();
+        loadPage(null);
+    }
+
+    // Loads the page that starts after the given cursor, using the prefetched page when it matches
+    private void loadPage(User cursor) {
+        CompletableFuture<List<User>> page;
+        if (prefetchedPage != null && cursor == prefetchCursor) {
+            page = prefetchedPage;
+        } else {
+            page = fetchPage(cursor);
+        }
+        prefetchedPage = null;
+        prefetchCursor = null;
+
+        int generation = searchGeneration;
+        previousPageButton.setDisable(true);
+        nextPageButton.setDisable(true);
+        spinner.setVisible(true);
+        FxAsync.whenDone(page, users -> {
+            if (generation != searchGeneration) {
+                return; // a newer search replaced this one
+            }
+            spinner.setVisible(false);
+            pageCursor = cursor;
+            pageItems.setAll(users);
+            pageLabel.setText(users.isEmpty() && pageNumber == 1 ? "No users found" : "Page " + pageNumber);
+            previousPageButton.setDisable(previousCursors.isEmpty());
+            boolean fullPage = users.size() == PAGE_SIZE;
+            nextPageButton.setDisable(!fullPage);
+            if (fullPage) {
+                // Start loading the next page while the admin looks at this one
+                prefetchCursor = users.get(users.size() - 1);
+                prefetchedPage = fetchPage(prefetchCursor);
+            }
+        }, error -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            spinner.setVisible(false);
+            pageLabel.setText("Could not load users");
+            previousPageButton.setDisable(previousCursors.isEmpty());
+        });
+    }
+
+    private CompletableFuture<List<User>> fetchPage(User cursor) {
+        return databaseHelper.async().searchUsers(searchQuery.after(cursor));
+    }
+
+    private void showNextPage() {
+        if (pageItems.isEmpty()) {
+            return;
+        }
+        previousCursors.add(pageCursor);
+        pageNumber++;
+        loadPage(pageItems.get(pageItems.size() - 1));
+    }
+
+    private void showPreviousPage() {
+        if (previousCursors.isEmpty()) {
+            return;
+        }
+        pageNumber--;
+        invalidatePrefetch();
+        loadPage(previousCursors.remove(previousCursors.size() - 1));
+    }
+
+    // Re-reads a single user after it was changed and replaces the row that showed it as
+    // oldUserName. The row is looked up when the read completes, since the page may have been
+    // reloaded in the meantime; if it is no longer on the page nothing is changed.
+    private void refreshRow(String oldUserName, String userName) {
+        spinner.setVisible(true);
+        FxAsync.whenDone(databaseHelper.async().getUserByUsername(userName), refreshed -> {
+            spinner.setVisible(false);
+            int rowIndex = -1;
+            for (int i = 0; i < pageItems.size(); i++) {
+                if (pageItems.get(i).getUserName().equals(oldUserName)) {
+                    rowIndex = i;
+                    break;
+                }
+            }
+            if (rowIndex >= 0) {
+                if (refreshed != null) {
+                    pageItems.set(rowIndex, refreshed);
+                } else {
+                    pageItems.remove(rowIndex);
+                }
+            }
+            invalidatePrefetch();
+        }, e -> spinner.setVisible(false));
+    }
+
+    private List<String> selectedUserNames() {
+        List<String> userNames = new ArrayList<>();
+        for (User selected : userTable.getSelectionModel().getSelectedItems()) {
+            userNames.add(selected.getUserName());
+        }
+        return userNames;
+    }
+
+    // Deletes the selected users, except the admin who is signed in
+    private void bulkDelete(User currentUser) {
+        List<String> userNames = selectedUserNames();
+        userNames.remove(currentUser.getUserName());
+        if (userNames.isEmpty()) {
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to delete " + userNames.size()
+                + " users?", ButtonType.YES, ButtonType.NO);
+        alert.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.YES) {
+                spinner.setVisible(true);
+                FxAsync.whenDone(databaseHelper.async().deleteUsers(userNames), deleted -> {
+                    spinner.setVisible(false);
+                    for (String userName : deleted) {
+                        databaseHelper.audit(AuditEvent.Type.USER_DELETED, currentUser.getUserName(), userName, "bulk");
+                    }
+                    Set<String> gone = new HashSet<>(deleted);
+                    pageItems.removeIf(row -> gone.contains(row.getUserName()));
+                    invalidatePrefetch();
+                }, e -> spinner.setVisible(false));
+            }
+        });
+    }
+
+    // Adds or removes the chosen roles on every selected user. The admin who is signed in
+    // is left out when ADMIN is removed.
+    private void bulkChangeRoles(User currentUser) {
+        List<String> userNames = selectedUserNames();
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Change Roles");
+        dialog.setHeaderText("Add or remove roles for " + userNames.size() + " users");
+        ButtonType addButtonType = new ButtonType("Add Roles", ButtonBar.ButtonData.OK_DONE);
+        ButtonType removeButtonType = new ButtonType("Remove Roles", ButtonBar.ButtonData.OTHER);
+        dialog.getDialogPane().getButtonTypes().addAll(addButtonType, removeButtonType, ButtonType.CANCEL);
+
+        VBox roleSelectionBox = new VBox(5);
+        List<CheckBox> roleCheckBoxes = new ArrayList<>();
+        for (Role r : Role.values()) {
+            CheckBox checkBox = new CheckBox(r.getDisplayName());
+            checkBox.setUserData(r);
+            roleCheckBoxes.add(checkBox);
+            roleSelectionBox.getChildren().add(checkBox);
+        }
+        dialog.getDialogPane().setContent(roleSelectionBox);
+
+        dialog.showAndWait().ifPresent(buttonType -> {
+            if (buttonType != addButtonType && buttonType != removeButtonType) {
+                return;
+            }
+            EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+            for (CheckBox checkBox : roleCheckBoxes) {
+                if (checkBox.isSelected()) {
+                    roles.add((Role) checkBox.getUserData());
+                }
+            }
+            if (roles.isEmpty()) {
+                return;
+            }
+            if (buttonType == removeButtonType && roles.contains(Role.ADMIN)) {
+                // The admin who is signed in keeps their admin role, so there is always one left
+                userNames.remove(currentUser.getUserName());
+                if (userNames.isEmpty()) {
+                    return;
+                }
+            }
+            EnumSet<Role> none = EnumSet.noneOf(Role.class);
+            spinner.setVisible(true);
+            FxAsync.whenDone(buttonType == addButtonType
+                    ? databaseHelper.async().updateRoles(userNames, roles, none)
+                    : databaseHelper.async().updateRoles(userNames, none, roles), updated -> {
+                spinner.setVisible(false);
+                String change = (buttonType == addButtonType ? "added " : "removed ") + roles;
+                Map<String, User> byName = new HashMap<>();
+                for (User updatedUser : updated) {
+                    databaseHelper.audit(AuditEvent.Type.ROLES_CHANGED, currentUser.getUserName(),
+                            updatedUser.getUserName(), change);
+                    byName.put(updatedUser.getUserName(), updatedUser);
+                }
+                replaceRows(byName);
+            }, e -> spinner.setVisible(false));
+        });
+    }
+
+    // Gives every selected user a one-time password and lists the new passwords
+    private void bulkResetPasswords(User currentUser) {
+        List<String> userNames = selectedUserNames();
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Reset the passwords of " + userNames.size()
+                + " users?", ButtonType.YES, ButtonType.NO);
+        alert.showAndWait().ifPresent(response -> {
+            if (response != ButtonType.YES) {
+                return;
+            }
+            spinner.setVisible(true);
+            FxAsync.whenDone(databaseHelper.async().resetPasswords(userNames), reset -> {
+                spinner.setVisible(false);
+                Map<String, User> byName = new HashMap<>();
+                StringBuilder list = new StringBuilder();
+                for (User row : pageItems) {
+                    String newPassword = reset.get(row.getUserName());
+                    if (newPassword != null) {
+                        byName.put(row.getUserName(), new User(row.getUserName(), newPassword, row.getRoleMask(), row.getEmail()));
+                    }
+                }
+                for (Map.Entry<String, String> entry : reset.entrySet()) {
+                    databaseHelper.audit(AuditEvent.Type.PASSWORD_RESET, currentUser.getUserName(), entry.getKey(), "bulk");
+                    list.append(entry.getKey()).append(',').append(entry.getValue()).append('\n');
+                }
+                replaceRows(byName);
+
+                TextArea passwords = new TextArea(list.toString());
+                passwords.setEditable(false);
+                Alert done = new Alert(Alert.AlertType.INFORMATION);
+                done.setHeaderText(reset.size() + " passwords reset");
+                done.getDialogPane().setContent(passwords);
+                done.show();
+            }, e -> spinner.setVisible(false));
+        });
+    }
+
+    // Replaces the rows of the given users on the current page
+    private void replaceRows(Map<String, User> byName) {
+        for (int i = 0; i < pageItems.size(); i++) {
+            User replacement = byName.get(pageItems.get(i).getUserName());
+            if (replacement != null) {
+                pageItems.set(i, replacement);
+            }
+        }
+        invalidatePrefetch();
+    }
+
+    // A change can move users between pages, so the prefetched page may be stale
+    private void invalidatePrefetch() {
+        prefetchedPage = null;
+        prefetchCursor = null;
     }
 }
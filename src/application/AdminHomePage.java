@@ -1,10 +1,16 @@
 package application;
 
+import java.io.File;
+
 import databasePart1.DatabaseHelper;
+import databasePart1.ImportReport;
+import databasePart1.UserExporter;
+import javafx.concurrent.Task;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 
@@ -41,6 +47,26 @@ public class AdminHomePage {
 	    
 	    Button editUsersButton = new Button("Edit Users");
 	    
+	    Button metricsButton = new Button("Database Metrics");
+	    metricsButton.setOnAction(a -> {
+	    	new DatabaseMetricsPage(databaseHelper).show(primaryStage, user);
+	    });
+	    
+	    // bulk import of a roster file, run off the JavaFX thread
+	    Label importStatusLabel = new Label();
+	    Button importUsersButton = new Button("Import Users");
+	    importUsersButton.setOnAction(a -> {
+	    	FileChooser fileChooser = new FileChooser();
+	    	fileChooser.setTitle("Select User Roster");
+	    	fileChooser.getExtensionFilters().addAll(
+	    			new FileChooser.ExtensionFilter("CSV Files", "*.csv", "*.txt"),
+	    			new FileChooser.ExtensionFilter("All Files", "*.*"));
+	    	File file = fileChooser.showOpenDialog(primaryStage);
+	    	if (file != null) {
+	    		importUsers(file, importUsersButton, importStatusLabel);
+	    	}
+	    });
+	    
 	    VBox buttonContainer = new VBox();
         buttonContainer.setAlignment(Pos.CENTER);
 	    
@@ -64,6 +90,7 @@ public class AdminHomePage {
 	    });
 	    
 	    logoutButton.setOnAction(a -> {
+	    	databaseHelper.async().endSession(user.getSessionToken()); // no need to wait for it
 	    	new UserLoginPage(databaseHelper).show(primaryStage);
 	    });
 	    
@@ -71,13 +98,113 @@ public class AdminHomePage {
 	    	new WelcomeLoginPage(databaseHelper).show(primaryStage, user);
 	    });
 	    
-	    layout.getChildren().addAll(inviteButton, editUsersButton, buttonContainer, logoutButton, backButton);
+	    // streaming export with progress, run off the JavaFX thread
+	    ProgressBar exportProgressBar = new ProgressBar(0);
+	    exportProgressBar.setVisible(false);
+	    Label exportStatusLabel = new Label();
+	    Button exportUsersButton = new Button("Export Users");
+	    exportUsersButton.setOnAction(a -> {
+	    	FileChooser fileChooser = new FileChooser();
+	    	fileChooser.setTitle("Export Users");
+	    	fileChooser.setInitialFileName("users.csv");
+	    	fileChooser.getExtensionFilters().addAll(
+	    			new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"),
+	    			new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl", "*.jsonl.gz"));
+	    	File file = fileChooser.showSaveDialog(primaryStage);
+	    	if (file != null) {
+	    		exportUsers(file, exportUsersButton, exportProgressBar, exportStatusLabel);
+	    	}
+	    });
+	    
+	    layout.getChildren().addAll(inviteButton, editUsersButton, importUsersButton, importStatusLabel,
+	    		exportUsersButton, exportProgressBar, exportStatusLabel, metricsButton, buttonContainer, logoutButton,
+	    		backButton);
 	    
 	    // Set the scene to primary stage
 	    primaryStage.setScene(adminScene);
 	    primaryStage.setTitle("Admin Page");
     }
     
+    // Imports a roster in the background and shows the report when it finishes
+    private void importUsers(File file, Button importUsersButton, Label statusLabel) {
+    	Task<ImportReport> importTask = new Task<>() {
+    		@Override
+    		protected ImportReport call() throws Exception {
+    			return databaseHelper.importUsers(file.toPath());
+    		}
+    	};
+    	importUsersButton.setDisable(true);
+    	statusLabel.setText("Importing " + file.getName() + "...");
+    	
+    	importTask.setOnSucceeded(e -> {
+    		ImportReport report = importTask.getValue();
+    		importUsersButton.setDisable(false);
+    		statusLabel.setText(report.toString());
+    		
+    		StringBuilder details = new StringBuilder(report.toString());
+    		int shown = 0;
+    		for (ImportReport.RowError error : report.getErrors()) {
+    			if (shown++ == 20) {
+    				details.append("\n...");
+    				break;
+    			}
+    			details.append("\n").append(error);
+    		}
+    		Alert alert = new Alert(report.getErrorCount() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING,
+    				details.toString());
+    		alert.setHeaderText("Import finished");
+    		alert.show();
+    	});
+    	importTask.setOnFailed(e -> {
+    		importUsersButton.setDisable(false);
+    		statusLabel.setText("Import failed: " + importTask.getException().getMessage());
+    		importTask.getException().printStackTrace();
+    	});
+    	
+    	Thread importThread = new Thread(importTask, "user-import");
+    	importThread.setDaemon(true);
+    	importThread.start();
+    }
+    
+    // Exports users in the background; the format follows the file extension
+    // (.jsonl for JSON Lines, anything else CSV) and a .gz suffix compresses it.
+    private void exportUsers(File file, Button exportUsersButton, ProgressBar progressBar, Label statusLabel) {
+    	String name = file.getName().toLowerCase();
+    	boolean gzip = name.endsWith(".gz");
+    	UserExporter.Format format = name.contains(".jsonl") || name.contains(".json")
+    			? UserExporter.Format.JSON_LINES : UserExporter.Format.CSV;
+    	
+    	Task<Long> exportTask = new Task<>() {
+    		@Override
+    		protected Long call() throws Exception {
+    			return databaseHelper.exportUsers(file.toPath(), format, gzip,
+    					(exported, total) -> updateProgress(exported, total));
+    		}
+    	};
+    	exportUsersButton.setDisable(true);
+    	progressBar.setVisible(true);
+    	progressBar.progressProperty().bind(exportTask.progressProperty());
+    	statusLabel.setText("Exporting to " + file.getName() + "...");
+    	
+    	exportTask.setOnSucceeded(e -> {
+    		exportUsersButton.setDisable(false);
+    		progressBar.progressProperty().unbind();
+    		progressBar.setVisible(false);
+    		statusLabel.setText("Exported " + exportTask.getValue() + " users to " + file.getName());
+    	});
+    	exportTask.setOnFailed(e -> {
+    		exportUsersButton.setDisable(false);
+    		progressBar.progressProperty().unbind();
+    		progressBar.setVisible(false);
+    		statusLabel.setText("Export failed: " + exportTask.getException().getMessage());
+    		exportTask.getException().printStackTrace();
+    	});
+    	
+    	Thread exportThread = new Thread(exportTask, "user-export");
+    	exportThread.setDaemon(true);
+    	exportThread.start();
+    }
+    
     //temporary page to show different role views -- will expand to classes for bigger functionalities later
     private void showRolePage(Stage primaryStage, String role, User user) {
         VBox roleLayout = new VBox(10);
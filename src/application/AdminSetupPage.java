@@ -20,6 +20,7 @@ public class AdminSetupPage {
        TextField userNameField = new TextField();
        userNameField.setPromptText("Enter Admin userName");
        userNameField.setMaxWidth(250);
+       Label availabilityLabel = UsernameAvailability.attach(userNameField, databaseHelper);
        
        PasswordField passwordField = new PasswordField();
        passwordField.setPromptText("Enter Password");
@@ -60,9 +61,21 @@ public class AdminSetupPage {
                	User user=new User(userName, password, "admin", email);
                	databaseHelper.register(user);
                	System.out.println("Administrator setup completed.");
+               	setupButton.setDisable(true);
                   
-               	// Navigate to the Welcome Login Page
-               	new WelcomeLoginPage(databaseHelper).show(primaryStage,user);
+               	// Start a session in the background, then navigate to the Welcome Login Page
+               	FxAsync.whenDone(databaseHelper.async().startSession(userName), session -> {
+               		setupButton.setDisable(false);
+               		if (session == null) {
+               			new UserLoginPage(databaseHelper).show(primaryStage);
+               			return;
+               		}
+               		user.setSessionToken(session.getToken());
+               		new WelcomeLoginPage(databaseHelper).show(primaryStage, user);
+               	}, e -> {
+               		setupButton.setDisable(false);
+               		errorLabel.setText("Database error: " + e.getMessage());
+               	});
            	}
            	
            	else {
@@ -90,7 +103,7 @@ public class AdminSetupPage {
                e.printStackTrace();
            }
        });
-       VBox layout = new VBox(10, userNameField, passwordField, emailField, setupButton,
+       VBox layout = new VBox(10, userNameField, availabilityLabel, passwordField, emailField, setupButton,
        					   errorLabel, errorLabel2, errorLabel3);
        layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
        primaryStage.setScene(new Scene(layout, 800, 400));
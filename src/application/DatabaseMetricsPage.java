@@ -0,0 +1,113 @@
+package application;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.OperationMetrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * DatabaseMetricsPage shows the admin how often each DatabaseHelper operation was called, how
+ * often it failed and how long it took (mean, p50, p95, p99 and max in milliseconds). The
+ * table refreshes every two seconds while the page is open; sorting by a column shows the
+ * slowest or busiest operations first.
+ */
+public class DatabaseMetricsPage {
+
+	private final DatabaseHelper databaseHelper;
+
+	public DatabaseMetricsPage(DatabaseHelper databaseHelper) {
+		this.databaseHelper = databaseHelper;
+	}
+
+	public void show(Stage primaryStage, User user) {
+		TableView<OperationMetrics.Snapshot> table = new TableView<>();
+		table.setPlaceholder(new Label("No database calls recorded yet"));
+
+		TableColumn<OperationMetrics.Snapshot, String> nameColumn = new TableColumn<>("Operation");
+		nameColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getName()));
+		nameColumn.setPrefWidth(180);
+		table.getColumns().add(nameColumn);
+		table.getColumns().add(countColumn("Calls", OperationMetrics.Snapshot::getCalls));
+		table.getColumns().add(countColumn("Errors", OperationMetrics.Snapshot::getErrors));
+		table.getColumns().add(millisColumn("Mean ms", OperationMetrics.Snapshot::getMeanNanos));
+		table.getColumns().add(millisColumn("p50 ms", OperationMetrics.Snapshot::getP50Nanos));
+		table.getColumns().add(millisColumn("p95 ms", OperationMetrics.Snapshot::getP95Nanos));
+		table.getColumns().add(millisColumn("p99 ms", OperationMetrics.Snapshot::getP99Nanos));
+		table.getColumns().add(millisColumn("Max ms", OperationMetrics.Snapshot::getMaxNanos));
+
+		Label summaryLabel = new Label();
+		Runnable refresh = () -> {
+			List<OperationMetrics.Snapshot> snapshots = databaseHelper.getOperationMetrics().snapshot();
+			table.setItems(FXCollections.observableArrayList(snapshots));
+			table.sort(); // keep the column the admin sorted by
+			long calls = 0;
+			long errors = 0;
+			for (OperationMetrics.Snapshot snapshot : snapshots) {
+				calls += snapshot.getCalls();
+				errors += snapshot.getErrors();
+			}
+			summaryLabel.setText(snapshots.size() + " operations, " + calls + " calls, " + errors + " errors");
+		};
+		refresh.run();
+
+		// snapshot() only reads counters, so polling it from the JavaFX thread is cheap
+		Timeline autoRefresh = new Timeline(new KeyFrame(Duration.seconds(2), e -> refresh.run()));
+		autoRefresh.setCycleCount(Timeline.INDEFINITE);
+		autoRefresh.play();
+
+		Button refreshButton = new Button("Refresh");
+		refreshButton.setOnAction(e -> refresh.run());
+
+		Button resetButton = new Button("Reset");
+		resetButton.setOnAction(e -> {
+			databaseHelper.getOperationMetrics().reset();
+			refresh.run();
+		});
+
+		Button backButton = new Button("Back");
+		backButton.setOnAction(e -> {
+			autoRefresh.stop();
+			new AdminHomePage(databaseHelper).show(primaryStage, user);
+		});
+
+		HBox buttons = new HBox(10, refreshButton, resetButton, backButton);
+		VBox layout = new VBox(10, summaryLabel, table, buttons);
+		layout.setStyle("-fx-padding: 20;");
+		primaryStage.setScene(new Scene(layout, 900, 500));
+		primaryStage.setTitle("Database Metrics");
+	}
+
+	private static TableColumn<OperationMetrics.Snapshot, Long> countColumn(String title,
+			ToLongFunction<OperationMetrics.Snapshot> value) {
+		TableColumn<OperationMetrics.Snapshot, Long> column = new TableColumn<>(title);
+		column.setCellValueFactory(cell -> new SimpleObjectProperty<>(value.applyAsLong(cell.getValue())));
+		column.setPrefWidth(80);
+		return column;
+	}
+
+	// Sorts by the nanosecond value but shows milliseconds
+	private static TableColumn<OperationMetrics.Snapshot, Long> millisColumn(String title,
+			ToLongFunction<OperationMetrics.Snapshot> value) {
+		TableColumn<OperationMetrics.Snapshot, Long> column = countColumn(title, value);
+		column.setCellFactory(c -> new TableCell<>() {
+			@Override
+			protected void updateItem(Long nanos, boolean empty) {
+				super.updateItem(nanos, empty);
+				setText(empty || nanos == null ? null : String.format("%.3f", nanos / 1e6));
+			}
+		});
+		return column;
+	}
+}
@@ -4,7 +4,6 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import java.sql.SQLException;
 import databasePart1.*;
 
 public class EditUserPage {
@@ -40,39 +39,36 @@ public class EditUserPage {
         Button updateButton = new Button("Update");
         Button backButton = new Button("Back");
 
-        // Disable input fields initially
+        // Disable fields until the login session is looked up
         userNameField.setDisable(true);
         passwordField.setDisable(true);
         emailField.setDisable(true);
         updateButton.setDisable(true);
 
-        // Fetch current user details when the confirm button is clicked
-        try {
-            User existingUser = databaseHelper.getUserByUsername(user.getUserName());
-            if (existingUser != null) {
-
-                // Enable fields for editing
-                userNameField.setText(existingUser.getUserName());
-                userNameField.setDisable(false);
-                passwordField.setDisable(false);
-                emailField.setText(existingUser.getEmail());
-                emailField.setDisable(false);
-                updateButton.setDisable(false);
-            } else {
-                errorLabel.setText("User not found. Please enter a valid username.");
-                
-                // Disable fields if user is not found
-                userNameField.setDisable(true);
-                passwordField.setDisable(true);
-                emailField.setDisable(true);
-                updateButton.setDisable(true);
+        ProgressIndicator spinner = FxAsync.newSpinner();
+        spinner.setVisible(true);
+
+        // Fill in the current details from the login session, without reading the user row again.
+        // With persistent sessions the lookup may touch the database, so it runs in the background.
+        FxAsync.whenDone(databaseHelper.async().getSession(user.getSessionToken()), session -> {
+            spinner.setVisible(false);
+            if (session == null) {
+                // Logged out, expired, or the account was changed since login
+                new UserLoginPage(databaseHelper).show(primaryStage);
+                return;
             }
-        } catch (SQLException e) {
+            userNameField.setText(session.getUserName());
+            emailField.setText(session.getEmail());
+
+            // Enable fields for editing
+            userNameField.setDisable(false);
+            passwordField.setDisable(false);
+            emailField.setDisable(false);
+            updateButton.setDisable(false);
+        }, e -> {
+            spinner.setVisible(false);
             errorLabel.setText("Database error: " + e.getMessage());
-            e.printStackTrace();
-        }
-
-
+        });
 
         // Handle update button click
         updateButton.setOnAction(a -> {
@@ -82,51 +78,52 @@ public class EditUserPage {
 
             errorLabel.setText(""); // Clear previous errors
 
-            try {	
-            	EmailValidator emailValidator = new EmailValidator();
-                emailValidator.isValidEmail(newEmail);
-                
-                // Validate Inputs
-               	String usernameResult = UserNameRecognizer.checkForValidUserName(newUsername);
-               	String passwordResult = PasswordEvaluator.evaluatePassword(newPassword);
-               	String emailResult = emailValidator.getErrorMessage();
-               	
-               	if (usernameResult == "" && passwordResult == "" && emailResult == "") {
-               		User updatedUser = new User(newUsername, newPassword, "user", newEmail);
-                    boolean success = databaseHelper.updateUser(user.getUserName(), updatedUser);
-                    
-                    if (success) {      
-                        new UserLoginPage(databaseHelper).show(primaryStage);
-                        
-                    } else {
-                        errorLabel.setText("Update failed. User may not exist.");
-                    }
-               	}
-               	
-               	else {
-               		if (!usernameResult.isEmpty()) {
-               			errorLabel.setText(usernameResult);
-           				errorLabel2.setText("");
-           				errorLabel3.setText("");
-               		}
-               		
-               		if (!passwordResult.isEmpty()) {
-               			errorLabel.setText(passwordResult);
-               			errorLabel2.setText(usernameResult);
-               			errorLabel3.setText("");
-               		}
-               		
-               		if (!emailResult.isEmpty()) {
-               			errorLabel.setText(emailResult);
-                   		errorLabel2.setText(passwordResult);
-                   		errorLabel3.setText(usernameResult);
-               		}
-               	}
-
-            } catch (SQLException e) {
-                errorLabel.setText("Database error: " + e.getMessage());
-                e.printStackTrace();
-            }
+            EmailValidator emailValidator = new EmailValidator();
+            emailValidator.isValidEmail(newEmail);
+            
+            // Validate Inputs
+           	String usernameResult = UserNameRecognizer.checkForValidUserName(newUsername);
+           	String passwordResult = PasswordEvaluator.evaluatePassword(newPassword);
+           	String emailResult = emailValidator.getErrorMessage();
+           	
+           	if (usernameResult == "" && passwordResult == "" && emailResult == "") {
+           		User updatedUser = new User(newUsername, newPassword, "user", newEmail);
+           		updateButton.setDisable(true);
+           		spinner.setVisible(true);
+           		FxAsync.whenDone(databaseHelper.async().updateUser(user.getUserName(), updatedUser), success -> {
+           			updateButton.setDisable(false);
+           			spinner.setVisible(false);
+           			if (success) {
+           				new UserLoginPage(databaseHelper).show(primaryStage);
+           			} else {
+           				errorLabel.setText("Update failed. User may not exist.");
+           			}
+           		}, e -> {
+           			updateButton.setDisable(false);
+           			spinner.setVisible(false);
+           			errorLabel.setText("Database error: " + e.getMessage());
+           		});
+           	}
+           	
+           	else {
+           		if (!usernameResult.isEmpty()) {
+           			errorLabel.setText(usernameResult);
+       				errorLabel2.setText("");
+       				errorLabel3.setText("");
+           		}
+           		
+           		if (!passwordResult.isEmpty()) {
+           			errorLabel.setText(passwordResult);
+           			errorLabel2.setText(usernameResult);
+           			errorLabel3.setText("");
+           		}
+           		
+           		if (!emailResult.isEmpty()) {
+           			errorLabel.setText(emailResult);
+               		errorLabel2.setText(passwordResult);
+               		errorLabel3.setText(usernameResult);
+           		}
+           	}
         });
         
         backButton.setOnAction(e -> {
@@ -136,7 +133,7 @@ public class EditUserPage {
         VBox layout = new VBox(10);
         layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
         layout.getChildren().addAll(
-                userNameField, passwordField, emailField, updateButton, errorLabel, errorLabel2, errorLabel3, backButton);
+                userNameField, passwordField, emailField, updateButton, spinner, errorLabel, errorLabel2, errorLabel3, backButton);
 
         primaryStage.setScene(new Scene(layout, 800, 400));
         primaryStage.setTitle("Edit User Account");
@@ -29,9 +29,10 @@ public class EmailValidator {
     private static final int MAX_EMAIL_LENGTH = 254;
     private static final Pattern pattern = Pattern.compile(EMAIL_PATTERN);
     
-    public static String emailErrorMessage = "";     // The error message text
-    public static String emailInput = "";            // The input being processed
-    public static int emailIndexOfError = -1;        // The index where the error was located
+    // Kept per validator, so validators on different threads do not share them
+    public String emailErrorMessage = "";     // The error message text
+    public String emailInput = "";            // The input being processed
+    public int emailIndexOfError = -1;        // The index where the error was located
     /**
      * Performs a comprehensive validation of an email address including basic regex checks
      * and additional RFC 5322-related checks.
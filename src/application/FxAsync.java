@@ -0,0 +1,41 @@
+package application;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+
+/**
+ * FxAsync hands the outcome of a background database call back to the JavaFX Application
+ * Thread, so pages can update controls from the callbacks.
+ */
+final class FxAsync {
+
+	private FxAsync() {
+	}
+
+	// Runs onSuccess or onError on the JavaFX thread once the future completes.
+	// Errors are unwrapped from CompletionException.
+	static <T> void whenDone(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+		future.whenComplete((result, error) -> Platform.runLater(() -> {
+			if (error == null) {
+				onSuccess.accept(result);
+			} else {
+				Throwable cause = error instanceof CompletionException && error.getCause() != null
+						? error.getCause() : error;
+				cause.printStackTrace();
+				onError.accept(cause);
+			}
+		}));
+	}
+
+	// A small spinner that pages show while a call is running
+	static ProgressIndicator newSpinner() {
+		ProgressIndicator spinner = new ProgressIndicator();
+		spinner.setMaxSize(24, 24);
+		spinner.setVisible(false);
+		return spinner;
+	}
+}
@@ -1,11 +1,13 @@
 package application;
 
+import java.io.File;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 import databasePart1.*;
@@ -20,6 +22,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -27,9 +30,10 @@ import javafx.stage.Stage;
  * The invitation code is displayed upon clicking a button.
  */
 public class InvitationPage {
-    private String role;
+    private EnumSet<Role> roles;
     private DatePicker datePicker;
     private TextField timeField;
+    private TextField countField;
     private List<CheckBox> roleCheckBoxes = new ArrayList<>();
 
     /**
@@ -53,9 +57,10 @@ public class InvitationPage {
         VBox roleSelectionBox = new VBox(5);
         roleSelectionBox.setAlignment(Pos.CENTER);
         
-        String[] roles = {"Student", "Reviewer", "Instructor", "Staff"};
-        for (String r : roles) {
-            CheckBox checkBox = new CheckBox(r);
+        Role[] invitableRoles = {Role.STUDENT, Role.REVIEWER, Role.INSTRUCTOR, Role.STAFF};
+        for (Role r : invitableRoles) {
+            CheckBox checkBox = new CheckBox(r.getDisplayName());
+            checkBox.setUserData(r);
             roleCheckBoxes.add(checkBox);
             roleSelectionBox.getChildren().add(checkBox);
         }
@@ -80,9 +85,17 @@ public class InvitationPage {
         dateTimeBox.setAlignment(Pos.CENTER);
         dateTimeBox.getChildren().addAll(datePicker, timeField);
 
+        // Number of codes; more than one generates a batch and saves it to a CSV file
+        Label countLabel = new Label("Number of codes:");
+        countField = new TextField("1");
+        countField.setMaxWidth(100);
+        HBox countBox = new HBox(10, countLabel, countField);
+        countBox.setAlignment(Pos.CENTER);
+
         // Button to generate the invitation code
         Button showCodeButton = new Button("Generate Invitation Code");
         showCodeButton.setStyle("-fx-font-size: 14px;");
+        ProgressIndicator spinner = FxAsync.newSpinner();
         
         // Label to display the generated invitation code
         Label inviteCodeLabel = new Label("");
@@ -104,30 +117,61 @@ public class InvitationPage {
         showCodeButton.setOnAction(a -> {
             try {
             	// get selected roles from checkboxes
-            	List<String> selectedRoles = new ArrayList<>();
+                roles = EnumSet.noneOf(Role.class);
                 for (CheckBox checkBox : roleCheckBoxes) {
                     if (checkBox.isSelected()) {
-                        selectedRoles.add(checkBox.getText().toLowerCase());
+                        roles.add((Role) checkBox.getUserData());
                     }
                 }
-                role = String.join(",", selectedRoles);
 
-                if (role.isEmpty()) {
+                if (roles.isEmpty()) {
                     inviteCodeLabel.setText("Please select at least one role");
                     inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
                     return;
                 }
                 
-                System.out.println(role);
+                System.out.println(roles);
             	
                 LocalDateTime dateTime = LocalDateTime.of(
                     datePicker.getValue(),
                     LocalTime.parse(timeField.getText() + ".00")
                 );
                 Timestamp timestamp = Timestamp.valueOf(dateTime);
-                String invitationCode = databaseHelper.generateInvitationCode(role, timestamp);
-                inviteCodeLabel.setText("Invitation Code: " + invitationCode);
-                inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: green;");
+
+                int count;
+                try {
+                    count = Integer.parseInt(countField.getText().trim());
+                } catch (NumberFormatException e) {
+                    count = 0;
+                }
+                if (count < 1 || count > DatabaseHelper.MAX_INVITATION_BATCH) {
+                    inviteCodeLabel.setText("Number of codes must be between 1 and " + DatabaseHelper.MAX_INVITATION_BATCH);
+                    inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
+                    return;
+                }
+                if (count > 1) {
+                    generateBatch(databaseHelper, primaryStage, count, timestamp, showCodeButton, spinner, inviteCodeLabel);
+                    return;
+                }
+
+                showCodeButton.setDisable(true);
+                spinner.setVisible(true);
+                FxAsync.whenDone(databaseHelper.async().generateInvitationCode(roles, timestamp), invitationCode -> {
+                    showCodeButton.setDisable(false);
+                    spinner.setVisible(false);
+                    if (invitationCode == null) {
+                        inviteCodeLabel.setText("Could not generate an invitation code");
+                        inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
+                        return;
+                    }
+                    inviteCodeLabel.setText("Invitation Code: " + invitationCode);
+                    inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: green;");
+                }, e -> {
+                    showCodeButton.setDisable(false);
+                    spinner.setVisible(false);
+                    inviteCodeLabel.setText("Could not generate an invitation code");
+                    inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
+                });
             } catch (Exception e) {
                 inviteCodeLabel.setText("Please enter a valid date and time");
                 inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
@@ -135,6 +179,7 @@ public class InvitationPage {
         });
 
         logoutButton.setOnAction(a -> {
+            databaseHelper.async().endSession(user.getSessionToken()); // no need to wait for it
             new SetupLoginSelectionPage(databaseHelper).show(primaryStage);
         });
 
@@ -149,7 +194,9 @@ public class InvitationPage {
             roleSelectionBox,
             expirationLabel,
             dateTimeBox,
+            countBox,
             showCodeButton,
+            spinner,
             inviteCodeLabel,
             buttonBox
         );
@@ -158,4 +205,34 @@ public class InvitationPage {
         primaryStage.setScene(inviteScene);
         primaryStage.setTitle("Generate Invitation");
     }
+
+    // Generates a batch of codes for the selected roles in the background and saves them to a
+    // CSV file chosen by the admin
+    private void generateBatch(DatabaseHelper databaseHelper, Stage primaryStage, int count, Timestamp timestamp,
+            Button showCodeButton, ProgressIndicator spinner, Label inviteCodeLabel) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Invitation Codes");
+        fileChooser.setInitialFileName("invitation-codes.csv");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        showCodeButton.setDisable(true);
+        spinner.setVisible(true);
+        inviteCodeLabel.setText("Generating " + count + " codes...");
+        inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
+        FxAsync.whenDone(databaseHelper.async().generateInvitationCodes(count, roles, timestamp, file.toPath()), written -> {
+            showCodeButton.setDisable(false);
+            spinner.setVisible(false);
+            inviteCodeLabel.setText("Saved " + written + " invitation codes to " + file.getName());
+            inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: green;");
+        }, e -> {
+            showCodeButton.setDisable(false);
+            spinner.setVisible(false);
+            inviteCodeLabel.setText("Could not generate invitation codes: " + e.getMessage());
+            inviteCodeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: red;");
+        });
+    }
 }
\ No newline at end of file
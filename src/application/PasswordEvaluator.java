@@ -22,7 +22,8 @@ public class PasswordEvaluator {
 	/**********************************************************************************************
 	 * 
 	 * Result attributes to be used for GUI applications where a detailed error message and a 
-	 * pointer to the character of the error will enhance the user experience.
+	 * pointer to the character of the error will enhance the user experience. They are set by
+	 * evaluatePassword() from its most recent call.
 	 * 
 	 */
 
@@ -34,10 +35,25 @@ public class PasswordEvaluator {
 	public static boolean foundNumericDigit = false;
 	public static boolean foundSpecialChar = false;
 	public static boolean foundLongEnough = false;
-	private static String inputLine = "";	// The input line
-	private static char currentChar;		// The current character in the line
-	private static int currentCharNdx;		// The index of the current character
-	private static boolean running;			// The flag that specifies if the FSM is running
+
+	// The state of one run of the directed graph. Each run has its own, so runs on several
+	// threads at once do not interfere.
+	private final boolean trace;			// Display the execution trace?
+	private String errorMessage = "";		// The error message text of this run
+	private int indexOfError = -1;			// The index where the error was located in this run
+	private boolean hasUpperCase = false;
+	private boolean hasLowerCase = false;
+	private boolean hasNumericDigit = false;
+	private boolean hasSpecialChar = false;
+	private boolean isLongEnough = false;
+	private String inputLine = "";			// The input line
+	private char currentChar;				// The current character in the line
+	private int currentCharNdx;				// The index of the current character
+	private boolean running;				// The flag that specifies if the FSM is running
+
+	private PasswordEvaluator(boolean trace) {
+		this.trace = trace;
+	}
 
 	/**********
 	 * This private method display the input line and then on a line under it displays an up arrow
@@ -49,7 +65,9 @@ public class PasswordEvaluator {
 	 * @return					Two lines, the entire input line followed by a 
 	 * 							line with an up arrow
 	 */
-	private static void displayInputState() {
+	private void displayInputState() {
+		if (!trace)
+			return;
 		// Display the entire input line
 		System.out.println(inputLine);
 		System.out.println(inputLine.substring(0,currentCharNdx) + "?");
@@ -57,6 +75,39 @@ public class PasswordEvaluator {
 				currentCharNdx + "  |  The currentChar: \"" + currentChar + "\"");
 	}
 
+	/**********
+	 * This method runs the Directed Graph with its execution trace on the console and sets the
+	 * result attributes above.
+	 * 
+	 * @param input		The input string for directed graph processing
+	 * @return			An output string that is empty if every things is okay or it will be
+	 * 					a string with a help description of the error
+	 */
+	public static String evaluatePassword(String input) {
+		PasswordEvaluator evaluator = new PasswordEvaluator(true);
+		String result = evaluator.evaluate(input);
+		passwordInput = input;
+		passwordErrorMessage = evaluator.errorMessage;
+		passwordIndexofError = evaluator.indexOfError;
+		foundUpperCase = evaluator.hasUpperCase;
+		foundLowerCase = evaluator.hasLowerCase;
+		foundNumericDigit = evaluator.hasNumericDigit;
+		foundSpecialChar = evaluator.hasSpecialChar;
+		foundLongEnough = evaluator.isLongEnough;
+		return result;
+	}
+
+	/**********
+	 * Returns the same result as evaluatePassword(), but prints no trace and does not touch the
+	 * result attributes, so any number of threads may call it at once.
+	 * 
+	 * @param input		The input string for directed graph processing
+	 * @return			An empty string if the password is valid, otherwise the error message
+	 */
+	public static String validatePassword(String input) {
+		return new PasswordEvaluator(false).evaluate(input);
+	}
+
 	/**********
 	 * This method is a mechanical transformation of a Directed Graph diagram into a Java
 	 * method.
@@ -67,10 +118,10 @@ public class PasswordEvaluator {
 	 * 					that shows the input line follow by a line with an up arrow at the
 	 *					point where the error was found.
 	 */
-	public static String evaluatePassword(String input) {
+	private String evaluate(String input) {
 		// The following are the local variable used to perform the Directed Graph simulation
-		passwordErrorMessage = "";
-		passwordIndexofError = 0;		// Initialize the IndexofError
+		errorMessage = "";
+		indexOfError = 0;				// Initialize the IndexofError
 		inputLine = input;				// Save the reference to the input line as a global
 		currentCharNdx = 0;				// The index of the current character
 		
@@ -82,13 +133,12 @@ public class PasswordEvaluator {
 		// The Directed Graph simulation continues until the end of the input is reached or at some 
 		// state the current character does not match any valid transition to a next state
 
-		passwordInput = input;				// Save a copy of the input
-		foundUpperCase = false;				// Reset the Boolean flag
-		foundLowerCase = false;				// Reset the Boolean flag
-		foundNumericDigit = false;			// Reset the Boolean flag
-		foundSpecialChar = false;			// Reset the Boolean flag
-		foundNumericDigit = false;			// Reset the Boolean flag
-		foundLongEnough = false;			// Reset the Boolean flag
+		hasUpperCase = false;				// Reset the Boolean flag
+		hasLowerCase = false;				// Reset the Boolean flag
+		hasNumericDigit = false;			// Reset the Boolean flag
+		hasSpecialChar = false;			// Reset the Boolean flag
+		hasNumericDigit = false;			// Reset the Boolean flag
+		isLongEnough = false;				// Reset the Boolean flag
 		running = true;						// Start the loop
 
 		// The Directed Graph simulation continues until the end of the input is reached or at some 
@@ -101,34 +151,34 @@ public class PasswordEvaluator {
 			
 			// Transition [1] Check for A-Z
 			if (currentChar >= 'A' && currentChar <= 'Z') {
-				System.out.println("Upper case letter found");
-				foundUpperCase = true;
+				if (trace) System.out.println("Upper case letter found");
+				hasUpperCase = true;
 				
 			// Transition [2] Check for a-z
 			} else if (currentChar >= 'a' && currentChar <= 'z') {     
-				System.out.println("Lower case letter found");
-				foundLowerCase = true;
+				if (trace) System.out.println("Lower case letter found");
+				hasLowerCase = true;
 				
 			// Transition [3] Check for 0-9
 			} else if (currentChar >= '0' && currentChar <= '9') {                
-				System.out.println("Digit found");
-				foundNumericDigit = true;
+				if (trace) System.out.println("Digit found");
+				hasNumericDigit = true;
 				
 			// Transition [4] Check for special characters
 			} else if ("~`!@#$%^&*()_-+{}[]|:,.?/".indexOf(currentChar) >= 0) {   
-				System.out.println("Special character found");
-				foundSpecialChar = true;
+				if (trace) System.out.println("Special character found");
+				hasSpecialChar = true;
 				
 			// Transition [5] Other characters found
 			} else {                                                              
-				passwordIndexofError = currentCharNdx;
+				indexOfError = currentCharNdx;
 				return "An invalid character has been found!";
 			}
 			
 			// [6] Input is long enough
 			if (currentCharNdx >= 7) {                                            
-				System.out.println("At least 8 characters found");
-				foundLongEnough = true;
+				if (trace) System.out.println("At least 8 characters found");
+				isLongEnough = true;
 			}
 		
 			// Go to the next character if there is one
@@ -138,31 +188,31 @@ public class PasswordEvaluator {
 			else
 				currentChar = input.charAt(currentCharNdx);
 			
-			System.out.println();
+			if (trace) System.out.println();
 		}
 		
 		
 		// Generate error message
 		String errMessage = "";
-		if (!foundUpperCase)
+		if (!hasUpperCase)
 			errMessage += "Upper case; ";
 		
-		if (!foundLowerCase)
+		if (!hasLowerCase)
 			errMessage += "Lower case; ";
 		
-		if (!foundNumericDigit)
+		if (!hasNumericDigit)
 			errMessage += "Numeric digits; ";
 			
-		if (!foundSpecialChar)
+		if (!hasSpecialChar)
 			errMessage += "Special character; ";
 			
-		if (!foundLongEnough)
+		if (!isLongEnough)
 			errMessage += "Long Enough; ";
 		
 		if (errMessage == "")
 			return "";
 		
-		passwordIndexofError = currentCharNdx;
+		indexOfError = currentCharNdx;
 		return errMessage + "password conditions were not satisfied";
 
 	}
@@ -0,0 +1,119 @@
+package application;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The Role enum lists the roles a user or invitation code can carry. A set of roles is stored
+ * in the database as a bitmask (one bit per role) so role checks are a single AND and
+ * "all users with role X" can be answered from an index.
+ */
+public enum Role {
+	ADMIN("Admin"),
+	USER("User"),
+	STUDENT("Student"),
+	REVIEWER("Reviewer"),
+	INSTRUCTOR("Instructor"),
+	STAFF("Staff");
+
+	private static final Role[] VALUES = values();
+
+	private final String displayName;
+
+	Role(String displayName) {
+		this.displayName = displayName;
+	}
+
+	// The bit for this role in a role mask
+	public int bit() {
+		return 1 << ordinal();
+	}
+
+	// Name shown in the UI, e.g. "Reviewer"
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	// Lower-case name used in text such as roster files, e.g. "reviewer"
+	public String getName() {
+		return name().toLowerCase();
+	}
+
+	public boolean isIn(int mask) {
+		return (mask & bit()) != 0;
+	}
+
+	// Looks up a role by name, ignoring case and surrounding spaces; null if unknown
+	public static Role fromName(String name) {
+		if (name == null) {
+			return null;
+		}
+		String trimmed = name.trim();
+		for (Role role : VALUES) {
+			if (role.name().equalsIgnoreCase(trimmed)) {
+				return role;
+			}
+		}
+		return null;
+	}
+
+	public static int toMask(Set<Role> roles) {
+		int mask = 0;
+		for (Role role : roles) {
+			mask |= role.bit();
+		}
+		return mask;
+	}
+
+	public static EnumSet<Role> fromMask(int mask) {
+		EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+		for (Role role : VALUES) {
+			if (role.isIn(mask)) {
+				roles.add(role);
+			}
+		}
+		return roles;
+	}
+
+	// Parses a comma-separated list such as "student, reviewer". Unknown names are ignored.
+	public static int parseMask(String roles) {
+		int mask = 0;
+		if (roles == null) {
+			return mask;
+		}
+		for (String name : roles.split(",")) {
+			Role role = fromName(name);
+			if (role != null) {
+				mask |= role.bit();
+			}
+		}
+		return mask;
+	}
+
+	// Formats a mask as a comma-separated list of lower-case names, e.g. "student,reviewer"
+	public static String format(int mask) {
+		StringBuilder sb = new StringBuilder();
+		for (Role role : VALUES) {
+			if (role.isIn(mask)) {
+				if (sb.length() > 0) {
+					sb.append(',');
+				}
+				sb.append(role.getName());
+			}
+		}
+		return sb.toString();
+	}
+
+	// Every possible mask that includes this role. Used to turn "has role X" into an
+	// IN list that the roleMask index can answer.
+	public int[] masksContaining() {
+		int[] masks = new int[1 << (VALUES.length - 1)];
+		int count = 0;
+		for (int mask = 0; mask < (1 << VALUES.length); mask++) {
+			if (isIn(mask)) {
+				masks[count++] = mask;
+			}
+		}
+		return masks;
+	}
+}
@@ -5,8 +5,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
-
 import databasePart1.*;
 
 /**
@@ -30,6 +28,7 @@ public class SetupAccountPage {
         TextField userNameField = new TextField();
         userNameField.setPromptText("Enter userName");
         userNameField.setMaxWidth(250);
+        Label availabilityLabel = UsernameAvailability.attach(userNameField, databaseHelper);
 
         PasswordField passwordField = new PasswordField();
         passwordField.setPromptText("Enter Password");
@@ -54,6 +53,7 @@ public class SetupAccountPage {
         errorLabel3.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");		
         		
         Button setupButton = new Button("Setup");
+        ProgressIndicator spinner = FxAsync.newSpinner();
         
         Button backButton = new Button("Back");
         
@@ -82,61 +82,73 @@ public class SetupAccountPage {
             String passwordResult = PasswordEvaluator.evaluatePassword(password);
             String emailResult = emailValidator.getErrorMessage();
             
-            try {   	
-               	if (usernameResult == "" && passwordResult == "" && emailResult == "") {
-    				// Check if the user already exists
-    				if(!databaseHelper.doesUserExist(userName)) {	
-    					// Validate the invitation code
-    					if(databaseHelper.validateInvitationCode(code)) {
-            			
-	            			// Create a new user and register them in the database    						
-    						String role = databaseHelper.getRoleFromInviteCode(code);    						
-			            	User user=new User(userName, password, role, email);
-			                databaseHelper.register(user);
-			                
-			                // Navigate to the Welcome Login Page
-			                new WelcomeLoginPage(databaseHelper).show(primaryStage,user);
-    					}
-    					else {
-            			errorLabel.setText("Please enter a valid invitation code");
-    					}
-    				}
-    				else {
-    					errorLabel.setText("This userName is taken!!.. " +
-            				            "Please use another to setup an account");
-    				}
-                    
-               	}
-               	
-               	else {
-               		if (!usernameResult.isEmpty()) {
-               			errorLabel.setText(usernameResult);
-           				errorLabel2.setText("");
-           				errorLabel3.setText("");
-               		}
-               		
-               		if (!passwordResult.isEmpty()) {
-               			errorLabel.setText(passwordResult);
-               			errorLabel2.setText(usernameResult);
-               			errorLabel3.setText("");
-               		}
-               		
-               		if (!emailResult.isEmpty()) {
-               			errorLabel.setText(emailResult);
-                   		errorLabel2.setText(passwordResult);
-                   		errorLabel3.setText(usernameResult);
-               		}
-               	}
-            	
-            } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
-            }
+           	if (usernameResult == "" && passwordResult == "" && emailResult == "") {
+           		setupButton.setDisable(true);
+           		spinner.setVisible(true);
+           		
+				// Redeem the invitation code and create the user in one transaction
+				FxAsync.whenDone(databaseHelper.async().registerWithInvite(userName, password, email, code), result -> {
+					if (result.getStatus() == RegistrationResult.Status.REGISTERED) {
+						// Start a session in the background, then navigate to the Welcome Login Page.
+						// getUser() returns a fresh copy, so the token is set on this page's own User.
+						User user = result.getUser();
+						FxAsync.whenDone(databaseHelper.async().startSession(userName), session -> {
+							setupButton.setDisable(false);
+							spinner.setVisible(false);
+							if (session == null) {
+								new UserLoginPage(databaseHelper).show(primaryStage);
+								return;
+							}
+							user.setSessionToken(session.getToken());
+							new WelcomeLoginPage(databaseHelper).show(primaryStage, user);
+						}, e -> {
+							setupButton.setDisable(false);
+							spinner.setVisible(false);
+							errorLabel.setText("Database error: " + e.getMessage());
+						});
+						return;
+					}
+					setupButton.setDisable(false);
+					spinner.setVisible(false);
+					switch (result.getStatus()) {
+					case USERNAME_TAKEN:
+						errorLabel.setText("This userName is taken!!.. " +
+        				            "Please use another to setup an account");
+						break;
+					case INVALID_INVITATION:
+						errorLabel.setText("Please enter a valid invitation code");
+						break;
+					}
+				}, e -> {
+					setupButton.setDisable(false);
+					spinner.setVisible(false);
+					errorLabel.setText("Database error: " + e.getMessage());
+				});
+           	}
+           	else {
+           		if (!usernameResult.isEmpty()) {
+           			errorLabel.setText(usernameResult);
+       				errorLabel2.setText("");
+       				errorLabel3.setText("");
+           		}
+           		
+           		if (!passwordResult.isEmpty()) {
+           			errorLabel.setText(passwordResult);
+           			errorLabel2.setText(usernameResult);
+           			errorLabel3.setText("");
+           		}
+           		
+           		if (!emailResult.isEmpty()) {
+           			errorLabel.setText(emailResult);
+               		errorLabel2.setText(passwordResult);
+               		errorLabel3.setText(usernameResult);
+           		}
+           	}
         });
 
         VBox layout = new VBox(10);
         layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
-        layout.getChildren().addAll(userNameField, passwordField,emailField, inviteCodeField, setupButton, 
+        layout.getChildren().addAll(userNameField, availabilityLabel, passwordField,emailField, inviteCodeField, setupButton, spinner,
         		                    errorLabel, errorLabel2, errorLabel3, backButton);
         primaryStage.setScene(new Scene(layout, 800, 400));
         primaryStage.setTitle("Account Setup");
@@ -3,16 +3,24 @@ package application;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import databasePart1.DatabaseHelper;
+import service.AccountService;
 
 
 public class StartCSE360 extends Application {
 
 	private static final DatabaseHelper databaseHelper = new DatabaseHelper();
 	 
-	public static void main( String[] args )
+	public static void main( String[] args ) throws Exception
 	{
+		// Service mode; on a machine without a display run service.AccountService directly,
+		// since the launcher starts JavaFX before main() for an Application subclass
+		if (args.length > 0 && args[0].equals("--serve")) {
+			AccountService.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		 launch(args);
 	}
 	
@@ -21,6 +29,7 @@ public class StartCSE360 extends Application {
         try {
             databaseHelper.connectToDatabase(); // Connect to the database
             databaseHelper.initializeTestUsers(); // Add test users to database
+            databaseHelper.startInvitationReaper(); // Purge used and expired invitation codes
             
             if (databaseHelper.isDatabaseEmpty()) {
             	
@@ -34,5 +43,10 @@ public class StartCSE360 extends Application {
         }
     }
 	
+	@Override
+	public void stop() {
+		databaseHelper.closeConnection(); // stops background work before the pool closes
+	}
+	
 
 }
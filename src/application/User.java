@@ -1,37 +1,69 @@
 package application;
+
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
 * The User class represents a user entity in the system.
-* It contains the user's details such as userName, password, and role.
+* It contains the user's details such as userName, password, roles, and email.
+* Roles are kept as a bitmask of {@link Role} values.
 */
 public class User {
    private String userName;
    private String password;
-   private String role;
+   private int roleMask;
    private String email;
-  
+   private String sessionToken; // set once the user has logged in
+
    // Constructor to initialize a new User object with userName, password, role, and email.
+   // The role is a comma-separated list of role names; unknown names are ignored.
    public User( String userName, String password, String role, String email) {
+       this(userName, password, Role.parseMask(role), email);
+   }
+
+   public User(String userName, String password, Set<Role> roles, String email) {
+       this(userName, password, Role.toMask(roles), email);
+   }
+
+   public User(String userName, String password, int roleMask, String email) {
        this.userName = userName;
        this.password = password;
-       this.role = role;
+       this.roleMask = roleMask;
        this.email = email;
    }
-  
-   // Sets the role of the user.
+
+   // Sets the role of the user from a comma-separated list of role names.
    public void setRole(String role) {
-   	this.role = role;
+   	this.roleMask = Role.parseMask(role);
    }
+
+   public void setRoles(Set<Role> roles) {
+   	this.roleMask = Role.toMask(roles);
+   }
+
    public String getUserName() { return userName; }
    public String getPassword() { return password; }
    public String getEmail() { return email; }
-   public String getRole() { return role; }
+   // Roles as a comma-separated list, e.g. "student,reviewer"
+   public String getRole() { return Role.format(roleMask); }
+   public int getRoleMask() { return roleMask; }
+   public EnumSet<Role> getRoles() { return Role.fromMask(roleMask); }
+   public boolean hasRole(Role role) { return role.isIn(roleMask); }
 
 	public void setEmail(String email) {
 		this.email = email;
 	}
-	
+
 	public void setPassword(String password) {
 		this.password = password;
 	}
-}
 
+	// Token of the login session this user was created for, or null
+	public String getSessionToken() {
+		return sessionToken;
+	}
+
+	public void setSessionToken(String sessionToken) {
+		this.sessionToken = sessionToken;
+	}
+}
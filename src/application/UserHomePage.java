@@ -1,4 +1,6 @@
 package application;
+import java.util.EnumSet;
+
 import databasePart1.DatabaseHelper;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -30,26 +32,29 @@ public class UserHomePage {
         buttonContainer.setAlignment(Pos.CENTER);
         // user.setRole("student, reviewer, instructor, staff");
         
-        String[] roles = extractRoles(user.getRole());
+        String[] roles = extractRoles(user);
         
         if (roles.length == 1) {
             // if the user has only one role, display the role label on the main page
-            Label roleLabel = new Label("Welcome to " + roles[0].substring(0, 1).toUpperCase() + roles[0].substring(1).toLowerCase() + " view");
+            Label roleLabel = new Label("Welcome to " + roles[0] + " view");
             roleLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
             layout.getChildren().add(roleLabel);
         } else {
             // if the user has multiple roles, display buttons for each role
             for (String role : roles) {
                 System.out.println(role);
-                Button roleButton = new Button(role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase() + " View");
-                final String currentRole = role.trim();
+                Button roleButton = new Button(role + " View");
+                final String currentRole = role;
                 roleButton.setOnAction(e -> showRolePage(primaryStage, currentRole, user));
                 buttonContainer.getChildren().add(roleButton);
             }
         }
         
         Button logoutButton = new Button("Log out");
-        logoutButton.setOnAction(e -> new UserLoginPage(databaseHelper).show(primaryStage));
+        logoutButton.setOnAction(e -> {
+        	databaseHelper.async().endSession(user.getSessionToken()); // no need to wait for it
+        	new UserLoginPage(databaseHelper).show(primaryStage);
+        });
 
         layout.getChildren().addAll(userLabel, continuePage, buttonContainer, logoutButton);
 
@@ -75,14 +80,13 @@ public class UserHomePage {
         primaryStage.setScene(roleScene);
     }
     
-// function to extract roles from String to an array.
-    private String[] extractRoles(String roles) {
-        if (roles == null || roles.isEmpty()) {
+// function to list the display names of the user's roles.
+    private String[] extractRoles(User user) {
+        EnumSet<Role> roles = user.getRoles();
+        if (roles.isEmpty()) {
             return new String[]{"Default"};
         }
-        return roles.contains(",") ? 
-            roles.split("\\s*,\\s*") : 
-            new String[]{roles.trim()};
+        return roles.stream().map(Role::getDisplayName).toArray(String[]::new);
     }
 }
 	
\ No newline at end of file
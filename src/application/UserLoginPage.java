@@ -5,8 +5,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
-
 import databasePart1.*;
 
 /**
@@ -46,39 +44,40 @@ public class UserLoginPage {
 			new SetupLoginSelectionPage(databaseHelper).show(primaryStage);
 		});
 
+		ProgressIndicator spinner = FxAsync.newSpinner();
+
 		loginButton.setOnAction(a -> {
 			// Retrieve user inputs
 			String userName = userNameField.getText();
 			String password = passwordField.getText();
 
-			try {
-				// Extensive validation for subsequent login not needed.
-				// Check valid username length
-				if (userName.length() >= 4 && userName.length() <= 16) {
-					// check valid password length
-					if (password.length() >= 8) {
-						User user = new User(userName, password, "", "");
-						WelcomeLoginPage welcomeLoginPage = new WelcomeLoginPage(databaseHelper);
-
-						// Retrieve the user's role from the database using userName
-						String role = databaseHelper.getUserRole(userName);
-
-						if (role != null) {
-							user.setRole(role);
-
-							if (databaseHelper.login(user)) {
-								String email = databaseHelper.getUserEmail(userName);
-								user.setEmail(email);
+			// Extensive validation for subsequent login not needed.
+			// Check valid username length
+			if (userName.length() >= 4 && userName.length() <= 16) {
+				// check valid password length
+				if (password.length() >= 8) {
+					errorLabel1.setText("");
+					errorLabel2.setText("");
+					loginButton.setDisable(true);
+					spinner.setVisible(true);
+
+					// Check the credentials, load role, email and reset flag in one query, and start a session
+					FxAsync.whenDone(databaseHelper.async().authenticateSession(userName, password), result -> {
+						loginButton.setDisable(false);
+						spinner.setVisible(false);
+
+						if (result.getStatus() != AuthenticationResult.Status.UNKNOWN_USER) {
+
+							if (result.isSuccess()) {
+								// Carries the session token; later pages look the user up by it instead of the database
+								User user = result.toUser();
 								
 								// Check for password reset flag
-								if (databaseHelper.getPasswordResetFlag(user.getUserName())) {
-
-
+								if (result.isPasswordReset()) {
 									ResetPasswordPage resetPasswordPage = new ResetPasswordPage(databaseHelper);
 									resetPasswordPage.show(primaryStage, user);
-									
 								} else {
-									welcomeLoginPage.show(primaryStage, user);
+									new WelcomeLoginPage(databaseHelper).show(primaryStage, user);
 								}
 							} else {
 								// Display an error if the login fails
@@ -90,22 +89,22 @@ public class UserLoginPage {
 							errorLabel1.setText("user account doesn't exists");
 							errorLabel2.setText("");
 						}
-					} else {
-						errorLabel1.setText("Password is too short.");
-					}
+					}, error -> {
+						loginButton.setDisable(false);
+						spinner.setVisible(false);
+						errorLabel1.setText("Database error: " + error.getMessage());
+					});
 				} else {
-					errorLabel1.setText("Invalid Username length, must be between 4 and 16 characters");
+					errorLabel1.setText("Password is too short.");
 				}
-
-			} catch (SQLException e) {
-				System.err.println("Database error: " + e.getMessage());
-				e.printStackTrace();
+			} else {
+				errorLabel1.setText("Invalid Username length, must be between 4 and 16 characters");
 			}
 		});
 
 		VBox layout = new VBox(10);
 		layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
-		layout.getChildren().addAll(userNameField, passwordField, loginButton, backButton, errorLabel1, errorLabel2);
+		layout.getChildren().addAll(userNameField, passwordField, loginButton, spinner, backButton, errorLabel1, errorLabel2);
 
 		primaryStage.setScene(new Scene(layout, 800, 400));
 		primaryStage.setTitle("User Login");
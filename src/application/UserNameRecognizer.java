@@ -25,25 +25,38 @@ public class UserNameRecognizer {
 	/**********************************************************************************************
 	 * 
 	 * Result attributes to be used for GUI applications where a detailed error message and a 
-	 * pointer to the character of the error will enhance the user experience.
+	 * pointer to the character of the error will enhance the user experience. They are set by
+	 * checkForValidUserName() from its most recent call.
 	 * 
 	 */
 
 	public static String userNameRecognizerErrorMessage = "";	// The error message text
 	public static String userNameRecognizerInput = "";			// The input being processed
 	public static int userNameRecognizerIndexofError = -1;		// The index of error location
-	private static int state = 0;					// The current state value
-	private static int nextState = 0;				// The next state value
-	private static boolean finalState = false;		// Is this state a final state?
-	private static String inputLine = "";			// The input line
-	private static char currentChar;				// The current character in the line
-	private static int currentCharNdx;				// The index of the current character
-	private static boolean running;					// The flag that specifies if the FSM is 
+
+	// The state of one run of the FSM. Each run has its own, so runs on several threads at
+	// once do not interfere.
+	private final boolean trace;					// Display the execution trace?
+	private String errorMessage = "";				// The error message text of this run
+	private int indexOfError = -1;					// The index of error location of this run
+	private int state = 0;							// The current state value
+	private int nextState = 0;						// The next state value
+	private boolean finalState = false;				// Is this state a final state?
+	private String inputLine = "";					// The input line
+	private char currentChar;						// The current character in the line
+	private int currentCharNdx;						// The index of the current character
+	private boolean running;						// The flag that specifies if the FSM is 
 													// running
-	private static int userNameSize = 0;			// A numeric value may not exceed 16 characters
+	private int userNameSize = 0;					// A numeric value may not exceed 16 characters
+
+	private UserNameRecognizer(boolean trace) {
+		this.trace = trace;
+	}
 
 	// Private method to display debugging data
-	private static void displayDebuggingInfo() {
+	private void displayDebuggingInfo() {
+		if (!trace)
+			return;
 		// Display the current state of the FSM as part of an execution trace
 		if (currentCharNdx >= inputLine.length())
 			// display the line with the current state numbers aligned
@@ -57,7 +70,7 @@ public class UserNameRecognizer {
 	}
 	
 	// Private method to move to the next character within the limits of the input line
-	private static void moveToNextCharacter() {
+	private void moveToNextCharacter() {
 		currentCharNdx++;
 		if (currentCharNdx < inputLine.length())
 			currentChar = inputLine.charAt(currentCharNdx);
@@ -67,6 +80,34 @@ public class UserNameRecognizer {
 		}
 	}
 
+	/**********
+	 * This method runs the Finite State Machine with its execution trace on the console and
+	 * sets the result attributes above.
+	 * 
+	 * @param input		The input string for the Finite State Machine
+	 * @return			An output string that is empty if every things is okay or it is a String
+	 * 						with a helpful description of the error
+	 */
+	public static String checkForValidUserName(String input) {
+		UserNameRecognizer recognizer = new UserNameRecognizer(true);
+		String result = recognizer.recognize(input);
+		userNameRecognizerInput = input;
+		userNameRecognizerErrorMessage = recognizer.errorMessage;
+		userNameRecognizerIndexofError = recognizer.indexOfError;
+		return result;
+	}
+
+	/**********
+	 * Returns the same result as checkForValidUserName(), but prints no trace and does not touch
+	 * the result attributes, so any number of threads may call it at once.
+	 * 
+	 * @param input		The input string for the Finite State Machine
+	 * @return			An empty string if the UserName is valid, otherwise the error message
+	 */
+	public static String validateUserName(String input) {
+		return new UserNameRecognizer(false).recognize(input);
+	}
+
 	/**********
 	 * This method is a mechanical transformation of a Finite State Machine diagram into a Java
 	 * method.
@@ -75,10 +116,10 @@ public class UserNameRecognizer {
 	 * @return			An output string that is empty if every things is okay or it is a String
 	 * 						with a helpful description of the error
 	 */
-	public static String checkForValidUserName(String input) {
+	private String recognize(String input) {
 		// Check to ensure that there is input to process
 		if(input.length() <= 0) {
-			userNameRecognizerIndexofError = 0;	// Error at first character;
+			indexOfError = 0;	// Error at first character;
 			return "\nUsername cannot be empty";
 		}
 		
@@ -91,10 +132,10 @@ public class UserNameRecognizer {
 		// The Finite State Machines continues until the end of the input is reached or at some 
 		// state the current character does not match any valid transition to a next state
 
-		userNameRecognizerInput = input; // Save a copy of the input
 		running = true;				     // Start the loop
 		nextState = -1;					 // There is no next state
-		System.out.println("\nCurrent Final Input  Next  Date\nState   State Char  State  Size");
+		if (trace)
+			System.out.println("\nCurrent Final Input  Next  Date\nState   State Char  State  Size");
 		
 		// This is the place where semantic actions for a transition to the initial state occur
 		
@@ -219,23 +260,24 @@ public class UserNameRecognizer {
 		}
 		displayDebuggingInfo();
 		
-		System.out.println("The loop has ended.");
+		if (trace)
+			System.out.println("The loop has ended.");
 		
 		// When the FSM halts, we must determine if the situation is an error or not.  That depends
 		// of the current state of the FSM and whether or not the whole string has been consumed.
 		// This switch directs the execution to separate code for each of the FSM states and that
 		// makes it possible for this code to display a very specific error message to improve the
 		// user experience.
-		userNameRecognizerIndexofError = currentCharNdx;	// Set index of a possible error;
-		userNameRecognizerErrorMessage = "\n";
+		indexOfError = currentCharNdx;	// Set index of a possible error;
+		errorMessage = "\n";
 		
 		// The following code is a slight variation to support just console output.
 		// Generate Error Message
 		switch (state) {
 		case 0:
 			// State 0 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage += "A UserName must start with A-Z or a-z.\n";
-			return userNameRecognizerErrorMessage;
+			errorMessage += "A UserName must start with A-Z or a-z.\n";
+			return errorMessage;
 
 		case 1:
 			// State 1 is a final state.  Check to see if the UserName length is valid.  If so we
@@ -243,33 +285,33 @@ public class UserNameRecognizer {
 
 			if (userNameSize < 4) {
 				// UserName is too small
-				userNameRecognizerErrorMessage += "A UserName must have at least 4 characters.\n";
-				return userNameRecognizerErrorMessage;
+				errorMessage += "A UserName must have at least 4 characters.\n";
+				return errorMessage;
 			}
 			else if (userNameSize > 16) {
 				// UserName is too long
-				userNameRecognizerErrorMessage += 
+				errorMessage += 
 					"A UserName must have no more than 16 character.\n";
-				return userNameRecognizerErrorMessage;
+				return errorMessage;
 			}
 			else if (currentCharNdx < input.length()) {
 				// There are characters remaining in the input, so the input is not valid
-				userNameRecognizerErrorMessage += 
+				errorMessage += 
 					"A UserName character may only contain the characters A-Z, a-z, 0-9.\n";
-				return userNameRecognizerErrorMessage;
+				return errorMessage;
 			}
 			else {
 					// UserName is valid
-					userNameRecognizerIndexofError = -1;
-					userNameRecognizerErrorMessage = "";
-					return userNameRecognizerErrorMessage;
+					indexOfError = -1;
+					errorMessage = "";
+					return errorMessage;
 			}
 
 		case 2:
 			// State 2 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage +=
+			errorMessage +=
 				"A UserName character after a period, minus, or underscore must be A-Z, a-z, 0-9.\n";
-			return userNameRecognizerErrorMessage;
+			return errorMessage;
 			
 		default:
 			// This is for the case where we have a state that is outside of the valid range.
@@ -0,0 +1,46 @@
+package application;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+
+import databasePart1.DatabaseHelper;
+
+/**
+ * UsernameAvailability shows under a userName field whether the typed name is still free,
+ * updated as the user types. Most names typed during signup were never registered, so the
+ * username filter in DatabaseHelper answers them without a query.
+ */
+final class UsernameAvailability {
+
+	private UsernameAvailability() {
+	}
+
+	// Returns a label that follows the field. Only names that pass UserNameRecognizer are
+	// looked up, and a reply is dropped if the user typed again before it arrived.
+	static Label attach(TextField userNameField, DatabaseHelper databaseHelper) {
+		Label label = new Label();
+		label.setStyle("-fx-font-size: 12px;");
+		long[] generation = { 0 };
+
+		userNameField.textProperty().addListener((observable, oldValue, userName) -> {
+			long requested = ++generation[0];
+			if (userName.length() < 4 || !UserNameRecognizer.validateUserName(userName).isEmpty()) {
+				label.setText("");
+				return;
+			}
+			FxAsync.whenDone(databaseHelper.async().isUsernameAvailable(userName), available -> {
+				if (requested != generation[0]) {
+					return; // the field changed since this check started
+				}
+				label.setText(available ? "Username is available" : "Username is already taken");
+				label.setStyle(available ? "-fx-text-fill: green; -fx-font-size: 12px;"
+						: "-fx-text-fill: red; -fx-font-size: 12px;");
+			}, error -> {
+				if (requested == generation[0]) {
+					label.setText("");
+				}
+			});
+		});
+		return label;
+	}
+}
@@ -31,17 +31,7 @@ public class WelcomeLoginPage {
 	    // check user roles for admin permissions
 	    Button continueButton = new Button("Continue to your Page");
 	    continueButton.setOnAction(a -> {
-	    	String[] roles = extractRoles(user.getRole());
-	    	
-	    	boolean isAdmin = false;
-            for (String role : roles) {
-                if (role.trim().equalsIgnoreCase("admin")) {
-                    isAdmin = true;
-                    break;
-                }
-            }
-
-            if (isAdmin) {
+            if (user.hasRole(Role.ADMIN)) {
                 new AdminHomePage(databaseHelper).show(primaryStage, user);
             } else {
                 new UserHomePage(databaseHelper).show(primaryStage, user);
@@ -65,13 +55,5 @@ public class WelcomeLoginPage {
 	    primaryStage.setScene(welcomeScene);
 	    primaryStage.setTitle("Welcome Page");
     }
-    
-    private String[] extractRoles(String roles) {
-        if (roles == null || roles.isEmpty()) {
-            return new String[]{"Default"};
-        }
-        return roles.contains(",") ? 
-            roles.split("\\s*,\\s*") : 
-            new String[]{roles.trim()};
-    }
+
 }
\ No newline at end of file
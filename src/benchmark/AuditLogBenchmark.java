@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import databasePart1.AuditEvent;
+import databasePart1.AuditLog;
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Compares what auditing costs the thread that logs in: a synchronous INSERT into audit_events
+ * per event (autocommit, as a page would do inline), against AuditLog.record(), which only
+ * queues the event for the background writer. Several threads record at once. The second
+ * figure for the write-behind log includes close(), i.e. the time until every event is stored.
+ *
+ * Runs on an embedded file database in a temporary directory, where each commit reaches the
+ * disk, like the application's default profile.
+ *
+ * Usage: java benchmark.AuditLogBenchmark [events] [threads]
+ */
+public class AuditLogBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int events = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		Path directory = Files.createTempDirectory("auditbench");
+		DatabaseConfig config = DatabaseConfig.file(directory.resolve("audit").toString());
+
+		DatabaseHelper databaseHelper = new DatabaseHelper(config);
+		databaseHelper.connectToDatabase();
+		try {
+			for (int round = 0; round < 2; round++) {
+				boolean warmup = round == 0;
+				int count = warmup ? events / 5 : events;
+
+				long start = System.nanoTime();
+				run(threads, count, i -> insertDirectly(config, i));
+				report(warmup, "synchronous insert", count, System.nanoTime() - start, -1);
+
+				AuditLog log = new AuditLog(databaseHelper.getConnectionPool(), 1 << 16, 500,
+						AuditLog.OverflowPolicy.CALLER_WRITES);
+				log.start(100);
+				start = System.nanoTime();
+				run(threads, count, i -> log.record(AuditEvent.Type.LOGIN_SUCCEEDED, "user" + i, "user" + i, null));
+				long recordNanos = System.nanoTime() - start;
+				log.close();
+				report(warmup, "write-behind record()", count, recordNanos, System.nanoTime() - start);
+				if (!warmup) {
+					System.out.println("  " + log.getStats());
+				}
+			}
+		} finally {
+			for (Connection connection : CONNECTIONS) {
+				connection.close();
+			}
+			databaseHelper.closeConnection();
+			try (var files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	private interface EventSink {
+		void accept(int i) throws Exception;
+	}
+
+	// One connection per thread, like the pool would hand out; closed at the end
+	private static final ThreadLocal<PreparedStatement> INSERTS = new ThreadLocal<>();
+	private static final List<Connection> CONNECTIONS = new CopyOnWriteArrayList<>();
+
+	private static void insertDirectly(DatabaseConfig config, int i) throws Exception {
+		PreparedStatement insert = INSERTS.get();
+		if (insert == null) {
+			Connection connection = DriverManager.getConnection(config.getJdbcUrl(), config.getUser(),
+					config.getPassword());
+			CONNECTIONS.add(connection);
+			insert = connection.prepareStatement("INSERT INTO audit_events (occurredAt, eventType, actor, subject, detail) "
+					+ "VALUES (?, ?, ?, ?, NULL)");
+			INSERTS.set(insert);
+		}
+		insert.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+		insert.setString(2, AuditEvent.Type.LOGIN_SUCCEEDED.name());
+		insert.setString(3, "user" + i);
+		insert.setString(4, "user" + i);
+		insert.executeUpdate();
+	}
+
+	private static void run(int threads, int count, EventSink sink) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		int perThread = count / threads;
+		for (int t = 0; t < threads; t++) {
+			int first = t * perThread;
+			futures.add(executor.submit(() -> {
+				for (int i = first; i < first + perThread; i++) {
+					sink.accept(i);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+	}
+
+	private static void report(boolean warmup, String label, int count, long callerNanos, long storedNanos) {
+		if (warmup) {
+			return;
+		}
+		System.out.printf("%-22s %,7d events: %6.2f us per event for the caller", label, count,
+				callerNanos / 1_000.0 / count);
+		System.out.printf(", all stored after %,d ms%n", (storedNanos >= 0 ? storedNanos : callerNanos) / 1_000_000);
+	}
+}
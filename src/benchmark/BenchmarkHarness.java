@@ -0,0 +1,324 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A small JMH-style harness for the benchmark suite. Each benchmark is run once per parameter
+ * value: a fixture is set up, a number of warm-up iterations let the JIT compile the code under
+ * test, then the measurement iterations are timed. Every iteration calls the operation a fixed
+ * number of times and yields one average time per operation; the score is the mean of those
+ * averages and the error is the half-width of its 99.9% confidence interval, as JMH reports it.
+ * Return values go to a sink the JIT cannot prove unused, so no call is optimized away.
+ *
+ * Unlike JMH, every benchmark runs in the same JVM, one after another. Profiles collected by an
+ * earlier benchmark can therefore influence a later one; to compare two commits, run the same
+ * selection of benchmarks on both.
+ *
+ * The validators print their progress to System.out, so output is discarded while a fixture
+ * is set up or measured.
+ */
+public final class BenchmarkHarness {
+
+	// One benchmark's state for one parameter value
+	public interface Fixture extends AutoCloseable {
+
+		// Called before each iteration, outside the timed region, e.g. to create the data it consumes
+		default void beforeIteration(int operations) throws Exception {
+		}
+
+		// One operation; i counts the calls of the current iteration from 0
+		Object invoke(int i) throws Exception;
+
+		// Narrower than AutoCloseable's, so try-with-resources need not expect an InterruptedException
+		@Override
+		default void close() throws SQLException {
+		}
+	}
+
+	public interface FixtureFactory {
+		Fixture create(int param) throws Exception;
+	}
+
+	// Student's t quantiles for a two-sided 99.9% interval, by degrees of freedom 1..30
+	private static final double[] T_999 = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041,
+			4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819,
+			3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+
+	private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+	private final List<Definition> definitions = new ArrayList<>();
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final double operationScale;
+
+	// operationScale multiplies every benchmark's operations per iteration, e.g. 0.1 for a quick run
+	public BenchmarkHarness(int warmupIterations, int measurementIterations, double operationScale) {
+		if (warmupIterations < 0 || measurementIterations < 2) {
+			throw new IllegalArgumentException("Need at least 2 measurement iterations");
+		}
+		if (operationScale <= 0) {
+			throw new IllegalArgumentException("Invalid operation scale: " + operationScale);
+		}
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.operationScale = operationScale;
+	}
+
+	// Adds a benchmark without a parameter
+	public void add(String name, int operationsPerIteration, FixtureFactory factory) {
+		add(name, null, new int[] { 0 }, operationsPerIteration, factory);
+	}
+
+	// Adds a benchmark that runs once for each value of the named parameter
+	public void add(String name, String paramName, int[] params, int operationsPerIteration, FixtureFactory factory) {
+		definitions.add(new Definition(name, paramName, params.clone(), operationsPerIteration, factory));
+	}
+
+	// Runs every benchmark whose name matches the filter and prints each result as it completes
+	public List<Result> run(Pattern filter, PrintStream console) throws Exception {
+		List<Result> results = new ArrayList<>();
+		for (Definition definition : definitions) {
+			if (!filter.matcher(definition.name).find()) {
+				continue;
+			}
+			for (int param : definition.params) {
+				Result result = run(definition, param);
+				console.println(result);
+				results.add(result);
+			}
+		}
+		return results;
+	}
+
+	private Result run(Definition definition, int param) throws Exception {
+		int operations = Math.max(1, (int) Math.round(definition.operationsPerIteration * operationScale));
+		double[] nanosPerOperation = new double[measurementIterations];
+		PrintStream out = System.out;
+		System.setOut(DISCARD);
+		try (Fixture fixture = definition.factory.create(param)) {
+			for (int iteration = 0; iteration < warmupIterations; iteration++) {
+				iterate(fixture, operations);
+			}
+			for (int iteration = 0; iteration < measurementIterations; iteration++) {
+				nanosPerOperation[iteration] = (double) iterate(fixture, operations) / operations;
+			}
+		} finally {
+			System.setOut(out);
+		}
+		return new Result(definition.name, definition.paramName, param, operations, nanosPerOperation);
+	}
+
+	private static long iterate(Fixture fixture, int operations) throws Exception {
+		fixture.beforeIteration(operations);
+		Sink sink = SINK;
+		long start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			sink.consume(fixture.invoke(i));
+		}
+		return System.nanoTime() - start;
+	}
+
+	// Keeps results reachable from a static field, so computing them cannot be skipped
+	private static final Sink SINK = new Sink();
+
+	private static final class Sink {
+		Object last;
+
+		void consume(Object value) {
+			last = value;
+		}
+	}
+
+	// Writes the results to a JSON report, one result per line so reports diff well
+	public void writeReport(Path file, String commit, List<Result> results) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"timestamp\": ").append(quote(Instant.now().toString())).append(",\n");
+		json.append("  \"commit\": ").append(commit == null ? "null" : quote(commit)).append(",\n");
+		json.append("  \"jvm\": ").append(quote(System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version"))).append(",\n");
+		json.append("  \"os\": ").append(quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")))
+				.append(",\n");
+		json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+		json.append("  \"warmupIterations\": ").append(warmupIterations).append(",\n");
+		json.append("  \"measurementIterations\": ").append(measurementIterations).append(",\n");
+		json.append("  \"results\": [\n");
+		for (int i = 0; i < results.size(); i++) {
+			json.append("    ").append(results.get(i).toJson()).append(i + 1 < results.size() ? ",\n" : "\n");
+		}
+		json.append("  ]\n");
+		json.append("}\n");
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.writeString(file, json);
+	}
+
+	private static final Pattern RESULT_LINE = Pattern.compile("\\{\"benchmark\": \"([^\"]*)\", "
+			+ "\"param\": (?:null|\"([^\"]*)\"), \"value\": (-?\\d+|null), .*\"score\": ([-0-9.eE]+), \"error\": ([-0-9.eE]+)");
+
+	// Scores and errors of a report written by writeReport(), keyed by Result.key()
+	public static Map<String, double[]> readReport(Path file) throws IOException {
+		Map<String, double[]> scores = new LinkedHashMap<>();
+		for (String line : Files.readAllLines(file)) {
+			Matcher matcher = RESULT_LINE.matcher(line);
+			if (matcher.find()) {
+				String key = key(matcher.group(1), matcher.group(2),
+						matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(3)));
+				scores.put(key, new double[] { Double.parseDouble(matcher.group(4)),
+						Double.parseDouble(matcher.group(5)) });
+			}
+		}
+		return scores;
+	}
+
+	// Prints each result next to the baseline's and returns how many got slower by more than
+	// the threshold (0.10 = 10%) and by more than both error margins together
+	public static int compare(List<Result> results, Map<String, double[]> baseline, double threshold,
+			PrintStream console) {
+		int regressions = 0;
+		for (Result result : results) {
+			double[] before = baseline.get(result.key());
+			if (before == null) {
+				console.printf("%-48s %12.1f ns/op  (new)%n", result.key(), result.score);
+				continue;
+			}
+			double change = (result.score - before[0]) / before[0];
+			boolean regressed = change > threshold && result.score - result.error > before[0] + before[1];
+			if (regressed) {
+				regressions++;
+			}
+			console.printf("%-48s %12.1f -> %12.1f ns/op  %+7.1f%%%s%n", result.key(), before[0], result.score,
+					change * 100, regressed ? "  REGRESSION" : "");
+		}
+		return regressions;
+	}
+
+	static String key(String benchmark, String paramName, int value) {
+		return paramName == null ? benchmark : benchmark + "[" + paramName + "=" + value + "]";
+	}
+
+	private static String quote(String text) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : text.toCharArray()) {
+			switch (c) {
+				case '"' -> quoted.append("\\\"");
+				case '\\' -> quoted.append("\\\\");
+				default -> {
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private static final class Definition {
+		final String name;
+		final String paramName;
+		final int[] params;
+		final int operationsPerIteration;
+		final FixtureFactory factory;
+
+		Definition(String name, String paramName, int[] params, int operationsPerIteration, FixtureFactory factory) {
+			this.name = name;
+			this.paramName = paramName;
+			this.params = params;
+			this.operationsPerIteration = operationsPerIteration;
+			this.factory = factory;
+		}
+	}
+
+	/**
+	 * The measurements of one benchmark for one parameter value. Times are in nanoseconds per
+	 * operation.
+	 */
+	public static final class Result {
+		private final String benchmark;
+		private final String paramName;
+		private final int param;
+		private final int operationsPerIteration;
+		private final double[] iterations;
+		private final double score;
+		private final double error;
+
+		Result(String benchmark, String paramName, int param, int operationsPerIteration, double[] iterations) {
+			this.benchmark = benchmark;
+			this.paramName = paramName;
+			this.param = param;
+			this.operationsPerIteration = operationsPerIteration;
+			this.iterations = iterations;
+			double sum = 0;
+			for (double nanos : iterations) {
+				sum += nanos;
+			}
+			score = sum / iterations.length;
+			double squares = 0;
+			for (double nanos : iterations) {
+				squares += (nanos - score) * (nanos - score);
+			}
+			double standardDeviation = Math.sqrt(squares / (iterations.length - 1));
+			int degreesOfFreedom = iterations.length - 1;
+			double t = degreesOfFreedom <= T_999.length ? T_999[degreesOfFreedom - 1] : 3.291;
+			error = t * standardDeviation / Math.sqrt(iterations.length);
+		}
+
+		public String getBenchmark() { return benchmark; }
+		public String getParamName() { return paramName; }
+		public int getParam() { return param; }
+		public double getScore() { return score; }
+		public double getError() { return error; }
+
+		public double getOperationsPerSecond() {
+			return 1e9 / score;
+		}
+
+		String key() {
+			return BenchmarkHarness.key(benchmark, paramName, param);
+		}
+
+		String toJson() {
+			StringBuilder json = new StringBuilder();
+			json.append("{\"benchmark\": ").append(quote(benchmark));
+			json.append(", \"param\": ").append(paramName == null ? "null" : quote(paramName));
+			json.append(", \"value\": ").append(paramName == null ? "null" : String.valueOf(param));
+			json.append(", \"mode\": \"avgt\", \"unit\": \"ns/op\"");
+			json.append(", \"operationsPerIteration\": ").append(operationsPerIteration);
+			json.append(", \"score\": ").append(format(score));
+			json.append(", \"error\": ").append(format(error));
+			json.append(", \"opsPerSecond\": ").append(format(getOperationsPerSecond()));
+			json.append(", \"iterations\": [");
+			for (int i = 0; i < iterations.length; i++) {
+				json.append(i == 0 ? "" : ", ").append(format(iterations[i]));
+			}
+			return json.append("]}").toString();
+		}
+
+		private static String format(double value) {
+			return String.format(Locale.ROOT, "%.3f", value);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-48s %12.1f +- %9.1f ns/op  %,14.0f ops/s", key(), score, error,
+					getOperationsPerSecond());
+		}
+	}
+}
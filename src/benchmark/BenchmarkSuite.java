@@ -0,0 +1,226 @@
+package benchmark;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import application.EmailValidator;
+import application.PasswordEvaluator;
+import application.Role;
+import application.User;
+import application.UserNameRecognizer;
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+
+/**
+ * The benchmark suite that runs on every commit: the three input validators at several input
+ * lengths, password generation, and register, login, getAllUsers and validateInvitationCode on
+ * a private in-memory database holding a given number of rows. Results are printed and written
+ * to a JSON report (by default benchmark-results/<commit>.json); given the report of an earlier
+ * commit as a baseline, every score is compared with it and the exit status is 1 when one got
+ * slower by more than the threshold.
+ *
+ * Usage: java benchmark.BenchmarkSuite [--filter regex] [--out report.json] [--baseline report.json]
+ *        [--threshold percent] [--warmup iterations] [--iterations iterations] [--scale factor]
+ *        [--commit id]
+ */
+public class BenchmarkSuite {
+
+	public static void main(String[] args) throws Exception {
+		Pattern filter = Pattern.compile(option(args, "--filter", ""));
+		String commit = option(args, "--commit", null);
+		if (commit == null) {
+			commit = currentCommit();
+		}
+		Path out = Path.of(option(args, "--out", "benchmark-results/"
+				+ (commit != null ? commit : String.valueOf(System.currentTimeMillis())) + ".json"));
+		String baseline = option(args, "--baseline", null);
+		double threshold = Double.parseDouble(option(args, "--threshold", "10")) / 100;
+
+		BenchmarkHarness harness = new BenchmarkHarness(Integer.parseInt(option(args, "--warmup", "5")),
+				Integer.parseInt(option(args, "--iterations", "10")),
+				Double.parseDouble(option(args, "--scale", "1")));
+		addBenchmarks(harness);
+
+		List<BenchmarkHarness.Result> results = harness.run(filter, System.out);
+		harness.writeReport(out, commit, results);
+		System.out.println("Report written to " + out.toAbsolutePath());
+
+		if (baseline != null) {
+			Map<String, double[]> before = BenchmarkHarness.readReport(Path.of(baseline));
+			System.out.println("Compared with " + baseline + ":");
+			int regressions = BenchmarkHarness.compare(results, before, threshold, System.out);
+			if (regressions > 0) {
+				System.out.println(regressions + " benchmark(s) slower by more than " + Math.round(threshold * 100) + "%");
+				System.exit(1);
+			}
+		}
+	}
+
+	static void addBenchmarks(BenchmarkHarness harness) {
+		harness.add("validators.userName", "length", new int[] { 4, 16, 64 }, 10_000, length -> {
+			String input = userName(length);
+			return i -> UserNameRecognizer.checkForValidUserName(input);
+		});
+		harness.add("validators.password", "length", new int[] { 8, 64, 256 }, 1_000, length -> {
+			String input = password(length);
+			return i -> PasswordEvaluator.evaluatePassword(input);
+		});
+		harness.add("validators.email", "length", new int[] { 16, 64, 254 }, 20_000, length -> {
+			EmailValidator validator = new EmailValidator();
+			String input = email(length);
+			return i -> validator.isValidEmail(input);
+		});
+
+		harness.add("database.generatePassword", 20_000, param -> {
+			DatabaseFixture fixture = new DatabaseFixture(0);
+			return fixture.with(i -> fixture.databaseHelper.generatePassword());
+		});
+		harness.add("database.register", "users", new int[] { 100, 10_000 }, 500, users -> {
+			DatabaseFixture fixture = new DatabaseFixture(users);
+			int[] next = { users };
+			return fixture.with(i -> {
+				int n = next[0]++;
+				fixture.databaseHelper.register(new User("user" + n, "Password" + n + "!", "student", "user" + n + "@asu.edu"));
+				return n;
+			});
+		});
+		harness.add("database.login", "users", new int[] { 100, 10_000 }, 5_000, users -> {
+			DatabaseFixture fixture = new DatabaseFixture(users);
+			return fixture.with(i -> {
+				int n = (int) ((i * 7919L) % users); // spread over the table
+				return fixture.databaseHelper.login(new User("user" + n, "Password" + n + "!", "student", ""));
+			});
+		});
+		harness.add("database.getAllUsers", "users", new int[] { 100, 1_000, 10_000 }, 50, users -> {
+			DatabaseFixture fixture = new DatabaseFixture(users);
+			return fixture.with(i -> fixture.databaseHelper.getAllUsers());
+		});
+		harness.add("database.validateInvitationCode", "codes", new int[] { 100, 10_000 }, 500, codes -> {
+			DatabaseFixture fixture = new DatabaseFixture(0);
+			fixture.generateCodes(codes);
+			ArrayDeque<String> unused = new ArrayDeque<>();
+			return new BenchmarkHarness.Fixture() {
+				// Each call redeems a code, so every iteration gets fresh ones
+				@Override
+				public void beforeIteration(int operations) throws Exception {
+					unused.clear();
+					unused.addAll(fixture.generateCodes(operations));
+				}
+
+				@Override
+				public Object invoke(int i) {
+					return fixture.databaseHelper.validateInvitationCode(unused.poll());
+				}
+
+				@Override
+				public void close() throws SQLException {
+					fixture.close();
+				}
+			};
+		});
+	}
+
+	// A valid user name of the given length, e.g. "abcd12ab..."
+	static String userName(int length) {
+		StringBuilder name = new StringBuilder("a");
+		String tail = "bcd123";
+		while (name.length() < length) {
+			name.append(tail.charAt(name.length() % tail.length()));
+		}
+		return name.toString();
+	}
+
+	// A password meeting every rule, padded with lower case letters
+	static String password(int length) {
+		return "Aa1!" + "x".repeat(Math.max(0, length - 4));
+	}
+
+	static String email(int length) {
+		String domain = "@asu.edu";
+		return "a".repeat(Math.max(1, length - domain.length())) + domain;
+	}
+
+	private interface Operation {
+		Object invoke(int i) throws Exception;
+	}
+
+	// A DatabaseHelper on a new in-memory database with users user0..user(n-1)
+	private static final class DatabaseFixture implements AutoCloseable {
+		final DatabaseHelper databaseHelper;
+
+		DatabaseFixture(int users) throws Exception {
+			databaseHelper = new DatabaseHelper(DatabaseConfig.memory());
+			databaseHelper.connectToDatabase();
+			if (users > 0) {
+				StringBuilder roster = new StringBuilder();
+				for (int n = 0; n < users; n++) {
+					roster.append("user").append(n).append(",Password").append(n).append("!,student,user").append(n)
+							.append("@asu.edu\n");
+				}
+				databaseHelper.importUsers(new StringReader(roster.toString()));
+			}
+		}
+
+		List<String> generateCodes(int count) throws Exception {
+			Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+			return databaseHelper.generateInvitationCodes(count, EnumSet.of(Role.STUDENT), expiresAt);
+		}
+
+		BenchmarkHarness.Fixture with(Operation operation) {
+			return new BenchmarkHarness.Fixture() {
+				@Override
+				public Object invoke(int i) throws Exception {
+					return operation.invoke(i);
+				}
+
+				@Override
+				public void close() throws SQLException {
+					DatabaseFixture.this.close();
+				}
+			};
+		}
+
+		// Shuts the database down after the helper has flushed its audit log, since an in-memory
+		// database with DB_CLOSE_DELAY=-1 outlives its last connection
+		@Override
+		public void close() throws SQLException {
+			databaseHelper.closeConnection();
+			DatabaseConfig config = databaseHelper.getConfig();
+			try (Connection connection = DriverManager.getConnection(config.getJdbcUrl(), config.getUser(),
+					config.getPassword()); Statement statement = connection.createStatement()) {
+				statement.execute("SHUTDOWN");
+			}
+		}
+	}
+
+	private static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	// Short id of the checked-out commit, or null outside a git work tree
+	private static String currentCommit() {
+		try {
+			Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+			String output = new String(git.getInputStream().readAllBytes()).trim();
+			return git.waitFor() == 0 && output.matches("[0-9a-f]+") ? output : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import application.Role;
+import application.User;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Compares the admin bulk operations (deleteUsers, updateRoles, resetPasswords) with the
+ * per-user calls AdminEditUsersPage made before, on a sample of users from a large
+ * cse360users table in a private in-memory database.
+ *
+ * Usage: java benchmark.BulkUserOperationsBenchmark [rows] [selected]
+ */
+public class BulkUserOperationsBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int selected = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+		String url = "jdbc:h2:mem:bulkbench;DB_CLOSE_DELAY=-1";
+
+		DatabaseHelper databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			try (Connection connection = DriverManager.getConnection(url, "sa", "");
+					Statement statement = connection.createStatement()) {
+				statement.execute("INSERT INTO cse360users (userName, password, email, roleMask) "
+						+ "SELECT 'u' || X, 'Password1!', 'mail' || X || '@asu.edu', " + Role.STUDENT.bit()
+						+ " FROM SYSTEM_RANGE(1, " + rows + ")");
+			}
+			databaseHelper.rebuildUsernameFilter();
+
+			// Each case gets its own disjoint slice of users; the first two rounds warm up
+			for (int round = 0; round < 3; round++) {
+				boolean warmup = round < 2;
+				int base = round * 6;
+
+				List<String> names = slice(base, selected, rows);
+				long start = System.nanoTime();
+				for (String name : names) {
+					User user = databaseHelper.getUserByUsername(name);
+					user.setRoles(EnumSet.of(Role.STUDENT, Role.REVIEWER));
+					databaseHelper.updateUser(name, user);
+				}
+				report(warmup, "roles, one at a time", selected, start);
+				names = slice(base + 1, selected, rows);
+				start = System.nanoTime();
+				databaseHelper.updateRoles(names, EnumSet.of(Role.REVIEWER), EnumSet.noneOf(Role.class));
+				report(warmup, "roles, updateRoles", selected, start);
+
+				names = slice(base + 2, selected, rows);
+				start = System.nanoTime();
+				for (String name : names) {
+					User user = databaseHelper.getUserByUsername(name);
+					user.setPassword(databaseHelper.generatePassword());
+					databaseHelper.updateUser(name, user);
+					databaseHelper.setPasswordReset(name, true);
+				}
+				report(warmup, "reset, one at a time", selected, start);
+				names = slice(base + 3, selected, rows);
+				start = System.nanoTime();
+				databaseHelper.resetPasswords(names);
+				report(warmup, "reset, resetPasswords", selected, start);
+
+				names = slice(base + 4, selected, rows);
+				start = System.nanoTime();
+				for (String name : names) {
+					databaseHelper.deleteUser(name);
+				}
+				report(warmup, "delete, one at a time", selected, start);
+				names = slice(base + 5, selected, rows);
+				start = System.nanoTime();
+				databaseHelper.deleteUsers(names);
+				report(warmup, "delete, deleteUsers", selected, start);
+			}
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// Every 19th user starting at offset k, so slices are spread over the table and disjoint
+	private static List<String> slice(int k, int count, int rows) {
+		List<String> names = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			names.add("u" + (((long) i * 19 + k) % rows + 1));
+		}
+		return names;
+	}
+
+	private static void report(boolean warmup, String label, int users, long start) {
+		if (!warmup) {
+			long nanos = System.nanoTime() - start;
+			System.out.printf("%-24s %,d users in %,6d ms%n", label, users, nanos / 1_000_000);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.EnumSet;
+import java.util.List;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Compares generating invitation codes one call at a time (generateInvitationCode) with the
+ * batched generateInvitationCodes(), which inserts them in one transaction. Each run uses a
+ * fresh database, in memory and in a temporary file, so the cost of the per-code commits
+ * shows up.
+ *
+ * Usage: java benchmark.InvitationBatchBenchmark [codes]
+ */
+public class InvitationBatchBenchmark {
+
+	private static final Timestamp EXPIRES_AT = new Timestamp(System.currentTimeMillis() + 7L * 24 * 3_600_000);
+	private static final EnumSet<Role> ROLES = EnumSet.of(Role.STUDENT);
+
+	public static void main(String[] args) throws Exception {
+		int codes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+		// Warm up both paths before measuring
+		run("jdbc:h2:mem:invitationwarmup", codes, false);
+		run("jdbc:h2:mem:invitationwarmup", codes, true);
+
+		Path dir = Files.createTempDirectory("invitationbench");
+		for (String storage : new String[] { "memory", "file" }) {
+			for (boolean batched : new boolean[] { false, true }) {
+				String url = storage.equals("memory")
+						? "jdbc:h2:mem:invitationbench" + batched
+						: "jdbc:h2:" + dir.resolve("bench" + batched).toAbsolutePath();
+				long nanos = run(url, codes, batched);
+				System.out.printf("%-6s %-14s %,d codes in %,d ms (%,.0f codes/s)%n", storage,
+						batched ? "batched" : "one at a time", codes, nanos / 1_000_000, codes / (nanos / 1e9));
+			}
+		}
+	}
+
+	// Generates the codes in a fresh database and returns the elapsed nanoseconds
+	private static long run(String url, int codes, boolean batched) throws Exception {
+		DatabaseHelper databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			databaseHelper.resetDatabase();
+			long start = System.nanoTime();
+			if (batched) {
+				List<String> generated = databaseHelper.generateInvitationCodes(codes, ROLES, EXPIRES_AT);
+				if (generated.size() != codes) {
+					throw new AssertionError("generated " + generated.size());
+				}
+			} else {
+				for (int i = 0; i < codes; i++) {
+					databaseHelper.generateInvitationCode(ROLES, EXPIRES_AT);
+				}
+			}
+			return System.nanoTime() - start;
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+import databasePart1.InvitationReaper;
+
+/**
+ * Fills InvitationCodes with a backlog (1,000,000 rows by default: a third live, a third used,
+ * a third long expired) in a private in-memory database. It then reports:
+ * - redemption latency before and after the reaper clears the backlog
+ * - how fast the reaper deletes rows
+ * - in steady state (a few newly used codes among the live ones), the cost of a reaper
+ *   run with and without the expiresAt and isUsed indexes
+ *
+ * Usage: java benchmark.InvitationReaperBenchmark [rows] [lookups]
+ */
+public class InvitationReaperBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+		String url = "jdbc:h2:mem:reaperbench;DB_CLOSE_DELAY=-1";
+
+		DatabaseHelper databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			populate(url, rows);
+			measureLookups("warmup", databaseHelper, rows, lookups, -1);
+			measureLookups("before reaping", databaseHelper, rows, lookups, 0);
+
+			InvitationReaper reaper = databaseHelper.invitationReaper();
+			long start = System.nanoTime();
+			int runs = 0;
+			long reaped = 0;
+			int deleted;
+			while ((deleted = reaper.reapOnce()) > 0) {
+				reaped += deleted;
+				runs++;
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("reaped %,d rows in %d runs, %.1f s (%,.0f rows/s), %,d left%n",
+					reaped, runs, seconds, reaped / seconds, reaper.getStats().getRemainingRows());
+
+			measureLookups("after reaping", databaseHelper, rows, lookups, 1);
+
+			// Steady state: the live codes remain and 1000 of them were just used
+			reaper.reapOnce(); // the codes redeemed by the lookups above
+			useLiveCodes(databaseHelper, rows, 3);
+			System.out.printf("steady-state run with indexes:    %,d ms%n", timeOneRun(databaseHelper));
+			try (Connection connection = DriverManager.getConnection(url, "sa", "");
+					Statement statement = connection.createStatement()) {
+				statement.execute("DROP INDEX idx_invites_expires");
+				statement.execute("DROP INDEX idx_invites_used");
+			}
+			useLiveCodes(databaseHelper, rows, 4);
+			System.out.printf("steady-state run without indexes: %,d ms%n", timeOneRun(databaseHelper));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// Codes are K1..Kn: X mod 3 = 0 long expired, 1 used, 2 live
+	private static void populate(String url, int rows) throws Exception {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("INSERT INTO InvitationCodes (code, roleMask, expiresAt, isUsed) "
+					+ "SELECT 'K' || X, " + Role.STUDENT.bit() + ", "
+					+ "CASEWHEN(MOD(X, 3) = 0, DATEADD('DAY', -30, CURRENT_TIMESTAMP), DATEADD('DAY', 30, CURRENT_TIMESTAMP)), "
+					+ "MOD(X, 3) = 1 FROM SYSTEM_RANGE(1, " + rows + ")");
+		}
+	}
+
+	// Redeems random live codes for even i == offset, and looks up missing codes otherwise.
+	// An offset of -1 only looks up missing codes.
+	private static void measureLookups(String label, DatabaseHelper databaseHelper, int rows, int lookups, int offset) {
+		long[] latencies = new long[lookups];
+		for (int i = 0; i < lookups; i++) {
+			int x = liveCode(ThreadLocalRandom.current().nextInt(liveCodes(rows) / 2));
+			String code = "K" + x;
+			long begin = System.nanoTime();
+			databaseHelper.redeemInvitationCode(i % 2 == offset ? code : "missing" + x);
+			latencies[i] = System.nanoTime() - begin;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("redeem %-15s p50 %6.1f us  p99 %6.1f us%n", label,
+				latencies[lookups / 2] / 1e3, latencies[lookups * 99 / 100] / 1e3);
+	}
+
+	// Number of live codes, and the X of the k-th one
+	private static int liveCodes(int rows) {
+		return (rows + 1) / 3;
+	}
+
+	private static int liveCode(int k) {
+		return 3 * k + 2;
+	}
+
+	// Redeems 1000 live codes from the top half, which the random lookups never touch
+	private static void useLiveCodes(DatabaseHelper databaseHelper, int rows, int slice) {
+		for (int i = 0; i < 1000; i++) {
+			databaseHelper.redeemInvitationCode("K" + liveCode(liveCodes(rows) - 1 - slice * 1000 - i));
+		}
+	}
+
+	private static long timeOneRun(DatabaseHelper databaseHelper) throws Exception {
+		long start = System.nanoTime();
+		int reaped = databaseHelper.invitationReaper().reapOnce();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		if (reaped != 1000) {
+			throw new AssertionError("reaped " + reaped);
+		}
+		return millis;
+	}
+}
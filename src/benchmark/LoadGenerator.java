@@ -0,0 +1,259 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import application.Role;
+import application.User;
+import databasePart1.AuthenticationResult;
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+import databasePart1.OperationMetrics;
+import databasePart1.RegistrationResult;
+
+/**
+ * Headless load test of the account flows: a mix of logins (authenticate), signups (register),
+ * invitation signups (generateInvitationCode then registerWithInvite) and admin role edits
+ * (updateRoles) is replayed against DatabaseHelper at a fixed arrival rate, each request on its
+ * own virtual thread.
+ *
+ * The load is open-loop: requests arrive on schedule whether or not earlier ones have finished,
+ * as users would, and each latency is measured from the request's scheduled arrival rather than
+ * from when it actually started. A closed loop of N threads slows its own arrivals down when
+ * the database stalls and so hides exactly the queueing this test looks for. Requests beyond
+ * --max-in-flight are dropped and counted rather than queued without bound.
+ *
+ * Each rate in --rates runs for a warm-up and a measured period; per operation the table shows
+ * throughput, errors and p50/p95/p99/max latency. The last line names the highest rate whose
+ * p99 stayed within --slo milliseconds with nothing dropped.
+ *
+ * Usage: java benchmark.LoadGenerator [--rates 100,200,400] [--seconds 10] [--warmup 3]
+ *        [--mix login=70,register=10,invite=10,admin=10] [--users 10000] [--max-in-flight 2000]
+ *        [--pool 20] [--slo 100] [--url jdbc:h2:...]
+ */
+public class LoadGenerator {
+
+	private enum Flow { LOGIN, REGISTER, INVITE, ADMIN }
+
+	private final DatabaseHelper databaseHelper;
+	private final int seededUsers;
+	private final Flow[] mix;
+	private final int maxInFlight;
+	private final AtomicInteger nextUser = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+
+	private LoadGenerator(DatabaseHelper databaseHelper, int seededUsers, Flow[] mix, int maxInFlight) {
+		this.databaseHelper = databaseHelper;
+		this.seededUsers = seededUsers;
+		this.mix = mix;
+		this.maxInFlight = maxInFlight;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] rates = parseInts(option(args, "--rates", "100,200,400"));
+		int seconds = Integer.parseInt(option(args, "--seconds", "10"));
+		int warmupSeconds = Integer.parseInt(option(args, "--warmup", "3"));
+		Flow[] mix = parseMix(option(args, "--mix", "login=70,register=10,invite=10,admin=10"));
+		int users = Integer.parseInt(option(args, "--users", "10000"));
+		int maxInFlight = Integer.parseInt(option(args, "--max-in-flight", "2000"));
+		int poolSize = Integer.parseInt(option(args, "--pool", "20"));
+		long sloNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(option(args, "--slo", "100")));
+		String url = option(args, "--url", null);
+
+		DatabaseConfig config = (url != null ? DatabaseConfig.forUrl(url) : DatabaseConfig.memory())
+				.withPoolSize(Math.min(2, poolSize), poolSize);
+		DatabaseHelper databaseHelper = new DatabaseHelper(config);
+		databaseHelper.connectToDatabase();
+		try {
+			seed(databaseHelper, users);
+			LoadGenerator generator = new LoadGenerator(databaseHelper, users, mix, maxInFlight);
+			int sustained = 0;
+			for (int rate : rates) {
+				generator.run(rate, warmupSeconds, new OperationMetrics());
+				OperationMetrics metrics = new OperationMetrics();
+				ConnectionPool pool = databaseHelper.getConnectionPool();
+				long timeoutsBefore = pool.getBorrowTimeouts();
+				long droppedBefore = generator.dropped.get();
+				generator.maxObservedInFlight.set(0);
+				long elapsedNanos = generator.run(rate, seconds, metrics);
+				long droppedNow = generator.dropped.get() - droppedBefore;
+
+				List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+				long completed = 0;
+				long worstP99 = 0;
+				for (OperationMetrics.Snapshot snapshot : snapshots) {
+					completed += snapshot.getCalls();
+					worstP99 = Math.max(worstP99, snapshot.getP99Nanos());
+				}
+				System.out.printf("%nTarget %,d/s: completed %,.1f/s, dropped %,d, max in flight %,d, "
+						+ "pool borrow timeouts %,d%n", rate, completed * 1e9 / elapsedNanos, droppedNow,
+						generator.maxObservedInFlight.get(), pool.getBorrowTimeouts() - timeoutsBefore);
+				System.out.printf("  %-20s %9s %7s %9s %9s %9s %9s %9s%n", "operation", "ops/s", "errors", "p50 ms",
+						"p95 ms", "p99 ms", "max ms", "mean ms");
+				for (OperationMetrics.Snapshot snapshot : snapshots) {
+					System.out.printf("  %-20s %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", snapshot.getName(),
+							snapshot.getCalls() * 1e9 / elapsedNanos, snapshot.getErrors(), snapshot.getP50Nanos() / 1e6,
+							snapshot.getP95Nanos() / 1e6, snapshot.getP99Nanos() / 1e6, snapshot.getMaxNanos() / 1e6,
+							snapshot.getMeanNanos() / 1e6);
+				}
+				if (droppedNow == 0 && worstP99 <= sloNanos) {
+					sustained = Math.max(sustained, rate);
+				}
+			}
+			System.out.printf("%nHighest rate with every p99 within %d ms and nothing dropped: %s%n",
+					TimeUnit.NANOSECONDS.toMillis(sloNanos), sustained > 0 ? sustained + "/s" : "none");
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// Users load0..load(n-1), student only, password "Password<n>!"
+	private static void seed(DatabaseHelper databaseHelper, int users) throws Exception {
+		DatabaseConfig config = databaseHelper.getConfig();
+		try (Connection connection = DriverManager.getConnection(config.getJdbcUrl(), config.getUser(),
+				config.getPassword()); Statement statement = connection.createStatement()) {
+			statement.execute("INSERT INTO cse360users (userName, password, email, roleMask) "
+					+ "SELECT 'load' || X, 'Password' || X || '!', 'load' || X || '@asu.edu', " + Role.STUDENT.bit()
+					+ " FROM SYSTEM_RANGE(0, " + (users - 1) + ")");
+		}
+		databaseHelper.rebuildUsernameFilter();
+	}
+
+	// Issues requests at the given rate for the given time, then waits for the last of them;
+	// returns the length of the arrival period in nanoseconds
+	private long run(int rate, int seconds, OperationMetrics metrics) throws InterruptedException {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long requests = (long) rate * seconds;
+		long start = System.nanoTime();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (long n = 0; n < requests; n++) {
+				long scheduled = start + n * intervalNanos;
+				long wait = scheduled - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				int running = inFlight.incrementAndGet();
+				if (running > maxInFlight) {
+					inFlight.decrementAndGet();
+					dropped.incrementAndGet();
+					continue;
+				}
+				maxObservedInFlight.accumulateAndGet(running, Math::max);
+				Flow flow = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+				executor.execute(() -> {
+					try {
+						execute(flow, scheduled, metrics);
+					} finally {
+						inFlight.decrementAndGet();
+					}
+				});
+			}
+		} // close() waits for the requests still running
+		return requests * intervalNanos;
+	}
+
+	// Runs one request and records its latency from the scheduled arrival
+	private void execute(Flow flow, long scheduled, OperationMetrics metrics) {
+		String name = flow.name().toLowerCase();
+		try {
+			if (!perform(flow)) {
+				metrics.recordError(name);
+			}
+		} catch (Exception e) {
+			metrics.recordError(name);
+		} finally {
+			metrics.record(name, scheduled);
+		}
+	}
+
+	// False when the flow completed but did not succeed, e.g. a rejected login
+	private boolean perform(Flow flow) throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (flow) {
+			case LOGIN -> {
+				int n = random.nextInt(seededUsers);
+				AuthenticationResult result = databaseHelper.authenticate("load" + n, "Password" + n + "!");
+				return result.isSuccess();
+			}
+			case REGISTER -> {
+				String userName = "reg" + nextUser.incrementAndGet();
+				databaseHelper.register(new User(userName, "Password1!", "student", userName + "@asu.edu"));
+				return true;
+			}
+			case INVITE -> {
+				Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+				String code = databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT), expiresAt);
+				String userName = "inv" + nextUser.incrementAndGet();
+				RegistrationResult result = databaseHelper.registerWithInvite(userName, "Password1!",
+						userName + "@asu.edu", code);
+				return result.isRegistered();
+			}
+			case ADMIN -> {
+				String userName = "load" + random.nextInt(seededUsers);
+				Set<Role> instructor = EnumSet.of(Role.INSTRUCTOR);
+				Set<Role> none = EnumSet.noneOf(Role.class);
+				boolean grant = random.nextBoolean();
+				return !databaseHelper.updateRoles(List.of(userName), grant ? instructor : none,
+						grant ? none : instructor).isEmpty();
+			}
+			default -> throw new IllegalStateException("Unknown flow " + flow);
+		}
+	}
+
+	// A weighted mix such as "login=70,register=30" as a table with one entry per unit of weight
+	private static Flow[] parseMix(String text) {
+		List<Flow> table = new ArrayList<>();
+		for (String part : text.split(",")) {
+			String[] weighted = part.trim().split("=");
+			if (weighted.length != 2) {
+				throw new IllegalArgumentException("Invalid mix entry: " + part);
+			}
+			Flow flow = Flow.valueOf(weighted[0].trim().toUpperCase());
+			int weight = Integer.parseInt(weighted[1].trim());
+			for (int i = 0; i < weight; i++) {
+				table.add(flow);
+			}
+		}
+		if (table.isEmpty()) {
+			throw new IllegalArgumentException("Empty mix: " + text);
+		}
+		return table.toArray(new Flow[0]);
+	}
+
+	private static int[] parseInts(String text) {
+		String[] parts = text.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+			if (values[i] <= 0) {
+				throw new IllegalArgumentException("Rates must be positive: " + text);
+			}
+		}
+		return values;
+	}
+
+	private static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+}
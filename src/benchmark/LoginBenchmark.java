@@ -0,0 +1,116 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import application.User;
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Compares the old four-query login sequence (getUserRole, login, getUserEmail,
+ * getPasswordResetFlag) with the single-query DatabaseHelper.authenticate() under
+ * concurrent logins. Runs against a private in-memory database.
+ *
+ * Usage: java benchmark.LoginBenchmark [threads] [loginsPerThread] [users]
+ */
+public class LoginBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int loginsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+		int users = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:loginbench;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			for (int i = 0; i < users; i++) {
+				databaseHelper.register(new User("user" + i, "Password" + i + "!", "student", "user" + i + "@asu.edu"));
+			}
+
+			// Warm up both paths before measuring
+			run("warmup", threads, loginsPerThread / 5, users, name -> fourQueryLogin(databaseHelper, name));
+			run("warmup", threads, loginsPerThread / 5, users, name -> authenticate(databaseHelper, name));
+
+			run("four queries", threads, loginsPerThread, users, name -> fourQueryLogin(databaseHelper, name));
+			run("authenticate", threads, loginsPerThread, users, name -> authenticate(databaseHelper, name));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// The sequence UserLoginPage used before authenticate() existed
+	private static boolean fourQueryLogin(DatabaseHelper databaseHelper, int i) throws Exception {
+		String userName = "user" + i;
+		User user = new User(userName, "Password" + i + "!", "", "");
+		String role = databaseHelper.getUserRole(userName);
+		if (role == null) {
+			return false;
+		}
+		user.setRole(role);
+		if (!databaseHelper.login(user)) {
+			return false;
+		}
+		user.setEmail(databaseHelper.getUserEmail(userName));
+		databaseHelper.getPasswordResetFlag(userName);
+		return true;
+	}
+
+	private static boolean authenticate(DatabaseHelper databaseHelper, int i) throws Exception {
+		AuthenticationResult result = databaseHelper.authenticate("user" + i, "Password" + i + "!");
+		return result.isSuccess();
+	}
+
+	private static void run(String label, int threads, int loginsPerThread, int users, LoginCall call)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<long[]>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				long[] latencies = new long[loginsPerThread];
+				for (int n = 0; n < loginsPerThread; n++) {
+					int i = ThreadLocalRandom.current().nextInt(users);
+					long begin = System.nanoTime();
+					if (!call.login(i)) {
+						throw new IllegalStateException("Login failed for user" + i);
+					}
+					latencies[n] = System.nanoTime() - begin;
+				}
+				return latencies;
+			}));
+		}
+		long[] all = new long[threads * loginsPerThread];
+		int offset = 0;
+		for (Future<long[]> future : futures) {
+			long[] latencies = future.get();
+			System.arraycopy(latencies, 0, all, offset, latencies.length);
+			offset += latencies.length;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+
+		if (label.equals("warmup")) {
+			return;
+		}
+		Arrays.sort(all);
+		System.out.printf("%-13s %8.0f logins/s  mean %7.1f us  p50 %7.1f us  p95 %7.1f us  p99 %7.1f us%n",
+				label, all.length / seconds, Arrays.stream(all).average().orElse(0) / 1e3,
+				percentile(all, 0.50) / 1e3, percentile(all, 0.95) / 1e3, percentile(all, 0.99) / 1e3);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+
+	@FunctionalInterface
+	private interface LoginCall {
+		boolean login(int userIndex) throws Exception;
+	}
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.OperationMetrics;
+
+/**
+ * Measures what the operation metrics add to every DatabaseHelper call:
+ * - the cost of one timed record (two System.nanoTime() calls, the name lookup, the LongAdder
+ *   and histogram updates), from one thread and from several threads on the same operation,
+ *   against the same bookkeeping behind a single lock
+ * - for scale, the cost of the cheapest instrumented call, a user cache hit
+ *
+ * Usage: java benchmark.OperationMetricsBenchmark [calls per thread] [threads]
+ */
+public class OperationMetricsBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		for (int round = 0; round < 2; round++) {
+			boolean warmup = round == 0;
+			OperationMetrics metrics = new OperationMetrics();
+			report(warmup, "OperationMetrics, 1 thread", 1, calls, () -> metrics.record("authenticate", System.nanoTime()));
+			report(warmup, "OperationMetrics, " + threads + " threads", threads, calls,
+					() -> metrics.record("authenticate", System.nanoTime()));
+			LockedHistogram locked = new LockedHistogram();
+			report(warmup, "single lock, 1 thread", 1, calls, () -> locked.record(System.nanoTime()));
+			report(warmup, "single lock, " + threads + " threads", threads, calls, () -> locked.record(System.nanoTime()));
+		}
+
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:metricsbench;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+			for (int round = 0; round < 2; round++) {
+				report(round == 0, "doesUserExist (cache hit)", 1, calls / 5, () -> databaseHelper.doesUserExist("alice"));
+			}
+			System.out.println(find(databaseHelper.getOperationMetrics(), "doesUserExist"));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	private static OperationMetrics.Snapshot find(OperationMetrics metrics, String name) {
+		for (OperationMetrics.Snapshot snapshot : metrics.snapshot()) {
+			if (snapshot.getName().equals(name)) {
+				return snapshot;
+			}
+		}
+		return null;
+	}
+
+	private static void report(boolean warmup, String label, int threads, int calls, Runnable call) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < calls; i++) {
+					call.run();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long nanos = System.nanoTime() - start;
+		executor.shutdown();
+		if (!warmup) {
+			long total = (long) threads * calls;
+			System.out.printf("%-32s %6.1f ns per call (wall time / calls), %,6.1f M calls/s%n", label,
+					(double) nanos / total, total * 1_000.0 / nanos);
+		}
+	}
+
+	// The same counters and buckets, updated under one monitor
+	private static final class LockedHistogram {
+		private final long[] buckets = new long[608];
+		private long calls;
+		private long totalNanos;
+		private long maxNanos;
+
+		synchronized void record(long startNanos) {
+			long nanos = System.nanoTime() - startNanos;
+			calls++;
+			totalNanos += nanos;
+			int exponent = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 16));
+			buckets[Math.min(buckets.length - 1, (exponent - 3) * 16 + (int) ((nanos >>> (exponent - 4)) & 15))]++;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import databasePart1.PasswordGenerator;
+
+/**
+ * Compares the old DatabaseHelper.generatePassword() (a new SecureRandom and a rebuilt
+ * alphabet on every call) with PasswordGenerator one password at a time and in bulk,
+ * on one thread and on several.
+ *
+ * Usage: java benchmark.PasswordGeneratorBenchmark [threads] [passwordsPerThread]
+ */
+public class PasswordGeneratorBenchmark {
+
+	@FunctionalInterface
+	private interface Generation {
+		// Generates count passwords and returns a checksum so the work is not optimized away
+		long generate(int count);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int passwords = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		PasswordGenerator generator = new PasswordGenerator();
+
+		Generation legacy = count -> {
+			long sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += legacyGeneratePassword().charAt(i % 8);
+			}
+			return sum;
+		};
+		Generation single = count -> {
+			long sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += generator.next().charAt(i % 8);
+			}
+			return sum;
+		};
+		Generation bulk = count -> {
+			long sum = 0;
+			int i = 0;
+			for (String password : generator.next(count)) {
+				sum += password.charAt(i++ % 8);
+			}
+			return sum;
+		};
+
+		for (int round = 0; round < 2; round++) {
+			boolean warmup = round == 0;
+			for (int t : new int[] { 1, threads }) {
+				run(warmup, "old generatePassword", t, passwords, legacy);
+				run(warmup, "next()", t, passwords, single);
+				run(warmup, "next(count)", t, passwords, bulk);
+			}
+		}
+	}
+
+	private static void run(boolean warmup, String label, int threads, int passwordsPerThread, Generation generation)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			long start = System.nanoTime();
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> generation.generate(passwordsPerThread)));
+			}
+			for (Future<Long> future : futures) {
+				future.get();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			if (!warmup) {
+				System.out.printf("%-22s %2d threads: %,12.0f passwords/s%n", label, threads,
+						threads * (double) passwordsPerThread / seconds);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// DatabaseHelper.generatePassword() before PasswordGenerator
+	private static String legacyGeneratePassword() {
+		String uppercase = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+		String lowercase = "abcdefghijklmnopqrstuvwxyz";
+		String digits = "0123456789";
+		SecureRandom random = new SecureRandom();
+		StringBuilder password = new StringBuilder();
+		password.append(uppercase.charAt(random.nextInt(uppercase.length())));
+		password.append(lowercase.charAt(random.nextInt(lowercase.length())));
+		password.append(digits.charAt(random.nextInt(digits.length())));
+		password.append('!');
+		String combinedChars = uppercase + lowercase + digits;
+		while (password.length() < 8) {
+			password.append(combinedChars.charAt(random.nextInt(combinedChars.length())));
+		}
+		return password.toString();
+	}
+}
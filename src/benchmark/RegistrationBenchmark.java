@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import application.Role;
+import application.User;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Compares the old signup flow (doesUserExist, redeem the invitation code, register as
+ * separate auto-committed calls) with DatabaseHelper.registerWithInvite() under contention:
+ * every userName is attempted by several threads at once, each with its own invitation code.
+ * Reports throughput, and the invitation codes burned by signups that did not create a user.
+ * Runs against a private in-memory database.
+ *
+ * Usage: java benchmark.RegistrationBenchmark [threads] [userNames] [attemptsPerName]
+ */
+public class RegistrationBenchmark {
+
+	@FunctionalInterface
+	private interface Signup {
+		// Returns true if the signup created the user
+		boolean signup(DatabaseHelper databaseHelper, String userName, String code) throws SQLException;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int userNames = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+		int attemptsPerName = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+		// Warm up both flows before measuring
+		run("warmup", threads, userNames / 5, attemptsPerName, RegistrationBenchmark::fourCalls);
+		run("warmup", threads, userNames / 5, attemptsPerName, RegistrationBenchmark::registerWithInvite);
+
+		run("separate calls", threads, userNames, attemptsPerName, RegistrationBenchmark::fourCalls);
+		run("registerWithInvite", threads, userNames, attemptsPerName, RegistrationBenchmark::registerWithInvite);
+	}
+
+	// The sequence SetupAccountPage used before registerWithInvite() existed
+	private static boolean fourCalls(DatabaseHelper databaseHelper, String userName, String code) {
+		if (databaseHelper.doesUserExist(userName)) {
+			return false;
+		}
+		EnumSet<Role> roles = databaseHelper.redeemInvitationCode(code);
+		if (roles == null) {
+			return false;
+		}
+		try {
+			databaseHelper.register(new User(userName, "Password1!", roles, userName + "@asu.edu"));
+			return true;
+		} catch (SQLException e) {
+			return false; // lost the race after the check; the code is already used
+		}
+	}
+
+	private static boolean registerWithInvite(DatabaseHelper databaseHelper, String userName, String code)
+			throws SQLException {
+		return databaseHelper.registerWithInvite(userName, "Password1!", userName + "@asu.edu", code).isRegistered();
+	}
+
+	private static void run(String label, int threads, int userNames, int attemptsPerName, Signup signup)
+			throws Exception {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:registrationbench;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			databaseHelper.resetDatabase();
+			int attempts = userNames * attemptsPerName;
+			List<String> codes = databaseHelper.generateInvitationCodes(attempts, EnumSet.of(Role.STUDENT),
+					new Timestamp(System.currentTimeMillis() + 3_600_000));
+
+			// Attempt i signs up name i / attemptsPerName, so each name is tried by neighbouring attempts
+			AtomicInteger next = new AtomicInteger();
+			AtomicInteger registered = new AtomicInteger();
+			AtomicInteger errors = new AtomicInteger();
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					int i;
+					while ((i = next.getAndIncrement()) < attempts) {
+						try {
+							if (signup.signup(databaseHelper, "user" + i / attemptsPerName, codes.get(i))) {
+								registered.incrementAndGet();
+							}
+						} catch (SQLException e) {
+							errors.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			long begin = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			executor.shutdown();
+
+			int unusedCodes = 0;
+			for (String code : codes) {
+				if (databaseHelper.redeemInvitationCode(code) != null) {
+					unusedCodes++;
+				}
+			}
+			int burned = attempts - unusedCodes - registered.get();
+			if (!label.equals("warmup")) {
+				System.out.printf("%-20s %,d signups in %.2f s (%,.0f/s): %,d registered, %,d codes burned, %d errors%n",
+						label, attempts, seconds, attempts / seconds, registered.get(), burned, errors.get());
+			}
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import application.Role;
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.UserQuery;
+
+/**
+ * Measures DatabaseHelper.searchUsers() latency on a large synthetic cse360users table
+ * (1,000,000 rows by default) in a private in-memory database. Reports p50, p95 and p99 for
+ * userName prefix search, email prefix search, role filtering and sorted keyset paging.
+ *
+ * Usage: java benchmark.UserSearchBenchmark [rows] [queriesPerCase]
+ */
+public class UserSearchBenchmark {
+
+	private static final Role[] ROLES = {Role.STUDENT, Role.REVIEWER, Role.INSTRUCTOR, Role.STAFF};
+
+	public static void main(String[] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+		String url = "jdbc:h2:mem:searchbench;DB_CLOSE_DELAY=-1";
+
+		DatabaseHelper databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			long start = System.nanoTime();
+			populate(url, rows);
+			System.out.printf("Loaded %,d users in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+
+			UserQuery base = new UserQuery().withLimit(50);
+			measure("userName prefix", queries, () -> base.withUserNamePrefix("u" + random(1000)), databaseHelper);
+			measure("email prefix", queries, () -> base.withEmailPrefix("mail" + random(1000)), databaseHelper);
+			measure("role filter", queries, () -> base.withRole(ROLES[random(4)]), databaseHelper);
+			measure("sort by role", queries, () -> base.withRole(ROLES[random(4)]).sortedBy(UserQuery.SortColumn.ROLE, false)
+					.after(new User("u" + random(rows), "", ROLES[random(4)].bit(), "")), databaseHelper);
+			measure("sort by email", queries, () -> base.sortedBy(UserQuery.SortColumn.EMAIL, random(2) == 1)
+					.after(new User("u" + random(rows), "", "", "mail" + random(rows) + "@asu.edu")), databaseHelper);
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// Inserts synthetic users with one set-based statement
+	private static void populate(String url, int rows) throws Exception {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement()) {
+			int studentReviewer = Role.STUDENT.bit() | Role.REVIEWER.bit();
+			statement.execute("INSERT INTO cse360users (userName, password, email, roleMask) "
+					+ "SELECT 'u' || X, 'Password1!', 'mail' || X || '@asu.edu', "
+					+ "CASEWHEN(MOD(X, 5) = 0, " + studentReviewer + ", "
+					+ "CASEWHEN(MOD(X, 5) = 1, " + Role.REVIEWER.bit() + ", CASEWHEN(MOD(X, 5) = 2, " + Role.INSTRUCTOR.bit() + ", "
+					+ "CASEWHEN(MOD(X, 5) = 3, " + Role.STAFF.bit() + ", " + Role.STUDENT.bit() + ")))) "
+					+ "FROM SYSTEM_RANGE(1, " + rows + ")");
+		}
+	}
+
+	private static void measure(String label, int queries, QuerySupplier supplier, DatabaseHelper databaseHelper)
+			throws Exception {
+		// warm up
+		for (int i = 0; i < queries / 10; i++) {
+			databaseHelper.searchUsers(supplier.next());
+		}
+		long[] latencies = new long[queries];
+		long rowsReturned = 0;
+		for (int i = 0; i < queries; i++) {
+			UserQuery query = supplier.next();
+			long begin = System.nanoTime();
+			List<User> page = databaseHelper.searchUsers(query);
+			latencies[i] = System.nanoTime() - begin;
+			rowsReturned += page.size();
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%-16s p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms  (avg %.1f rows/page)%n", label,
+				percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.95) / 1e6,
+				percentile(latencies, 0.99) / 1e6, (double) rowsReturned / queries);
+	}
+
+	private static int random(int bound) {
+		return ThreadLocalRandom.current().nextInt(bound);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+
+	@FunctionalInterface
+	private interface QuerySupplier {
+		UserQuery next();
+	}
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.UsernameFilter;
+
+/**
+ * Measures the username filter: memory, insert and lookup throughput and the measured
+ * false-positive rate at the given number of users (10M by default), then times
+ * DatabaseHelper.isUsernameAvailable() for names that were never registered against
+ * names that exist. Runs against a private in-memory database.
+ *
+ * Usage: java benchmark.UsernameFilterBenchmark [filterUsers] [databaseUsers]
+ */
+public class UsernameFilterBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int filterUsers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int databaseUsers = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+		measureFilter(filterUsers);
+		measureAvailability(databaseUsers);
+	}
+
+	private static void measureFilter(int users) {
+		UsernameFilter filter = new UsernameFilter(users, 0.01);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < users; i++) {
+			filter.add("user" + i);
+		}
+		double insertSeconds = (System.nanoTime() - start) / 1e9;
+
+		int probes = 1_000_000;
+		int falsePositives = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("guest" + i)) {
+				falsePositives++;
+			}
+		}
+		double probeSeconds = (System.nanoTime() - start) / 1e9;
+
+		for (int i = 0; i < users; i += 97) {
+			if (!filter.mightContain("user" + i)) {
+				throw new AssertionError("false negative for user" + i);
+			}
+		}
+
+		System.out.printf("filter for %,d users: %,d bits, %d hashes, %.1f MB%n",
+				users, filter.getBitCount(), filter.getHashCount(), filter.getMemoryBytes() / (1024.0 * 1024.0));
+		System.out.printf("  inserts:  %,.0f/s%n", users / insertSeconds);
+		System.out.printf("  lookups:  %,.0f/s%n", probes / probeSeconds);
+		System.out.printf("  false positives: %.3f%% measured, %.3f%% expected%n",
+				100.0 * falsePositives / probes, 100.0 * filter.getExpectedFalsePositiveRate());
+	}
+
+	private static void measureAvailability(int users) throws Exception {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:usernamefilterbench;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			for (int i = 0; i < users; i++) {
+				databaseHelper.register(new User("user" + i, "Password1!", "student", "user" + i + "@asu.edu"));
+			}
+			databaseHelper.rebuildUsernameFilter();
+
+			// Warm up, then time a pass over free names and one over taken names
+			time(databaseHelper, "guest", users);
+			time(databaseHelper, "guest", users);
+			databaseHelper.getUserCache().invalidateAll();
+			time(databaseHelper, "user", users);
+			databaseHelper.getUserCache().invalidateAll();
+
+			System.out.printf("isUsernameAvailable over %,d users:%n", users);
+			System.out.printf("  free names:  %,.0f/s%n", time(databaseHelper, "guest", users));
+			System.out.printf("  taken names: %,.0f/s (cache cold)%n", time(databaseHelper, "user", users));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	private static double time(DatabaseHelper databaseHelper, String prefix, int count) {
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			databaseHelper.isUsernameAvailable(prefix + i);
+		}
+		return count / ((System.nanoTime() - start) / 1e9);
+	}
+}
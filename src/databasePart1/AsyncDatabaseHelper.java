@@ -0,0 +1,162 @@
+package databasePart1;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import application.Role;
+import application.User;
+
+/**
+ * The AsyncDatabaseHelper class runs DatabaseHelper calls on virtual threads and returns
+ * CompletableFutures, so pages never block the JavaFX Application Thread on JDBC. Each call
+ * gets its own virtual thread; the connection pool still bounds how many run against the
+ * database at once.
+ *
+ * A failed call completes its future exceptionally with the SQLException as the cause.
+ * Futures complete on a background thread, so UI code must hand results back to the
+ * JavaFX thread (Platform.runLater) before touching any controls.
+ */
+public class AsyncDatabaseHelper implements AutoCloseable {
+
+	// A DatabaseHelper call that may throw SQLException
+	@FunctionalInterface
+	public interface DatabaseCall<T> {
+		T call(DatabaseHelper databaseHelper) throws SQLException;
+	}
+
+	private final DatabaseHelper databaseHelper;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	public AsyncDatabaseHelper(DatabaseHelper databaseHelper) {
+		this.databaseHelper = databaseHelper;
+	}
+
+	// Runs any DatabaseHelper call in the background
+	public <T> CompletableFuture<T> submit(DatabaseCall<T> call) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return call.call(databaseHelper);
+			} catch (SQLException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	public CompletableFuture<AuthenticationResult> authenticate(String userName, String password) {
+		return submit(db -> db.authenticate(userName, password));
+	}
+
+	public CompletableFuture<AuthenticationResult> authenticateSession(String userName, String password) {
+		return submit(db -> db.authenticateSession(userName, password));
+	}
+
+	public CompletableFuture<SessionManager.Session> startSession(String userName) {
+		return submit(db -> db.startSession(userName));
+	}
+
+	// Looks a session up; with persistent sessions this may read or update the sessions table
+	public CompletableFuture<SessionManager.Session> getSession(String token) {
+		return submit(db -> db.sessions().get(token));
+	}
+
+	public CompletableFuture<Boolean> endSession(String token) {
+		return submit(db -> db.sessions().invalidate(token));
+	}
+
+	public CompletableFuture<Void> register(User user) {
+		return submit(db -> {
+			db.register(user);
+			return null;
+		});
+	}
+
+	public CompletableFuture<RegistrationResult> registerWithInvite(String userName, String password, String email,
+			String code) {
+		return submit(db -> db.registerWithInvite(userName, password, email, code));
+	}
+
+	public CompletableFuture<Boolean> doesUserExist(String userName) {
+		return submit(db -> db.doesUserExist(userName));
+	}
+
+	public CompletableFuture<Boolean> isUsernameAvailable(String userName) {
+		return submit(db -> db.isUsernameAvailable(userName));
+	}
+
+	public CompletableFuture<User> getUserByUsername(String userName) {
+		return submit(db -> db.getUserByUsername(userName));
+	}
+
+	public CompletableFuture<Boolean> updateUser(String oldUserName, User user) {
+		return submit(db -> db.updateUser(oldUserName, user));
+	}
+
+	public CompletableFuture<Boolean> deleteUser(String userName) {
+		return submit(db -> db.deleteUser(userName));
+	}
+
+	public CompletableFuture<List<String>> deleteUsers(Collection<String> userNames) {
+		return submit(db -> db.deleteUsers(userNames));
+	}
+
+	public CompletableFuture<List<User>> updateRoles(Collection<String> userNames, Set<Role> added,
+			Set<Role> removed) {
+		return submit(db -> db.updateRoles(userNames, added, removed));
+	}
+
+	public CompletableFuture<Map<String, String>> resetPasswords(Collection<String> userNames) {
+		return submit(db -> db.resetPasswords(userNames));
+	}
+
+	public CompletableFuture<Boolean> setPasswordReset(String userName, boolean resetFlag) {
+		return submit(db -> db.setPasswordReset(userName, resetFlag));
+	}
+
+	public CompletableFuture<List<User>> searchUsers(UserQuery query) {
+		return submit(db -> db.searchUsers(query));
+	}
+
+	public CompletableFuture<String> generateInvitationCode(Set<Role> roles, Timestamp expiresAt) {
+		return submit(db -> db.generateInvitationCode(roles, expiresAt));
+	}
+
+	public CompletableFuture<Integer> generateInvitationCodes(int count, Set<Role> roles, Timestamp expiresAt,
+			Path csvFile) {
+		return submit(db -> {
+			try {
+				return db.generateInvitationCodes(count, roles, expiresAt, csvFile);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	public CompletableFuture<Boolean> validateInvitationCode(String code) {
+		return submit(db -> db.validateInvitationCode(code));
+	}
+
+	public CompletableFuture<EnumSet<Role>> redeemInvitationCode(String code) {
+		return submit(db -> db.redeemInvitationCode(code));
+	}
+
+	public CompletableFuture<EnumSet<Role>> getRoleFromInviteCode(String code) {
+		return submit(db -> db.getRoleFromInviteCode(code));
+	}
+
+	// Stops accepting calls; calls already running are allowed to finish
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
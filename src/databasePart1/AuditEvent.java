@@ -0,0 +1,64 @@
+package databasePart1;
+
+import java.sql.Timestamp;
+
+/**
+ * The AuditEvent class is one immutable entry of the audit log: what happened, when, who did it
+ * (the actor, null when nobody was signed in) and to whom (the subject), with a short detail.
+ * Events are created when they happen and get their id once the AuditLog has stored them.
+ */
+public final class AuditEvent {
+
+	public enum Type {
+		LOGIN_SUCCEEDED,
+		LOGIN_FAILED,
+		INVITATION_REDEEMED,
+		USER_REGISTERED,
+		USER_UPDATED,
+		USER_DELETED,
+		ROLES_CHANGED,
+		PASSWORD_RESET
+	}
+
+	// Longest detail the audit_events.detail column holds; longer ones are cut
+	public static final int MAX_DETAIL_LENGTH = 1000;
+
+	private final long id;
+	private final long occurredAt;
+	private final Type type;
+	private final String actor;
+	private final String subject;
+	private final String detail;
+
+	public AuditEvent(Type type, String actor, String subject, String detail) {
+		this(0, System.currentTimeMillis(), type, actor, subject, detail);
+	}
+
+	AuditEvent(long id, long occurredAt, Type type, String actor, String subject, String detail) {
+		if (type == null) {
+			throw new IllegalArgumentException("Audit event type is required");
+		}
+		this.id = id;
+		this.occurredAt = occurredAt;
+		this.type = type;
+		this.actor = actor;
+		this.subject = subject;
+		this.detail = detail != null && detail.length() > MAX_DETAIL_LENGTH
+				? detail.substring(0, MAX_DETAIL_LENGTH) : detail;
+	}
+
+	// 0 until the event has been written
+	public long getId() { return id; }
+	public long getOccurredAt() { return occurredAt; }
+	public Timestamp getTimestamp() { return new Timestamp(occurredAt); }
+	public Type getType() { return type; }
+	public String getActor() { return actor; }
+	public String getSubject() { return subject; }
+	public String getDetail() { return detail; }
+
+	@Override
+	public String toString() {
+		return getTimestamp() + " " + type + " actor=" + actor + " subject=" + subject
+				+ (detail == null ? "" : " " + detail);
+	}
+}
@@ -0,0 +1,370 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The AuditLog class records logins, invitation redemptions and admin changes in the
+ * audit_events table without making the caller wait for the database. record() puts the event
+ * in a bounded lock-free queue and returns; one background thread takes events off the queue
+ * and inserts them in batches, each batch one transaction.
+ *
+ * When the queue is full the OverflowPolicy decides what happens: drop the new event, drop the
+ * oldest queued one, or have the caller write a batch itself so nothing is lost. close() stops
+ * the writer and writes whatever is still queued.
+ */
+public class AuditLog implements AutoCloseable {
+
+	public enum OverflowPolicy {
+		DROP_NEWEST,
+		DROP_OLDEST,
+		CALLER_WRITES
+	}
+
+	private static final String INSERT_EVENT =
+			"INSERT INTO audit_events (occurredAt, eventType, actor, subject, detail) VALUES (?, ?, ?, ?, ?)";
+
+	private final ConnectionPool pool;
+	private final RingBuffer queue;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+	private final Stats stats = new Stats();
+
+	// Held while a batch is taken off the queue and written, so batches are stored in order
+	private final Object writeLock = new Object();
+	private volatile Thread writer = null;
+	private volatile boolean closed = false;
+
+	public AuditLog(ConnectionPool pool, int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+		if (batchSize < 1 || batchSize > capacity) {
+			throw new IllegalArgumentException("Batch size must be between 1 and the capacity: " + batchSize);
+		}
+		this.pool = pool;
+		this.queue = new RingBuffer(capacity);
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	// Starts the background writer. It writes as soon as a full batch is queued, and at least
+	// every flushIntervalMillis otherwise. Calling it again does nothing.
+	public synchronized void start(long flushIntervalMillis) {
+		if (writer != null || closed) {
+			return;
+		}
+		long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		Thread thread = new Thread(() -> {
+			while (!closed) {
+				int written = writeQueuedBatch();
+				if (written < batchSize) {
+					LockSupport.parkNanos(this, intervalNanos);
+				}
+			}
+		}, "audit-writer");
+		thread.setDaemon(true);
+		writer = thread;
+		thread.start();
+	}
+
+	public boolean record(AuditEvent.Type type, String actor, String subject, String detail) {
+		return record(new AuditEvent(type, actor, subject, detail));
+	}
+
+	// Queues an event without touching the database, unless the queue is full and the
+	// policy is CALLER_WRITES. Returns false if the event was dropped.
+	public boolean record(AuditEvent event) {
+		if (closed) {
+			stats.dropped.increment();
+			return false;
+		}
+		while (!queue.offer(event)) {
+			switch (overflowPolicy) {
+			case DROP_NEWEST:
+				stats.dropped.increment();
+				return false;
+			case DROP_OLDEST:
+				if (queue.poll() != null) {
+					stats.dropped.increment();
+				}
+				break;
+			default:
+				stats.callerWrites.increment();
+				writeQueuedBatch();
+				break;
+			}
+		}
+		stats.recorded.increment();
+		if (closed) {
+			// close() may have drained the queue before this event arrived; write it here
+			// (or count it as lost if the database is already gone) rather than strand it
+			flush();
+			return true;
+		}
+		Thread thread = writer;
+		if (thread != null && queue.size() >= batchSize) {
+			LockSupport.unpark(thread);
+		}
+		return true;
+	}
+
+	// Writes everything queued so far from the calling thread. Returns the number of events written.
+	public int flush() {
+		int total = 0;
+		int written;
+		while ((written = writeQueuedBatch()) > 0) {
+			total += written;
+		}
+		return total;
+	}
+
+	// Takes up to one batch off the queue and inserts it. Events of a batch that fails
+	// are counted and dropped, so a broken database cannot fill the queue forever.
+	private int writeQueuedBatch() {
+		synchronized (writeLock) {
+			List<AuditEvent> batch = new ArrayList<>(Math.min(batchSize, 64));
+			AuditEvent event;
+			while (batch.size() < batchSize && (event = queue.poll()) != null) {
+				batch.add(event);
+			}
+			if (batch.isEmpty()) {
+				return 0;
+			}
+			long start = System.nanoTime();
+			try (PooledConnection conn = pool.borrow()) {
+				Connection connection = conn.getConnection();
+				connection.setAutoCommit(false);
+				PreparedStatement insert = conn.prepareStatement(INSERT_EVENT);
+				for (AuditEvent queued : batch) {
+					insert.setTimestamp(1, queued.getTimestamp());
+					insert.setString(2, queued.getType().name());
+					setNullableString(insert, 3, queued.getActor());
+					setNullableString(insert, 4, queued.getSubject());
+					setNullableString(insert, 5, queued.getDetail());
+					insert.addBatch();
+				}
+				insert.executeBatch();
+				connection.commit();
+			} catch (SQLException e) {
+				stats.failedBatches.increment();
+				stats.lost.add(batch.size());
+				e.printStackTrace();
+				return batch.size();
+			}
+			stats.batches.increment();
+			stats.written.add(batch.size());
+			stats.writeNanos.add(System.nanoTime() - start);
+			return batch.size();
+		}
+	}
+
+	private static void setNullableString(PreparedStatement pstmt, int index, String value) throws SQLException {
+		if (value == null) {
+			pstmt.setNull(index, Types.VARCHAR);
+		} else {
+			pstmt.setString(index, value);
+		}
+	}
+
+	// One page of stored events with from <= occurredAt < to, newest first. type may be null
+	// for every type; after is the last event of the previous page, or null for the first page.
+	// Events still queued are not visible until they are written.
+	public List<AuditEvent> queryEvents(Timestamp from, Timestamp to, AuditEvent.Type type, AuditEvent after,
+			int limit) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT id, occurredAt, eventType, actor, subject, detail "
+				+ "FROM audit_events WHERE occurredAt >= ? AND occurredAt < ?");
+		List<Object> params = new ArrayList<>();
+		params.add(from);
+		params.add(to);
+		if (type != null) {
+			sql.append(" AND eventType = ?");
+			params.add(type.name());
+		}
+		if (after != null) {
+			// written out instead of a row value comparison so H2 can range-scan the index
+			sql.append(" AND occurredAt <= ? AND (occurredAt < ? OR id < ?)");
+			params.add(after.getTimestamp());
+			params.add(after.getTimestamp());
+			params.add(after.getId());
+		}
+		sql.append(" ORDER BY occurredAt DESC, id DESC LIMIT ?");
+		params.add(limit);
+
+		List<AuditEvent> events = new ArrayList<>(Math.min(limit, 1000));
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+			for (int i = 0; i < params.size(); i++) {
+				pstmt.setObject(i + 1, params.get(i));
+			}
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					events.add(new AuditEvent(rs.getLong("id"), rs.getTimestamp("occurredAt").getTime(),
+							AuditEvent.Type.valueOf(rs.getString("eventType")), rs.getString("actor"),
+							rs.getString("subject"), rs.getString("detail")));
+				}
+			}
+		}
+		return events;
+	}
+
+	// Events waiting to be written
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public int getCapacity() {
+		return queue.capacity();
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	// Stops the writer, then writes every event still queued. Later events are dropped.
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			thread = writer;
+		}
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join(5_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * A bounded multi-producer, multi-consumer queue on a ring of slots (Dmitry Vyukov's design).
+	 * Each slot has a sequence number telling producers and consumers whose turn it is, so
+	 * offer() and poll() only need one compare-and-set on the shared position and never lock.
+	 */
+	static final class RingBuffer {
+		private final AtomicReferenceArray<AuditEvent> slots;
+		private final AtomicLongArray sequences;
+		private final int mask;
+		private final AtomicLong tail = new AtomicLong(); // next position to offer to
+		private final AtomicLong head = new AtomicLong(); // next position to poll from
+
+		// Capacity is rounded up to a power of two
+		RingBuffer(int capacity) {
+			if (capacity < 1 || capacity > 1 << 30) {
+				throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+			}
+			int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+			slots = new AtomicReferenceArray<>(size);
+			sequences = new AtomicLongArray(size);
+			for (int i = 0; i < size; i++) {
+				sequences.set(i, i);
+			}
+			mask = size - 1;
+		}
+
+		// False when the queue is full
+		boolean offer(AuditEvent event) {
+			long position = tail.get();
+			while (true) {
+				int index = (int) (position & mask);
+				long difference = sequences.get(index) - position;
+				if (difference == 0) {
+					if (tail.compareAndSet(position, position + 1)) {
+						slots.set(index, event);
+						sequences.set(index, position + 1); // publishes the slot to consumers
+						return true;
+					}
+					position = tail.get();
+				} else if (difference < 0) {
+					return false; // the slot still holds an event from one lap ago
+				} else {
+					position = tail.get();
+				}
+			}
+		}
+
+		// Null when the queue is empty
+		AuditEvent poll() {
+			long position = head.get();
+			while (true) {
+				int index = (int) (position & mask);
+				long difference = sequences.get(index) - (position + 1);
+				if (difference == 0) {
+					if (head.compareAndSet(position, position + 1)) {
+						AuditEvent event = slots.getAndSet(index, null);
+						sequences.set(index, position + mask + 1); // frees the slot for the next lap
+						return event;
+					}
+					position = head.get();
+				} else if (difference < 0) {
+					return null; // not yet published
+				} else {
+					position = head.get();
+				}
+			}
+		}
+
+		int size() {
+			long size = tail.get() - head.get();
+			return (int) Math.max(0, Math.min(size, capacity()));
+		}
+
+		int capacity() {
+			return mask + 1;
+		}
+	}
+
+	/**
+	 * Events recorded, dropped and written so far.
+	 */
+	public static class Stats {
+		private final LongAdder recorded = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+		private final LongAdder callerWrites = new LongAdder();
+		private final LongAdder batches = new LongAdder();
+		private final LongAdder written = new LongAdder();
+		private final LongAdder failedBatches = new LongAdder();
+		private final LongAdder lost = new LongAdder();
+		private final LongAdder writeNanos = new LongAdder();
+
+		public long getRecorded() { return recorded.sum(); }
+		public long getDropped() { return dropped.sum(); }
+		public long getCallerWrites() { return callerWrites.sum(); }
+		public long getBatches() { return batches.sum(); }
+		public long getWritten() { return written.sum(); }
+		public long getFailedBatches() { return failedBatches.sum(); }
+		public long getLost() { return lost.sum(); }
+
+		// Average time to insert and commit one batch
+		public double getAverageBatchMillis() {
+			long count = batches.sum();
+			return count == 0 ? 0 : writeNanos.sum() / 1_000_000.0 / count;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d recorded, %d written in %d batches (%.2f ms each), %d dropped, %d lost",
+					getRecorded(), getWritten(), getBatches(), getAverageBatchMillis(), getDropped(), getLost());
+		}
+	}
+}
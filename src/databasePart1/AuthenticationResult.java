@@ -0,0 +1,73 @@
+package databasePart1;
+
+import java.util.EnumSet;
+
+import application.Role;
+import application.User;
+
+/**
+ * The AuthenticationResult class is the immutable outcome of DatabaseHelper.authenticate().
+ * On success it carries everything the login flow needs about the user (role, email and
+ * password reset flag), all read from a single query, and the token of the login session
+ * when one was started (DatabaseHelper.authenticateSession()).
+ */
+public final class AuthenticationResult {
+
+	public enum Status {
+		SUCCESS,
+		UNKNOWN_USER,
+		INVALID_PASSWORD
+	}
+
+	private final Status status;
+	private final String userName;
+	private final String password;
+	private final int roleMask;
+	private final String email;
+	private final boolean passwordReset;
+	private final String sessionToken;
+
+	private AuthenticationResult(Status status, String userName, String password, int roleMask,
+			String email, boolean passwordReset, String sessionToken) {
+		this.status = status;
+		this.userName = userName;
+		this.password = password;
+		this.roleMask = roleMask;
+		this.email = email;
+		this.passwordReset = passwordReset;
+		this.sessionToken = sessionToken;
+	}
+
+	static AuthenticationResult success(String userName, String password, int roleMask, String email,
+			boolean passwordReset) {
+		return new AuthenticationResult(Status.SUCCESS, userName, password, roleMask, email, passwordReset, null);
+	}
+
+	static AuthenticationResult failure(Status status, String userName) {
+		return new AuthenticationResult(status, userName, null, 0, null, false, null);
+	}
+
+	// This result with the token of the session started for it
+	AuthenticationResult withSession(String sessionToken) {
+		return new AuthenticationResult(status, userName, password, roleMask, email, passwordReset, sessionToken);
+	}
+
+	public Status getStatus() { return status; }
+	public boolean isSuccess() { return status == Status.SUCCESS; }
+	public String getUserName() { return userName; }
+	public String getRole() { return Role.format(roleMask); }
+	public EnumSet<Role> getRoles() { return Role.fromMask(roleMask); }
+	public String getEmail() { return email; }
+	public boolean isPasswordReset() { return passwordReset; }
+	public String getSessionToken() { return sessionToken; }
+
+	// Builds a new User for the authenticated account, or null if authentication failed
+	public User toUser() {
+		if (!isSuccess()) {
+			return null;
+		}
+		User user = new User(userName, password, roleMask, email);
+		user.setSessionToken(sessionToken);
+		return user;
+	}
+}
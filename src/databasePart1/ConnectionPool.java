@@ -0,0 +1,301 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ConnectionPool class keeps a bounded set of JDBC connections so that several threads can
+ * talk to the database at the same time. Idle connections above the minimum size are evicted
+ * after a timeout, connections are validated before they are handed out, and the time callers
+ * spend waiting for a connection is recorded. Each connection carries its own StatementCache.
+ */
+public final class ConnectionPool {
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long borrowTimeoutMillis;
+	private final int statementCacheSize;
+	private final StatementCache.Stats statementStats = new StatementCache.Stats();
+
+	// Idle connections, most recently returned first
+	private final Deque<IdleConnection> idle = new ArrayDeque<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private int totalConnections = 0;
+	private boolean closed = false;
+
+	private final ScheduledExecutorService evictor;
+
+	// Metrics
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong borrowTimeouts = new AtomicLong();
+	private final AtomicLong borrowWaitNanos = new AtomicLong();
+	private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+	private final AtomicLong connectionsCreated = new AtomicLong();
+	private final AtomicLong connectionsEvicted = new AtomicLong();
+	private final AtomicLong validationFailures = new AtomicLong();
+
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long idleTimeoutMillis, long borrowTimeoutMillis) throws SQLException {
+		this(url, user, password, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis,
+				StatementCache.DEFAULT_CAPACITY);
+	}
+
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long idleTimeoutMillis, long borrowTimeoutMillis, int statementCacheSize) throws SQLException {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+		}
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.statementCacheSize = statementCacheSize;
+
+		// Open the minimum number of connections up front
+		for (int i = 0; i < minSize; i++) {
+			idle.push(new IdleConnection(openConnection(), null));
+			totalConnections++;
+		}
+
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "connection-pool-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, idleTimeoutMillis / 2);
+		evictor.scheduleAtFixedRate(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	// Borrows a connection, waiting up to the borrow timeout for one to become free.
+	// The returned handle gives the connection back to the pool when closed.
+	public PooledConnection borrow() throws SQLException {
+		long start = System.nanoTime();
+		long remaining = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		while (true) {
+			IdleConnection candidate = null;
+			boolean create = false;
+
+			lock.lock();
+			try {
+				while (true) {
+					if (closed) {
+						throw new SQLException("Connection pool is closed");
+					}
+					if (!idle.isEmpty()) {
+						candidate = idle.pop();
+						break;
+					}
+					if (totalConnections < maxSize) {
+						totalConnections++;
+						create = true;
+						break;
+					}
+					if (remaining <= 0) {
+						borrowTimeouts.incrementAndGet();
+						throw new SQLException("Timed out after " + borrowTimeoutMillis
+								+ " ms waiting for a database connection");
+					}
+					try {
+						remaining = available.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection", e);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			if (create) {
+				try {
+					candidate = new IdleConnection(openConnection(), null);
+				} catch (SQLException e) {
+					discard(null, null);
+					throw e;
+				}
+			} else if (!isValid(candidate.connection)) {
+				// Drop the broken connection and try again
+				validationFailures.incrementAndGet();
+				discard(candidate.connection, candidate.statements);
+				continue;
+			}
+
+			recordBorrow(System.nanoTime() - start);
+			return new PooledConnection(this, candidate.connection, candidate.statements);
+		}
+	}
+
+	// Called by PooledConnection.close() to hand a connection back to the pool
+	void release(Connection connection, StatementCache statements) {
+		lock.lock();
+		try {
+			if (!closed) {
+				idle.push(new IdleConnection(connection, statements));
+				available.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		discard(connection, statements);
+	}
+
+	// Removes a connection from the pool count, closing it and its statements if given
+	void discard(Connection connection, StatementCache statements) {
+		if (statements != null) {
+			statements.close();
+		}
+		if (connection != null) {
+			closeQuietly(connection);
+		}
+		lock.lock();
+		try {
+			totalConnections--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Closes idle connections that have not been used within the idle timeout,
+	// never going below the minimum pool size. They are taken out of the pool under the
+	// lock but closed after it, so borrowers do not wait on the closing I/O.
+	void evictIdleConnections() {
+		long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+		List<IdleConnection> evicted = new ArrayList<>();
+		lock.lock();
+		try {
+			Iterator<IdleConnection> it = idle.descendingIterator(); // oldest first
+			while (it.hasNext() && totalConnections > minSize) {
+				IdleConnection candidate = it.next();
+				if (candidate.idleSince > cutoff) {
+					break;
+				}
+				it.remove();
+				totalConnections--;
+				connectionsEvicted.incrementAndGet();
+				evicted.add(candidate);
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (IdleConnection candidate : evicted) {
+			candidate.statements.close();
+			closeQuietly(candidate.connection);
+		}
+	}
+
+	// Closes every idle connection and refuses further borrows.
+	// Connections still borrowed are closed when they are returned.
+	public void close() {
+		evictor.shutdownNow();
+		lock.lock();
+		try {
+			closed = true;
+			for (IdleConnection c : idle) {
+				c.statements.close();
+				closeQuietly(c.connection);
+				totalConnections--;
+			}
+			idle.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Connection openConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(url, user, password);
+		connectionsCreated.incrementAndGet();
+		return connection;
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			return !connection.isClosed() && connection.isValid(1);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void recordBorrow(long waitNanos) {
+		borrowCount.incrementAndGet();
+		borrowWaitNanos.addAndGet(waitNanos);
+		maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Pool statistics
+	public int getMinSize() { return minSize; }
+	public int getMaxSize() { return maxSize; }
+	public long getBorrowCount() { return borrowCount.get(); }
+	public long getBorrowTimeouts() { return borrowTimeouts.get(); }
+	public long getConnectionsCreated() { return connectionsCreated.get(); }
+	public long getConnectionsEvicted() { return connectionsEvicted.get(); }
+	public long getValidationFailures() { return validationFailures.get(); }
+	public StatementCache.Stats getStatementCacheStats() { return statementStats; }
+	public long getMaxBorrowWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get()); }
+
+	public double getAverageBorrowWaitMillis() {
+		long count = borrowCount.get();
+		return count == 0 ? 0.0 : borrowWaitNanos.get() / (count * 1_000_000.0);
+	}
+
+	public int getTotalConnections() {
+		lock.lock();
+		try {
+			return totalConnections;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getIdleConnections() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// An idle connection with its statement cache and the time it was returned to the pool
+	private final class IdleConnection {
+		final Connection connection;
+		final StatementCache statements;
+		final long idleSince = System.currentTimeMillis();
+
+		IdleConnection(Connection connection, StatementCache statements) {
+			this.connection = connection;
+			this.statements = statements != null ? statements
+					: new StatementCache(connection, statementCacheSize, statementStats);
+		}
+	}
+}
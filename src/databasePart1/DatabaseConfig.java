@@ -0,0 +1,367 @@
+package databasePart1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The DatabaseConfig class describes which H2 database a DatabaseHelper talks to and how it is
+ * tuned. There are three profiles:
+ * FILE, an embedded database in a file (the default, ~/FoundationDatabase),
+ * MEMORY, a private in-memory database that lives as long as the JVM, and
+ * SERVER, a database served by an H2 TCP server.
+ *
+ * Settings are read from properties (db.profile, db.path, db.cacheSizeKb, ...) and can be
+ * overridden by environment variables of the same name in upper case with underscores
+ * (DB_PROFILE, DB_PATH, DB_CACHE_SIZE_KB, ...). Tuning options left unset keep H2's defaults.
+ * Instances are immutable; the with methods return a changed copy.
+ */
+public final class DatabaseConfig {
+
+	public enum Profile {
+		FILE,
+		MEMORY,
+		SERVER
+	}
+
+	public static final String DEFAULT_PATH = "~/FoundationDatabase";
+	public static final String DEFAULT_HOST = "localhost";
+	public static final int DEFAULT_PORT = 9092;
+	public static final String DEFAULT_USER = "sa";
+	public static final String DEFAULT_PASSWORD = "";
+	public static final int DEFAULT_POOL_MIN_SIZE = 2;
+	public static final int DEFAULT_POOL_MAX_SIZE = 10;
+
+	// Properties file read by load() from the working directory, when present
+	public static final String PROPERTIES_FILE = "database.properties";
+
+	// Property keys
+	public static final String PROFILE = "db.profile";
+	public static final String PATH = "db.path";
+	public static final String NAME = "db.name";
+	public static final String HOST = "db.host";
+	public static final String PORT = "db.port";
+	public static final String USER = "db.user";
+	public static final String PASSWORD = "db.password";
+	public static final String CACHE_SIZE_KB = "db.cacheSizeKb";
+	public static final String AUTO_COMPACT_FILL_RATE = "db.autoCompactFillRate";
+	public static final String MAX_COMPACT_TIME_MILLIS = "db.maxCompactTimeMillis";
+	public static final String WRITE_DELAY_MILLIS = "db.writeDelayMillis";
+	public static final String COMPRESS = "db.compress";
+	public static final String POOL_MIN_SIZE = "db.poolMinSize";
+	public static final String POOL_MAX_SIZE = "db.poolMaxSize";
+	public static final String PERSISTENT_SESSIONS = "db.persistentSessions";
+
+	// Unset tuning options
+	private static final int UNSET = -1;
+
+	// Numbers the databases made by memory(), so each one is private to its caller
+	private static final AtomicInteger MEMORY_DATABASES = new AtomicInteger();
+
+	private Profile profile;
+	private String url; // used as is when set, see forUrl()
+	private String path = DEFAULT_PATH;
+	private String name;
+	private String host = DEFAULT_HOST;
+	private int port = DEFAULT_PORT;
+	private String user = DEFAULT_USER;
+	private String password = DEFAULT_PASSWORD;
+	private int cacheSizeKb = UNSET;
+	private int autoCompactFillRate = UNSET;
+	private int maxCompactTimeMillis = UNSET;
+	private int writeDelayMillis = UNSET;
+	private boolean compress = false;
+	private int poolMinSize = DEFAULT_POOL_MIN_SIZE;
+	private int poolMaxSize = DEFAULT_POOL_MAX_SIZE;
+	private boolean persistentSessions = false;
+
+	private DatabaseConfig(Profile profile) {
+		this.profile = profile;
+	}
+
+	// An embedded database in the given file, without the .mv.db extension
+	public static DatabaseConfig file(String path) {
+		DatabaseConfig config = new DatabaseConfig(Profile.FILE);
+		config.path = requireText(path, "path");
+		return config;
+	}
+
+	// A named in-memory database. Every helper using the same name shares it.
+	public static DatabaseConfig memory(String name) {
+		DatabaseConfig config = new DatabaseConfig(Profile.MEMORY);
+		config.name = requireText(name, "name");
+		return config;
+	}
+
+	// An in-memory database no other caller uses, for tests and benchmarks that run in parallel
+	public static DatabaseConfig memory() {
+		return memory("db" + MEMORY_DATABASES.incrementAndGet());
+	}
+
+	// A database served by an H2 TCP server, e.g. name "~/FoundationDatabase" or "mem:shared"
+	public static DatabaseConfig server(String host, int port, String name) {
+		if (port < 1 || port > 65535) {
+			throw new IllegalArgumentException("Invalid port: " + port);
+		}
+		DatabaseConfig config = new DatabaseConfig(Profile.SERVER);
+		config.host = requireText(host, "host");
+		config.port = port;
+		config.name = requireText(name, "name");
+		return config;
+	}
+
+	// A complete JDBC URL, used as given. Tuning options are not applied to it.
+	public static DatabaseConfig forUrl(String url) {
+		if (url == null || !url.startsWith("jdbc:h2:")) {
+			throw new IllegalArgumentException("Not an H2 JDBC URL: " + url);
+		}
+		String rest = url.substring("jdbc:h2:".length());
+		Profile profile = rest.startsWith("mem:") ? Profile.MEMORY
+				: rest.startsWith("tcp:") || rest.startsWith("ssl:") ? Profile.SERVER
+				: Profile.FILE;
+		DatabaseConfig config = new DatabaseConfig(profile);
+		config.url = url;
+		return config;
+	}
+
+	// Reads database.properties from the working directory if it exists, then system
+	// properties, then environment variables; later sources win
+	public static DatabaseConfig load() {
+		Properties properties = new Properties();
+		Path file = Path.of(PROPERTIES_FILE);
+		if (Files.isRegularFile(file)) {
+			try (InputStream in = Files.newInputStream(file)) {
+				properties.load(in);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot read " + file.toAbsolutePath(), e);
+			}
+		}
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith("db.")) {
+				properties.setProperty(key, System.getProperty(key));
+			}
+		}
+		return load(properties, System.getenv());
+	}
+
+	// Builds a config from properties, with environment variables taking precedence
+	public static DatabaseConfig load(Properties properties, Map<String, String> env) {
+		Lookup lookup = new Lookup(properties, env);
+		String profileName = lookup.get(PROFILE);
+		Profile profile;
+		try {
+			profile = profileName == null ? Profile.FILE : Profile.valueOf(profileName.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown " + PROFILE + ": " + profileName, e);
+		}
+
+		DatabaseConfig config;
+		switch (profile) {
+		case MEMORY:
+			String name = lookup.get(NAME);
+			config = name == null ? memory() : memory(name);
+			break;
+		case SERVER:
+			config = server(lookup.get(HOST, DEFAULT_HOST), lookup.getInt(PORT, DEFAULT_PORT),
+					lookup.get(NAME, DEFAULT_PATH));
+			break;
+		default:
+			config = file(lookup.get(PATH, DEFAULT_PATH));
+			break;
+		}
+		config.user = lookup.get(USER, DEFAULT_USER);
+		config.password = lookup.get(PASSWORD, DEFAULT_PASSWORD);
+		config.cacheSizeKb = lookup.getInt(CACHE_SIZE_KB, UNSET);
+		config.autoCompactFillRate = lookup.getInt(AUTO_COMPACT_FILL_RATE, UNSET);
+		config.maxCompactTimeMillis = lookup.getInt(MAX_COMPACT_TIME_MILLIS, UNSET);
+		config.writeDelayMillis = lookup.getInt(WRITE_DELAY_MILLIS, UNSET);
+		config.compress = Boolean.parseBoolean(lookup.get(COMPRESS, "false"));
+		config.poolMinSize = lookup.getInt(POOL_MIN_SIZE, DEFAULT_POOL_MIN_SIZE);
+		config.poolMaxSize = lookup.getInt(POOL_MAX_SIZE, DEFAULT_POOL_MAX_SIZE);
+		config.persistentSessions = Boolean.parseBoolean(lookup.get(PERSISTENT_SESSIONS, "false"));
+		config.validate();
+		return config;
+	}
+
+	// The environment variable that overrides a property, e.g. db.cacheSizeKb -> DB_CACHE_SIZE_KB
+	public static String environmentName(String key) {
+		return key.replace('.', '_').replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+	}
+
+	public DatabaseConfig withCredentials(String user, String password) {
+		DatabaseConfig copy = copy();
+		copy.user = requireText(user, "user");
+		copy.password = password == null ? "" : password;
+		return copy;
+	}
+
+	// Page cache in KB; H2's default is 64 MB per database
+	public DatabaseConfig withCacheSizeKb(int cacheSizeKb) {
+		DatabaseConfig copy = copy();
+		copy.cacheSizeKb = cacheSizeKb;
+		copy.validate();
+		return copy;
+	}
+
+	// MVStore tuning: how full chunks must stay before they are compacted (percent), how long
+	// compaction may run on close, how long changes may wait before being written, and
+	// whether pages are compressed. Pass -1 to keep a default.
+	public DatabaseConfig withMvStore(int autoCompactFillRate, int maxCompactTimeMillis, int writeDelayMillis,
+			boolean compress) {
+		DatabaseConfig copy = copy();
+		copy.autoCompactFillRate = autoCompactFillRate;
+		copy.maxCompactTimeMillis = maxCompactTimeMillis;
+		copy.writeDelayMillis = writeDelayMillis;
+		copy.compress = compress;
+		copy.validate();
+		return copy;
+	}
+
+	public DatabaseConfig withPoolSize(int poolMinSize, int poolMaxSize) {
+		DatabaseConfig copy = copy();
+		copy.poolMinSize = poolMinSize;
+		copy.poolMaxSize = poolMaxSize;
+		copy.persistentSessions = persistentSessions;
+		copy.validate();
+		return copy;
+	}
+
+	// Whether login sessions are also kept in the sessions table, so they survive a restart
+	public DatabaseConfig withPersistentSessions(boolean persistentSessions) {
+		DatabaseConfig copy = copy();
+		copy.persistentSessions = persistentSessions;
+		return copy;
+	}
+
+	// The JDBC URL for this profile with the tuning options appended
+	public String getJdbcUrl() {
+		if (url != null) {
+			return url;
+		}
+		StringBuilder jdbcUrl = new StringBuilder("jdbc:h2:");
+		switch (profile) {
+		case MEMORY:
+			// Keep the database while no connection is open, like a file would be
+			jdbcUrl.append("mem:").append(name).append(";DB_CLOSE_DELAY=-1");
+			break;
+		case SERVER:
+			jdbcUrl.append("tcp://").append(host).append(':').append(port).append('/').append(name);
+			break;
+		default:
+			jdbcUrl.append(path);
+			break;
+		}
+		appendSetting(jdbcUrl, "CACHE_SIZE", cacheSizeKb);
+		appendSetting(jdbcUrl, "AUTO_COMPACT_FILL_RATE", autoCompactFillRate);
+		appendSetting(jdbcUrl, "MAX_COMPACT_TIME", maxCompactTimeMillis);
+		appendSetting(jdbcUrl, "WRITE_DELAY", writeDelayMillis);
+		if (compress) {
+			jdbcUrl.append(";COMPRESS=TRUE");
+		}
+		return jdbcUrl.toString();
+	}
+
+	public Profile getProfile() { return profile; }
+	public String getUser() { return user; }
+	public String getPassword() { return password; }
+	public int getCacheSizeKb() { return cacheSizeKb; }
+	public int getAutoCompactFillRate() { return autoCompactFillRate; }
+	public int getMaxCompactTimeMillis() { return maxCompactTimeMillis; }
+	public int getWriteDelayMillis() { return writeDelayMillis; }
+	public boolean isCompress() { return compress; }
+	public int getPoolMinSize() { return poolMinSize; }
+	public int getPoolMaxSize() { return poolMaxSize; }
+	public boolean isPersistentSessions() { return persistentSessions; }
+
+	// Leaves out the password
+	@Override
+	public String toString() {
+		return profile + " " + getJdbcUrl() + " as " + user;
+	}
+
+	private DatabaseConfig copy() {
+		DatabaseConfig copy = new DatabaseConfig(profile);
+		copy.url = url;
+		copy.path = path;
+		copy.name = name;
+		copy.host = host;
+		copy.port = port;
+		copy.user = user;
+		copy.password = password;
+		copy.cacheSizeKb = cacheSizeKb;
+		copy.autoCompactFillRate = autoCompactFillRate;
+		copy.maxCompactTimeMillis = maxCompactTimeMillis;
+		copy.writeDelayMillis = writeDelayMillis;
+		copy.compress = compress;
+		copy.poolMinSize = poolMinSize;
+		copy.poolMaxSize = poolMaxSize;
+		return copy;
+	}
+
+	private void validate() {
+		if (cacheSizeKb < UNSET) {
+			throw new IllegalArgumentException("Invalid cache size: " + cacheSizeKb);
+		}
+		if (autoCompactFillRate < UNSET || autoCompactFillRate > 100) {
+			throw new IllegalArgumentException("Auto-compact fill rate must be 0-100: " + autoCompactFillRate);
+		}
+		if (maxCompactTimeMillis < UNSET || writeDelayMillis < UNSET) {
+			throw new IllegalArgumentException("Invalid MVStore timing: maxCompactTime=" + maxCompactTimeMillis
+					+ ", writeDelay=" + writeDelayMillis);
+		}
+		if (poolMinSize < 0 || poolMaxSize < 1 || poolMinSize > poolMaxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min=" + poolMinSize + ", max=" + poolMaxSize);
+		}
+	}
+
+	private static void appendSetting(StringBuilder jdbcUrl, String setting, int value) {
+		if (value != UNSET) {
+			jdbcUrl.append(';').append(setting).append('=').append(value);
+		}
+	}
+
+	private static String requireText(String value, String what) {
+		if (value == null || value.isBlank()) {
+			throw new IllegalArgumentException("Database " + what + " must not be empty");
+		}
+		return value;
+	}
+
+	// Looks a key up in the environment first, then in the properties
+	private static final class Lookup {
+		private final Properties properties;
+		private final Map<String, String> env;
+
+		Lookup(Properties properties, Map<String, String> env) {
+			this.properties = properties;
+			this.env = env;
+		}
+
+		String get(String key) {
+			String value = env.get(environmentName(key));
+			return value != null ? value : properties.getProperty(key);
+		}
+
+		String get(String key, String defaultValue) {
+			String value = get(key);
+			return value == null ? defaultValue : value;
+		}
+
+		int getInt(String key, int defaultValue) {
+			String value = get(key);
+			if (value == null || value.isBlank()) {
+				return defaultValue;
+			}
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(key + " must be a number: " + value, e);
+			}
+		}
+	}
+}
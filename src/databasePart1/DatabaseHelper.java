@@ -1,19 +1,32 @@
 package databasePart1;
 
 import java.sql.*;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.util.UUID;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.security.SecureRandom;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import application.Role;
 import application.User;
 
 
@@ -23,216 +36,690 @@ import application.User;
  */
 public class DatabaseHelper {
 
-	// JDBC driver name and database URL 
+	// JDBC driver name; the database URL and credentials come from a DatabaseConfig
 	static final String JDBC_DRIVER = "org.h2.Driver";   
-	static final String DB_URL = "jdbc:h2:~/FoundationDatabase";  
 
-	//  Database credentials 
-	static final String USER = "sa"; 
-	static final String PASS = ""; 
+	// Connection pool settings; the pool size comes from the DatabaseConfig
+	static final long POOL_IDLE_TIMEOUT_MILLIS = 60_000;
+	static final long POOL_BORROW_TIMEOUT_MILLIS = 5_000;
 
-	private Connection connection = null;
-	private Statement statement = null; 
-	//	PreparedStatement pstmt
+	// Prepared statements kept open per pooled connection
+	static final int STATEMENT_CACHE_SIZE = 64;
+
+	// User cache settings
+	static final int USER_CACHE_SIZE = 10_000;
+	static final long USER_CACHE_TTL_MILLIS = 5 * 60_000;
+
+	// Username filter settings: target false-positive rate, smallest size, and the share
+	// of deleted names the filter may hold before it is rebuilt
+	static final double USERNAME_FILTER_FPP = 0.01;
+	static final long USERNAME_FILTER_MIN_CAPACITY = 1024;
+	static final double USERNAME_FILTER_MAX_STALE_RATIO = 0.25;
+
+	// SQLState of a PRIMARY KEY or UNIQUE violation
+	static final String DUPLICATE_KEY = "23505";
+
+	// Fresh codes drawn before giving up when generated invitation codes keep colliding
+	static final int MAX_CODE_ATTEMPTS = 5;
+
+	// Marks an unused, unexpired invitation code (1: code, 2: now) used and returns its roleMask
+	private static final String REDEEM_INVITATION_CODE = "SELECT roleMask FROM FINAL TABLE "
+			+ "(UPDATE InvitationCodes SET isUsed = TRUE WHERE code = ? AND isUsed = FALSE AND expiresAt > ?)";
+
+	// Users updated per JDBC batch by bulk admin operations
+	static final int USER_BATCH_SIZE = 1000;
+
+	// Invitation codes inserted per JDBC batch, and the most one call may generate
+	static final int INVITATION_BATCH_SIZE = 1000;
+	public static final int MAX_INVITATION_BATCH = 1_000_000;
+
+	// Invitation reaper settings: rows per delete, deletes per run, how long expired codes
+	// are kept, and the delay between runs
+	static final int REAPER_BATCH_SIZE = 1000;
+	static final int REAPER_MAX_BATCHES_PER_RUN = 100;
+	static final long REAPER_RETENTION_MILLIS = 24 * 3_600_000L;
+	static final long REAPER_PERIOD_MILLIS = 10 * 60_000L;
+
+	// Audit log settings: events queued before the overflow policy applies, events per insert
+	// batch, and the longest an event waits in the queue while fewer than a batch are queued
+	static final int AUDIT_QUEUE_CAPACITY = 1 << 16;
+	static final int AUDIT_BATCH_SIZE = 500;
+	static final long AUDIT_FLUSH_INTERVAL_MILLIS = 1_000;
+	static final AuditLog.OverflowPolicy AUDIT_OVERFLOW_POLICY = AuditLog.OverflowPolicy.DROP_NEWEST;
+
+	// Login session settings: how long a session lasts unused and at most, and how often a
+	// persistent session's last access is written back (also how often expired ones are purged)
+	static final long SESSION_IDLE_TIMEOUT_MILLIS = 30 * 60_000L;
+	static final long SESSION_ABSOLUTE_TIMEOUT_MILLIS = 12 * 3_600_000L;
+	static final long SESSION_TOUCH_INTERVAL_MILLIS = 60_000L;
+
+	// Times a login re-reads the user when the account keeps changing under it
+	static final int MAX_SESSION_ATTEMPTS = 5;
+
+	// All database work borrows a connection from the pool, so pages can share
+	// one DatabaseHelper across threads. Statements prepared through a pooled
+	// connection are cached with it and must not be closed here.
+	private volatile ConnectionPool pool = null;
+	private final DatabaseConfig config;
+	private final SchemaMigrator migrator = new SchemaMigrator();
+	private int migrationsApplied = 0;
+	private AsyncDatabaseHelper async = null;
+	private InvitationReaper invitationReaper = null;
+	private volatile AuditLog auditLog = null;
+	// True from connectToDatabase() until closeConnection(); the audit log is only started
+	// while the pool is open, so a late event cannot start a writer on a closed pool
+	private volatile boolean open = false;
+	private volatile SessionManager sessions = null;
+
+	// Recently read users. Every method that writes cse360users must store the new
+	// row in it or invalidate the userName; bulk writes invalidate everything.
+	// Either way it also ends the sessions of the users it changed.
+	private final UserCache userCache = new UserCache(USER_CACHE_SIZE, USER_CACHE_TTL_MILLIS);
+
+	// Bloom filter of every userName, so lookups of names that do not exist skip the
+	// database. While a rebuild scans the table, new names go into both filters.
+	private volatile UsernameFilter usernameFilter = null;
+	private volatile UsernameFilter pendingUsernameFilter = null;
+	private final Object usernameFilterRebuildLock = new Object();
+	private final AtomicBoolean usernameFilterRebuildScheduled = new AtomicBoolean();
+
+	private volatile InvitationCodeGenerator codeGenerator = new InvitationCodeGenerator();
 	
-	// Password generation
-	private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
-    private static final String DIGITS = "0123456789";
-    private static final char SPECIAL_CHARACTER = '!';
-    private static final int PASSWORD_LENGTH = 8;  
+	// One-time passwords for admin resets
+	private volatile PasswordGenerator passwordGenerator = new PasswordGenerator();
+
+	// Calls, errors and latency of every public database operation, keyed by method name
+	private final OperationMetrics metrics = new OperationMetrics();
 
+	// Uses the database configured in database.properties or the environment,
+	// by default the file ~/FoundationDatabase
+	public DatabaseHelper() {
+		this(DatabaseConfig.load());
+	}
+
+	// Connects to the given H2 database instead of the default file, e.g. an in-memory one
+	public DatabaseHelper(String dbUrl) {
+		this(DatabaseConfig.forUrl(dbUrl));
+	}
+
+	public DatabaseHelper(DatabaseConfig config) {
+		this.config = config;
+	}
+
+	// Connects to the database and applies any schema migrations it is missing.
+	// Existing data is kept; use resetDatabase() to start from fresh.
 	public void connectToDatabase() throws SQLException {
+		timed("connectToDatabase", () -> {
+			try {
+				Class.forName(JDBC_DRIVER); // Load the JDBC driver
+				System.out.println("Connecting to database " + config + "...");
+				if (pool != null) {
+					open = false;
+					closeAuditLog(); // writes what is queued while the old pool is still open
+					closeSessions();
+					pool.close();
+				}
+				pool = new ConnectionPool(config.getJdbcUrl(), config.getUser(), config.getPassword(),
+						config.getPoolMinSize(), config.getPoolMaxSize(),
+						POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE);
+				open = true;
+				userCache.invalidateAll();
+				try (PooledConnection conn = pool.borrow()) {
+					migrationsApplied = migrator.migrate(conn.getConnection());
+				}
+				loadUsernameFilter();
+			} catch (ClassNotFoundException e) {
+				System.err.println("JDBC Driver not found: " + e.getMessage());
+			}
+			return null;
+		});
+	}
+
+	// Clears the database and rebuilds the schema from scratch.
+	public void resetDatabase() throws SQLException {
+		timed("resetDatabase", () -> {
+			try (PooledConnection conn = pool.borrow(); Statement statement = conn.createStatement()) {
+				statement.execute("DROP ALL OBJECTS");
+				migrationsApplied = migrator.migrate(conn.getConnection());
+			} finally {
+				userCache.invalidateAll();
+				closeSessions(); // their table is gone too
+			}
+			loadUsernameFilter();
+			return null;
+		});
+	}
+
+	// Number of schema migrations applied by the last connect or reset
+	public int getMigrationsApplied() {
+		return migrationsApplied;
+	}
+
+	public int getSchemaVersion() throws SQLException {
+		return timed("getSchemaVersion", () -> {
+			try (PooledConnection conn = pool.borrow()) {
+				return migrator.getVersion(conn.getConnection());
+			}
+		});
+	}
+
+	// Import test users to the database. The file is only read into the database when
+	// its checksum differs from the one recorded the last time it was seeded.
+	// Returns the number of users seeded, 0 if the seed was already up to date.
+	public int initializeTestUsers() throws SQLException {
+		return timed("initializeTestUsers", () -> {
+			String seedName = "test-users.txt";
+			byte[] content;
+			try (InputStream inputStream = getClass().getResourceAsStream(seedName)) {
+				content = inputStream.readAllBytes();
+			} catch (Exception e) {
+				logFailure("initializeTestUsers", e);
+				return 0;
+			}
+			String checksum = sha256(content);
+
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement check = conn.prepareStatement("SELECT checksum FROM seed_state WHERE name = ?");
+				check.setString(1, seedName);
+				try (ResultSet rs = check.executeQuery()) {
+					if (rs.next() && checksum.equals(rs.getString("checksum"))) {
+						return 0; // already seeded with this file
+					}
+				}
+
+				// Upsert every user and record the checksum in one transaction
+				Connection connection = conn.getConnection();
+				connection.setAutoCommit(false);
+				int seeded = 0;
+				PreparedStatement merge = conn.prepareStatement(
+						"MERGE INTO cse360users (userName, password, email, roleMask) KEY (userName) VALUES (?, ?, ?, ?)");
+				BufferedReader reader = new BufferedReader(new InputStreamReader(
+						new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split(",");
+					if (parts.length == 4) {
+						merge.setString(1, parts[0].trim());
+						merge.setString(2, parts[1].trim());
+						merge.setString(3, parts[3].trim());
+						merge.setInt(4, Role.parseMask(parts[2]));
+						merge.addBatch();
+						seeded++;
+					}
+				}
+				merge.executeBatch();
+
+				PreparedStatement record = conn.prepareStatement(
+						"MERGE INTO seed_state (name, checksum, seededAt) KEY (name) VALUES (?, ?, ?)");
+				record.setString(1, seedName);
+				record.setString(2, checksum);
+				record.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+				record.executeUpdate();
+				connection.commit();
+				userCache.invalidateAll();
+				sessions().invalidateAll(); // the seed may have changed existing users
+				loadUsernameFilter();
+				return seeded;
+			} catch (IOException e) {
+				logFailure("initializeTestUsers", e);
+				return 0;
+			}
+		});
+	}
+
+	// Bulk-imports users from a CSV roster (userName, password, role, email), validating
+	// every row and inserting them in batched, chunked transactions.
+	public ImportReport importUsers(Reader source) throws IOException, SQLException {
+		return this.<ImportReport, IOException, SQLException>timed("importUsers", () -> importFrom(source));
+	}
+
+	public ImportReport importUsers(Path rosterFile) throws IOException, SQLException {
+		return this.<ImportReport, IOException, SQLException>timed("importUsers", () -> {
+			try (Reader reader = Files.newBufferedReader(rosterFile, StandardCharsets.UTF_8)) {
+				return importFrom(reader);
+			}
+		});
+	}
+
+	private ImportReport importFrom(Reader source) throws IOException, SQLException {
 		try {
-			Class.forName(JDBC_DRIVER); // Load the JDBC driver
-			System.out.println("Connecting to database...");
-			connection = DriverManager.getConnection(DB_URL, USER, PASS);
-			statement = connection.createStatement(); 
-			// You can use this command to clear the database and restart from fresh.
-			statement.execute("DROP ALL OBJECTS");
-
-			createTables();  // Create the necessary tables if they don't exist
-		} catch (ClassNotFoundException e) {
-			System.err.println("JDBC Driver not found: " + e.getMessage());
-		}
-	}
-
-	private void createTables() throws SQLException {
-		String userTable = "CREATE TABLE IF NOT EXISTS cse360users ("
-				+ "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255) UNIQUE, "
-				+ "password VARCHAR(255), "
-				+ "email VARCHAR(255), "
-				+ "role VARCHAR(255), "
-				+ "passwordReset BOOLEAN DEFAULT FALSE)";
-		statement.execute(userTable);
-		
-		// Create the invitation codes table
-	    String invitationCodesTable = "CREATE TABLE IF NOT EXISTS InvitationCodes ("
-	            + "code VARCHAR(10) PRIMARY KEY, "
-	    		+ "role VARCHAR(255), "
-	            + "expiresAt DateTime, "
-	            + "isUsed BOOLEAN DEFAULT FALSE)";
-	    statement.execute(invitationCodesTable);
-	}
-
-	// Import test users to the database
-	public void initializeTestUsers() throws SQLException {
-		try (InputStream inputStream = getClass().getResourceAsStream("test-users.txt")) {
-		    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-		    String line;
-		    while ((line = reader.readLine()) != null) {
-		        String[] parts = line.split(",");
-		        if (parts.length == 4) {
-		            String userName = parts[0].trim();
-		            String password = parts[1].trim();
-		            String role = parts[2].trim();
-		            String email = parts[3].trim();
-
-		            User user = new User(userName, password, role, email);
-		            register(user);
-		        }
-		    }
-		} catch (Exception e) {
-		    e.printStackTrace();
+			return new UserImporter(pool).importUsers(source);
+		} finally {
+			userCache.invalidateAll(); // the import may have added users cached as absent
+			loadUsernameFilter();
+		}
+	}
+
+	// Streams every user (without passwords) to a CSV or JSON Lines file.
+	// Returns the number of users written.
+	public long exportUsers(Path file, UserExporter.Format format, boolean gzip,
+			UserExporter.ProgressListener listener) throws IOException, SQLException {
+		return this.<Long, IOException, SQLException>timed("exportUsers",
+				() -> new UserExporter(pool).export(file, format, gzip, listener));
+	}
+
+	private static String sha256(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
 		}
 	}
 
 	// Check if the database is empty
 	public boolean isDatabaseEmpty() throws SQLException {
-		String query = "SELECT COUNT(*) AS count FROM cse360users";
-		ResultSet resultSet = statement.executeQuery(query);
-		if (resultSet.next()) {
-			return resultSet.getInt("count") == 0;
-		}
-		return true;
+		return timed("isDatabaseEmpty", () -> {
+			String query = "SELECT COUNT(*) AS count FROM cse360users";
+			try (PooledConnection conn = pool.borrow();
+					Statement statement = conn.createStatement();
+					ResultSet resultSet = statement.executeQuery(query)) {
+				if (resultSet.next()) {
+					return resultSet.getInt("count") == 0;
+				}
+			}
+			return true;
+		});
 	}
 
 	// Registers a new user in the database.
 	public void register(User user) throws SQLException {
-		String insertUser = "INSERT INTO cse360users (userName, password, email, role) VALUES (?, ?, ?, ?)";
-		try (PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			pstmt.setString(3, user.getEmail());
-			pstmt.setString(4, user.getRole());
-			pstmt.executeUpdate();
-		}
+		timed("register", () -> {
+			String insertUser = "INSERT INTO cse360users (userName, password, email, roleMask) VALUES (?, ?, ?, ?)";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(insertUser);
+				pstmt.setString(1, user.getUserName());
+				pstmt.setString(2, user.getPassword());
+				pstmt.setString(3, user.getEmail());
+				pstmt.setInt(4, user.getRoleMask());
+				pstmt.executeUpdate();
+			}
+			addToUsernameFilter(user.getUserName());
+			userCache.put(user.getUserName(), new UserCache.CachedUser(
+					user.getUserName(), user.getPassword(), user.getRoleMask(), user.getEmail(), false));
+			return null;
+		});
+	}
+
+	// Registers a new user with the roles of an invitation code in one transaction: the code is
+	// redeemed and the user inserted together, or neither happens. A taken userName is detected
+	// by the UNIQUE constraint, so two signups racing for the same name cannot both succeed and
+	// the loser keeps its invitation code. Names the user cache already knows are taken are
+	// turned away before the transaction starts; that check is only a shortcut.
+	public RegistrationResult registerWithInvite(String userName, String password, String email, String code)
+			throws SQLException {
+		return timed("registerWithInvite", () -> {
+			if (lookupUser(userName).exists()) {
+				return RegistrationResult.failure(RegistrationResult.Status.USERNAME_TAKEN);
+			}
+			int roleMask;
+			try (PooledConnection conn = pool.borrow()) {
+				Connection connection = conn.getConnection();
+				connection.setAutoCommit(false);
+
+				PreparedStatement redeem = conn.prepareStatement(REDEEM_INVITATION_CODE);
+				redeem.setString(1, code);
+				redeem.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+				try (ResultSet rs = redeem.executeQuery()) {
+					if (!rs.next()) {
+						connection.rollback();
+						return RegistrationResult.failure(RegistrationResult.Status.INVALID_INVITATION);
+					}
+					roleMask = rs.getInt(1);
+				}
+
+				PreparedStatement insert = conn.prepareStatement(
+						"INSERT INTO cse360users (userName, password, email, roleMask) VALUES (?, ?, ?, ?)");
+				insert.setString(1, userName);
+				insert.setString(2, password);
+				insert.setString(3, email);
+				insert.setInt(4, roleMask);
+				try {
+					insert.executeUpdate();
+				} catch (SQLException e) {
+					connection.rollback(); // gives the invitation code back
+					if (DUPLICATE_KEY.equals(e.getSQLState())) {
+						return RegistrationResult.failure(RegistrationResult.Status.USERNAME_TAKEN);
+					}
+					throw e;
+				}
+				connection.commit();
+			}
+			addToUsernameFilter(userName);
+			userCache.put(userName, new UserCache.CachedUser(userName, password, roleMask, email, false));
+			audit(AuditEvent.Type.INVITATION_REDEEMED, userName, userName, "code " + code);
+			audit(AuditEvent.Type.USER_REGISTERED, userName, userName, "roles " + Role.fromMask(roleMask));
+			return RegistrationResult.registered(new User(userName, password, roleMask, email));
+		});
 	}
 
 	// Validates a user's login credentials.
 	public boolean login(User user) throws SQLException {
-		String query = "SELECT * FROM cse360users WHERE userName = ? AND password = ? AND role = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			pstmt.setString(3, user.getRole());
+		return timed("login", () -> {
+			String query = "SELECT * FROM cse360users WHERE userName = ? AND password = ? AND roleMask = ?";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, user.getUserName());
+				pstmt.setString(2, user.getPassword());
+				pstmt.setInt(3, user.getRoleMask());
+				try (ResultSet rs = pstmt.executeQuery()) {
+					return rs.next();
+				}
+			}
+		});
+	}
+	
+	// Checks a user's credentials and loads their role, email and password reset flag
+	// in one query on the indexed userName column (or from the user cache).
+	public AuthenticationResult authenticate(String userName, String password) throws SQLException {
+		return timed("authenticate", () -> checkCredentials(userName, password));
+	}
+	
+	// authenticate(), then starts a login session for the user; the result carries its token.
+	// If the account changes between the check and the session, the check is repeated.
+	public AuthenticationResult authenticateSession(String userName, String password) throws SQLException {
+		return timed("authenticateSession", () -> {
+			for (int attempt = 0; attempt < MAX_SESSION_ATTEMPTS; attempt++) {
+				long stamp = sessions().stamp(userName);
+				AuthenticationResult result = checkCredentials(userName, password);
+				if (!result.isSuccess()) {
+					return result;
+				}
+				SessionManager.Session session = sessions().create(result.toUser(), result.isPasswordReset(), stamp);
+				if (session != null) {
+					return result.withSession(session.getToken());
+				}
+			}
+			throw new SQLException("The account of " + userName + " kept changing during login");
+		});
+	}
+
+	// Starts a login session for a user who was just registered; null if there is no such user
+	public SessionManager.Session startSession(String userName) throws SQLException {
+		return timed("startSession", () -> {
+			for (int attempt = 0; attempt < MAX_SESSION_ATTEMPTS; attempt++) {
+				long stamp = sessions().stamp(userName);
+				UserCache.CachedUser user = lookupUser(userName);
+				if (!user.exists()) {
+					return null;
+				}
+				SessionManager.Session session = sessions().create(user.toUser(), user.passwordReset, stamp);
+				if (session != null) {
+					return session;
+				}
+			}
+			throw new SQLException("The account of " + userName + " kept changing during login");
+		});
+	}
+
+	private AuthenticationResult checkCredentials(String userName, String password) throws SQLException {
+		UserCache.CachedUser user = lookupUser(userName);
+		if (!user.exists()) {
+			audit(AuditEvent.Type.LOGIN_FAILED, null, userName, "unknown user");
+			return AuthenticationResult.failure(AuthenticationResult.Status.UNKNOWN_USER, userName);
+		}
+		if (!user.password.equals(password)) {
+			audit(AuditEvent.Type.LOGIN_FAILED, null, userName, "invalid password");
+			return AuthenticationResult.failure(AuthenticationResult.Status.INVALID_PASSWORD, userName);
+		}
+		audit(AuditEvent.Type.LOGIN_SUCCEEDED, userName, userName, null);
+		return AuthenticationResult.success(user.userName, password, user.roleMask, user.email, user.passwordReset);
+	}
+
+	// Reads one user through the username filter and the user cache.
+	// Returns UserCache.ABSENT if there is no such user.
+	private UserCache.CachedUser lookupUser(String userName) throws SQLException {
+		UsernameFilter filter = usernameFilter;
+		if (filter != null && !filter.mightContain(userName)) {
+			return UserCache.ABSENT; // definitely not in the table
+		}
+		UserCache.CachedUser cached = userCache.get(userName);
+		if (cached != null) {
+			return cached;
+		}
+		long loadGeneration = userCache.startLoad();
+		String query = "SELECT userName, password, email, roleMask, passwordReset FROM cse360users WHERE userName = ?";
+		UserCache.CachedUser loaded = UserCache.ABSENT;
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(query);
+			pstmt.setString(1, userName);
 			try (ResultSet rs = pstmt.executeQuery()) {
-				return rs.next();
+				if (rs.next()) {
+					loaded = new UserCache.CachedUser(
+							rs.getString("userName"),
+							rs.getString("password"),
+							rs.getInt("roleMask"),
+							rs.getString("email"),
+							rs.getBoolean("passwordReset"));
+				}
 			}
 		}
+		userCache.putLoaded(userName, loaded, loadGeneration);
+		return loaded;
 	}
 	
 	// Set the passwordReset flag for a user
 	public boolean setPasswordReset(String username, boolean resetFlag) {
-	    String query = "UPDATE cse360users SET passwordReset = ? WHERE userName = ?";
+		return timed("setPasswordReset", () -> {
+			String query = "UPDATE cse360users SET passwordReset = ? WHERE userName = ?";
 
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setBoolean(1, resetFlag);
-	        pstmt.setString(2, username);
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setBoolean(1, resetFlag);
+				pstmt.setString(2, username);
 
-	        int rowsAffected = pstmt.executeUpdate();
-	        return rowsAffected > 0; // successful set
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return false;
+				int rowsAffected = pstmt.executeUpdate();
+				userCache.invalidate(username);
+				sessions().invalidateUser(username);
+				return rowsAffected > 0; // successful set
+			} catch (SQLException e) {
+				logFailure("setPasswordReset", e);
+			}
+			return false;
+		});
 	}
 	
 	// Retrieves the passwordReset flag for a given user
 	public boolean getPasswordResetFlag(String username) {
-	    String query = "SELECT passwordReset FROM cse360users WHERE userName = ?";
-
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, username);
-
-	        ResultSet rs = pstmt.executeQuery();
-	        if (rs.next()) {
-	            return rs.getBoolean("passwordReset");
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return false;
+		return timed("getPasswordResetFlag", () -> {
+			try {
+				return lookupUser(username).passwordReset; // false for an unknown user
+			} catch (SQLException e) {
+				logFailure("getPasswordResetFlag", e);
+			}
+			return false;
+		});
 	}
 	
 	public boolean update(User user, String oldUsername) throws SQLException {
-	    String query = "UPDATE cse360users SET userName = ?, password = ?, email = ? WHERE userName = ?";
-	    
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, user.getUserName());
-	        pstmt.setString(2, user.getPassword());
-	        pstmt.setString(3, user.getEmail());
-	        pstmt.setString(4, oldUsername); 
-
-	        int rowsAffected = pstmt.executeUpdate();
-	        return rowsAffected > 0; 
-	    }
+		return timed("update", () -> {
+			String query = "UPDATE cse360users SET userName = ?, password = ?, email = ? WHERE userName = ?";
+		
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, user.getUserName());
+				pstmt.setString(2, user.getPassword());
+				pstmt.setString(3, user.getEmail());
+				pstmt.setString(4, oldUsername); 
+
+				int rowsAffected = pstmt.executeUpdate();
+				userCache.invalidate(oldUsername);
+				userCache.invalidate(user.getUserName());
+				sessions().invalidateUser(oldUsername);
+				if (rowsAffected > 0) {
+					renameInUsernameFilter(oldUsername, user.getUserName());
+				}
+				return rowsAffected > 0; 
+			}
+		});
 	}
 	
+	// Returns a new User for the given userName, or null if user not found.
+	// Served from the user cache when possible.
 	public User getUserByUsername(String username) throws SQLException {
-	    String query = "SELECT * FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, username);
-	        try (ResultSet rs = pstmt.executeQuery()) {
-	            if (rs.next()) {
-	                return new User(
-	                        rs.getString("userName"),
-	                        rs.getString("password"),
-	                        rs.getString("role"),
-	                        rs.getString("email")
-	                );
-	            }
-	        }
-	    }
-	    return null;  // Return null if user not found
+		return timed("getUserByUsername", () -> {
+			UserCache.CachedUser user = lookupUser(username);
+			return user.exists() ? user.toUser() : null;
+		});
 	}
 	
 	// Get all users from database
 	public List<User> getAllUsers() {
-	    List<User> users = new ArrayList<>();
-	    String query = "SELECT * FROM cse360users";
-
-	    try (PreparedStatement pstmt = connection.prepareStatement(query);
-	         ResultSet rs = pstmt.executeQuery()) {
-
-	        while (rs.next()) {
-	            User user = new User(
-	                    rs.getString("userName"),
-	                    rs.getString("password"),
-	                    rs.getString("role"),
-	                    rs.getString("email")
-	            );
-	            users.add(user);
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return users;
+		return timed("getAllUsers", () -> {
+			List<User> users = new ArrayList<>();
+			String query = "SELECT * FROM cse360users";
+
+			try (PooledConnection conn = pool.borrow();
+				 ResultSet rs = conn.prepareStatement(query).executeQuery()) {
+
+				while (rs.next()) {
+					User user = readUser(rs);
+					users.add(user);
+				}
+			} catch (SQLException e) {
+				logFailure("getAllUsers", e);
+			}
+			return users;
+		});
+	}
+
+	// Get one page of users ordered by userName, starting after the given userName.
+	// Pass "" for the first page. Uses the unique index on userName, so every page
+	// costs the same no matter how deep into the table it is.
+	public List<User> getUsersPage(String afterUserName, int limit) throws SQLException {
+		return timed("getUsersPage", () -> {
+			List<User> users = new ArrayList<>(limit);
+			String query = "SELECT userName, password, roleMask, email FROM cse360users WHERE userName > ? ORDER BY userName LIMIT ?";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, afterUserName == null ? "" : afterUserName);
+				pstmt.setInt(2, limit);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						users.add(readUser(rs));
+					}
+				}
+			}
+			return users;
+		});
+	}
+
+	// Search users by userName or email prefix and role, sorted by any column, one page at a time.
+	// Paging continues after query.getAfter() on (sort column, userName), which the indexes cover.
+	public List<User> searchUsers(UserQuery query) throws SQLException {
+		return timed("searchUsers", () -> {
+			StringBuilder sql = new StringBuilder("SELECT userName, password, roleMask, email FROM cse360users WHERE 1 = 1");
+			List<Object> params = new ArrayList<>();
+			if (query.getUserNamePrefix() != null) {
+				sql.append(" AND userName LIKE ? ESCAPE '\\'");
+				params.add(UserQuery.likePrefix(query.getUserNamePrefix()));
+			}
+			if (query.getEmailPrefix() != null) {
+				sql.append(" AND email LIKE ? ESCAPE '\\'");
+				params.add(UserQuery.likePrefix(query.getEmailPrefix()));
+			}
+			if (query.getRole() != null) {
+				// test the role bit while walking the sort index, which stops as soon as the page is full
+				sql.append(" AND BITAND(roleMask, ").append(query.getRole().bit()).append(") <> 0");
+			}
+			String column = query.getSortColumn().column();
+			String direction = query.isDescending() ? " DESC" : "";
+			String comparison = query.isDescending() ? " < " : " > ";
+			User after = query.getAfter();
+			if (after != null) {
+				if (query.getSortColumn() == UserQuery.SortColumn.USERNAME) {
+					sql.append(" AND userName").append(comparison).append("?");
+				} else {
+					// written out instead of a row value comparison so H2 can range-scan the index
+					String inclusive = query.isDescending() ? " <= " : " >= ";
+					sql.append(" AND ").append(column).append(inclusive).append("?")
+					   .append(" AND (").append(column).append(comparison).append("? OR userName").append(comparison).append("?)");
+					Object value = query.getSortColumn().valueOf(after);
+					params.add(value);
+					params.add(value);
+				}
+				params.add(after.getUserName());
+			}
+			sql.append(" ORDER BY ");
+			if (query.getSortColumn() != UserQuery.SortColumn.USERNAME) {
+				sql.append(column).append(direction).append(", ");
+			}
+			sql.append("userName").append(direction).append(" LIMIT ?");
+			params.add(query.getLimit());
+
+			List<User> users = new ArrayList<>(query.getLimit());
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+				for (int i = 0; i < params.size(); i++) {
+					pstmt.setObject(i + 1, params.get(i));
+				}
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						users.add(readUser(rs));
+					}
+				}
+			}
+			return users;
+		});
+	}
+
+	// Counts the users that have a role. Lists every mask containing the role's bit,
+	// so the count is answered from the roleMask index alone.
+	public int countUsersWithRole(Role role) throws SQLException {
+		return timed("countUsersWithRole", () -> {
+			int[] masks = role.masksContaining();
+			StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM cse360users WHERE roleMask IN (");
+			for (int i = 0; i < masks.length; i++) {
+				sql.append(i == 0 ? "?" : ", ?");
+			}
+			sql.append(")");
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+				for (int i = 0; i < masks.length; i++) {
+					pstmt.setInt(i + 1, masks[i]);
+				}
+				try (ResultSet rs = pstmt.executeQuery()) {
+					return rs.next() ? rs.getInt(1) : 0;
+				}
+			}
+		});
+	}
+
+	// Builds a User from the current row of a query that selects userName, password, roleMask and email
+	private static User readUser(ResultSet rs) throws SQLException {
+		return new User(
+				rs.getString("userName"),
+				rs.getString("password"),
+				rs.getInt("roleMask"),
+				rs.getString("email")
+		);
 	}
 
 	public boolean updateUser(String oldUsername, User user) throws SQLException {
-	    String query = "UPDATE cse360users SET userName = ?, password = ?, email = ?, role = ? WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, user.getUserName());
-	        pstmt.setString(2, user.getPassword());
-	        pstmt.setString(3, user.getEmail());
-	        pstmt.setString(4, user.getRole());
-	        pstmt.setString(5, oldUsername);  // Match the old username
+		return timed("updateUser", () -> {
+			String query = "UPDATE cse360users SET userName = ?, password = ?, email = ?, roleMask = ? WHERE userName = ?";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, user.getUserName());
+				pstmt.setString(2, user.getPassword());
+				pstmt.setString(3, user.getEmail());
+				pstmt.setInt(4, user.getRoleMask());
+				pstmt.setString(5, oldUsername);  // Match the old username
 
-	        int rowsAffected = pstmt.executeUpdate();
-	        return rowsAffected > 0;  // Return true if update was successful
-	    }
+				int rowsAffected = pstmt.executeUpdate();
+				userCache.invalidate(oldUsername);
+				userCache.invalidate(user.getUserName());
+				sessions().invalidateUser(oldUsername);
+				if (rowsAffected > 0) {
+					renameInUsernameFilter(oldUsername, user.getUserName());
+				}
+				return rowsAffected > 0;  // Return true if update was successful
+			}
+		});
 	}
 
 	
@@ -240,199 +727,686 @@ public class DatabaseHelper {
 	
 	// Checks if a user already exists in the database based on their userName.
 	public boolean doesUserExist(String userName) {
-	    String query = "SELECT COUNT(*) FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        
-	        pstmt.setString(1, userName);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            // If the count is greater than 0, the user exists
-	            return rs.getInt(1) > 0;
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return false; // If an error occurs, assume user doesn't exist
+		return timed("doesUserExist", () -> userExists("doesUserExist", userName));
+	}
+	
+	// True if nobody has this userName yet. Cheap enough to call on every keystroke:
+	// names that were never registered are answered by the username filter alone.
+	public boolean isUsernameAvailable(String userName) {
+		return timed("isUsernameAvailable", () -> !userExists("isUsernameAvailable", userName));
+	}
+
+	// doesUserExist() for the operation that needs it, which a failure is counted against
+	private boolean userExists(String operation, String userName) {
+		try {
+			return lookupUser(userName).exists();
+		} catch (SQLException e) {
+			logFailure(operation, e);
+		}
+		return false; // If an error occurs, assume user doesn't exist
 	}
 	
 	// Retrieves the role of a user from the database using their UserName.
+	// Roles are returned comma separated, e.g. "student,reviewer".
 	public String getUserRole(String userName) {
-	    String query = "SELECT role FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, userName);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            return rs.getString("role"); // Return the role if user exists
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return null; // If no user exists or an error occurs
+		return timed("getUserRole", () -> {
+			EnumSet<Role> roles = userRoles("getUserRole", userName);
+			return roles == null ? null : Role.format(Role.toMask(roles));
+		});
+	}
+	
+	// Retrieves the roles of a user, or null if the user does not exist
+	public EnumSet<Role> getUserRoles(String userName) {
+		return timed("getUserRoles", () -> userRoles("getUserRoles", userName));
+	}
+
+	// getUserRoles() for the operation that needs it, which a failure is counted against
+	private EnumSet<Role> userRoles(String operation, String userName) {
+		try {
+			UserCache.CachedUser user = lookupUser(userName);
+			if (user.exists()) {
+				return Role.fromMask(user.roleMask); // Return the roles if user exists
+			}
+		} catch (SQLException e) {
+			logFailure(operation, e);
+		}
+		return null; // If no user exists or an error occurs
 	}
 	
 	// Retrieves the email address for a given username
 	public String getUserEmail(String username) {
-	    String query = "SELECT email FROM cse360users WHERE userName = ?";
-
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, username);
-	        ResultSet rs = pstmt.executeQuery();
-
-	        if (rs.next()) {
-	            return rs.getString("email");
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return null;
+		return timed("getUserEmail", () -> {
+			try {
+				return lookupUser(username).email; // null for an unknown user
+			} catch (SQLException e) {
+				logFailure("getUserEmail", e);
+			}
+			return null;
+		});
 	}
 	
 	// Update user information given the old user and the updated user information
 	public boolean updateUser(User oldUser, User newUser) {
-		// check if the user exists
-		if (doesUserExist(oldUser.getUserName())) {
-			// get user id by UserName
-			String selectQuery = "SELECT id FROM cse360users WHERE userName = ?";
-			try (PreparedStatement pstmt1 = connection.prepareStatement(selectQuery)) {
-				pstmt1.setString(1, oldUser.getUserName());
-				ResultSet rs = pstmt1.executeQuery();
+		return timed("updateUser", () -> {
+			// check if the user exists
+			if (userExists("updateUser", oldUser.getUserName())) {
+				// get user id by UserName
+				String selectQuery = "SELECT id FROM cse360users WHERE userName = ?";
+				try (PooledConnection conn = pool.borrow()) {
+					PreparedStatement pstmt1 = conn.prepareStatement(selectQuery);
+					pstmt1.setString(1, oldUser.getUserName());
+					int userId = -1;
+					try (ResultSet rs = pstmt1.executeQuery()) {
+						if (rs.next()) {
+							userId = rs.getInt("id");
+						}
+					}
 				
-				// update user details with newUser information
-				if (rs.next()) {
-					int userId = rs.getInt("id");
-					
-					//String updateQuery = "UPDATE cse360users SET userName = ?, password = ?, role = ? WHERE id = ?";
-					String updateQuery = "UPDATE cse360users SET userName = ?, password = ?, email = ?, role = ? WHERE id = ?";
-					try (PreparedStatement pstmt2 = connection.prepareStatement(updateQuery)) {
+					// update user details with newUser information
+					if (userId != -1) {
+						//String updateQuery = "UPDATE cse360users SET userName = ?, password = ?, role = ? WHERE id = ?";
+						String updateQuery = "UPDATE cse360users SET userName = ?, password = ?, email = ?, roleMask = ? WHERE id = ?";
+						PreparedStatement pstmt2 = conn.prepareStatement(updateQuery);
 						pstmt2.setString(1, newUser.getUserName());
 						pstmt2.setString(2, newUser.getPassword());
 						pstmt2.setString(3, newUser.getEmail());
-						pstmt2.setString(4, newUser.getRole());
+						pstmt2.setInt(4, newUser.getRoleMask());
 						pstmt2.setInt(5, userId);
-						
+					
 						int rowsAffected = pstmt2.executeUpdate();
+						userCache.invalidate(oldUser.getUserName());
+						userCache.invalidate(newUser.getUserName());
+						sessions().invalidateUser(oldUser.getUserName());
 						if (rowsAffected > 0) {
+							renameInUsernameFilter(oldUser.getUserName(), newUser.getUserName());
 							return true;
 						}
 					}
-				}
 				
-			} catch (SQLException e) {
-				e.printStackTrace();
+				} catch (SQLException e) {
+					logFailure("updateUser", e);
+				}
 			}
-		}
-		return false;
+			return false;
+		});
 	}
 	
 	// Generates a new invitation code and inserts it into the database.
+	// The role is a comma-separated list of role names.
 	public String generateInvitationCode(String role, Timestamp expiresAt) {
-	    String code = UUID.randomUUID().toString().substring(0, 4); // Generate a random 4-character code
-	    String query = "INSERT INTO InvitationCodes (code, role, expiresAt) VALUES (?, ?, ?)";
+		EnumSet<Role> roles = Role.fromMask(Role.parseMask(role));
+		return timed("generateInvitationCode", () -> insertInvitationCode(roles, expiresAt));
+	}
+	
+	// Generates a new invitation code granting the given roles and inserts it into the database.
+	// A code that is already taken is replaced by a fresh one. Returns null if the insert fails.
+	public String generateInvitationCode(Set<Role> roles, Timestamp expiresAt) {
+		return timed("generateInvitationCode", () -> insertInvitationCode(roles, expiresAt));
+	}
 
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        pstmt.setString(2, role);
-	        pstmt.setTimestamp(3, expiresAt);
-	        pstmt.executeUpdate();
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+	private String insertInvitationCode(Set<Role> roles, Timestamp expiresAt) {
+		String query = "INSERT INTO InvitationCodes (code, roleMask, expiresAt) VALUES (?, ?, ?)";
 
-	    return code;
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(query);
+			for (int attempt = 1; ; attempt++) {
+				String code = codeGenerator.next();
+				pstmt.setString(1, code);
+				pstmt.setInt(2, Role.toMask(roles));
+				pstmt.setTimestamp(3, expiresAt);
+				try {
+					pstmt.executeUpdate();
+					return code;
+				} catch (SQLException e) {
+					if (!DUPLICATE_KEY.equals(e.getSQLState()) || attempt == MAX_CODE_ATTEMPTS) {
+						throw e;
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logFailure("generateInvitationCode", e);
+		}
+		return null;
 	}
 	
-	// Validates an invitation code to check if it is unused.
-	public boolean validateInvitationCode(String code) {
-	    String query = "SELECT * FROM InvitationCodes WHERE code = ? AND isUsed = FALSE AND expiresAt > ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        pstmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
-	        ResultSet rs = pstmt.executeQuery();
-	        if (rs.next()) {
-	            // Mark the code as used
-	            markInvitationCodeAsUsed(code);
-	            return true;
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return false;
+	// Generates count invitation codes granting the same roles and expiry in one transaction,
+	// inserted in batches. A code that collides with an existing one fails on its own (the rest
+	// of the batch still runs) and is replaced by a fresh code in the next round. Either every
+	// code is stored or none is.
+	public List<String> generateInvitationCodes(int count, Set<Role> roles, Timestamp expiresAt)
+			throws SQLException {
+		return timed("generateInvitationCodes", () -> insertInvitationCodes(count, roles, expiresAt));
+	}
+
+	private List<String> insertInvitationCodes(int count, Set<Role> roles, Timestamp expiresAt) throws SQLException {
+		if (count < 1 || count > MAX_INVITATION_BATCH) {
+			throw new IllegalArgumentException("Code count must be between 1 and " + MAX_INVITATION_BATCH + ": " + count);
+		}
+		int roleMask = Role.toMask(roles);
+		List<String> generated = new ArrayList<>(count);
+
+		try (PooledConnection conn = pool.borrow()) {
+			Connection connection = conn.getConnection();
+			connection.setAutoCommit(false);
+			PreparedStatement insert = conn.prepareStatement(
+					"INSERT INTO InvitationCodes (code, roleMask, expiresAt) VALUES (?, ?, ?)");
+			for (int round = 1; generated.size() < count; round++) {
+				if (round > MAX_CODE_ATTEMPTS) {
+					throw new SQLException("Could not find " + count + " unused invitation codes");
+				}
+				int missing = count - generated.size();
+				for (int offset = 0; offset < missing; offset += INVITATION_BATCH_SIZE) {
+					String[] codes = new String[Math.min(INVITATION_BATCH_SIZE, missing - offset)];
+					for (int i = 0; i < codes.length; i++) {
+						codes[i] = codeGenerator.next();
+						insert.setString(1, codes[i]);
+						insert.setInt(2, roleMask);
+						insert.setTimestamp(3, expiresAt);
+						insert.addBatch();
+					}
+					int[] inserted;
+					try {
+						inserted = insert.executeBatch();
+					} catch (BatchUpdateException e) {
+						inserted = duplicatesOnly(e);
+					}
+					for (int i = 0; i < codes.length; i++) {
+						if (inserted[i] == 1) {
+							generated.add(codes[i]);
+						}
+					}
+				}
+			}
+			connection.commit();
+		}
+		return generated;
+	}
+
+	// Returns the update counts of a batch whose only failures were duplicate keys, and
+	// rethrows anything else
+	private static int[] duplicatesOnly(BatchUpdateException e) throws SQLException {
+		for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+			if (!DUPLICATE_KEY.equals(cause.getSQLState())) {
+				throw e;
+			}
+		}
+		int[] counts = e.getUpdateCounts();
+		if (counts == null) {
+			throw e;
+		}
+		return counts;
+	}
+
+	// Generates count invitation codes and streams them to a CSV file (code,roles,expiresAt),
+	// ready to hand out to a class section. Returns the number of codes written.
+	public int generateInvitationCodes(int count, Set<Role> roles, Timestamp expiresAt, Path csvFile)
+			throws SQLException, IOException {
+		return this.<Integer, SQLException, IOException>timed("generateInvitationCodes", () -> {
+			List<String> codes = insertInvitationCodes(count, roles, expiresAt);
+			String roleField = UserExporter.csv(Role.format(Role.toMask(roles)));
+			String expiryField = expiresAt.toString();
+			try (Writer writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+				writer.write("code,roles,expiresAt\n");
+				for (String code : codes) {
+					writer.write(code);
+					writer.write(',');
+					writer.write(roleField);
+					writer.write(',');
+					writer.write(expiryField);
+					writer.write('\n');
+				}
+			}
+			return codes.size();
+		});
 	}
 	
-	// Get roles from invite code
-	public String getRoleFromInviteCode(String code) {
-	    String query = "SELECT role FROM InvitationCodes WHERE code = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            return rs.getString("role");
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return null;
+	// Redeems an invitation code: marks it used and returns its roles in one statement, so a
+	// code can only ever be redeemed once even when two signups use it at the same time.
+	// Returns null if the code does not exist, is used or has expired.
+	public EnumSet<Role> redeemInvitationCode(String code) {
+		return timed("redeemInvitationCode", () -> redeem("redeemInvitationCode", code));
 	}
 
+	// redeemInvitationCode() for the operation that needs it, which a failure is counted against
+	private EnumSet<Role> redeem(String operation, String code) {
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(REDEEM_INVITATION_CODE);
+			pstmt.setString(1, code);
+			pstmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next()) {
+					EnumSet<Role> roles = Role.fromMask(rs.getInt(1));
+					audit(AuditEvent.Type.INVITATION_REDEEMED, null, null, "code " + code + " roles " + roles);
+					return roles;
+				}
+			}
+		} catch (SQLException e) {
+			logFailure(operation, e);
+		}
+		return null;
+	}
 	
-	// Marks the invitation code as used in the database.
-	private void markInvitationCodeAsUsed(String code) {
-	    String query = "UPDATE InvitationCodes SET isUsed = TRUE WHERE code = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        pstmt.executeUpdate();
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+	// Validates an invitation code to check if it is unused, and marks it as used.
+	public boolean validateInvitationCode(String code) {
+		return timed("validateInvitationCode", () -> redeem("validateInvitationCode", code) != null);
+	}
+	
+	// Get roles from invite code, or null if the code does not exist
+	public EnumSet<Role> getRoleFromInviteCode(String code) {
+		return timed("getRoleFromInviteCode", () -> {
+			String query = "SELECT roleMask FROM InvitationCodes WHERE code = ?";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, code);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					if (rs.next()) {
+						return Role.fromMask(rs.getInt("roleMask"));
+					}
+				}
+			} catch (SQLException e) {
+				logFailure("getRoleFromInviteCode", e);
+			}
+			return null;
+		});
 	}
 	
 	//Delete User from the database
 	public boolean deleteUser(String username) {
-	    String query = "DELETE FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, username);
-	        int rowsAffected = pstmt.executeUpdate();
-	        return rowsAffected > 0; // if deletion successful
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	    return false; // if deletion fails
+		return timed("deleteUser", () -> {
+			String query = "DELETE FROM cse360users WHERE userName = ?";
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				pstmt.setString(1, username);
+				int rowsAffected = pstmt.executeUpdate();
+				userCache.put(username, UserCache.ABSENT);
+				sessions().invalidateUser(username);
+				if (rowsAffected > 0) {
+					markStaleInUsernameFilter();
+				}
+				return rowsAffected > 0; // if deletion successful
+			} catch (SQLException e) {
+				logFailure("deleteUser", e);
+			}
+			return false; // if deletion fails
+		});
 	}
 
+	// Deletes many users in one transaction. Returns the userNames that were actually deleted.
+	public List<String> deleteUsers(Collection<String> userNames) throws SQLException {
+		return timed("deleteUsers", () -> {
+			List<String> deleted = new ArrayList<>();
+			try {
+				forEachUserChunk("SELECT userName FROM OLD TABLE (DELETE FROM cse360users WHERE userName = ANY(?))",
+						userNames, rs -> deleted.add(rs.getString(1)));
+			} finally {
+				for (String userName : userNames) {
+					userCache.invalidate(userName);
+				}
+				sessions().invalidateUsers(userNames);
+			}
+			for (int i = 0; i < deleted.size(); i++) {
+				markStaleInUsernameFilter();
+			}
+			return deleted;
+		});
+	}
+
+	// Adds and removes roles for many users in one transaction. Returns the updated users.
+	public List<User> updateRoles(Collection<String> userNames, Set<Role> added, Set<Role> removed)
+			throws SQLException {
+		return timed("updateRoles", () -> {
+			List<User> updated = new ArrayList<>();
+			// The masks are inlined because H2 cannot infer a parameter type inside BITAND/BITOR
+			String query = "SELECT userName, password, email, roleMask FROM FINAL TABLE (UPDATE cse360users "
+					+ "SET roleMask = BITAND(BITOR(roleMask, " + Role.toMask(added) + "), " + ~Role.toMask(removed) + ") "
+					+ "WHERE userName = ANY(?))";
+			try {
+				forEachUserChunk(query, userNames, rs -> updated.add(readUser(rs)));
+			} finally {
+				for (String userName : userNames) {
+					userCache.invalidate(userName);
+				}
+				sessions().invalidateUsers(userNames);
+			}
+			return updated;
+		});
+	}
 
-	// Closes the database connection and statement.
+	// Reads one row of a bulk statement's result
+	private interface RowHandler {
+		void accept(ResultSet rs) throws SQLException;
+	}
+
+	// Runs a statement whose only parameter is an array of userNames once per USER_BATCH_SIZE
+	// names, all in one transaction. H2 handles several mid-sized arrays faster than one huge one.
+	private void forEachUserChunk(String query, Collection<String> userNames, RowHandler handler)
+			throws SQLException {
+		if (userNames.isEmpty()) {
+			return;
+		}
+		String[] names = userNames.toArray(new String[0]);
+		try (PooledConnection conn = pool.borrow()) {
+			Connection connection = conn.getConnection();
+			connection.setAutoCommit(false);
+			PreparedStatement pstmt = conn.prepareStatement(query);
+			for (int from = 0; from < names.length; from += USER_BATCH_SIZE) {
+				int to = Math.min(names.length, from + USER_BATCH_SIZE);
+				pstmt.setArray(1, connection.createArrayOf("VARCHAR", Arrays.copyOfRange(names, from, to)));
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						handler.accept(rs);
+					}
+				}
+			}
+			connection.commit();
+		}
+	}
+
+	// Gives many users a generated one-time password and sets their reset flag, in one
+	// transaction of batched updates. Returns the new password of every user that was found.
+	public Map<String, String> resetPasswords(Collection<String> userNames) throws SQLException {
+		return timed("resetPasswords", () -> {
+			Map<String, String> reset = new LinkedHashMap<>();
+			if (userNames.isEmpty()) {
+				return reset;
+			}
+			List<String> names = new ArrayList<>(userNames);
+			List<String> passwords = passwordGenerator.next(names.size());
+			try (PooledConnection conn = pool.borrow()) {
+				Connection connection = conn.getConnection();
+				connection.setAutoCommit(false);
+				PreparedStatement pstmt = conn.prepareStatement(
+						"UPDATE cse360users SET password = ?, passwordReset = TRUE WHERE userName = ?");
+				for (int from = 0; from < names.size(); from += USER_BATCH_SIZE) {
+					int to = Math.min(names.size(), from + USER_BATCH_SIZE);
+					for (int i = from; i < to; i++) {
+						pstmt.setString(1, passwords.get(i));
+						pstmt.setString(2, names.get(i));
+						pstmt.addBatch();
+					}
+					int[] counts = pstmt.executeBatch();
+					for (int i = from; i < to; i++) {
+						if (counts[i - from] > 0) {
+							reset.put(names.get(i), passwords.get(i));
+						}
+					}
+				}
+				connection.commit();
+			} finally {
+				for (String userName : names) {
+					userCache.invalidate(userName);
+				}
+				sessions().invalidateUsers(names);
+			}
+			return reset;
+		});
+	}
+
+
+	// Closes the connection pool and every idle connection in it.
 	public void closeConnection() {
-		try{ 
-			if(statement!=null) statement.close(); 
-		} catch(SQLException se2) { 
-			se2.printStackTrace();
-		} 
-		try { 
-			if(connection!=null) connection.close(); 
-		} catch(SQLException se){ 
-			se.printStackTrace(); 
-		} 
+		synchronized (this) {
+			open = false;
+			if (invitationReaper != null) {
+				invitationReaper.close();
+				invitationReaper = null;
+			}
+			if (async != null) {
+				async.close();
+				async = null;
+			}
+			closeAuditLog();
+			closeSessions();
+		}
+		if (pool != null) {
+			pool.close();
+		}
 	}
-	
-	// Generate one-time password
-	public String generatePassword() {
-        SecureRandom random = new SecureRandom();
-        StringBuilder password = new StringBuilder();
 
-        password.append(UPPERCASE.charAt(random.nextInt(UPPERCASE.length())));
-        password.append(LOWERCASE.charAt(random.nextInt(LOWERCASE.length())));
-        password.append(DIGITS.charAt(random.nextInt(DIGITS.length())));
-        password.append(SPECIAL_CHARACTER);
+	// Non-blocking view of this helper for UI code; calls run on virtual threads
+	public synchronized AsyncDatabaseHelper async() {
+		if (async == null) {
+			async = new AsyncDatabaseHelper(this);
+		}
+		return async;
+	}
 
-        String combinedChars = UPPERCASE + LOWERCASE + DIGITS;
-        while (password.length() < PASSWORD_LENGTH) {
-            password.append(combinedChars.charAt(random.nextInt(combinedChars.length())));
-        }
+	// Cleans up used and expired invitation codes; call startInvitationReaper() to run it on
+	// a schedule, or reapOnce() on the result to run it now
+	public synchronized InvitationReaper invitationReaper() {
+		if (invitationReaper == null) {
+			invitationReaper = new InvitationReaper(this::getConnectionPool, REAPER_BATCH_SIZE, REAPER_MAX_BATCHES_PER_RUN,
+					REAPER_RETENTION_MILLIS);
+		}
+		return invitationReaper;
+	}
+
+	// Starts reaping invitation codes in the background until the connection is closed
+	public void startInvitationReaper() {
+		invitationReaper().start(REAPER_PERIOD_MILLIS);
+	}
+
+	// Audit log of logins, invitation redemptions and admin changes. Its writer starts with
+	// the first event and stops, after writing everything queued, when the connection closes.
+	// Throws IllegalStateException while the connection is closed.
+	public AuditLog auditLog() {
+		AuditLog log = openAuditLog();
+		if (log == null) {
+			throw new IllegalStateException("The database connection is closed");
+		}
+		return log;
+	}
+
+	// The audit log, started on first use; null while the connection is closed
+	private AuditLog openAuditLog() {
+		AuditLog log = auditLog;
+		if (log == null) {
+			synchronized (this) {
+				log = auditLog;
+				if (log == null && open) {
+					log = new AuditLog(pool, AUDIT_QUEUE_CAPACITY, AUDIT_BATCH_SIZE, AUDIT_OVERFLOW_POLICY);
+					log.start(AUDIT_FLUSH_INTERVAL_MILLIS);
+					auditLog = log;
+				}
+			}
+		}
+		return log;
+	}
+
+	// Login sessions, looked up by token instead of reading the user row again. They are kept
+	// in the sessions table as well when the config asks for persistent sessions, and are
+	// dropped from memory when the connection closes or the database is reset.
+	public SessionManager sessions() {
+		SessionManager manager = sessions;
+		if (manager == null) {
+			synchronized (this) {
+				manager = sessions;
+				if (manager == null) {
+					manager = new SessionManager(config.isPersistentSessions() ? pool : null,
+							SESSION_IDLE_TIMEOUT_MILLIS, SESSION_ABSOLUTE_TIMEOUT_MILLIS, SESSION_TOUCH_INTERVAL_MILLIS);
+					sessions = manager;
+				}
+			}
+		}
+		return manager;
+	}
 
-        return password.toString();
-    }
+	// Queues an audit event; returns at once without waiting for the database. Events after
+	// the connection was closed are ignored.
+	public void audit(AuditEvent.Type type, String actor, String subject, String detail) {
+		AuditLog log = openAuditLog();
+		if (log != null) {
+			log.record(type, actor, subject, detail);
+		}
+	}
+
+	// The body of a timed operation. E and F are the checked exceptions it may throw; they are
+	// inferred, and only an operation that throws two unrelated ones has to name them.
+	@FunctionalInterface
+	private interface DatabaseCall<T, E extends Exception, F extends Exception> {
+		T call() throws E, F;
+	}
+
+	// Runs a public operation, recording its latency and any exception it throws under name.
+	// Operations never call each other's public methods, only private untimed helpers, so
+	// each call is counted once, under the method the caller called.
+	private <T, E extends Exception, F extends Exception> T timed(String name, DatabaseCall<T, E, F> call)
+			throws E, F {
+		long callStart = System.nanoTime();
+		try {
+			return call.call();
+		} catch (Exception e) {
+			metrics.recordError(name);
+			throw e;
+		} finally {
+			metrics.record(name, callStart);
+		}
+	}
+
+	// Counts a failure an operation handles itself, then logs it as before
+	private void logFailure(String operation, Exception e) {
+		metrics.recordError(operation);
+		e.printStackTrace();
+	}
+
+	private synchronized void closeAuditLog() {
+		if (auditLog != null) {
+			auditLog.close();
+			auditLog = null;
+		}
+	}
+
+	private synchronized void closeSessions() {
+		sessions = null;
+	}
+
+	// The profile, URL and tuning this helper connects with
+	public DatabaseConfig getConfig() {
+		return config;
+	}
+
+	// Exposes the per-operation call counts and latency histograms
+	public OperationMetrics getOperationMetrics() {
+		return metrics;
+	}
+
+	// Exposes the pool so its borrow and eviction statistics can be inspected.
+	public ConnectionPool getConnectionPool() {
+		return pool;
+	}
+
+	// Changes the length or alphabet of invitation codes generated from now on
+	public void setInvitationCodeGenerator(InvitationCodeGenerator codeGenerator) {
+		this.codeGenerator = codeGenerator;
+	}
+
+	// Changes the policy of one-time passwords generated from now on
+	public void setPasswordGenerator(PasswordGenerator passwordGenerator) {
+		this.passwordGenerator = passwordGenerator;
+	}
+
+	// Exposes the user cache so its hit ratio and eviction counters can be inspected.
+	public UserCache getUserCache() {
+		return userCache;
+	}
+
+	// Exposes the username filter so its size and false-positive rate can be inspected.
+	public UsernameFilter getUsernameFilter() {
+		return usernameFilter;
+	}
+
+	// Rebuilds the username filter from every userName in the table, sized with room to grow.
+	// Names registered while the table is scanned are added to the new filter as well.
+	public void rebuildUsernameFilter() throws SQLException {
+		timed("rebuildUsernameFilter", () -> {
+			loadUsernameFilter();
+			return null;
+		});
+	}
+
+	// rebuildUsernameFilter() for operations that rebuild it as one of their steps
+	private void loadUsernameFilter() throws SQLException {
+		synchronized (usernameFilterRebuildLock) {
+			try (PooledConnection conn = pool.borrow()) {
+				long count;
+				try (ResultSet rs = conn.prepareStatement("SELECT COUNT(*) FROM cse360users").executeQuery()) {
+					count = rs.next() ? rs.getLong(1) : 0;
+				}
+				UsernameFilter rebuilt = new UsernameFilter(
+						Math.max(USERNAME_FILTER_MIN_CAPACITY, count * 2), USERNAME_FILTER_FPP);
+				pendingUsernameFilter = rebuilt;
+				PreparedStatement pstmt = conn.prepareStatement("SELECT userName FROM cse360users");
+				pstmt.setFetchSize(10_000);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						rebuilt.add(rs.getString(1));
+					}
+				}
+				usernameFilter = rebuilt;
+			} finally {
+				pendingUsernameFilter = null;
+				usernameFilterRebuildScheduled.set(false);
+			}
+		}
+	}
+
+	// Called after the name is in the table. The pending filter is read first: if a rebuild
+	// swaps in its filter and clears pending between the two reads, the live filter read next
+	// is already the new one, and a rebuild that starts after the first read scans the name.
+	private void addToUsernameFilter(String userName) {
+		UsernameFilter pending = pendingUsernameFilter;
+		UsernameFilter filter = usernameFilter;
+		if (filter != null) {
+			filter.add(userName);
+		}
+		if (pending != null) {
+			pending.add(userName);
+		}
+		if (filter != null && filter.getInsertions() > filter.getExpectedInsertions()) {
+			scheduleUsernameFilterRebuild(); // full: the false-positive rate would climb
+		}
+	}
+
+	private void renameInUsernameFilter(String oldUserName, String newUserName) {
+		if (!oldUserName.equals(newUserName)) {
+			addToUsernameFilter(newUserName);
+			markStaleInUsernameFilter();
+		}
+	}
+
+	private void markStaleInUsernameFilter() {
+		UsernameFilter filter = usernameFilter;
+		if (filter == null) {
+			return;
+		}
+		filter.markStale();
+		if (filter.getStaleEntries() > filter.getInsertions() * USERNAME_FILTER_MAX_STALE_RATIO) {
+			scheduleUsernameFilterRebuild();
+		}
+	}
+
+	// Rebuilds in the background, at most one rebuild queued at a time
+	private void scheduleUsernameFilterRebuild() {
+		if (usernameFilterRebuildScheduled.compareAndSet(false, true)) {
+			async().submit(db -> {
+				db.rebuildUsernameFilter();
+				return null;
+			}).exceptionally(e -> {
+				usernameFilterRebuildScheduled.set(false);
+				e.printStackTrace();
+				return null;
+			});
+		}
+	}
+	
+	// Generate one-time password that PasswordEvaluator accepts
+	public String generatePassword() {
+		return timed("generatePassword", () -> passwordGenerator.next());
+	}
+
+	// Generate count one-time passwords at once, e.g. for resetting a whole section
+	public List<String> generatePasswords(int count) {
+		return timed("generatePasswords", () -> passwordGenerator.next(count));
+	}
 
 }
@@ -0,0 +1,78 @@
+package databasePart1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ImportReport class summarizes a bulk user import: how many rows were read and
+ * imported, which rows were rejected and why, and how fast the import ran.
+ */
+public class ImportReport {
+
+	// Only the first errors are kept so a bad file cannot exhaust memory
+	public static final int MAX_RECORDED_ERRORS = 1000;
+
+	private long rowsRead = 0;
+	private long rowsImported = 0;
+	private long errorCount = 0;
+	private long elapsedNanos = 0;
+	private final List<RowError> errors = new ArrayList<>();
+
+	void addRead(long rows) {
+		rowsRead += rows;
+	}
+
+	void addImported(long rows) {
+		rowsImported += rows;
+	}
+
+	void addError(long lineNumber, String userName, String message) {
+		errorCount++;
+		if (errors.size() < MAX_RECORDED_ERRORS) {
+			errors.add(new RowError(lineNumber, userName, message));
+		}
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getRowsRead() { return rowsRead; }
+	public long getRowsImported() { return rowsImported; }
+	public long getErrorCount() { return errorCount; }
+	public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+	public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+	public double getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0.0 : rowsImported / getElapsedSeconds();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Imported %d of %d rows in %.2f s (%.0f rows/s), %d errors",
+				rowsImported, rowsRead, getElapsedSeconds(), getRowsPerSecond(), errorCount);
+	}
+
+	// A rejected row, identified by its line number in the source file
+	public static class RowError {
+		private final long lineNumber;
+		private final String userName;
+		private final String message;
+
+		RowError(long lineNumber, String userName, String message) {
+			this.lineNumber = lineNumber;
+			this.userName = userName;
+			this.message = message;
+		}
+
+		public long getLineNumber() { return lineNumber; }
+		public String getUserName() { return userName; }
+		public String getMessage() { return message; }
+
+		@Override
+		public String toString() {
+			return "Line " + lineNumber + " (" + userName + "): " + message;
+		}
+	}
+}
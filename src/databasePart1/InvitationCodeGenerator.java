@@ -0,0 +1,74 @@
+package databasePart1;
+
+import java.security.SecureRandom;
+
+/**
+ * The InvitationCodeGenerator class creates random invitation codes from a configurable
+ * alphabet and length. Codes come from a SecureRandom, so they cannot be guessed from
+ * earlier ones. Uniqueness is checked by the PRIMARY KEY of InvitationCodes:
+ * DatabaseHelper draws a new code when an insert collides.
+ *
+ * The default is 10 characters from an alphabet without look-alike characters
+ * (no 0/O, 1/I/L), about 49 bits per code, so collisions only become likely after
+ * tens of millions of live codes.
+ */
+public class InvitationCodeGenerator {
+
+	public static final String DEFAULT_ALPHABET = "ABCDEFGHJKMNPQRSTUVWXYZ23456789";
+	public static final int DEFAULT_LENGTH = 10;
+
+	// Longest code the InvitationCodes.code column can hold
+	public static final int MAX_LENGTH = 32;
+
+	// SecureRandom is thread-safe; one instance is shared by every generator
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final char[] alphabet;
+	private final int length;
+	private final int byteLimit;
+
+	public InvitationCodeGenerator() {
+		this(DEFAULT_LENGTH, DEFAULT_ALPHABET);
+	}
+
+	public InvitationCodeGenerator(int length, String alphabet) {
+		if (length < 1 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("Code length must be between 1 and " + MAX_LENGTH + ": " + length);
+		}
+		if (alphabet == null || alphabet.length() < 2 || alphabet.length() > 256) {
+			throw new IllegalArgumentException("Alphabet needs between 2 and 256 characters");
+		}
+		if (alphabet.chars().distinct().count() != alphabet.length()) {
+			throw new IllegalArgumentException("Alphabet has repeated characters: " + alphabet);
+		}
+		this.alphabet = alphabet.toCharArray();
+		this.length = length;
+		this.byteLimit = 256 - 256 % alphabet.length();
+	}
+
+	// Draws the random bytes for a whole code in one SecureRandom call. Bytes at or above
+	// byteLimit are skipped so that every character of the alphabet stays equally likely.
+	public String next() {
+		char[] code = new char[length];
+		byte[] random = new byte[length + length / 2];
+		int filled = 0;
+		while (filled < length) {
+			RANDOM.nextBytes(random);
+			for (int i = 0; i < random.length && filled < length; i++) {
+				int value = random[i] & 0xFF;
+				if (value < byteLimit) {
+					code[filled++] = alphabet[value % alphabet.length];
+				}
+			}
+		}
+		return new String(code);
+	}
+
+	public int getLength() { return length; }
+	public String getAlphabet() { return new String(alphabet); }
+
+	// Bits of randomness in each code
+	public double getEntropyBits() {
+		return length * (Math.log(alphabet.length) / Math.log(2));
+	}
+}
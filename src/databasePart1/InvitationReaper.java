@@ -0,0 +1,168 @@
+package databasePart1;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The InvitationReaper class deletes invitation codes that can never be redeemed again: codes
+ * that were used, and codes that expired more than a retention period ago. It runs on one
+ * background thread at a fixed delay.
+ *
+ * Rows are deleted in bounded batches, each its own short transaction, so a large backlog never
+ * holds locks for long or blocks signups. A run stops after a fixed number of batches of
+ * each kind and picks up the rest next time. The indexes on isUsed and expiresAt (schema migration 6) let
+ * each batch find its rows without scanning the table.
+ */
+public class InvitationReaper implements AutoCloseable {
+
+	private static final String DELETE_USED =
+			"DELETE FROM InvitationCodes WHERE isUsed = TRUE FETCH FIRST ? ROWS ONLY";
+	private static final String DELETE_EXPIRED =
+			"DELETE FROM InvitationCodes WHERE expiresAt <= ? FETCH FIRST ? ROWS ONLY";
+
+	private final Supplier<ConnectionPool> poolSource;
+	private final int batchSize;
+	private final int maxBatchesPerRun;
+	private final long retentionMillis;
+	private final Stats stats = new Stats();
+	private ScheduledExecutorService scheduler = null;
+
+	public InvitationReaper(ConnectionPool pool, int batchSize, int maxBatchesPerRun, long retentionMillis) {
+		this(() -> pool, batchSize, maxBatchesPerRun, retentionMillis);
+	}
+
+	// Asks for the pool on every run, so the schedule keeps working after DatabaseHelper reconnects
+	public InvitationReaper(Supplier<ConnectionPool> poolSource, int batchSize, int maxBatchesPerRun,
+			long retentionMillis) {
+		if (batchSize < 1 || maxBatchesPerRun < 1) {
+			throw new IllegalArgumentException("Batch size and batches per run must be positive");
+		}
+		this.poolSource = poolSource;
+		this.batchSize = batchSize;
+		this.maxBatchesPerRun = maxBatchesPerRun;
+		this.retentionMillis = retentionMillis;
+	}
+
+	// Runs reapOnce() every periodMillis until closed. Calling it again does nothing.
+	public synchronized void start(long periodMillis) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "invitation-reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				reapOnce();
+			} catch (SQLException e) {
+				stats.failedRuns.increment();
+				e.printStackTrace(); // keep the schedule running; the next run retries
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	// Deletes up to maxBatchesPerRun batches of used codes, then up to as many batches of
+	// expired codes. Returns the number of rows deleted.
+	public int reapOnce() throws SQLException {
+		long start = System.nanoTime();
+		Timestamp cutoff = new Timestamp(System.currentTimeMillis() - retentionMillis);
+		int used;
+		int expired;
+
+		try (PooledConnection conn = poolSource.get().borrow()) {
+			PreparedStatement deleteUsed = conn.prepareStatement(DELETE_USED);
+			deleteUsed.setInt(1, batchSize);
+			used = deleteInBatches(deleteUsed);
+
+			PreparedStatement deleteExpired = conn.prepareStatement(DELETE_EXPIRED);
+			deleteExpired.setTimestamp(1, cutoff);
+			deleteExpired.setInt(2, batchSize);
+			expired = deleteInBatches(deleteExpired);
+
+			try (ResultSet rs = conn.prepareStatement("SELECT COUNT(*) FROM InvitationCodes").executeQuery()) {
+				stats.remainingRows.set(rs.next() ? rs.getLong(1) : 0);
+			}
+		}
+
+		stats.runs.increment();
+		stats.usedReaped.add(used);
+		stats.expiredReaped.add(expired);
+		stats.lastRunRows.set(used + expired);
+		stats.lastRunNanos.set(System.nanoTime() - start);
+		stats.lastRunAt.set(System.currentTimeMillis());
+		return used + expired;
+	}
+
+	// Runs a bounded delete until it comes back short or the batch budget is spent
+	private int deleteInBatches(PreparedStatement delete) throws SQLException {
+		int total = 0;
+		for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+			int deleted = delete.executeUpdate();
+			total += deleted;
+			if (deleted < batchSize) {
+				break;
+			}
+		}
+		return total;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	// Stops the schedule, letting a batch that is running finish
+	@Override
+	public synchronized void close() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler = null;
+	}
+
+	/**
+	 * Rows reaped so far and the outcome of the last run.
+	 */
+	public static class Stats {
+		private final LongAdder runs = new LongAdder();
+		private final LongAdder failedRuns = new LongAdder();
+		private final LongAdder usedReaped = new LongAdder();
+		private final LongAdder expiredReaped = new LongAdder();
+		private final AtomicLong lastRunRows = new AtomicLong();
+		private final AtomicLong lastRunNanos = new AtomicLong();
+		private final AtomicLong lastRunAt = new AtomicLong();
+		private final AtomicLong remainingRows = new AtomicLong();
+
+		public long getRuns() { return runs.sum(); }
+		public long getFailedRuns() { return failedRuns.sum(); }
+		public long getUsedReaped() { return usedReaped.sum(); }
+		public long getExpiredReaped() { return expiredReaped.sum(); }
+		public long getTotalReaped() { return usedReaped.sum() + expiredReaped.sum(); }
+		public long getLastRunRows() { return lastRunRows.get(); }
+		public long getLastRunMillis() { return lastRunNanos.get() / 1_000_000; }
+		public long getLastRunAt() { return lastRunAt.get(); }
+		public long getRemainingRows() { return remainingRows.get(); }
+
+		@Override
+		public String toString() {
+			return String.format("%d runs, %d used and %d expired codes reaped, last run %d rows in %d ms, %d left",
+					getRuns(), getUsedReaped(), getExpiredReaped(), getLastRunRows(), getLastRunMillis(),
+					getRemainingRows());
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package databasePart1;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The OperationMetrics class counts calls and errors of named operations and keeps a latency
+ * histogram for each, so slow or failing DatabaseHelper calls show up without a profiler.
+ *
+ * Recording never locks: counters are LongAdders, which stripe contended updates over several
+ * cells, and the histogram is an array of atomic counters. The histogram is log-linear like an
+ * HdrHistogram: every power of two is split into 16 buckets, so a percentile is reported within
+ * about 6% of the true value whatever its magnitude, in a fixed 5 KB per operation.
+ */
+public class OperationMetrics {
+
+	// Each power of two is split into 2^SUB_BUCKET_BITS buckets
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Latencies above 2^40 ns (about 18 minutes) share the last bucket
+	private static final int MAX_EXPONENT = 40;
+	static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final ConcurrentHashMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+	// The operation with this name, created on first use
+	public Operation operation(String name) {
+		Operation operation = operations.get(name);
+		return operation != null ? operation : operations.computeIfAbsent(name, Operation::new);
+	}
+
+	// Records one call that started at startNanos (from System.nanoTime()) and has just ended
+	public void record(String name, long startNanos) {
+		operation(name).record(System.nanoTime() - startNanos);
+	}
+
+	// Records that a call failed; its latency is still recorded by record()
+	public void recordError(String name) {
+		operation(name).errors.increment();
+	}
+
+	// A consistent-enough copy of every operation's numbers, sorted by name. Counters are
+	// read one after another while calls continue, so totals may be off by in-flight calls.
+	public List<Snapshot> snapshot() {
+		List<Snapshot> snapshots = new ArrayList<>(operations.size());
+		for (Operation operation : operations.values()) {
+			snapshots.add(operation.snapshot());
+		}
+		snapshots.sort(Comparator.comparing(Snapshot::getName));
+		return snapshots;
+	}
+
+	// Clears every operation, e.g. to measure from a known point
+	public void reset() {
+		operations.clear();
+	}
+
+	// Bucket of a latency: exact below 16 ns, then 16 buckets per power of two
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// Largest latency that falls in a bucket; the last bucket has no bound
+	static long bucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		if (bucket == BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Counters and histogram of one operation.
+	 */
+	public static final class Operation {
+		private final String name;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+		private Operation(String name) {
+			this.name = name;
+		}
+
+		public void record(long nanos) {
+			calls.increment();
+			totalNanos.add(nanos);
+			buckets.incrementAndGet(bucketOf(nanos));
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		public void recordError() {
+			errors.increment();
+		}
+
+		Snapshot snapshot() {
+			long[] counts = new long[BUCKET_COUNT];
+			long total = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = buckets.get(i);
+				total += counts[i];
+			}
+			long max = maxNanos.get();
+			return new Snapshot(name, calls.sum(), errors.sum(), totalNanos.sum(),
+					percentile(counts, total, 0.50, max), percentile(counts, total, 0.95, max),
+					percentile(counts, total, 0.99, max), max);
+		}
+
+		// Upper bound of the bucket holding the given share of calls, never above the max seen
+		private static long percentile(long[] counts, long total, double quantile, long max) {
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(quantile * total);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(bucketUpperBound(i), max);
+				}
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Immutable numbers of one operation at the time snapshot() was called. Latencies are in
+	 * nanoseconds.
+	 */
+	public static final class Snapshot {
+		private final String name;
+		private final long calls;
+		private final long errors;
+		private final long totalNanos;
+		private final long p50Nanos;
+		private final long p95Nanos;
+		private final long p99Nanos;
+		private final long maxNanos;
+
+		Snapshot(String name, long calls, long errors, long totalNanos, long p50Nanos, long p95Nanos,
+				long p99Nanos, long maxNanos) {
+			this.name = name;
+			this.calls = calls;
+			this.errors = errors;
+			this.totalNanos = totalNanos;
+			this.p50Nanos = p50Nanos;
+			this.p95Nanos = p95Nanos;
+			this.p99Nanos = p99Nanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public String getName() { return name; }
+		public long getCalls() { return calls; }
+		public long getErrors() { return errors; }
+		public long getTotalNanos() { return totalNanos; }
+		public long getP50Nanos() { return p50Nanos; }
+		public long getP95Nanos() { return p95Nanos; }
+		public long getP99Nanos() { return p99Nanos; }
+		public long getMaxNanos() { return maxNanos; }
+
+		public long getMeanNanos() {
+			return calls == 0 ? 0 : totalNanos / calls;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d calls, %d errors, mean %.3f ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+					name, calls, errors, getMeanNanos() / 1e6, p50Nanos / 1e6, p95Nanos / 1e6, p99Nanos / 1e6,
+					maxNanos / 1e6);
+		}
+	}
+}
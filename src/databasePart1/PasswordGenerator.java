@@ -0,0 +1,172 @@
+package databasePart1;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The PasswordGenerator class creates one-time passwords for admin password resets. Every
+ * password it returns meets its Policy, and every Policy is checked up front against the rules
+ * of PasswordEvaluator (upper and lower case letter, digit, special character from its list,
+ * at least 8 characters), so a generated password is always accepted at login.
+ *
+ * All generators share one SecureRandom, which is thread-safe. Random bytes are drawn in one
+ * call per password, or per block of passwords in bulk, and mapped onto the alphabets with
+ * rejection sampling so every character stays equally likely. The required characters are
+ * shuffled into random positions.
+ */
+public class PasswordGenerator {
+
+	// The special characters PasswordEvaluator accepts
+	public static final String EVALUATOR_SPECIAL_CHARACTERS = "~`!@#$%^&*()_-+{}[]|:,.?/";
+
+	private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+	private static final String DIGITS = "0123456789";
+
+	// Shortest password PasswordEvaluator accepts
+	private static final int MIN_LENGTH = 8;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/**
+	 * How long a password is, how many characters of each kind it has at least, and which
+	 * special characters it may use. The remaining characters come from all kinds.
+	 */
+	public static final class Policy {
+		private final int length;
+		private final int minUpper;
+		private final int minLower;
+		private final int minDigits;
+		private final int minSpecial;
+		private final String specialCharacters;
+
+		public Policy(int length, int minUpper, int minLower, int minDigits, int minSpecial,
+				String specialCharacters) {
+			if (length < MIN_LENGTH || length > 128) {
+				throw new IllegalArgumentException("Password length must be between " + MIN_LENGTH + " and 128: " + length);
+			}
+			if (minUpper < 1 || minLower < 1 || minDigits < 1 || minSpecial < 1) {
+				throw new IllegalArgumentException("A password needs at least one character of each kind");
+			}
+			if (minUpper + minLower + minDigits + minSpecial > length) {
+				throw new IllegalArgumentException("Required characters do not fit in " + length + " characters");
+			}
+			if (specialCharacters == null || specialCharacters.isEmpty()) {
+				throw new IllegalArgumentException("No special characters given");
+			}
+			for (int i = 0; i < specialCharacters.length(); i++) {
+				if (EVALUATOR_SPECIAL_CHARACTERS.indexOf(specialCharacters.charAt(i)) < 0) {
+					throw new IllegalArgumentException("Not a special character PasswordEvaluator accepts: "
+							+ specialCharacters.charAt(i));
+				}
+			}
+			this.length = length;
+			this.minUpper = minUpper;
+			this.minLower = minLower;
+			this.minDigits = minDigits;
+			this.minSpecial = minSpecial;
+			this.specialCharacters = specialCharacters;
+		}
+
+		public int getLength() { return length; }
+		public int getMinUpper() { return minUpper; }
+		public int getMinLower() { return minLower; }
+		public int getMinDigits() { return minDigits; }
+		public int getMinSpecial() { return minSpecial; }
+		public String getSpecialCharacters() { return specialCharacters; }
+	}
+
+	// 12 characters with at least one of each kind
+	public static final Policy DEFAULT_POLICY = new Policy(12, 1, 1, 1, 1, "!@#$%^&*?");
+
+	private final Policy policy;
+	private final char[] upper = UPPERCASE.toCharArray();
+	private final char[] lower = LOWERCASE.toCharArray();
+	private final char[] digits = DIGITS.toCharArray();
+	private final char[] special;
+	private final char[] any;
+
+	public PasswordGenerator() {
+		this(DEFAULT_POLICY);
+	}
+
+	public PasswordGenerator(Policy policy) {
+		this.policy = policy;
+		this.special = policy.specialCharacters.toCharArray();
+		this.any = (UPPERCASE + LOWERCASE + DIGITS + policy.specialCharacters).toCharArray();
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public String next() {
+		return next(new RandomBytes(policy.length * 3));
+	}
+
+	// Generates count passwords, drawing random bytes in large blocks
+	public List<String> next(int count) {
+		RandomBytes random = new RandomBytes(4096);
+		List<String> passwords = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			passwords.add(next(random));
+		}
+		return passwords;
+	}
+
+	private String next(RandomBytes random) {
+		char[] password = new char[policy.length];
+		int filled = 0;
+		filled = fill(password, filled, policy.minUpper, upper, random);
+		filled = fill(password, filled, policy.minLower, lower, random);
+		filled = fill(password, filled, policy.minDigits, digits, random);
+		filled = fill(password, filled, policy.minSpecial, special, random);
+		fill(password, filled, policy.length - filled, any, random);
+
+		// Fisher-Yates, so the required characters are not always at the front
+		for (int i = password.length - 1; i > 0; i--) {
+			int j = random.nextIndex(i + 1);
+			char swap = password[i];
+			password[i] = password[j];
+			password[j] = swap;
+		}
+		return new String(password);
+	}
+
+	private static int fill(char[] password, int from, int count, char[] alphabet, RandomBytes random) {
+		for (int i = 0; i < count; i++) {
+			password[from + i] = alphabet[random.nextIndex(alphabet.length)];
+		}
+		return from + count;
+	}
+
+	/**
+	 * A buffer of SecureRandom bytes, refilled with one call when it runs out. Not shared
+	 * between threads.
+	 */
+	private static final class RandomBytes {
+		private final byte[] buffer;
+		private int position;
+
+		RandomBytes(int size) {
+			buffer = new byte[size];
+			position = size;
+		}
+
+		// A uniform index below bound (at most 256), skipping bytes that would bias it
+		int nextIndex(int bound) {
+			int limit = 256 - 256 % bound;
+			while (true) {
+				if (position == buffer.length) {
+					RANDOM.nextBytes(buffer);
+					position = 0;
+				}
+				int value = buffer[position++] & 0xFF;
+				if (value < limit) {
+					return value % bound;
+				}
+			}
+		}
+	}
+}
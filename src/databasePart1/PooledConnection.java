@@ -0,0 +1,60 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A connection borrowed from the ConnectionPool. Closing it returns the underlying
+ * connection to the pool instead of closing it, so it is meant to be used in a
+ * try-with-resources block around a single unit of database work.
+ *
+ * Statements from prepareStatement() come from the connection's StatementCache and
+ * stay open after use; callers close their ResultSets but not the statements.
+ */
+public class PooledConnection implements AutoCloseable {
+
+	private final ConnectionPool pool;
+	private final Connection connection;
+	private final StatementCache statements;
+	private boolean released = false;
+
+	PooledConnection(ConnectionPool pool, Connection connection, StatementCache statements) {
+		this.pool = pool;
+		this.connection = connection;
+		this.statements = statements;
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return statements.prepare(sql);
+	}
+
+	public Statement createStatement() throws SQLException {
+		return connection.createStatement();
+	}
+
+	// Returns the connection to the pool. A connection left inside a transaction
+	// is rolled back first so the next borrower starts clean.
+	@Override
+	public void close() {
+		if (released) {
+			return;
+		}
+		released = true;
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			pool.discard(connection, statements);
+			return;
+		}
+		pool.release(connection, statements);
+	}
+}
@@ -0,0 +1,42 @@
+package databasePart1;
+
+import application.User;
+
+/**
+ * The RegistrationResult class is the immutable outcome of DatabaseHelper.registerWithInvite().
+ * On success it carries the new user with the roles granted by the invitation code. A failed
+ * registration changed nothing: the invitation code can still be used.
+ */
+public final class RegistrationResult {
+
+	public enum Status {
+		REGISTERED,
+		USERNAME_TAKEN,
+		INVALID_INVITATION
+	}
+
+	private final Status status;
+	private final User user;
+
+	private RegistrationResult(Status status, User user) {
+		this.status = status;
+		this.user = user;
+	}
+
+	static RegistrationResult registered(User user) {
+		return new RegistrationResult(Status.REGISTERED, user);
+	}
+
+	static RegistrationResult failure(Status status) {
+		return new RegistrationResult(status, null);
+	}
+
+	public Status getStatus() { return status; }
+	public boolean isRegistered() { return status == Status.REGISTERED; }
+
+	// A copy of the registered user, or null if registration failed. User is mutable, so the
+	// result hands out copies to stay immutable.
+	public User getUser() {
+		return user == null ? null : new User(user.getUserName(), user.getPassword(), user.getRoleMask(), user.getEmail());
+	}
+}
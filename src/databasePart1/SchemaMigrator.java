@@ -0,0 +1,213 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.Role;
+
+/**
+ * The SchemaMigrator class brings the database schema up to date. Every schema change is a
+ * numbered migration; the versions already applied are recorded in the schema_version table,
+ * so on a warm start only the migrations that are missing get run (usually none).
+ *
+ * New schema changes are added to the end of the list in the constructor with the next
+ * version number. Never edit a migration that has already shipped.
+ */
+public class SchemaMigrator {
+
+	private final List<Migration> migrations = new ArrayList<>();
+
+	public SchemaMigrator() {
+		add(1, "Create user and invitation code tables", statement -> {
+			statement.execute("CREATE TABLE IF NOT EXISTS cse360users ("
+					+ "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255) UNIQUE, "
+					+ "password VARCHAR(255), "
+					+ "email VARCHAR(255), "
+					+ "role VARCHAR(255), "
+					+ "passwordReset BOOLEAN DEFAULT FALSE)");
+			statement.execute("CREATE TABLE IF NOT EXISTS InvitationCodes ("
+					+ "code VARCHAR(10) PRIMARY KEY, "
+					+ "role VARCHAR(255), "
+					+ "expiresAt DateTime, "
+					+ "isUsed BOOLEAN DEFAULT FALSE)");
+		});
+		add(2, "Track checksums of seed files", statement -> {
+			statement.execute("CREATE TABLE IF NOT EXISTS seed_state ("
+					+ "name VARCHAR(255) PRIMARY KEY, "
+					+ "checksum VARCHAR(64), "
+					+ "seededAt TIMESTAMP)");
+		});
+		add(3, "Index user email and role for admin search", statement -> {
+			// H2 does not scan indexes backwards, so descending sorts get their own indexes
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_email ON cse360users (email, userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_email_desc ON cse360users (email DESC, userName DESC)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_role ON cse360users (role, userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_role_desc ON cse360users (role DESC, userName DESC)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_username_desc ON cse360users (userName DESC)");
+		});
+		add(4, "Store roles as a bitmask instead of comma-separated text", statement -> {
+			statement.execute("ALTER TABLE cse360users ADD COLUMN IF NOT EXISTS roleMask INT NOT NULL DEFAULT 0");
+			statement.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS roleMask INT NOT NULL DEFAULT 0");
+			backfillRoleMask(statement.getConnection(), "cse360users", "id");
+			backfillRoleMask(statement.getConnection(), "InvitationCodes", "code");
+			statement.execute("DROP INDEX IF EXISTS idx_users_role");
+			statement.execute("DROP INDEX IF EXISTS idx_users_role_desc");
+			statement.execute("ALTER TABLE cse360users DROP COLUMN IF EXISTS role");
+			statement.execute("ALTER TABLE InvitationCodes DROP COLUMN IF EXISTS role");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_rolemask ON cse360users (roleMask, userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_users_rolemask_desc ON cse360users (roleMask DESC, userName DESC)");
+		});
+		add(5, "Widen invitation codes for generated codes", statement -> {
+			statement.execute("ALTER TABLE InvitationCodes ALTER COLUMN code SET DATA TYPE VARCHAR("
+					+ InvitationCodeGenerator.MAX_LENGTH + ")");
+		});
+		add(6, "Index invitation codes for the expiry reaper", statement -> {
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_invites_expires ON InvitationCodes (expiresAt)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_invites_used ON InvitationCodes (isUsed)");
+		});
+		add(7, "Create the audit event log", statement -> {
+			statement.execute("CREATE TABLE IF NOT EXISTS audit_events ("
+					+ "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+					+ "occurredAt TIMESTAMP NOT NULL, "
+					+ "eventType VARCHAR(32) NOT NULL, "
+					+ "actor VARCHAR(255), "
+					+ "subject VARCHAR(255), "
+					+ "detail VARCHAR(" + AuditEvent.MAX_DETAIL_LENGTH + "))");
+			// Pages are read newest first, optionally for one event type
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_audit_time_desc ON audit_events (occurredAt DESC, id DESC)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_audit_type_time_desc "
+					+ "ON audit_events (eventType, occurredAt DESC, id DESC)");
+		});
+		add(8, "Create the session table", statement -> {
+			statement.execute("CREATE TABLE IF NOT EXISTS sessions ("
+					+ "tokenHash VARCHAR(64) PRIMARY KEY, "
+					+ "userName VARCHAR(255) NOT NULL, "
+					+ "roleMask INT NOT NULL, "
+					+ "email VARCHAR(255), "
+					+ "passwordReset BOOLEAN NOT NULL, "
+					+ "createdAt TIMESTAMP NOT NULL, "
+					+ "lastAccessAt TIMESTAMP NOT NULL, "
+					+ "expiresAt TIMESTAMP NOT NULL)");
+			// Ending a user's sessions and purging expired ones
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_sessions_user ON sessions (userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_sessions_expires ON sessions (expiresAt)");
+		});
+	}
+
+	// Converts the old comma-separated role text of every row into a role mask.
+	// Role names that are not known are dropped.
+	private static void backfillRoleMask(Connection connection, String table, String key) throws SQLException {
+		if (!hasColumn(connection, table, "role")) {
+			return; // already converted
+		}
+		try (Statement select = connection.createStatement();
+				ResultSet rs = select.executeQuery("SELECT " + key + ", role FROM " + table);
+				PreparedStatement update = connection.prepareStatement(
+						"UPDATE " + table + " SET roleMask = ? WHERE " + key + " = ?")) {
+			int pending = 0;
+			while (rs.next()) {
+				update.setInt(1, Role.parseMask(rs.getString("role")));
+				update.setObject(2, rs.getObject(key));
+				update.addBatch();
+				if (++pending == 1000) {
+					update.executeBatch();
+					pending = 0;
+				}
+			}
+			if (pending > 0) {
+				update.executeBatch();
+			}
+		}
+	}
+
+	private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+		try (PreparedStatement pstmt = connection.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+				+ "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+			pstmt.setString(1, table.toUpperCase());
+			pstmt.setString(2, column.toUpperCase());
+			try (ResultSet rs = pstmt.executeQuery()) {
+				return rs.next() && rs.getInt(1) > 0;
+			}
+		}
+	}
+
+	private void add(int version, String description, MigrationStep step) {
+		migrations.add(new Migration(version, description, step));
+	}
+
+	// Applies every migration newer than the recorded schema version, in order.
+	// Returns the number of migrations that were applied.
+	public int migrate(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "version INT PRIMARY KEY, "
+					+ "description VARCHAR(255), "
+					+ "appliedAt TIMESTAMP)");
+		}
+
+		int current = getVersion(connection);
+		int applied = 0;
+		for (Migration migration : migrations) {
+			if (migration.version <= current) {
+				continue;
+			}
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement();
+					PreparedStatement record = connection.prepareStatement(
+							"INSERT INTO schema_version (version, description, appliedAt) VALUES (?, ?, ?)")) {
+				migration.step.apply(statement);
+				record.setInt(1, migration.version);
+				record.setString(2, migration.description);
+				record.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+				record.executeUpdate();
+				connection.commit();
+				applied++;
+				System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+			} catch (SQLException e) {
+				connection.rollback();
+				throw new SQLException("Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+		return applied;
+	}
+
+	// Returns the highest applied migration version, or 0 for an empty database
+	public int getVersion(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	// The version the schema will be at once every migration is applied
+	public int getLatestVersion() {
+		return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+	}
+
+	@FunctionalInterface
+	interface MigrationStep {
+		void apply(Statement statement) throws SQLException;
+	}
+
+	private static final class Migration {
+		final int version;
+		final String description;
+		final MigrationStep step;
+
+		Migration(int version, String description, MigrationStep step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+}
@@ -0,0 +1,492 @@
+package databasePart1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import application.Role;
+import application.User;
+
+/**
+ * The SessionManager class hands out an opaque token when a user logs in and remembers who
+ * the token belongs to: userName, roles, email and the password reset flag, as read at login.
+ * Pages and the account service look the session up by token instead of reading the user row
+ * again on every navigation or request.
+ *
+ * A session ends after a period without use (idle timeout) and, however busy, a fixed time
+ * after login (absolute timeout). DatabaseHelper ends every session of a user whose row it
+ * changes or deletes, so a session never outlives the roles it was issued with. A login takes
+ * a stamp() before it reads the user's row and passes it to create(), which refuses to start
+ * the session if the user's sessions were ended in between.
+ *
+ * Sessions live in memory. Given a connection pool, they are also written to the sessions
+ * table (schema migration 8) so they survive a restart: only a SHA-256 hash of the token is
+ * stored, the last access time is written back at most once per touch interval, and a token
+ * not found in memory is looked up there. The same interval paces purging expired sessions.
+ */
+public class SessionManager {
+
+	// Random bytes per token; 32 bytes are 43 characters of URL-safe Base64
+	static final int TOKEN_BYTES = 32;
+
+	// Names deleted per statement when ending the sessions of many users
+	static final int USER_BATCH_SIZE = 1000;
+
+	// Stamps are kept per stripe of userNames, so memory stays bounded; a user changed while
+	// another user of the same stripe logs in only costs that login a retry
+	static final int STAMP_STRIPES = 256;
+
+	private static final String INSERT = "INSERT INTO sessions (tokenHash, userName, roleMask, email, passwordReset, "
+			+ "createdAt, lastAccessAt, expiresAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String SELECT = "SELECT userName, roleMask, email, passwordReset, createdAt, lastAccessAt "
+			+ "FROM sessions WHERE tokenHash = ? AND expiresAt > ?";
+	private static final String TOUCH = "UPDATE sessions SET lastAccessAt = ?, expiresAt = ? WHERE tokenHash = ?";
+
+	private final ConnectionPool pool; // null keeps sessions in memory only
+	private final long idleTimeoutMillis;
+	private final long absoluteTimeoutMillis;
+	private final long touchIntervalMillis;
+	private final LongSupplier clock;
+	private final SecureRandom random = new SecureRandom();
+
+	private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+	// Tokens of each user; changed only inside compute() on the user's key, which also
+	// adds and removes the user's entries in sessions
+	private final ConcurrentHashMap<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+	// Advanced by every invalidation, so a session loaded from the table while it was being
+	// ended is not put back
+	private final AtomicLong generation = new AtomicLong();
+	// Advanced for a stripe of userNames whenever their sessions are ended, see stamp()
+	private final AtomicLongArray userStamps = new AtomicLongArray(STAMP_STRIPES);
+	private final AtomicLong lastPurge;
+	private final Stats stats = new Stats();
+
+	public SessionManager(ConnectionPool pool, long idleTimeoutMillis, long absoluteTimeoutMillis,
+			long touchIntervalMillis) {
+		this(pool, idleTimeoutMillis, absoluteTimeoutMillis, touchIntervalMillis, System::currentTimeMillis);
+	}
+
+	// Takes the clock in epoch milliseconds, so tests can move time forward
+	public SessionManager(ConnectionPool pool, long idleTimeoutMillis, long absoluteTimeoutMillis,
+			long touchIntervalMillis, LongSupplier clock) {
+		if (idleTimeoutMillis < 1 || absoluteTimeoutMillis < 1 || touchIntervalMillis < 0) {
+			throw new IllegalArgumentException("Invalid session timeouts: idle=" + idleTimeoutMillis
+					+ ", absolute=" + absoluteTimeoutMillis + ", touch=" + touchIntervalMillis);
+		}
+		this.pool = pool;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.absoluteTimeoutMillis = absoluteTimeoutMillis;
+		this.touchIntervalMillis = touchIntervalMillis;
+		this.clock = clock;
+		this.lastPurge = new AtomicLong(clock.getAsLong());
+	}
+
+	// Take before reading the user's row for a login; pass the result to create()
+	public long stamp(String userName) {
+		return userStamps.get(stripe(userName));
+	}
+
+	// Starts a session for a user who just authenticated or registered, as read after stamp().
+	// Returns null if the user's sessions were ended since, as the row read may be stale.
+	public Session create(User user, boolean passwordReset, long stamp) {
+		if (user == null || user.getUserName() == null) {
+			throw new IllegalArgumentException("A session needs a user");
+		}
+		long now = clock.getAsLong();
+		purgeIfDue(now);
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		Session session = new Session(token, user.getUserName(), user.getRoleMask(), user.getEmail(),
+				passwordReset, now, now);
+		if (!add(session, stamp)) {
+			stats.refused.increment();
+			return null;
+		}
+		if (pool != null) {
+			persist(session);
+			if (stamp(session.userName) != stamp) {
+				// Ended while the row was written; its delete may have run before the insert
+				remove(session);
+				execute("DELETE FROM sessions WHERE tokenHash = ?", hash(token));
+				stats.refused.increment();
+				return null;
+			}
+		}
+		stats.created.increment();
+		return session;
+	}
+
+	// The live session for the token, or null if there is none or it expired. Counts as use.
+	public Session get(String token) {
+		if (token == null) {
+			return null;
+		}
+		long now = clock.getAsLong();
+		Session session = sessions.get(token);
+		if (session == null && pool != null) {
+			session = load(token, now);
+		}
+		if (session == null) {
+			stats.misses.increment();
+			return null;
+		}
+		if (session.isExpiredAt(now)) {
+			remove(session);
+			stats.expired.increment();
+			return null;
+		}
+		session.lastAccess = now;
+		if (pool != null && now - session.persistedAccess >= touchIntervalMillis) {
+			session.persistedAccess = now;
+			touch(session, now);
+		}
+		stats.hits.increment();
+		return session;
+	}
+
+	// Ends one session, e.g. on logout. Returns false if the token was not live in memory.
+	public boolean invalidate(String token) {
+		if (token == null) {
+			return false;
+		}
+		generation.incrementAndGet();
+		Session session = sessions.get(token);
+		boolean removed = session != null && remove(session);
+		if (pool != null) {
+			execute("DELETE FROM sessions WHERE tokenHash = ?", hash(token));
+		}
+		if (removed) {
+			stats.invalidated.increment();
+		}
+		return removed;
+	}
+
+	// Ends every session of the user, e.g. after their row was changed or deleted
+	public void invalidateUser(String userName) {
+		if (userName != null) {
+			invalidateUsers(List.of(userName));
+		}
+	}
+
+	public void invalidateUsers(Collection<String> userNames) {
+		if (userNames.isEmpty()) {
+			return;
+		}
+		generation.incrementAndGet();
+		for (String userName : userNames) {
+			userStamps.incrementAndGet(stripe(userName)); // before the removal, see add()
+			tokensByUser.compute(userName, (name, tokens) -> {
+				if (tokens != null) {
+					for (String token : tokens) {
+						sessions.remove(token);
+					}
+					stats.invalidated.add(tokens.size());
+				}
+				return null;
+			});
+		}
+		if (pool != null) {
+			deleteUsers(userNames);
+		}
+	}
+
+	// Ends every session, e.g. after the users were reseeded
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		for (int i = 0; i < STAMP_STRIPES; i++) {
+			userStamps.incrementAndGet(i);
+		}
+		stats.invalidated.add(sessions.size());
+		for (String userName : tokensByUser.keySet()) {
+			tokensByUser.compute(userName, (name, tokens) -> {
+				if (tokens != null) {
+					for (String token : tokens) {
+						sessions.remove(token);
+					}
+				}
+				return null;
+			});
+		}
+		if (pool != null) {
+			execute("DELETE FROM sessions");
+		}
+	}
+
+	// Drops expired sessions from memory and the table. Returns the number dropped from memory.
+	public int purgeExpired() {
+		long now = clock.getAsLong();
+		lastPurge.set(now);
+		int purged = 0;
+		for (Session session : sessions.values()) {
+			if (session.isExpiredAt(now) && remove(session)) {
+				purged++;
+			}
+		}
+		stats.expired.add(purged);
+		if (pool != null) {
+			execute("DELETE FROM sessions WHERE expiresAt <= ?", new Timestamp(now));
+		}
+		return purged;
+	}
+
+	// Live and expired sessions held in memory
+	public int size() {
+		return sessions.size();
+	}
+
+	public boolean isPersistent() {
+		return pool != null;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	private void purgeIfDue(long now) {
+		long last = lastPurge.get();
+		if (now - last >= touchIntervalMillis && lastPurge.compareAndSet(last, now)) {
+			purgeExpired();
+		}
+	}
+
+	// Adds the session unless the user's stamp moved. The check runs under the same per-user
+	// compute() as the removal in invalidateUsers(), which advances the stamp first, so either
+	// the session is refused or it is added in time to be removed.
+	private boolean add(Session session, long stamp) {
+		boolean[] added = new boolean[1];
+		tokensByUser.compute(session.userName, (name, tokens) -> {
+			if (stamp(name) != stamp) {
+				return tokens;
+			}
+			Set<String> updated = tokens != null ? tokens : new HashSet<>();
+			updated.add(session.token);
+			sessions.put(session.token, session);
+			added[0] = true;
+			return updated;
+		});
+		return added[0];
+	}
+
+	private static int stripe(String userName) {
+		int h = userName.hashCode();
+		return (h ^ (h >>> 16)) & (STAMP_STRIPES - 1);
+	}
+
+	// Removes the session from memory; false if it was already gone
+	private boolean remove(Session session) {
+		boolean[] removed = new boolean[1];
+		tokensByUser.computeIfPresent(session.userName, (name, tokens) -> {
+			removed[0] = sessions.remove(session.token, session);
+			tokens.remove(session.token);
+			return tokens.isEmpty() ? null : tokens;
+		});
+		return removed[0];
+	}
+
+	// Reads a session written by an earlier run; null if the table has no live one
+	private Session load(String token, long now) {
+		long loadGeneration = generation.get();
+		Session session = null;
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(SELECT);
+			pstmt.setString(1, hash(token));
+			pstmt.setTimestamp(2, new Timestamp(now));
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next()) {
+					session = new Session(token, rs.getString("userName"), rs.getInt("roleMask"),
+							rs.getString("email"), rs.getBoolean("passwordReset"),
+							rs.getTimestamp("createdAt").getTime(), rs.getTimestamp("lastAccessAt").getTime());
+				}
+			}
+		} catch (SQLException e) {
+			logFailure(e);
+			return null;
+		}
+		if (session == null) {
+			return null;
+		}
+		Session loaded = session;
+		boolean[] kept = new boolean[1];
+		tokensByUser.compute(session.userName, (name, tokens) -> {
+			if (generation.get() != loadGeneration) {
+				return tokens; // ended while it was being read
+			}
+			Set<String> updated = tokens != null ? tokens : new HashSet<>();
+			Session existing = sessions.putIfAbsent(token, loaded);
+			updated.add(token);
+			kept[0] = existing == null;
+			return updated;
+		});
+		if (!kept[0]) {
+			return sessions.get(token);
+		}
+		stats.loaded.increment();
+		return session;
+	}
+
+	private void persist(Session session) {
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(INSERT);
+			pstmt.setString(1, hash(session.token));
+			pstmt.setString(2, session.userName);
+			pstmt.setInt(3, session.roleMask);
+			pstmt.setString(4, session.email);
+			pstmt.setBoolean(5, session.passwordReset);
+			pstmt.setTimestamp(6, new Timestamp(session.createdAt));
+			pstmt.setTimestamp(7, new Timestamp(session.lastAccess));
+			pstmt.setTimestamp(8, new Timestamp(session.expiresAt()));
+			pstmt.executeUpdate();
+		} catch (SQLException e) {
+			logFailure(e); // the session still works until this process stops
+		}
+	}
+
+	private void touch(Session session, long now) {
+		execute(TOUCH, new Timestamp(now), new Timestamp(session.expiresAt()), hash(session.token));
+	}
+
+	private void deleteUsers(Collection<String> userNames) {
+		String[] names = userNames.toArray(new String[0]);
+		try (PooledConnection conn = pool.borrow()) {
+			Connection connection = conn.getConnection();
+			PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sessions WHERE userName = ANY(?)");
+			for (int from = 0; from < names.length; from += USER_BATCH_SIZE) {
+				int to = Math.min(names.length, from + USER_BATCH_SIZE);
+				pstmt.setArray(1, connection.createArrayOf("VARCHAR", Arrays.copyOfRange(names, from, to)));
+				pstmt.executeUpdate();
+			}
+		} catch (SQLException e) {
+			logFailure(e);
+		}
+	}
+
+	private void execute(String sql, Object... parameters) {
+		try (PooledConnection conn = pool.borrow()) {
+			PreparedStatement pstmt = conn.prepareStatement(sql);
+			for (int i = 0; i < parameters.length; i++) {
+				pstmt.setObject(i + 1, parameters[i]);
+			}
+			pstmt.executeUpdate();
+		} catch (SQLException e) {
+			logFailure(e);
+		}
+	}
+
+	// Failures of the table are counted and logged; the in-memory sessions keep working
+	private void logFailure(SQLException e) {
+		stats.storeFailures.increment();
+		e.printStackTrace();
+	}
+
+	static String hash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * One logged-in user as of login. The password is not kept.
+	 */
+	public final class Session {
+		private final String token;
+		private final String userName;
+		private final int roleMask;
+		private final String email;
+		private final boolean passwordReset;
+		private final long createdAt;
+		private volatile long lastAccess;
+		private volatile long persistedAccess; // last access written to the table
+
+		private Session(String token, String userName, int roleMask, String email, boolean passwordReset,
+				long createdAt, long lastAccess) {
+			this.token = token;
+			this.userName = userName;
+			this.roleMask = roleMask;
+			this.email = email;
+			this.passwordReset = passwordReset;
+			this.createdAt = createdAt;
+			this.lastAccess = lastAccess;
+			this.persistedAccess = lastAccess;
+		}
+
+		public String getToken() { return token; }
+		public String getUserName() { return userName; }
+		public int getRoleMask() { return roleMask; }
+		public EnumSet<Role> getRoles() { return Role.fromMask(roleMask); }
+		public boolean hasRole(Role role) { return role.isIn(roleMask); }
+		public String getEmail() { return email; }
+		public boolean isPasswordReset() { return passwordReset; }
+		public long getCreatedAt() { return createdAt; }
+		public long getLastAccess() { return lastAccess; }
+
+		// When the session ends unless it is used again
+		public long expiresAt() {
+			return Math.min(lastAccess + idleTimeoutMillis, createdAt + absoluteTimeoutMillis);
+		}
+
+		boolean isExpiredAt(long now) {
+			return now >= expiresAt();
+		}
+
+		// A User for the pages, carrying this token and no password
+		public User toUser() {
+			User user = new User(userName, null, roleMask, email);
+			user.setSessionToken(token);
+			return user;
+		}
+	}
+
+	/**
+	 * Lookups and lifecycle counts since the manager was created.
+	 */
+	public static class Stats {
+		private final LongAdder created = new LongAdder();
+		private final LongAdder refused = new LongAdder();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder loaded = new LongAdder();
+		private final LongAdder expired = new LongAdder();
+		private final LongAdder invalidated = new LongAdder();
+		private final LongAdder storeFailures = new LongAdder();
+
+		public long getCreated() { return created.sum(); }
+		// Logins whose user changed between reading the row and starting the session
+		public long getRefused() { return refused.sum(); }
+		public long getHits() { return hits.sum(); }
+		public long getMisses() { return misses.sum(); }
+		public long getLoaded() { return loaded.sum(); }
+		public long getExpired() { return expired.sum(); }
+		public long getInvalidated() { return invalidated.sum(); }
+		public long getStoreFailures() { return storeFailures.sum(); }
+
+		@Override
+		public String toString() {
+			return String.format("%d created, %d refused, %d hits, %d misses, %d loaded, %d expired, "
+					+ "%d invalidated, %d store failures", getCreated(), getRefused(), getHits(), getMisses(),
+					getLoaded(), getExpired(), getInvalidated(), getStoreFailures());
+		}
+	}
+}
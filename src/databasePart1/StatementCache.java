@@ -0,0 +1,113 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StatementCache class keeps the prepared statements of one connection, keyed by their SQL
+ * text, so repeated queries skip the parse and plan step. The least recently used statement is
+ * closed once the cache is full. Statements handed out by the cache belong to it and must not be
+ * closed by the caller.
+ *
+ * A cache is tied to a single connection and is not thread-safe; it is only used by whoever
+ * currently holds that connection.
+ */
+public class StatementCache {
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final Connection connection;
+	private final int capacity;
+	private final Stats stats;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	public StatementCache(Connection connection, int capacity) {
+		this(connection, capacity, new Stats());
+	}
+
+	public StatementCache(Connection connection, int capacity, Stats stats) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Statement cache capacity must be positive: " + capacity);
+		}
+		this.connection = connection;
+		this.capacity = capacity;
+		this.stats = stats;
+		// Access order turns the map into an LRU list
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > StatementCache.this.capacity) {
+					closeQuietly(eldest.getValue());
+					StatementCache.this.stats.evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	// Returns the cached statement for this SQL text, preparing it on a miss
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement pstmt = statements.get(sql);
+		if (pstmt != null && !pstmt.isClosed()) {
+			stats.hits.incrementAndGet();
+			pstmt.clearParameters();
+			return pstmt;
+		}
+		stats.misses.incrementAndGet();
+		pstmt = connection.prepareStatement(sql);
+		statements.put(sql, pstmt);
+		return pstmt;
+	}
+
+	public int size() {
+		return statements.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	// Closes every cached statement
+	public void close() {
+		for (PreparedStatement pstmt : statements.values()) {
+			closeQuietly(pstmt);
+		}
+		statements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement pstmt) {
+		try {
+			pstmt.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Hit, miss and eviction counters. One Stats object can be shared by the caches of
+	 * every connection in a pool to get pool-wide numbers.
+	 */
+	public static class Stats {
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final AtomicLong evictions = new AtomicLong();
+
+		public long getHits() { return hits.get(); }
+		public long getMisses() { return misses.get(); }
+		public long getEvictions() { return evictions.get(); }
+
+		public double getHitRatio() {
+			long total = hits.get() + misses.get();
+			return total == 0 ? 0.0 : (double) hits.get() / total;
+		}
+	}
+}
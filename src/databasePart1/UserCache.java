@@ -0,0 +1,284 @@
+package databasePart1;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import application.User;
+
+/**
+ * The UserCache class keeps recently read cse360users rows in memory, keyed by userName, so
+ * the lookups a page makes over and over during a session skip the database. It also
+ * remembers userNames that do not exist.
+ *
+ * The cache is split into shards, each a segmented LRU behind its own lock: new entries go to
+ * a probation segment and are promoted to a protected segment when read again, so a burst of
+ * one-off lookups (an admin paging through users) cannot push out the users that are read
+ * all the time. Entries also expire after a fixed time to live.
+ *
+ * DatabaseHelper keeps the cache coherent: every write either stores the new row or
+ * invalidates the userName, and either one advances a generation counter. A row loaded
+ * from the database is only stored if no write happened while it was being read, so
+ * a slow read can never put back a row that a concurrent write has already replaced.
+ */
+public class UserCache {
+
+	private static final int SHARDS = 8;
+
+	// Stored for a userName that has no row
+	static final CachedUser ABSENT = new CachedUser(null, null, 0, null, false);
+
+	private final Shard[] shards = new Shard[SHARDS];
+	private final long ttlNanos;
+	private final AtomicLong generation = new AtomicLong();
+	private final Stats stats = new Stats();
+
+	public UserCache(int maximumSize, long ttlMillis) {
+		if (maximumSize < SHARDS) {
+			throw new IllegalArgumentException("User cache size must be at least " + SHARDS + ": " + maximumSize);
+		}
+		this.ttlNanos = ttlMillis * 1_000_000L;
+		for (int i = 0; i < SHARDS; i++) {
+			shards[i] = new Shard(maximumSize / SHARDS);
+		}
+	}
+
+	// Returns the cached row, ABSENT for a userName known not to exist, or null on a miss
+	CachedUser get(String userName) {
+		CachedUser user = shardFor(userName).get(userName, System.nanoTime());
+		if (user == null) {
+			stats.misses.increment();
+		} else {
+			stats.hits.increment();
+		}
+		return user;
+	}
+
+	// Call before reading a row from the database; pass the result to putLoaded()
+	long startLoad() {
+		return generation.get();
+	}
+
+	// Stores a row read from the database, unless a write invalidated anything since startLoad()
+	void putLoaded(String userName, CachedUser user, long loadGeneration) {
+		shardFor(userName).put(userName, user, System.nanoTime() + ttlNanos, loadGeneration);
+	}
+
+	// Stores a row that was just written to the database
+	void put(String userName, CachedUser user) {
+		shardFor(userName).put(userName, user, System.nanoTime() + ttlNanos, -1);
+	}
+
+	void invalidate(String userName) {
+		if (userName != null) {
+			shardFor(userName).invalidate(userName);
+		}
+	}
+
+	// Drops everything, e.g. after a bulk import or a database reset
+	public void invalidateAll() {
+		for (Shard shard : shards) {
+			shard.clear();
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+
+	public Stats getStats() {
+		return stats;
+	}
+
+	private Shard shardFor(String userName) {
+		int h = userName.hashCode();
+		return shards[(h ^ (h >>> 16)) & (SHARDS - 1)];
+	}
+
+	/**
+	 * One segmented LRU. Both segments are access-ordered LinkedHashMaps, so the eldest entry
+	 * is always the least recently used one.
+	 */
+	private final class Shard {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final int capacity;
+		private final int protectedCapacity;
+		private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+		private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+		Shard(int capacity) {
+			this.capacity = capacity;
+			this.protectedCapacity = Math.max(1, capacity * 4 / 5);
+		}
+
+		CachedUser get(String userName, long now) {
+			lock.lock();
+			try {
+				Entry entry = protectedSegment.get(userName);
+				if (entry == null) {
+					entry = probation.get(userName);
+					if (entry == null) {
+						return null;
+					}
+					if (entry.expiresAt - now <= 0) {
+						probation.remove(userName);
+						stats.expirations.increment();
+						return null;
+					}
+					// Read a second time: promote to the protected segment
+					probation.remove(userName);
+					protectedSegment.put(userName, entry);
+					demoteOverflow();
+					return entry.user;
+				}
+				if (entry.expiresAt - now <= 0) {
+					protectedSegment.remove(userName);
+					stats.expirations.increment();
+					return null;
+				}
+				return entry.user;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// A loadGeneration of -1 stores unconditionally
+		void put(String userName, CachedUser user, long expiresAt, long loadGeneration) {
+			lock.lock();
+			try {
+				if (loadGeneration == -1) {
+					generation.incrementAndGet(); // a write: loads already running must not overwrite it
+				} else if (loadGeneration != generation.get()) {
+					return; // a write happened during the load, the row may be stale
+				}
+				Entry entry = new Entry(user, expiresAt);
+				if (protectedSegment.containsKey(userName)) {
+					protectedSegment.put(userName, entry);
+					return;
+				}
+				probation.put(userName, entry);
+				evictOverflow();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void invalidate(String userName) {
+			lock.lock();
+			try {
+				generation.incrementAndGet();
+				probation.remove(userName);
+				protectedSegment.remove(userName);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				generation.incrementAndGet();
+				probation.clear();
+				protectedSegment.clear();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int size() {
+			lock.lock();
+			try {
+				return probation.size() + protectedSegment.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// Moves the least recently used protected entries back to probation
+		private void demoteOverflow() {
+			while (protectedSegment.size() > protectedCapacity) {
+				Iterator<Map.Entry<String, Entry>> eldest = protectedSegment.entrySet().iterator();
+				Map.Entry<String, Entry> demoted = eldest.next();
+				eldest.remove();
+				probation.put(demoted.getKey(), demoted.getValue());
+			}
+			evictOverflow();
+		}
+
+		// Evicts from probation until the shard is back within its size
+		private void evictOverflow() {
+			Iterator<Map.Entry<String, Entry>> eldest = probation.entrySet().iterator();
+			while (probation.size() + protectedSegment.size() > capacity && eldest.hasNext()) {
+				eldest.next();
+				eldest.remove();
+				stats.evictions.increment();
+			}
+		}
+	}
+
+	private static final class Entry {
+		final CachedUser user;
+		final long expiresAt;
+
+		Entry(CachedUser user, long expiresAt) {
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * An immutable copy of one cse360users row. User objects are mutable, so callers always
+	 * get a fresh User built from it.
+	 */
+	static final class CachedUser {
+		final String userName;
+		final String password;
+		final int roleMask;
+		final String email;
+		final boolean passwordReset;
+
+		CachedUser(String userName, String password, int roleMask, String email, boolean passwordReset) {
+			this.userName = userName;
+			this.password = password;
+			this.roleMask = roleMask;
+			this.email = email;
+			this.passwordReset = passwordReset;
+		}
+
+		boolean exists() {
+			return this != ABSENT;
+		}
+
+		User toUser() {
+			return new User(userName, password, roleMask, email);
+		}
+	}
+
+	/**
+	 * Hit, miss, eviction and expiration counters.
+	 */
+	public static class Stats {
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private final LongAdder expirations = new LongAdder();
+
+		public long getHits() { return hits.sum(); }
+		public long getMisses() { return misses.sum(); }
+		public long getEvictions() { return evictions.sum(); }
+		public long getExpirations() { return expirations.sum(); }
+
+		public double getHitRatio() {
+			long hitCount = hits.sum();
+			long total = hitCount + misses.sum();
+			return total == 0 ? 0.0 : (double) hitCount / total;
+		}
+	}
+}
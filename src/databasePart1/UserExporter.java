@@ -0,0 +1,172 @@
+package databasePart1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+import application.Role;
+
+/**
+ * The UserExporter class writes every user to a CSV or JSON Lines file without loading the
+ * table into memory. Users are read a page at a time in id order (keyset pagination), each page
+ * on a freshly borrowed connection, and written straight to a buffered file channel with
+ * optional gzip compression. Passwords are never exported.
+ */
+public class UserExporter {
+
+	public enum Format {
+		CSV,
+		JSON_LINES
+	}
+
+	// Receives the number of users written so far and the total to write
+	@FunctionalInterface
+	public interface ProgressListener {
+		void progress(long exported, long total);
+	}
+
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private static final String PAGE_QUERY = "SELECT id, userName, email, roleMask, passwordReset "
+			+ "FROM cse360users WHERE id > ? ORDER BY id LIMIT ?";
+
+	private final ConnectionPool pool;
+	private final int pageSize;
+
+	public UserExporter(ConnectionPool pool) {
+		this(pool, DEFAULT_PAGE_SIZE);
+	}
+
+	public UserExporter(ConnectionPool pool, int pageSize) {
+		this.pool = pool;
+		this.pageSize = pageSize;
+	}
+
+	// Exports to a file, gzip-compressed if requested. Returns the number of users written.
+	public long export(Path file, Format format, boolean gzip, ProgressListener listener)
+			throws IOException, SQLException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		OutputStream out = Channels.newOutputStream(channel);
+		if (gzip) {
+			out = new GZIPOutputStream(out, 1 << 16);
+		}
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+			return export(writer, format, listener);
+		}
+	}
+
+	// Exports to any writer; the caller owns and closes it
+	public long export(Writer writer, Format format, ProgressListener listener) throws IOException, SQLException {
+		long total = countUsers();
+		long exported = 0;
+		long lastId = 0;
+
+		if (format == Format.CSV) {
+			writer.write("userName,email,role,passwordReset\n");
+		}
+		while (true) {
+			int rows = 0;
+			try (PooledConnection conn = pool.borrow()) {
+				PreparedStatement pstmt = conn.prepareStatement(PAGE_QUERY);
+				pstmt.setFetchSize(pageSize);
+				pstmt.setLong(1, lastId);
+				pstmt.setInt(2, pageSize);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						lastId = rs.getLong("id");
+						writeUser(writer, format, rs.getString("userName"), rs.getString("email"),
+								Role.format(rs.getInt("roleMask")), rs.getBoolean("passwordReset"));
+						rows++;
+					}
+				}
+			}
+			exported += rows;
+			if (listener != null) {
+				listener.progress(exported, Math.max(total, exported));
+			}
+			if (rows < pageSize) {
+				break;
+			}
+		}
+		writer.flush();
+		return exported;
+	}
+
+	private long countUsers() throws SQLException {
+		try (PooledConnection conn = pool.borrow();
+				ResultSet rs = conn.prepareStatement("SELECT COUNT(*) FROM cse360users").executeQuery()) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+
+	private static void writeUser(Writer writer, Format format, String userName, String email, String role,
+			boolean passwordReset) throws IOException {
+		if (format == Format.CSV) {
+			writer.write(csv(userName));
+			writer.write(',');
+			writer.write(csv(email));
+			writer.write(',');
+			writer.write(csv(role));
+			writer.write(',');
+			writer.write(Boolean.toString(passwordReset));
+			writer.write('\n');
+		} else {
+			writer.write("{\"userName\":");
+			writer.write(json(userName));
+			writer.write(",\"email\":");
+			writer.write(json(email));
+			writer.write(",\"role\":");
+			writer.write(json(role));
+			writer.write(",\"passwordReset\":");
+			writer.write(Boolean.toString(passwordReset));
+			writer.write("}\n");
+		}
+	}
+
+	// Quotes a CSV field when it contains a separator, quote or line break
+	static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	static String json(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
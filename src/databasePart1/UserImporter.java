@@ -0,0 +1,287 @@
+package databasePart1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import application.EmailValidator;
+import application.PasswordEvaluator;
+import application.Role;
+import application.UserNameRecognizer;
+
+/**
+ * The UserImporter class loads large roster files into cse360users. The file is streamed in
+ * chunks: while one chunk is written with a JDBC batch in its own transaction, the following
+ * chunks are parsed and validated on worker threads, so memory use stays bounded by the
+ * number of chunks in flight rather than the size of the file.
+ *
+ * Rows use the test-users.txt layout: userName, password, role, email. Fields may be quoted,
+ * which allows several comma-separated roles in one field. A header row is skipped.
+ */
+public class UserImporter {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private static final String INSERT_USER =
+			"INSERT INTO cse360users (userName, password, email, roleMask) VALUES (?, ?, ?, ?)";
+
+	private final ConnectionPool pool;
+	private final int chunkSize;
+	private final int parallelism;
+
+	public UserImporter(ConnectionPool pool) {
+		this(pool, DEFAULT_CHUNK_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	public UserImporter(ConnectionPool pool, int chunkSize, int parallelism) {
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	// Imports every row of the source. Rows that fail validation or violate a constraint
+	// (such as a taken userName) are reported and skipped; the rest are committed.
+	public ImportReport importUsers(Reader source) throws IOException, SQLException {
+		ImportReport report = new ImportReport();
+		long start = System.nanoTime();
+		ExecutorService validators = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "user-import-validator");
+			t.setDaemon(true);
+			return t;
+		});
+		Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+		try (BufferedReader reader = source instanceof BufferedReader
+				? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+				PooledConnection conn = pool.borrow()) {
+			Connection connection = conn.getConnection();
+			connection.setAutoCommit(false);
+			PreparedStatement insert = conn.prepareStatement(INSERT_USER);
+
+			List<Row> rows = new ArrayList<>(chunkSize);
+			long lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+					continue;
+				}
+				rows.add(new Row(lineNumber, line));
+				if (rows.size() == chunkSize) {
+					List<Row> chunk = rows;
+					inFlight.add(validators.submit(() -> validate(chunk)));
+					rows = new ArrayList<>(chunkSize);
+					// Keep a bounded number of chunks ahead of the writer
+					if (inFlight.size() >= parallelism * 2) {
+						write(connection, insert, take(inFlight.poll()), report);
+					}
+				}
+			}
+			if (!rows.isEmpty()) {
+				List<Row> chunk = rows;
+				inFlight.add(validators.submit(() -> validate(chunk)));
+			}
+			while (!inFlight.isEmpty()) {
+				write(connection, insert, take(inFlight.poll()), report);
+			}
+		} finally {
+			validators.shutdownNow();
+			report.setElapsedNanos(System.nanoTime() - start);
+		}
+		return report;
+	}
+
+	private static Chunk take(Future<Chunk> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Import interrupted", e);
+		} catch (ExecutionException e) {
+			throw new SQLException("Validation failed: " + e.getCause(), e.getCause());
+		}
+	}
+
+	// Inserts the valid rows of a chunk as one batch in one transaction. If the batch
+	// fails, the chunk is retried row by row so only the offending rows are rejected.
+	private void write(Connection connection, PreparedStatement insert, Chunk chunk, ImportReport report)
+			throws SQLException {
+		report.addRead(chunk.read);
+		for (Rejected rejected : chunk.rejected) {
+			report.addError(rejected.lineNumber, rejected.userName, rejected.message);
+		}
+		if (chunk.accepted.isEmpty()) {
+			return;
+		}
+		try {
+			for (ParsedRow row : chunk.accepted) {
+				bind(insert, row);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			connection.commit();
+			report.addImported(chunk.accepted.size());
+		} catch (BatchUpdateException e) {
+			connection.rollback();
+			insert.clearBatch();
+			for (ParsedRow row : chunk.accepted) {
+				try {
+					bind(insert, row);
+					insert.executeUpdate();
+					report.addImported(1);
+				} catch (SQLException rowError) {
+					report.addError(row.lineNumber, row.userName, rowError.getMessage());
+				}
+			}
+			connection.commit();
+		}
+	}
+
+	private static void bind(PreparedStatement insert, ParsedRow row) throws SQLException {
+		insert.setString(1, row.userName);
+		insert.setString(2, row.password);
+		insert.setString(3, row.email);
+		insert.setInt(4, Role.parseMask(row.role));
+	}
+
+	// Parses and validates one chunk; runs on a worker thread
+	private static Chunk validate(List<Row> rows) {
+		Chunk chunk = new Chunk(rows.size());
+		for (Row row : rows) {
+			List<String> fields = parseCsvLine(row.line);
+			if (fields.size() != 4) {
+				chunk.rejected.add(new Rejected(row.lineNumber, fields.isEmpty() ? "" : fields.get(0).trim(),
+						"Expected 4 fields but found " + fields.size()));
+				continue;
+			}
+			ParsedRow parsed = new ParsedRow(row.lineNumber, fields.get(0).trim(), fields.get(1).trim(),
+					fields.get(2).trim(), fields.get(3).trim());
+			String error = validateRow(parsed);
+			if (error.isEmpty()) {
+				chunk.accepted.add(parsed);
+			} else {
+				chunk.rejected.add(new Rejected(row.lineNumber, parsed.userName, error));
+			}
+		}
+		return chunk;
+	}
+
+	private static String validateRow(ParsedRow row) {
+		if (row.role.isEmpty()) {
+			return "Role cannot be empty";
+		}
+		for (String name : row.role.split(",")) {
+			if (Role.fromName(name) == null) {
+				return "Unknown role: " + name.trim();
+			}
+		}
+		// The quiet variants keep no shared state, so worker threads validate in parallel
+		String usernameResult = UserNameRecognizer.validateUserName(row.userName);
+		if (!usernameResult.isEmpty()) {
+			return usernameResult.trim();
+		}
+		String passwordResult = PasswordEvaluator.validatePassword(row.password);
+		if (!passwordResult.isEmpty()) {
+			return passwordResult;
+		}
+		EmailValidator emailValidator = new EmailValidator();
+		if (!emailValidator.isValidEmail(row.email)) {
+			return emailValidator.getErrorMessage();
+		}
+		return "";
+	}
+
+	private static boolean isHeader(String line) {
+		return line.replace(" ", "").equalsIgnoreCase("userName,password,role,email");
+	}
+
+	// Splits one CSV line, honouring double-quoted fields and doubled quotes inside them
+	static List<String> parseCsvLine(String line) {
+		List<String> fields = new ArrayList<>(4);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"' && field.toString().isBlank()) {
+				field.setLength(0);
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static final class Row {
+		final long lineNumber;
+		final String line;
+
+		Row(long lineNumber, String line) {
+			this.lineNumber = lineNumber;
+			this.line = line;
+		}
+	}
+
+	private static final class ParsedRow {
+		final long lineNumber;
+		final String userName;
+		final String password;
+		final String role;
+		final String email;
+
+		ParsedRow(long lineNumber, String userName, String password, String role, String email) {
+			this.lineNumber = lineNumber;
+			this.userName = userName;
+			this.password = password;
+			this.role = role;
+			this.email = email;
+		}
+	}
+
+	private static final class Rejected {
+		final long lineNumber;
+		final String userName;
+		final String message;
+
+		Rejected(long lineNumber, String userName, String message) {
+			this.lineNumber = lineNumber;
+			this.userName = userName;
+			this.message = message;
+		}
+	}
+
+	private static final class Chunk {
+		final int read;
+		final List<ParsedRow> accepted = new ArrayList<>();
+		final List<Rejected> rejected = new ArrayList<>();
+
+		Chunk(int read) {
+			this.read = read;
+		}
+	}
+}
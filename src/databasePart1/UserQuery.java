@@ -0,0 +1,106 @@
+package databasePart1;
+
+import application.Role;
+import application.User;
+
+/**
+ * The UserQuery class describes one page of a user search for DatabaseHelper.searchUsers():
+ * optional userName or email prefix, optional role filter, a sort column and direction, and a
+ * keyset cursor (the last user of the previous page). Each filter is backed by an index on
+ * cse360users, so a page costs about the same however large the table is.
+ *
+ * Queries are immutable; the with... methods return modified copies.
+ */
+public final class UserQuery {
+
+	public enum SortColumn {
+		USERNAME("userName"),
+		EMAIL("email"),
+		ROLE("roleMask");
+
+		private final String column;
+
+		SortColumn(String column) {
+			this.column = column;
+		}
+
+		String column() {
+			return column;
+		}
+
+		// The value of this column for a user, used to continue after that user
+		Object valueOf(User user) {
+			switch (this) {
+			case EMAIL: return user.getEmail();
+			case ROLE: return user.getRoleMask();
+			default: return user.getUserName();
+			}
+		}
+	}
+
+	private final String userNamePrefix;
+	private final String emailPrefix;
+	private final Role role;
+	private final SortColumn sortColumn;
+	private final boolean descending;
+	private final User after;
+	private final int limit;
+
+	public UserQuery() {
+		this(null, null, null, SortColumn.USERNAME, false, null, 50);
+	}
+
+	private UserQuery(String userNamePrefix, String emailPrefix, Role role, SortColumn sortColumn,
+			boolean descending, User after, int limit) {
+		this.userNamePrefix = userNamePrefix;
+		this.emailPrefix = emailPrefix;
+		this.role = role;
+		this.sortColumn = sortColumn;
+		this.descending = descending;
+		this.after = after;
+		this.limit = limit;
+	}
+
+	public UserQuery withUserNamePrefix(String prefix) {
+		return new UserQuery(blankToNull(prefix), emailPrefix, role, sortColumn, descending, after, limit);
+	}
+
+	public UserQuery withEmailPrefix(String prefix) {
+		return new UserQuery(userNamePrefix, blankToNull(prefix), role, sortColumn, descending, after, limit);
+	}
+
+	// Only users that have this role (possibly among others); null for every role
+	public UserQuery withRole(Role role) {
+		return new UserQuery(userNamePrefix, emailPrefix, role, sortColumn, descending, after, limit);
+	}
+
+	public UserQuery sortedBy(SortColumn sortColumn, boolean descending) {
+		return new UserQuery(userNamePrefix, emailPrefix, role, sortColumn, descending, after, limit);
+	}
+
+	// Continue after this user, normally the last row of the previous page; null for the first page
+	public UserQuery after(User lastUser) {
+		return new UserQuery(userNamePrefix, emailPrefix, role, sortColumn, descending, lastUser, limit);
+	}
+
+	public UserQuery withLimit(int limit) {
+		return new UserQuery(userNamePrefix, emailPrefix, role, sortColumn, descending, after, limit);
+	}
+
+	public String getUserNamePrefix() { return userNamePrefix; }
+	public String getEmailPrefix() { return emailPrefix; }
+	public Role getRole() { return role; }
+	public SortColumn getSortColumn() { return sortColumn; }
+	public boolean isDescending() { return descending; }
+	public User getAfter() { return after; }
+	public int getLimit() { return limit; }
+
+	private static String blankToNull(String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+
+	// Escapes LIKE wildcards so a prefix is matched literally
+	static String likePrefix(String prefix) {
+		return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+	}
+}
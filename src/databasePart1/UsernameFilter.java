@@ -0,0 +1,109 @@
+package databasePart1;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The UsernameFilter class is a Bloom filter over the userNames in cse360users. A "no" from
+ * mightContain() is definite, so most availability checks during signup never reach the
+ * database; a "yes" may be a false positive and has to be confirmed with a query.
+ *
+ * Bits live in an AtomicLongArray, so add() and mightContain() can be called from any thread
+ * without locking. A Bloom filter cannot remove entries: a deleted userName keeps its bits
+ * and only raises the false-positive rate. DatabaseHelper counts those stale entries and
+ * rebuilds the filter from the table once there are too many of them, or once more names were
+ * added than the filter was sized for.
+ */
+public class UsernameFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private final long expectedInsertions;
+	private final AtomicLong insertions = new AtomicLong();
+	private final AtomicLong staleEntries = new AtomicLong();
+
+	// Sizes the filter for the expected number of userNames at the given false-positive rate
+	public UsernameFilter(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions < 1) {
+			throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+		}
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		double ln2 = Math.log(2);
+		long bitsNeeded = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+		this.bits = new AtomicLongArray((int) ((bitsNeeded + 63) / 64));
+		this.bitCount = bits.length() * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+		this.expectedInsertions = expectedInsertions;
+	}
+
+	public void add(String userName) {
+		long hash1 = hash(userName, 0x9E3779B97F4A7C15L);
+		long hash2 = hash(userName, 0xC2B2AE3D27D4EB4FL) | 1; // odd, so the probes never repeat early
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+		insertions.incrementAndGet();
+	}
+
+	// False means the userName is certainly not in the table
+	public boolean mightContain(String userName) {
+		long hash1 = hash(userName, 0x9E3779B97F4A7C15L);
+		long hash2 = hash(userName, 0xC2B2AE3D27D4EB4FL) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Records that a userName in the filter no longer exists
+	public void markStale() {
+		staleEntries.incrementAndGet();
+	}
+
+	public long getInsertions() { return insertions.get(); }
+	public long getStaleEntries() { return staleEntries.get(); }
+	public long getExpectedInsertions() { return expectedInsertions; }
+	public long getBitCount() { return bitCount; }
+	public int getHashCount() { return hashCount; }
+
+	// Size of the bit array in bytes
+	public long getMemoryBytes() {
+		return bits.length() * 8L;
+	}
+
+	// The false-positive rate expected for the current number of insertions
+	public double getExpectedFalsePositiveRate() {
+		return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+	}
+
+	// 64-bit FNV-1a over the UTF-16 code units with a seed, finished with a MurmurHash3 mix.
+	// Works on the chars directly so a check allocates nothing.
+	private static long hash(String value, long seed) {
+		long h = 0xCBF29CE484222325L ^ seed;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			h ^= c & 0xFF;
+			h *= 0x100000001B3L;
+			h ^= c >>> 8;
+			h *= 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -1,6 +1,7 @@
 module FoundationCode {
 	requires javafx.controls;
 	requires java.sql;
+	requires jdk.httpserver;
 	requires org.junit.jupiter.api;
 	
 	opens application to javafx.base, javafx.graphics, javafx.fxml;
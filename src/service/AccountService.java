@@ -0,0 +1,588 @@
+package service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import application.EmailValidator;
+import application.PasswordEvaluator;
+import application.Role;
+import application.User;
+import application.UserNameRecognizer;
+import databasePart1.AuditEvent;
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseHelper;
+import databasePart1.RegistrationResult;
+import databasePart1.SessionManager;
+
+/**
+ * The AccountService class serves the account flows of the JavaFX pages over HTTP with JSON
+ * payloads, so several clients can share one database. It runs on the JDK's built-in HTTP
+ * server; every request is handled on its own virtual thread, and a RequestLimiter bounds how
+ * many run and wait at once, answering 503 with Retry-After once the line is full.
+ *
+ * Endpoints (admin endpoints take the session token of a user with the admin role as
+ * "Authorization: Bearer <token>", or that user's HTTP Basic credentials):
+ *   POST   /api/login                      {userName, password}, answers with a session token
+ *   POST   /api/logout                     ends the session of the bearer token
+ *   POST   /api/register                   {userName, password, email, code}
+ *   POST   /api/invitations       (admin)  {roles: [...], expiresAt?, count?}
+ *   GET    /api/users?after=&limit= (admin)
+ *   DELETE /api/users/{name}      (admin)
+ *   POST   /api/users/{name}/roles (admin) {add: [...], remove: [...]}
+ *   POST   /api/users/{name}/password-reset (admin)
+ *   GET    /api/health
+ *
+ * Input is checked with the same rules and validators as the pages. Errors are returned as
+ * {"error": message}, with "errors" listing every validation message.
+ *
+ * Usage: java service.AccountService [port]   (or StartCSE360 --serve [port])
+ */
+public class AccountService implements AutoCloseable {
+
+	public static final int DEFAULT_PORT = 8080;
+	public static final int DEFAULT_MAX_QUEUED = 256;
+	public static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 2_000;
+
+	static final int MAX_BODY_BYTES = 64 * 1024;
+	static final int DEFAULT_PAGE_SIZE = 50;
+	static final int MAX_PAGE_SIZE = 500;
+	static final int MAX_CODES_PER_REQUEST = 1_000;
+	static final long DEFAULT_INVITATION_DAYS = 7;
+
+	// Roles an invitation may carry, as on the invitation page
+	private static final Set<Role> INVITABLE_ROLES = EnumSet.of(Role.STUDENT, Role.REVIEWER, Role.INSTRUCTOR, Role.STAFF);
+
+	private final DatabaseHelper databaseHelper;
+	private final RequestLimiter limiter;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	// Admits as many concurrent requests as the connection pool has connections
+	public AccountService(DatabaseHelper databaseHelper, InetSocketAddress address) throws IOException {
+		this(databaseHelper, address, new RequestLimiter(databaseHelper.getConfig().getPoolMaxSize(),
+				DEFAULT_MAX_QUEUED, DEFAULT_QUEUE_TIMEOUT_MILLIS));
+	}
+
+	public AccountService(DatabaseHelper databaseHelper, InetSocketAddress address, RequestLimiter limiter)
+			throws IOException {
+		this.databaseHelper = databaseHelper;
+		this.limiter = limiter;
+		this.server = HttpServer.create(address, 0);
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		server.setExecutor(executor);
+		server.createContext("/api/login", exchange -> handle(exchange, this::login));
+		server.createContext("/api/logout", exchange -> handle(exchange, this::logout));
+		server.createContext("/api/register", exchange -> handle(exchange, this::register));
+		server.createContext("/api/invitations", exchange -> handle(exchange, this::invitations));
+		server.createContext("/api/users", exchange -> handle(exchange, this::users));
+		server.createContext("/api/health", exchange -> {
+			try (exchange) {
+				send(exchange, 200, health());
+			}
+		});
+		server.createContext("/", exchange -> {
+			try (exchange) {
+				send(exchange, 404, error("Not found"));
+			}
+		});
+	}
+
+	// Serves the application database on localhost until the process is stopped
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		DatabaseHelper databaseHelper = new DatabaseHelper();
+		databaseHelper.connectToDatabase();
+		databaseHelper.initializeTestUsers();
+		databaseHelper.startInvitationReaper();
+		AccountService service = new AccountService(databaseHelper,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			service.close();
+			databaseHelper.closeConnection();
+		}));
+		service.start();
+		System.out.println("Account service listening on http://localhost:" + service.getPort() + "/api/");
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	// The port the server listens on, e.g. the one chosen for port 0
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public RequestLimiter getLimiter() {
+		return limiter;
+	}
+
+	// Stops accepting requests and waits up to a second for the running ones
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private interface Endpoint {
+		Response handle(HttpExchange exchange) throws Exception;
+	}
+
+	private static final class Response {
+		final int status;
+		final Object body;
+
+		Response(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	// A request the service refuses, answered with the status and message
+	private static final class HttpError extends Exception {
+		private static final long serialVersionUID = 1L;
+		final int status;
+
+		HttpError(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+		try (exchange) {
+			boolean admitted;
+			try {
+				admitted = limiter.tryEnter();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				admitted = false;
+			}
+			if (!admitted) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				send(exchange, 503, error("Server busy, retry later"));
+				return;
+			}
+			try {
+				Response response = endpoint.handle(exchange);
+				send(exchange, response.status, response.body);
+			} catch (HttpError e) {
+				if (e.status == 401) {
+					exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"CSE360\"");
+				}
+				send(exchange, e.status, error(e.getMessage()));
+			} catch (IllegalArgumentException e) {
+				send(exchange, 400, error(e.getMessage()));
+			} catch (Exception e) {
+				e.printStackTrace();
+				send(exchange, 500, error("Internal error"));
+			} finally {
+				limiter.exit();
+			}
+		}
+	}
+
+	// POST /api/login: the same checks as the login page, then authenticate()
+	private Response login(HttpExchange exchange) throws Exception {
+		requireMethod(exchange, "POST");
+		requireExactPath(exchange, "/api/login");
+		Map<String, Object> body = readBody(exchange);
+		String userName = string(body, "userName");
+		String password = string(body, "password");
+		if (userName.length() < 4 || userName.length() > 16) {
+			throw new HttpError(400, "Invalid Username length, must be between 4 and 16 characters");
+		}
+		if (password.length() < 8) {
+			throw new HttpError(400, "Password is too short.");
+		}
+		AuthenticationResult result = databaseHelper.authenticateSession(userName, password);
+		if (!result.isSuccess()) {
+			throw new HttpError(401, "Invalid user name or password");
+		}
+		Map<String, Object> user = userJson(result.toUser());
+		user.put("passwordReset", result.isPasswordReset());
+		user.put("token", result.getSessionToken());
+		return new Response(200, user);
+	}
+
+	// POST /api/logout: ends the session the bearer token belongs to
+	private Response logout(HttpExchange exchange) throws Exception {
+		requireMethod(exchange, "POST");
+		requireExactPath(exchange, "/api/logout");
+		String token = bearerToken(exchange);
+		if (token == null || !databaseHelper.sessions().invalidate(token)) {
+			throw new HttpError(401, "No such session");
+		}
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("loggedOut", true);
+		return new Response(200, response);
+	}
+
+	// POST /api/register: validates like the account setup page, then redeems the code and
+	// creates the user in one transaction
+	private Response register(HttpExchange exchange) throws Exception {
+		requireMethod(exchange, "POST");
+		requireExactPath(exchange, "/api/register");
+		Map<String, Object> body = readBody(exchange);
+		String userName = string(body, "userName");
+		String password = string(body, "password");
+		String email = string(body, "email");
+		String code = string(body, "code");
+
+		List<String> errors = new ArrayList<>();
+		addIfPresent(errors, UserNameRecognizer.validateUserName(userName));
+		addIfPresent(errors, PasswordEvaluator.validatePassword(password));
+		EmailValidator emailValidator = new EmailValidator();
+		emailValidator.isValidEmail(email);
+		addIfPresent(errors, emailValidator.getErrorMessage());
+		if (!errors.isEmpty()) {
+			Map<String, Object> error = error(errors.get(0));
+			error.put("errors", errors);
+			return new Response(400, error);
+		}
+
+		RegistrationResult result = databaseHelper.registerWithInvite(userName, password, email, code);
+		switch (result.getStatus()) {
+			case REGISTERED:
+				return new Response(201, userJson(result.getUser()));
+			case USERNAME_TAKEN:
+				throw new HttpError(409, "This userName is taken");
+			case INVALID_INVITATION:
+			default:
+				throw new HttpError(400, "Please enter a valid invitation code");
+		}
+	}
+
+	// POST /api/invitations: generates count codes for the roles, valid until expiresAt (an
+	// ISO-8601 instant or local date-time, by default a week from now)
+	private Response invitations(HttpExchange exchange) throws Exception {
+		requireMethod(exchange, "POST");
+		requireExactPath(exchange, "/api/invitations");
+		requireAdmin(exchange);
+		Map<String, Object> body = readBody(exchange);
+		Set<Role> roles = roles(body.get("roles"));
+		if (roles.isEmpty()) {
+			throw new HttpError(400, "Please select at least one role");
+		}
+		if (!INVITABLE_ROLES.containsAll(roles)) {
+			throw new HttpError(400, "Invitations may only carry the roles " + INVITABLE_ROLES);
+		}
+		Timestamp expiresAt = body.get("expiresAt") == null
+				? new Timestamp(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(DEFAULT_INVITATION_DAYS))
+				: timestamp(string(body, "expiresAt"));
+		int count = body.get("count") == null ? 1 : integer(body, "count");
+		if (count < 1 || count > MAX_CODES_PER_REQUEST) {
+			throw new HttpError(400, "Number of codes must be between 1 and " + MAX_CODES_PER_REQUEST);
+		}
+
+		List<String> codes = databaseHelper.generateInvitationCodes(count, roles, expiresAt);
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("codes", codes);
+		response.put("roles", roleNames(roles));
+		response.put("expiresAt", expiresAt.toInstant().toString());
+		return new Response(201, response);
+	}
+
+	// /api/users and /api/users/{name}[/roles|/password-reset]
+	private Response users(HttpExchange exchange) throws Exception {
+		User admin = requireAdmin(exchange);
+		String path = exchange.getRequestURI().getPath();
+		String[] parts = path.substring("/api/users".length()).split("/", -1);
+		if (parts.length == 1 && parts[0].isEmpty()) {
+			requireMethod(exchange, "GET");
+			return listUsers(exchange);
+		}
+		if (!parts[0].isEmpty() || parts.length > 3 || parts[1].isEmpty()) {
+			throw new HttpError(404, "Not found");
+		}
+		String userName = parts[1];
+		if (parts.length == 2) {
+			requireMethod(exchange, "DELETE");
+			return deleteUser(admin, userName);
+		}
+		switch (parts[2]) {
+			case "roles":
+				requireMethod(exchange, "POST");
+				return changeRoles(exchange, admin, userName);
+			case "password-reset":
+				requireMethod(exchange, "POST");
+				return resetPassword(admin, userName);
+			default:
+				throw new HttpError(404, "Not found");
+		}
+	}
+
+	// One page of users in userName order; pass "next" as "after" for the following page
+	private Response listUsers(HttpExchange exchange) throws Exception {
+		Map<String, String> query = query(exchange);
+		int limit = DEFAULT_PAGE_SIZE;
+		if (query.containsKey("limit")) {
+			try {
+				limit = Integer.parseInt(query.get("limit"));
+			} catch (NumberFormatException e) {
+				limit = 0;
+			}
+			if (limit < 1 || limit > MAX_PAGE_SIZE) {
+				throw new HttpError(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+			}
+		}
+		List<User> page = databaseHelper.getUsersPage(query.get("after"), limit);
+		List<Object> users = new ArrayList<>(page.size());
+		for (User user : page) {
+			users.add(userJson(user));
+		}
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("users", users);
+		response.put("next", page.size() == limit ? page.get(page.size() - 1).getUserName() : null);
+		return new Response(200, response);
+	}
+
+	private Response deleteUser(User admin, String userName) throws Exception {
+		if (userName.equals(admin.getUserName())) {
+			throw new HttpError(409, "Admins cannot delete their own account");
+		}
+		if (!databaseHelper.deleteUser(userName)) {
+			throw new HttpError(404, "No such user: " + userName);
+		}
+		databaseHelper.audit(AuditEvent.Type.USER_DELETED, admin.getUserName(), userName, "service");
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("deleted", userName);
+		return new Response(200, response);
+	}
+
+	private Response changeRoles(HttpExchange exchange, User admin, String userName) throws Exception {
+		Map<String, Object> body = readBody(exchange);
+		Set<Role> added = roles(body.get("add"));
+		Set<Role> removed = roles(body.get("remove"));
+		if (userName.equals(admin.getUserName()) && removed.contains(Role.ADMIN)) {
+			throw new HttpError(409, "Admins cannot remove their own admin role");
+		}
+		List<User> updated = databaseHelper.updateRoles(List.of(userName), added, removed);
+		if (updated.isEmpty()) {
+			throw new HttpError(404, "No such user: " + userName);
+		}
+		databaseHelper.audit(AuditEvent.Type.ROLES_CHANGED, admin.getUserName(), userName,
+				"added " + added + " removed " + removed);
+		return new Response(200, userJson(updated.get(0)));
+	}
+
+	// Gives the user a one-time password that must be changed at the next login
+	private Response resetPassword(User admin, String userName) throws Exception {
+		Map<String, String> reset = databaseHelper.resetPasswords(List.of(userName));
+		String oneTimePassword = reset.get(userName);
+		if (oneTimePassword == null) {
+			throw new HttpError(404, "No such user: " + userName);
+		}
+		databaseHelper.audit(AuditEvent.Type.PASSWORD_RESET, admin.getUserName(), userName, "service");
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("userName", userName);
+		response.put("oneTimePassword", oneTimePassword);
+		return new Response(200, response);
+	}
+
+	private Map<String, Object> health() {
+		Map<String, Object> health = new LinkedHashMap<>();
+		health.put("status", "ok");
+		health.put("active", limiter.getActive());
+		health.put("queued", limiter.getQueued());
+		health.put("admitted", limiter.getAdmitted());
+		health.put("rejected", limiter.getRejected());
+		return health;
+	}
+
+	// Checks the session token or HTTP Basic credentials and returns the admin they belong to.
+	// A session is resolved in memory; only Basic credentials are checked against the database.
+	private User requireAdmin(HttpExchange exchange) throws HttpError, SQLException {
+		String token = bearerToken(exchange);
+		if (token != null) {
+			SessionManager.Session session = databaseHelper.sessions().get(token);
+			if (session == null) {
+				throw new HttpError(401, "Session expired or logged out");
+			}
+			if (!session.hasRole(Role.ADMIN)) {
+				throw new HttpError(403, "Admin role required");
+			}
+			return session.toUser();
+		}
+		String header = exchange.getRequestHeaders().getFirst("Authorization");
+		if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+			throw new HttpError(401, "Authentication required");
+		}
+		String credentials;
+		try {
+			credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new HttpError(401, "Malformed credentials");
+		}
+		int colon = credentials.indexOf(':');
+		if (colon < 0) {
+			throw new HttpError(401, "Malformed credentials");
+		}
+		AuthenticationResult result = databaseHelper.authenticate(credentials.substring(0, colon),
+				credentials.substring(colon + 1));
+		if (!result.isSuccess()) {
+			throw new HttpError(401, "Invalid user name or password");
+		}
+		if (!result.getRoles().contains(Role.ADMIN)) {
+			throw new HttpError(403, "Admin role required");
+		}
+		return result.toUser();
+	}
+
+	// The token of an "Authorization: Bearer" header, or null
+	private static String bearerToken(HttpExchange exchange) {
+		String header = exchange.getRequestHeaders().getFirst("Authorization");
+		if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+			return null;
+		}
+		String token = header.substring(7).trim();
+		return token.isEmpty() ? null : token;
+	}
+
+	private static void requireMethod(HttpExchange exchange, String method) throws HttpError {
+		if (!exchange.getRequestMethod().equals(method)) {
+			exchange.getResponseHeaders().set("Allow", method);
+			throw new HttpError(405, "Use " + method);
+		}
+	}
+
+	private static void requireExactPath(HttpExchange exchange, String path) throws HttpError {
+		if (!exchange.getRequestURI().getPath().equals(path)) {
+			throw new HttpError(404, "Not found");
+		}
+	}
+
+	private static Map<String, Object> readBody(HttpExchange exchange) throws IOException, HttpError {
+		byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+		if (bytes.length > MAX_BODY_BYTES) {
+			throw new HttpError(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+		}
+		return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	private static Map<String, String> query(HttpExchange exchange) {
+		Map<String, String> query = new LinkedHashMap<>();
+		String raw = exchange.getRequestURI().getQuery(); // already decoded
+		if (raw == null) {
+			return query;
+		}
+		for (String pair : raw.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) {
+				query.put(pair.substring(0, equals), pair.substring(equals + 1));
+			}
+		}
+		return query;
+	}
+
+	private static String string(Map<String, Object> body, String name) throws HttpError {
+		Object value = body.get(name);
+		if (!(value instanceof String)) {
+			throw new HttpError(400, "Missing string field: " + name);
+		}
+		return (String) value;
+	}
+
+	private static int integer(Map<String, Object> body, String name) throws HttpError {
+		Object value = body.get(name);
+		if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+			throw new HttpError(400, "Field " + name + " must be an integer");
+		}
+		return ((Long) value).intValue();
+	}
+
+	// A JSON array of role names such as ["student", "reviewer"]; a missing array is no roles
+	private static EnumSet<Role> roles(Object value) throws HttpError {
+		EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+		if (value == null) {
+			return roles;
+		}
+		if (!(value instanceof List<?> names)) {
+			throw new HttpError(400, "Roles must be an array of role names");
+		}
+		for (Object name : names) {
+			Role role = name instanceof String ? Role.fromName((String) name) : null;
+			if (role == null) {
+				throw new HttpError(400, "Unknown role: " + name);
+			}
+			roles.add(role);
+		}
+		return roles;
+	}
+
+	private static Timestamp timestamp(String text) throws HttpError {
+		try {
+			return Timestamp.from(Instant.parse(text));
+		} catch (DateTimeParseException e) {
+			try {
+				return Timestamp.valueOf(LocalDateTime.parse(text));
+			} catch (DateTimeParseException e2) {
+				throw new HttpError(400, "expiresAt must be an ISO-8601 date-time: " + text);
+			}
+		}
+	}
+
+	private static void addIfPresent(List<String> errors, String message) {
+		if (message != null && !message.isEmpty()) {
+			errors.add(message);
+		}
+	}
+
+	// A user without the password
+	private static Map<String, Object> userJson(User user) {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("userName", user.getUserName());
+		json.put("email", user.getEmail());
+		json.put("roles", roleNames(user.getRoles()));
+		return json;
+	}
+
+	private static List<String> roleNames(Set<Role> roles) {
+		List<String> names = new ArrayList<>(roles.size());
+		for (Role role : roles) {
+			names.add(role.getName());
+		}
+		return names;
+	}
+
+	private static Map<String, Object> error(String message) {
+		Map<String, Object> error = new LinkedHashMap<>();
+		error.put("error", message);
+		return error;
+	}
+
+	private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+		byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
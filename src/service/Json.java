@@ -0,0 +1,290 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Json class reads and writes the JSON payloads of the account service. Objects are read
+ * into LinkedHashMaps, arrays into Lists, numbers into Longs (or Doubles when they have a
+ * fraction or exponent), and true, false and null into Boolean and null. Writing accepts the
+ * same types plus any other Number and Iterable; anything else is written as its toString().
+ */
+public final class Json {
+
+	// Deeper nesting is rejected, so a hostile payload cannot exhaust the stack
+	private static final int MAX_DEPTH = 32;
+
+	private final String text;
+	private int position;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	// Parses a JSON document; throws IllegalArgumentException naming the offset of a syntax error
+	public static Object parse(String text) {
+		Json parser = new Json(text);
+		parser.skipWhitespace();
+		Object value = parser.readValue(0);
+		parser.skipWhitespace();
+		if (parser.position < text.length()) {
+			throw parser.error("Unexpected text after the value");
+		}
+		return value;
+	}
+
+	// Parses a document that must be a JSON object
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> parseObject(String text) {
+		Object value = parse(text);
+		if (!(value instanceof Map)) {
+			throw new IllegalArgumentException("Expected a JSON object");
+		}
+		return (Map<String, Object>) value;
+	}
+
+	public static String write(Object value) {
+		StringBuilder json = new StringBuilder();
+		write(value, json);
+		return json.toString();
+	}
+
+	private static void write(Object value, StringBuilder json) {
+		if (value == null) {
+			json.append("null");
+		} else if (value instanceof String string) {
+			quote(string, json);
+		} else if (value instanceof Boolean || value instanceof Long || value instanceof Integer) {
+			json.append(value);
+		} else if (value instanceof Number number) {
+			double d = number.doubleValue();
+			json.append(Double.isFinite(d) ? String.valueOf(d) : "null");
+		} else if (value instanceof Map<?, ?> map) {
+			json.append('{');
+			Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry<?, ?> entry = entries.next();
+				quote(String.valueOf(entry.getKey()), json);
+				json.append(':');
+				write(entry.getValue(), json);
+				if (entries.hasNext()) {
+					json.append(',');
+				}
+			}
+			json.append('}');
+		} else if (value instanceof Iterable<?> iterable) {
+			json.append('[');
+			boolean first = true;
+			for (Object element : iterable) {
+				if (!first) {
+					json.append(',');
+				}
+				write(element, json);
+				first = false;
+			}
+			json.append(']');
+		} else {
+			quote(value.toString(), json);
+		}
+	}
+
+	private static void quote(String text, StringBuilder json) {
+		json.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '"' -> json.append("\\\"");
+				case '\\' -> json.append("\\\\");
+				case '\n' -> json.append("\\n");
+				case '\r' -> json.append("\\r");
+				case '\t' -> json.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						json.append(String.format("\\u%04x", (int) c));
+					} else {
+						json.append(c);
+					}
+				}
+			}
+		}
+		json.append('"');
+	}
+
+	private Object readValue(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw error("Nesting deeper than " + MAX_DEPTH);
+		}
+		if (position >= text.length()) {
+			throw error("Unexpected end of input");
+		}
+		char c = text.charAt(position);
+		switch (c) {
+			case '{':
+				return readObject(depth);
+			case '[':
+				return readArray(depth);
+			case '"':
+				return readString();
+			case 't':
+				return readLiteral("true", Boolean.TRUE);
+			case 'f':
+				return readLiteral("false", Boolean.FALSE);
+			case 'n':
+				return readLiteral("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return readNumber();
+				}
+				throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> readObject(int depth) {
+		Map<String, Object> object = new LinkedHashMap<>();
+		position++; // {
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected a property name");
+			}
+			String name = readString();
+			skipWhitespace();
+			expect(':');
+			skipWhitespace();
+			object.put(name, readValue(depth + 1));
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect('}');
+				return object;
+			}
+		}
+	}
+
+	private List<Object> readArray(int depth) {
+		List<Object> array = new ArrayList<>();
+		position++; // [
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			skipWhitespace();
+			array.add(readValue(depth + 1));
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect(']');
+				return array;
+			}
+		}
+	}
+
+	private String readString() {
+		position++; // opening quote
+		StringBuilder string = new StringBuilder();
+		while (position < text.length()) {
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return string.toString();
+			}
+			if (c < 0x20) {
+				throw error("Control character in string");
+			}
+			if (c != '\\') {
+				string.append(c);
+				continue;
+			}
+			if (position >= text.length()) {
+				break;
+			}
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+				case '"', '\\', '/' -> string.append(escaped);
+				case 'b' -> string.append('\b');
+				case 'f' -> string.append('\f');
+				case 'n' -> string.append('\n');
+				case 'r' -> string.append('\r');
+				case 't' -> string.append('\t');
+				case 'u' -> {
+					if (position + 4 > text.length()) {
+						throw error("Truncated \\u escape");
+					}
+					try {
+						string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid \\u escape");
+					}
+					position += 4;
+				}
+				default -> throw error("Invalid escape \\" + escaped);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Expected " + literal);
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private Number readNumber() {
+		int start = position;
+		boolean integral = true;
+		if (peek() == '-') {
+			position++;
+		}
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c >= '0' && c <= '9') {
+				position++;
+			} else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+				integral = false;
+				position++;
+			} else {
+				break;
+			}
+		}
+		String number = text.substring(start, position);
+		try {
+			return integral ? (Number) Long.parseLong(number) : (Number) Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw error("Invalid number " + number);
+		}
+	}
+
+	private char peek() {
+		return position < text.length() ? text.charAt(position) : '\0';
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("Expected '" + c + "'");
+		}
+		position++;
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at offset " + position);
+	}
+}
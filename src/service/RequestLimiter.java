@@ -0,0 +1,72 @@
+package service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RequestLimiter class bounds how many requests the account service works on at once and
+ * how many may wait for a turn. Virtual threads make accepting requests almost free, so without
+ * a bound a burst would just turn into a long line at the connection pool, with every request
+ * timing out together. Here a request beyond the waiting line, or one that waited longer than
+ * the queue timeout, is turned away at once and the client is told to retry.
+ *
+ * Waiting requests are admitted in arrival order.
+ */
+public class RequestLimiter {
+
+	private final Semaphore permits;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final long queueTimeoutNanos;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder admitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	public RequestLimiter(int maxConcurrent, int maxQueued, long queueTimeoutMillis) {
+		if (maxConcurrent < 1 || maxQueued < 0 || queueTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Invalid limits: " + maxConcurrent + " concurrent, " + maxQueued
+					+ " queued, " + queueTimeoutMillis + " ms");
+		}
+		this.permits = new Semaphore(maxConcurrent, true);
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+	}
+
+	// Waits for a turn; false if the line is full or the wait timed out. Every true must be
+	// followed by exit().
+	public boolean tryEnter() throws InterruptedException {
+		if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) { // respects the order of waiting requests
+			admitted.increment();
+			return true;
+		}
+		if (queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			rejected.increment();
+			return false;
+		}
+		try {
+			if (permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				admitted.increment();
+				return true;
+			}
+			rejected.increment();
+			return false;
+		} finally {
+			queued.decrementAndGet();
+		}
+	}
+
+	public void exit() {
+		permits.release();
+	}
+
+	public int getMaxConcurrent() { return maxConcurrent; }
+	public int getMaxQueued() { return maxQueued; }
+	public int getQueued() { return queued.get(); }
+	public int getActive() { return maxConcurrent - permits.availablePermits(); }
+	public long getAdmitted() { return admitted.sum(); }
+	public long getRejected() { return rejected.sum(); }
+}
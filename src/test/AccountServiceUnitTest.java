@@ -0,0 +1,271 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import application.User;
+import databasePart1.AuditEvent;
+import databasePart1.DatabaseHelper;
+import service.AccountService;
+import service.Json;
+import service.RequestLimiter;
+
+public class AccountServiceUnitTest {
+	private static final String ADMIN = basic("admin1", "Password1!");
+	private DatabaseHelper databaseHelper;
+	private AccountService service;
+
+	@BeforeEach
+	void start() throws Exception {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:accountservicetest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		databaseHelper.register(new User("admin1", "Password1!", "admin", "admin1@asu.edu"));
+		databaseHelper.register(new User("student1", "Password1!", "student", "student1@asu.edu"));
+		service = new AccountService(databaseHelper, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		service.start();
+	}
+
+	@AfterEach
+	void stop() {
+		service.close();
+		databaseHelper.closeConnection();
+	}
+
+	private static String basic(String userName, String password) {
+		return "Basic " + Base64.getEncoder().encodeToString((userName + ":" + password).getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Status and parsed JSON body of one request
+	private static final class Reply {
+		final int status;
+		final Map<String, Object> body;
+
+		Reply(int status, Map<String, Object> body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	private Reply call(String method, String path, String authorization, String json) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + service.getPort() + path)
+				.toURL().openConnection();
+		connection.setRequestMethod(method);
+		if (authorization != null) {
+			connection.setRequestProperty("Authorization", authorization);
+		}
+		if (json != null) {
+			connection.setDoOutput(true);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(json.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		int status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			return new Reply(status, Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> list(Map<String, Object> body, String name) {
+		return (List<Object>) body.get(name);
+	}
+
+	// An admin invites, the invitee registers with the code and logs in
+	@Test
+	void testInviteRegisterAndLogin() throws IOException {
+		Reply invitation = call("POST", "/api/invitations", ADMIN, "{\"roles\": [\"student\", \"reviewer\"]}");
+		assertEquals(201, invitation.status);
+		String code = (String) list(invitation.body, "codes").get(0);
+
+		Reply invalid = call("POST", "/api/register", null,
+				"{\"userName\": \"x\", \"password\": \"short\", \"email\": \"nope\", \"code\": \"" + code + "\"}");
+		assertEquals(400, invalid.status);
+		assertEquals(3, list(invalid.body, "errors").size());
+
+		String signup = "{\"userName\": \"newuser\", \"password\": \"Password1!\", \"email\": \"new@asu.edu\", "
+				+ "\"code\": \"" + code + "\"}";
+		Reply registered = call("POST", "/api/register", null, signup);
+		assertEquals(201, registered.status);
+		assertEquals(List.of("student", "reviewer"), registered.body.get("roles"));
+		assertNull(registered.body.get("password"));
+		assertEquals(400, call("POST", "/api/register", null, signup.replace("newuser", "other")).status); // code used up
+		assertEquals(409, call("POST", "/api/register", null, signup).status);
+
+		Reply login = call("POST", "/api/login", null, "{\"userName\": \"newuser\", \"password\": \"Password1!\"}");
+		assertEquals(200, login.status);
+		assertEquals("new@asu.edu", login.body.get("email"));
+		assertEquals(Boolean.FALSE, login.body.get("passwordReset"));
+		assertEquals(401, call("POST", "/api/login", null, "{\"userName\": \"newuser\", \"password\": \"Wrong123!\"}").status);
+		assertEquals(400, call("POST", "/api/login", null, "{\"userName\": \"ab\", \"password\": \"Password1!\"}").status);
+	}
+
+	// Admin endpoints need an admin's credentials and keep admins from locking themselves out
+	@Test
+	void testUserAdministration() throws IOException {
+		assertEquals(401, call("GET", "/api/users", null, null).status);
+		assertEquals(401, call("GET", "/api/users", basic("admin1", "Wrong123!"), null).status);
+		assertEquals(403, call("GET", "/api/users", basic("student1", "Password1!"), null).status);
+
+		Reply page = call("GET", "/api/users?limit=1", ADMIN, null);
+		assertEquals(200, page.status);
+		assertEquals(1, list(page.body, "users").size());
+		Reply next = call("GET", "/api/users?limit=1&after=" + page.body.get("next"), ADMIN, null);
+		assertEquals("student1", ((Map<?, ?>) list(next.body, "users").get(0)).get("userName"));
+
+		Reply roles = call("POST", "/api/users/student1/roles", ADMIN, "{\"add\": [\"instructor\"], \"remove\": [\"student\"]}");
+		assertEquals(200, roles.status);
+		assertEquals(List.of("instructor"), roles.body.get("roles"));
+		assertEquals(409, call("POST", "/api/users/admin1/roles", ADMIN, "{\"remove\": [\"admin\"]}").status);
+		assertEquals(400, call("POST", "/api/users/student1/roles", ADMIN, "{\"add\": [\"wizard\"]}").status);
+
+		Reply reset = call("POST", "/api/users/student1/password-reset", ADMIN, null);
+		assertEquals(200, reset.status);
+		Reply login = call("POST", "/api/login", null,
+				"{\"userName\": \"student1\", \"password\": \"" + reset.body.get("oneTimePassword") + "\"}");
+		assertEquals(Boolean.TRUE, login.body.get("passwordReset"));
+
+		assertEquals(409, call("DELETE", "/api/users/admin1", ADMIN, null).status);
+		assertEquals(200, call("DELETE", "/api/users/student1", ADMIN, null).status);
+		assertEquals(404, call("DELETE", "/api/users/student1", ADMIN, null).status);
+	}
+
+	// A login token authorizes admin requests until logout or a change to the admin's account
+	@Test
+	void testSessionTokens() throws IOException, SQLException {
+		Reply login = call("POST", "/api/login", null, "{\"userName\": \"admin1\", \"password\": \"Password1!\"}");
+		String bearer = "Bearer " + login.body.get("token");
+		assertEquals(200, call("GET", "/api/users", bearer, null).status);
+		assertEquals(401, call("GET", "/api/users", "Bearer nonsense", null).status);
+
+		Reply student = call("POST", "/api/login", null, "{\"userName\": \"student1\", \"password\": \"Password1!\"}");
+		assertEquals(403, call("GET", "/api/users", "Bearer " + student.body.get("token"), null).status);
+
+		assertEquals(200, call("POST", "/api/logout", bearer, null).status);
+		assertEquals(401, call("GET", "/api/users", bearer, null).status);
+		assertEquals(401, call("POST", "/api/logout", bearer, null).status);
+
+		login = call("POST", "/api/login", null, "{\"userName\": \"admin1\", \"password\": \"Password1!\"}");
+		bearer = "Bearer " + login.body.get("token");
+		databaseHelper.updateRoles(List.of("admin1"), EnumSet.noneOf(Role.class), EnumSet.of(Role.ADMIN));
+		assertEquals(401, call("GET", "/api/users", bearer, null).status); // the session ended with the change
+	}
+
+	// Malformed requests get 4xx answers rather than failing the server
+	@Test
+	void testBadRequests() throws IOException {
+		assertEquals(400, call("POST", "/api/login", null, "{\"userName\": ").status);
+		assertEquals(400, call("POST", "/api/login", null, "[1, 2]").status);
+		assertEquals(400, call("POST", "/api/login", null, "{\"userName\": 42, \"password\": \"Password1!\"}").status);
+		assertEquals(405, call("GET", "/api/login", null, null).status);
+		assertEquals(404, call("GET", "/api/nothing", null, null).status);
+		assertEquals(413, call("POST", "/api/login", null, "{\"pad\": \"" + "x".repeat(70_000) + "\"}").status);
+		assertEquals(200, call("GET", "/api/health", null, null).status);
+	}
+
+	// JSON survives a round trip, including escapes and nesting
+	@Test
+	void testJsonRoundTrip() {
+		String json = "{\"s\":\"a\\\"b\\\\c\\n\\u00e9\",\"n\":-12,\"d\":1.5,\"b\":true,\"z\":null,\"a\":[1,[2],{}]}";
+		Object parsed = Json.parse(json);
+		assertEquals("a\"b\\c\né", ((Map<?, ?>) parsed).get("s"));
+		assertEquals(-12L, ((Map<?, ?>) parsed).get("n"));
+		assertEquals(json.replace("\\u00e9", "é"), Json.write(parsed));
+		assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": 1,}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parse("[".repeat(100) + "]".repeat(100)));
+	}
+
+	// Requests beyond the concurrency limit wait in line; beyond the line they are turned away
+	@Test
+	void testRequestLimiter() throws Exception {
+		RequestLimiter limiter = new RequestLimiter(1, 1, 200);
+		assertTrue(limiter.tryEnter());
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CountDownLatch waiting = new CountDownLatch(1);
+		Future<Boolean> queued = executor.submit(() -> {
+			waiting.countDown();
+			return limiter.tryEnter();
+		});
+		waiting.await();
+		while (limiter.getQueued() == 0) {
+			Thread.onSpinWait();
+		}
+		assertFalse(limiter.tryEnter()); // the line is full
+		limiter.exit();
+		assertTrue(queued.get()); // admitted once the first request finished
+		assertFalse(limiter.tryEnter()); // waited for the queue timeout
+		limiter.exit();
+		assertTrue(limiter.tryEnter());
+		limiter.exit();
+		executor.shutdown();
+		assertEquals(3, limiter.getAdmitted());
+		assertEquals(2, limiter.getRejected());
+	}
+
+	// A busy service answers 503 with Retry-After instead of queueing without bound
+	@Test
+	void testBusyServiceRejects() throws Exception {
+		service.close();
+		RequestLimiter limiter = new RequestLimiter(1, 0, 0);
+		service = new AccountService(databaseHelper, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), limiter);
+		service.start();
+		assertTrue(limiter.tryEnter()); // takes the only slot
+		try {
+			HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + service.getPort()
+					+ "/api/users").toURL().openConnection();
+			assertEquals(503, connection.getResponseCode());
+			assertEquals("1", connection.getHeaderField("Retry-After"));
+			connection.disconnect();
+		} finally {
+			limiter.exit();
+		}
+		assertEquals(401, call("GET", "/api/users", null, null).status);
+	}
+
+	// Concurrent logins on virtual threads all succeed
+	@Test
+	void testConcurrentLogins() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> statuses = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			statuses.add(executor.submit(() -> call("POST", "/api/login", null,
+					"{\"userName\": \"student1\", \"password\": \"Password1!\"}").status));
+		}
+		for (Future<Integer> status : statuses) {
+			assertEquals(200, status.get());
+		}
+		executor.shutdown();
+	}
+
+	// Admin changes made through the service are audited with the admin as actor
+	@Test
+	void testAuditOfAdminChanges() throws SQLException, IOException {
+		call("DELETE", "/api/users/student1", ADMIN, null);
+		databaseHelper.auditLog().flush();
+		assertTrue(databaseHelper.auditLog().queryEvents(new Timestamp(0), new Timestamp(Long.MAX_VALUE / 2),
+				AuditEvent.Type.USER_DELETED, null, 10).stream().anyMatch(event -> event.getSubject().equals("student1") && event.getActor().equals("admin1")));
+	}
+}
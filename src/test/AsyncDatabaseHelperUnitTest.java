@@ -0,0 +1,70 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.AsyncDatabaseHelper;
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseHelper;
+
+public class AsyncDatabaseHelperUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:asynctest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	// Calls run on virtual threads and complete with the same results as the blocking API
+	@Test
+	void testCallsRunOnVirtualThreads() throws Exception {
+		AsyncDatabaseHelper async = databaseHelper.async();
+		async.register(new User("alice", "Password1!", "student", "alice@asu.edu")).get(5, TimeUnit.SECONDS);
+
+		AuthenticationResult result = async.authenticate("alice", "Password1!").get(5, TimeUnit.SECONDS);
+		assertTrue(result.isSuccess());
+		assertTrue(async.submit(db -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS));
+		assertSame(async, databaseHelper.async());
+	}
+
+	// A failing call completes exceptionally with the SQLException as the cause
+	@Test
+	void testFailuresCompleteExceptionally() {
+		User duplicate = new User("bob", "Password1!", "student", "bob@asu.edu");
+		CompletableFuture<Void> first = databaseHelper.async().register(duplicate);
+		assertDoesNotThrow(() -> first.get(5, TimeUnit.SECONDS));
+
+		ExecutionException e = assertThrows(ExecutionException.class,
+				() -> databaseHelper.async().register(duplicate).get(5, TimeUnit.SECONDS));
+		assertInstanceOf(SQLException.class, e.getCause());
+	}
+
+	// Many calls in flight at once all complete; the pool limits how many hit the database
+	@Test
+	void testManyConcurrentCalls() throws Exception {
+		databaseHelper.register(new User("carol", "Password1!", "student", "carol@asu.edu"));
+		List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			calls.add(databaseHelper.async().doesUserExist("carol"));
+		}
+		CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+		for (CompletableFuture<Boolean> call : calls) {
+			assertTrue(call.get());
+		}
+	}
+}
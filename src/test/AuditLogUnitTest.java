@@ -0,0 +1,229 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.AuditEvent;
+import databasePart1.AuditLog;
+import databasePart1.DatabaseHelper;
+
+public class AuditLogUnitTest {
+	private static final Timestamp EPOCH = new Timestamp(0);
+	private static final Timestamp FAR_FUTURE = new Timestamp(Long.MAX_VALUE / 2);
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:auditlogtest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	private AuditLog newLog(int capacity, int batchSize, AuditLog.OverflowPolicy policy) {
+		return new AuditLog(databaseHelper.getConnectionPool(), capacity, batchSize, policy);
+	}
+
+	// Every subject of the stored events, oldest first
+	private List<String> storedSubjects(AuditLog log) throws SQLException {
+		List<String> subjects = new ArrayList<>();
+		for (AuditEvent event : log.queryEvents(EPOCH, FAR_FUTURE, null, null, 1000)) {
+			subjects.add(0, event.getSubject());
+		}
+		return subjects;
+	}
+
+	// Queued events are written in batches, and pages walk all of them newest first
+	@Test
+	void testBatchedWritesAndPaging() throws SQLException {
+		AuditLog log = newLog(2048, 500, AuditLog.OverflowPolicy.DROP_NEWEST);
+		for (int i = 0; i < 1200; i++) {
+			assertTrue(log.record(AuditEvent.Type.LOGIN_SUCCEEDED, "user" + i, "user" + i, null));
+		}
+		assertEquals(1200, log.getQueueSize());
+		assertEquals(0, log.queryEvents(EPOCH, FAR_FUTURE, null, null, 10).size()); // nothing written yet
+
+		assertEquals(1200, log.flush());
+		assertEquals(0, log.getQueueSize());
+		assertEquals(3, log.getStats().getBatches());
+
+		// many events share a millisecond, so the cursor has to fall back on the id
+		Set<Long> seen = new HashSet<>();
+		AuditEvent after = null;
+		long previousId = Long.MAX_VALUE;
+		List<AuditEvent> page;
+		while (!(page = log.queryEvents(EPOCH, FAR_FUTURE, null, after, 250)).isEmpty()) {
+			for (AuditEvent event : page) {
+				assertTrue(seen.add(event.getId()));
+				assertTrue(event.getId() < previousId || event.getOccurredAt() < after.getOccurredAt());
+				previousId = event.getId();
+			}
+			after = page.get(page.size() - 1);
+		}
+		assertEquals(1200, seen.size());
+		log.close();
+	}
+
+	// Range and type filters only return matching events
+	@Test
+	void testTimeRangeAndTypeFilter() throws SQLException {
+		AuditLog log = newLog(64, 16, AuditLog.OverflowPolicy.DROP_NEWEST);
+		long before = System.currentTimeMillis();
+		log.record(AuditEvent.Type.LOGIN_FAILED, null, "mallory", "invalid password");
+		log.record(AuditEvent.Type.USER_DELETED, "admin", "bob", null);
+		log.flush();
+		Timestamp from = new Timestamp(before);
+		Timestamp to = new Timestamp(System.currentTimeMillis() + 1);
+
+		List<AuditEvent> failed = log.queryEvents(from, to, AuditEvent.Type.LOGIN_FAILED, null, 10);
+		assertEquals(1, failed.size());
+		assertEquals("mallory", failed.get(0).getSubject());
+		assertNull(failed.get(0).getActor());
+		assertEquals("invalid password", failed.get(0).getDetail());
+		assertEquals(2, log.queryEvents(from, to, null, null, 10).size());
+		assertEquals(0, log.queryEvents(to, FAR_FUTURE, null, null, 10).size());
+		log.close();
+	}
+
+	// A full queue drops the new event, drops the oldest one, or makes the caller write
+	@Test
+	void testOverflowPolicies() throws SQLException {
+		AuditLog dropNewest = newLog(4, 2, AuditLog.OverflowPolicy.DROP_NEWEST);
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i < 4, dropNewest.record(AuditEvent.Type.USER_UPDATED, "admin", "n" + i, null));
+		}
+		assertEquals(2, dropNewest.getStats().getDropped());
+		dropNewest.flush();
+		assertEquals(List.of("n0", "n1", "n2", "n3"), storedSubjects(dropNewest));
+		databaseHelper.resetDatabase();
+
+		AuditLog dropOldest = newLog(4, 2, AuditLog.OverflowPolicy.DROP_OLDEST);
+		for (int i = 0; i < 6; i++) {
+			assertTrue(dropOldest.record(AuditEvent.Type.USER_UPDATED, "admin", "o" + i, null));
+		}
+		assertEquals(2, dropOldest.getStats().getDropped());
+		dropOldest.flush();
+		assertEquals(List.of("o2", "o3", "o4", "o5"), storedSubjects(dropOldest));
+		databaseHelper.resetDatabase();
+
+		AuditLog callerWrites = newLog(4, 2, AuditLog.OverflowPolicy.CALLER_WRITES);
+		for (int i = 0; i < 6; i++) {
+			assertTrue(callerWrites.record(AuditEvent.Type.USER_UPDATED, "admin", "c" + i, null));
+		}
+		assertEquals(0, callerWrites.getStats().getDropped());
+		assertTrue(callerWrites.getStats().getCallerWrites() > 0);
+		callerWrites.flush();
+		assertEquals(List.of("c0", "c1", "c2", "c3", "c4", "c5"), storedSubjects(callerWrites));
+	}
+
+	// Many threads record at once while the writer runs; close() writes what is left
+	@Test
+	void testConcurrentProducers() throws Exception {
+		AuditLog log = newLog(1024, 100, AuditLog.OverflowPolicy.CALLER_WRITES);
+		log.start(10);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 2_000; i++) {
+					log.record(AuditEvent.Type.LOGIN_SUCCEEDED, "t" + thread, "t" + thread + "-" + i, null);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		log.close();
+		assertEquals(16_000, log.getStats().getWritten());
+		assertEquals(0, log.getStats().getDropped());
+		assertFalse(log.record(AuditEvent.Type.LOGIN_SUCCEEDED, "late", "late", null));
+
+		Set<String> subjects = new HashSet<>();
+		AuditEvent after = null;
+		List<AuditEvent> page;
+		while (!(page = log.queryEvents(EPOCH, FAR_FUTURE, null, after, 5_000)).isEmpty()) {
+			for (AuditEvent event : page) {
+				subjects.add(event.getSubject());
+			}
+			after = page.get(page.size() - 1);
+		}
+		assertEquals(16_000, subjects.size());
+	}
+
+	// Logins and registrations are audited, and closing the connection writes them out
+	@Test
+	void testDatabaseHelperRecordsAuthenticationEvents() throws SQLException {
+		databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+		assertTrue(databaseHelper.authenticate("alice", "Password1!").isSuccess());
+		assertFalse(databaseHelper.authenticate("alice", "wrong").isSuccess());
+		assertFalse(databaseHelper.authenticate("nobody", "Password1!").isSuccess());
+		databaseHelper.closeConnection();
+
+		databaseHelper.connectToDatabase();
+		AuditLog log = databaseHelper.auditLog();
+		List<AuditEvent> succeeded = log.queryEvents(EPOCH, FAR_FUTURE, AuditEvent.Type.LOGIN_SUCCEEDED, null, 10);
+		assertEquals(1, succeeded.size());
+		assertEquals("alice", succeeded.get(0).getActor());
+		List<AuditEvent> failed = log.queryEvents(EPOCH, FAR_FUTURE, AuditEvent.Type.LOGIN_FAILED, null, 10);
+		assertEquals(2, failed.size());
+		assertEquals("nobody", failed.get(0).getSubject());
+		assertEquals("unknown user", failed.get(0).getDetail());
+	}
+
+	// Once the connection is closed, audit() is ignored instead of starting a writer on the closed pool
+	@Test
+	void testNoAuditLogAfterClose() throws SQLException {
+		databaseHelper.audit(AuditEvent.Type.LOGIN_FAILED, null, "nobody", null);
+		databaseHelper.closeConnection();
+		databaseHelper.audit(AuditEvent.Type.LOGIN_FAILED, null, "nobody", null);
+		assertThrows(IllegalStateException.class, () -> databaseHelper.auditLog());
+		assertFalse(Thread.getAllStackTraces().keySet().stream()
+				.anyMatch(thread -> thread.getName().equals("audit-writer") && thread.isAlive()));
+
+		databaseHelper.connectToDatabase();
+		assertEquals(1, databaseHelper.auditLog().queryEvents(EPOCH, FAR_FUTURE, null, null, 10).size());
+	}
+
+	// Events recorded while the log closes are written or counted, never left in the queue
+	@Test
+	void testRecordRacingClose() throws Exception {
+		AuditLog log = newLog(1 << 16, 100, AuditLog.OverflowPolicy.DROP_NEWEST);
+		log.start(1_000);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			producers.add(executor.submit(() -> {
+				for (int i = 0; i < 2_000; i++) {
+					log.record(AuditEvent.Type.LOGIN_SUCCEEDED, "alice", "alice", null);
+				}
+			}));
+		}
+		Thread.sleep(5);
+		log.close();
+		for (Future<?> producer : producers) {
+			producer.get();
+		}
+		executor.shutdown();
+		AuditLog.Stats stats = log.getStats();
+		assertEquals(0, log.getQueueSize());
+		assertEquals(8_000, stats.getRecorded() + stats.getDropped());
+		assertEquals(stats.getRecorded(), stats.getWritten() + stats.getLost());
+	}
+}
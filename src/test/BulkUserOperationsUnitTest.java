@@ -0,0 +1,77 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.*;
+
+import application.PasswordEvaluator;
+import application.Role;
+import application.User;
+import databasePart1.DatabaseHelper;
+
+public class BulkUserOperationsUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:bulkusertest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		for (int i = 0; i < 20; i++) {
+			databaseHelper.register(new User("user" + i, "Password1!", "student", "user" + i + "@asu.edu"));
+		}
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	// Only existing users are reported deleted, and they are gone from every lookup
+	@Test
+	void testDeleteUsers() throws SQLException {
+		assertTrue(databaseHelper.doesUserExist("user1")); // cached before the delete
+		List<String> deleted = databaseHelper.deleteUsers(List.of("user1", "user2", "nobody"));
+		assertEquals(2, deleted.size());
+		assertTrue(deleted.containsAll(List.of("user1", "user2")));
+		assertFalse(databaseHelper.doesUserExist("user1"));
+		assertTrue(databaseHelper.isUsernameAvailable("user2"));
+		assertTrue(databaseHelper.doesUserExist("user3"));
+		assertTrue(databaseHelper.deleteUsers(List.of()).isEmpty());
+	}
+
+	// Roles are added and removed without touching other roles
+	@Test
+	void testUpdateRoles() throws SQLException {
+		assertEquals(EnumSet.of(Role.STUDENT), databaseHelper.getUserRoles("user3"));
+		List<User> updated = databaseHelper.updateRoles(List.of("user3", "user4"),
+				EnumSet.of(Role.REVIEWER, Role.STAFF), EnumSet.noneOf(Role.class));
+		assertEquals(2, updated.size());
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER, Role.STAFF), updated.get(0).getRoles());
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER, Role.STAFF), databaseHelper.getUserRoles("user3"));
+
+		databaseHelper.updateRoles(List.of("user3"), EnumSet.noneOf(Role.class), EnumSet.of(Role.STUDENT, Role.STAFF));
+		assertEquals(EnumSet.of(Role.REVIEWER), databaseHelper.getUserRoles("user3"));
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER, Role.STAFF), databaseHelper.getUserRoles("user4"));
+	}
+
+	// Every found user gets its own valid one-time password and the reset flag
+	@Test
+	void testResetPasswords() throws SQLException {
+		List<String> userNames = new ArrayList<>(List.of("user5", "user6", "nobody"));
+		Map<String, String> reset = databaseHelper.resetPasswords(userNames);
+		assertEquals(2, reset.size());
+		assertNotEquals(reset.get("user5"), reset.get("user6"));
+		for (Map.Entry<String, String> entry : reset.entrySet()) {
+			assertEquals("", PasswordEvaluator.evaluatePassword(entry.getValue()));
+			assertTrue(databaseHelper.getPasswordResetFlag(entry.getKey()));
+			assertTrue(databaseHelper.authenticate(entry.getKey(), entry.getValue()).isSuccess());
+		}
+		assertFalse(databaseHelper.getPasswordResetFlag("user7"));
+	}
+}
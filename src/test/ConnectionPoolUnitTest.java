@@ -0,0 +1,156 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.*;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import application.User;
+
+public class ConnectionPoolUnitTest {
+	private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+	private ConnectionPool pool;
+
+	@AfterEach
+	void closePool() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	// Returned connections are reused instead of reopened
+	@Test
+	void testConnectionsAreReused() throws SQLException {
+		pool = new ConnectionPool(URL, "sa", "", 1, 4, 60_000, 1_000);
+		for (int i = 0; i < 10; i++) {
+			try (PooledConnection conn = pool.borrow()) {
+				assertNotNull(conn.getConnection());
+			}
+		}
+		assertEquals(1, pool.getConnectionsCreated());
+		assertEquals(10, pool.getBorrowCount());
+	}
+
+	// The pool never grows beyond its maximum and times out waiting borrowers
+	@Test
+	void testBorrowTimeoutAtMaxSize() throws SQLException {
+		pool = new ConnectionPool(URL, "sa", "", 0, 2, 60_000, 200);
+		try (PooledConnection a = pool.borrow(); PooledConnection b = pool.borrow()) {
+			assertNotSame(a.getConnection(), b.getConnection());
+			assertEquals(2, pool.getTotalConnections());
+			assertThrows(SQLException.class, () -> pool.borrow());
+			assertEquals(1, pool.getBorrowTimeouts());
+		}
+		assertEquals(2, pool.getIdleConnections());
+	}
+
+	// An idle connection that was closed behind the pool's back is replaced on borrow
+	@Test
+	void testValidationOnBorrow() throws SQLException {
+		pool = new ConnectionPool(URL, "sa", "", 1, 1, 60_000, 1_000);
+		Connection raw;
+		try (PooledConnection conn = pool.borrow()) {
+			raw = conn.getConnection();
+		}
+		raw.close();
+		try (PooledConnection conn = pool.borrow()) {
+			assertFalse(conn.getConnection().isClosed());
+		}
+		assertEquals(1, pool.getValidationFailures());
+		assertEquals(2, pool.getConnectionsCreated());
+	}
+
+	// Idle connections above the minimum size are evicted
+	@Test
+	void testIdleEviction() throws Exception {
+		pool = new ConnectionPool(URL, "sa", "", 1, 4, 50, 1_000);
+		List<PooledConnection> borrowed = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			borrowed.add(pool.borrow());
+		}
+		for (PooledConnection conn : borrowed) {
+			conn.close();
+		}
+		assertEquals(4, pool.getTotalConnections());
+
+		Thread.sleep(1500); // the evictor runs at least once a second
+		assertEquals(1, pool.getTotalConnections());
+		assertEquals(3, pool.getConnectionsEvicted());
+	}
+
+	// Throughput grows with the pool size when work holds a connection
+	@Test
+	void testThroughputScalesWithPoolSize() throws Exception {
+		double single = measureThroughput(1);
+		double four = measureThroughput(4);
+		assertTrue(four > single * 2, String.format(
+				"A larger pool should serve more concurrent work: %.1f ops/s with 1, %.1f ops/s with 4", single, four));
+	}
+
+	// DatabaseHelper methods can be called from many threads at once
+	@Test
+	void testConcurrentDatabaseHelperCalls() throws Exception {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:poolhelpertest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				String userName = "concurrent" + i;
+				results.add(executor.submit(() -> {
+					User user = new User(userName, "Password1!", "user", "user@asu.edu");
+					databaseHelper.register(user);
+					return databaseHelper.login(user) && databaseHelper.doesUserExist(userName);
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+			assertEquals(40, databaseHelper.getAllUsers().size());
+		} finally {
+			executor.shutdown();
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// Runs 32 tasks on 8 threads, each holding a connection for about 20 ms
+	private double measureThroughput(int poolSize) throws Exception {
+		ConnectionPool sized = new ConnectionPool(URL, "sa", "", poolSize, poolSize, 60_000, 10_000);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		int tasks = 32;
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			long start = System.nanoTime();
+			for (int i = 0; i < tasks; i++) {
+				futures.add(executor.submit(() -> {
+					try (PooledConnection conn = sized.borrow();
+							Statement statement = conn.createStatement();
+							ResultSet rs = statement.executeQuery("SELECT 1")) {
+						rs.next();
+						Thread.sleep(20);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			return tasks / seconds;
+		} finally {
+			executor.shutdown();
+			sized.close();
+		}
+	}
+}
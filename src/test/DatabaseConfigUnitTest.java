@@ -0,0 +1,122 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+
+public class DatabaseConfigUnitTest {
+
+	// Without any settings the helper keeps using the file in the home directory
+	@Test
+	void testDefaultsToFile() {
+		DatabaseConfig config = DatabaseConfig.load(new Properties(), Map.of());
+		assertEquals(DatabaseConfig.Profile.FILE, config.getProfile());
+		assertEquals("jdbc:h2:~/FoundationDatabase", config.getJdbcUrl());
+		assertEquals("sa", config.getUser());
+		assertEquals(DatabaseConfig.DEFAULT_POOL_MAX_SIZE, config.getPoolMaxSize());
+	}
+
+	// Properties pick the profile and tuning; environment variables override them
+	@Test
+	void testPropertiesAndEnvironment() {
+		Properties properties = new Properties();
+		properties.setProperty("db.profile", "file");
+		properties.setProperty("db.path", "./data/qa");
+		properties.setProperty("db.cacheSizeKb", "32768");
+		properties.setProperty("db.autoCompactFillRate", "80");
+		properties.setProperty("db.poolMaxSize", "4");
+		DatabaseConfig config = DatabaseConfig.load(properties, Map.of("DB_CACHE_SIZE_KB", "16384",
+				"DB_WRITE_DELAY_MILLIS", "200", "DB_POOL_MIN_SIZE", "1"));
+		assertEquals("jdbc:h2:./data/qa;CACHE_SIZE=16384;AUTO_COMPACT_FILL_RATE=80;WRITE_DELAY=200",
+				config.getJdbcUrl());
+		assertEquals(1, config.getPoolMinSize());
+		assertEquals(4, config.getPoolMaxSize());
+
+		assertEquals("DB_MAX_COMPACT_TIME_MILLIS", DatabaseConfig.environmentName("db.maxCompactTimeMillis"));
+		assertEquals(DatabaseConfig.Profile.SERVER,
+				DatabaseConfig.load(properties, Map.of("DB_PROFILE", "server")).getProfile());
+	}
+
+	// Bad settings are reported instead of silently falling back
+	@Test
+	void testInvalidSettings() {
+		Properties properties = new Properties();
+		properties.setProperty("db.profile", "cloud");
+		assertThrows(IllegalArgumentException.class, () -> DatabaseConfig.load(properties, Map.of()));
+		assertThrows(IllegalArgumentException.class,
+				() -> DatabaseConfig.load(new Properties(), Map.of("DB_PROFILE", "server", "DB_PORT", "many")));
+		assertThrows(IllegalArgumentException.class, () -> DatabaseConfig.memory().withPoolSize(5, 2));
+		assertThrows(IllegalArgumentException.class, () -> DatabaseConfig.file("x").withMvStore(101, -1, -1, false));
+		assertThrows(IllegalArgumentException.class, () -> DatabaseConfig.forUrl("jdbc:mysql://db/qa"));
+	}
+
+	// Each unnamed in-memory database is private, so helpers on them do not see each other's users
+	@Test
+	void testMemoryDatabasesAreIsolated() throws SQLException {
+		DatabaseHelper first = new DatabaseHelper(DatabaseConfig.memory().withCacheSizeKb(4096));
+		DatabaseHelper second = new DatabaseHelper(DatabaseConfig.memory());
+		try {
+			first.connectToDatabase();
+			second.connectToDatabase();
+			first.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+			assertTrue(first.doesUserExist("alice"));
+			assertFalse(second.doesUserExist("alice"));
+			assertNotEquals(first.getConfig().getJdbcUrl(), second.getConfig().getJdbcUrl());
+		} finally {
+			first.closeConnection();
+			second.closeConnection();
+		}
+	}
+
+	// The file profile applies its MVStore options when the database is created
+	@Test
+	void testFileProfile() throws Exception {
+		Path directory = Files.createTempDirectory("dbconfig");
+		DatabaseHelper databaseHelper = new DatabaseHelper(DatabaseConfig.file(directory.resolve("qa").toString())
+				.withMvStore(80, 200, 100, true));
+		try {
+			databaseHelper.connectToDatabase();
+			databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+			assertTrue(Files.exists(directory.resolve("qa.mv.db")));
+		} finally {
+			databaseHelper.closeConnection();
+			try (var files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	// The server profile talks to a database through an H2 TCP server. The server is started
+	// reflectively because the module only reads H2 through its JDBC driver.
+	@Test
+	void testServerProfile() throws Exception {
+		Class<?> serverClass = Class.forName("org.h2.tools.Server");
+		Object server = serverClass.getMethod("createTcpServer", String[].class)
+				.invoke(null, (Object) new String[] { "-tcpPort", "0", "-ifNotExists" });
+		serverClass.getMethod("start").invoke(server);
+		int port = (int) serverClass.getMethod("getPort").invoke(server);
+		DatabaseHelper databaseHelper = new DatabaseHelper(
+				DatabaseConfig.server("localhost", port, "mem:dbconfigserver"));
+		try {
+			databaseHelper.connectToDatabase();
+			databaseHelper.resetDatabase();
+			databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+			assertTrue(databaseHelper.login(new User("alice", "Password1!", "student", "alice@asu.edu")));
+		} finally {
+			databaseHelper.closeConnection();
+			serverClass.getMethod("stop").invoke(server);
+		}
+	}
+}
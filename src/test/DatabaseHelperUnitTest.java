@@ -4,19 +4,25 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.sql.Timestamp;
 import java.sql.SQLException;
+import java.util.List;
 import org.junit.jupiter.api.*;
 
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseConfig;
 import databasePart1.DatabaseHelper;
+import databasePart1.UserQuery;
+import application.Role;
 import application.User;
 
 public class DatabaseHelperUnitTest {
 	private DatabaseHelper databaseHelper;
 	
-	// Connect to database before tests
+	// Connect to a freshly reset in-memory database before tests
 	@BeforeEach
 	void connect() throws SQLException {
-		databaseHelper = new DatabaseHelper();
+		databaseHelper = new DatabaseHelper(DatabaseConfig.memory("databasehelpertest"));
 		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
 	}
 	
 
@@ -46,6 +52,27 @@ public class DatabaseHelperUnitTest {
         assertTrue(databaseHelper.login(user));
     }
     
+    // Test single-query authentication
+    @Test
+    void testAuthenticate() throws SQLException {
+        User user = new User("testUser", "password", "user", "email");
+        databaseHelper.register(user);
+        databaseHelper.setPasswordReset("testUser", true);
+
+        AuthenticationResult result = databaseHelper.authenticate("testUser", "password");
+        assertTrue(result.isSuccess());
+        assertEquals("user", result.getRole());
+        assertEquals("email", result.getEmail());
+        assertTrue(result.isPasswordReset());
+        assertEquals("testUser", result.toUser().getUserName());
+
+        assertEquals(AuthenticationResult.Status.INVALID_PASSWORD,
+                databaseHelper.authenticate("testUser", "wrong").getStatus());
+        assertEquals(AuthenticationResult.Status.UNKNOWN_USER,
+                databaseHelper.authenticate("nobody", "password").getStatus());
+        assertNull(databaseHelper.authenticate("nobody", "password").toUser());
+    }
+    
     // Test user existence method
     @Test
     void testDoesUserExist() throws SQLException {
@@ -100,6 +127,53 @@ public class DatabaseHelperUnitTest {
         assertTrue(databaseHelper.login(newUser));
     }
     
+    // Test keyset paging through users
+    @Test
+    void testGetUsersPage() throws SQLException {
+        for (String name : new String[] {"delta", "alpha", "echo", "charlie", "bravo"}) {
+            databaseHelper.register(new User(name, "password", "user", "email"));
+        }
+        List<User> first = databaseHelper.getUsersPage("", 2);
+        assertEquals("alpha", first.get(0).getUserName());
+        assertEquals("bravo", first.get(1).getUserName());
+
+        List<User> second = databaseHelper.getUsersPage("bravo", 2);
+        assertEquals("charlie", second.get(0).getUserName());
+        assertEquals("delta", second.get(1).getUserName());
+
+        List<User> last = databaseHelper.getUsersPage("delta", 2);
+        assertEquals(1, last.size());
+        assertEquals("echo", last.get(0).getUserName());
+    }
+    
+    // Test prefix search, role filter and sorted keyset paging
+    @Test
+    void testSearchUsers() throws SQLException {
+        databaseHelper.register(new User("anna", "password", "student", "zeta@asu.edu"));
+        databaseHelper.register(new User("andy", "password", "student,reviewer", "yank@asu.edu"));
+        databaseHelper.register(new User("bob", "password", "reviewer", "xray@asu.edu"));
+        databaseHelper.register(new User("an_x", "password", "instructor", "alpha@asu.edu"));
+
+        List<User> an = databaseHelper.searchUsers(new UserQuery().withUserNamePrefix("an"));
+        assertEquals(3, an.size());
+        assertEquals(1, databaseHelper.searchUsers(new UserQuery().withUserNamePrefix("an_")).size());
+        assertEquals("bob", databaseHelper.searchUsers(new UserQuery().withEmailPrefix("xr")).get(0).getUserName());
+
+        List<User> reviewers = databaseHelper.searchUsers(new UserQuery().withRole(Role.REVIEWER));
+        assertEquals(2, reviewers.size());
+        assertEquals("andy", reviewers.get(0).getUserName());
+        assertEquals(2, databaseHelper.countUsersWithRole(Role.REVIEWER));
+        assertEquals(0, databaseHelper.countUsersWithRole(Role.ADMIN));
+
+        UserQuery byEmailDesc = new UserQuery().sortedBy(UserQuery.SortColumn.EMAIL, true).withLimit(2);
+        List<User> first = databaseHelper.searchUsers(byEmailDesc);
+        assertEquals("anna", first.get(0).getUserName());
+        assertEquals("andy", first.get(1).getUserName());
+        List<User> second = databaseHelper.searchUsers(byEmailDesc.after(first.get(1)));
+        assertEquals("bob", second.get(0).getUserName());
+        assertEquals("an_x", second.get(1).getUserName());
+    }
+    
     // Test closing database connection.
     @Test
     void testCloseConnection() {
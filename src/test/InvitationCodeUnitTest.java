@@ -0,0 +1,193 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+import databasePart1.InvitationCodeGenerator;
+
+public class InvitationCodeUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:invitationcodetest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	private static Timestamp inOneHour() {
+		return new Timestamp(System.currentTimeMillis() + 3_600_000);
+	}
+
+	// Codes have the configured length and only use the alphabet
+	@Test
+	void testGeneratorUsesLengthAndAlphabet() {
+		InvitationCodeGenerator generator = new InvitationCodeGenerator(12, "XYZ");
+		for (int i = 0; i < 100; i++) {
+			String code = generator.next();
+			assertEquals(12, code.length());
+			assertTrue(code.matches("[XYZ]+"), code);
+		}
+		assertEquals(10, new InvitationCodeGenerator().next().length());
+	}
+
+	// Bad lengths and alphabets are rejected
+	@Test
+	void testGeneratorRejectsBadSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new InvitationCodeGenerator(0, "AB"));
+		assertThrows(IllegalArgumentException.class, () -> new InvitationCodeGenerator(33, "AB"));
+		assertThrows(IllegalArgumentException.class, () -> new InvitationCodeGenerator(8, "A"));
+		assertThrows(IllegalArgumentException.class, () -> new InvitationCodeGenerator(8, "ABA"));
+	}
+
+	// Generated codes are stored and never repeat
+	@Test
+	void testGeneratedCodesAreUnique() {
+		Set<String> codes = new HashSet<>();
+		for (int i = 0; i < 1_000; i++) {
+			assertTrue(codes.add(databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT), inOneHour())));
+		}
+	}
+
+	// A colliding code is replaced; when every code is taken generation fails instead of
+	// returning a code that was never stored
+	@Test
+	void testCollisionsAreRetried() {
+		databaseHelper.setInvitationCodeGenerator(new InvitationCodeGenerator(1, "AB"));
+		Set<String> codes = new HashSet<>();
+		// a call may draw the taken code on every attempt and give up, so keep going until both are stored
+		for (int i = 0; i < 50 && codes.size() < 2; i++) {
+			String code = databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT), inOneHour());
+			if (code != null) {
+				assertTrue(codes.add(code));
+			}
+		}
+		assertEquals(Set.of("A", "B"), codes);
+		assertNull(databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT), inOneHour()));
+	}
+
+	// Codes up to the maximum length fit in the widened column
+	@Test
+	void testLongCodesFit() {
+		databaseHelper.setInvitationCodeGenerator(new InvitationCodeGenerator(InvitationCodeGenerator.MAX_LENGTH,
+				InvitationCodeGenerator.DEFAULT_ALPHABET));
+		String code = databaseHelper.generateInvitationCode(EnumSet.of(Role.REVIEWER), inOneHour());
+		assertEquals(InvitationCodeGenerator.MAX_LENGTH, code.length());
+		assertEquals(EnumSet.of(Role.REVIEWER), databaseHelper.redeemInvitationCode(code));
+	}
+
+	// Redeeming returns the roles once, then nothing
+	@Test
+	void testRedeemReturnsRolesOnce() {
+		String code = databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT, Role.STAFF), inOneHour());
+		assertEquals(EnumSet.of(Role.STUDENT, Role.STAFF), databaseHelper.redeemInvitationCode(code));
+		assertNull(databaseHelper.redeemInvitationCode(code));
+		assertNull(databaseHelper.redeemInvitationCode("NOSUCHCODE"));
+	}
+
+	// A batch stores every requested code with the same roles and expiry
+	@Test
+	void testBatchGeneration() throws SQLException {
+		List<String> codes = databaseHelper.generateInvitationCodes(2_500, EnumSet.of(Role.STUDENT), inOneHour());
+		assertEquals(2_500, codes.size());
+		assertEquals(2_500, new HashSet<>(codes).size());
+		assertEquals(EnumSet.of(Role.STUDENT), databaseHelper.redeemInvitationCode(codes.get(0)));
+		assertEquals(EnumSet.of(Role.STUDENT), databaseHelper.redeemInvitationCode(codes.get(2_499)));
+		assertThrows(IllegalArgumentException.class,
+				() -> databaseHelper.generateInvitationCodes(0, EnumSet.of(Role.STUDENT), inOneHour()));
+	}
+
+	// Collisions inside a batch are replaced; if too few codes are left the batch stores nothing
+	@Test
+	void testBatchCollisionsAreRetried() throws SQLException {
+		databaseHelper.setInvitationCodeGenerator(new InvitationCodeGenerator(2, "ABCD"));
+		List<String> codes = databaseHelper.generateInvitationCodes(8, EnumSet.of(Role.STUDENT), inOneHour());
+		assertEquals(8, new HashSet<>(codes).size());
+
+		assertThrows(SQLException.class,
+				() -> databaseHelper.generateInvitationCodes(20, EnumSet.of(Role.STUDENT), inOneHour()));
+		assertNotNull(databaseHelper.redeemInvitationCode(codes.get(0)));
+		databaseHelper.setInvitationCodeGenerator(new InvitationCodeGenerator());
+		assertEquals(1, databaseHelper.generateInvitationCodes(1, EnumSet.of(Role.STUDENT), inOneHour()).size());
+	}
+
+	// The CSV has a header and one line per code
+	@Test
+	void testBatchCsv() throws Exception {
+		Path file = Files.createTempFile("invitation-codes", ".csv");
+		try {
+			int written = databaseHelper.generateInvitationCodes(100, EnumSet.of(Role.STUDENT, Role.REVIEWER),
+					inOneHour(), file);
+			List<String> lines = Files.readAllLines(file);
+			assertEquals(100, written);
+			assertEquals(101, lines.size());
+			assertEquals("code,roles,expiresAt", lines.get(0));
+			String code = lines.get(1).substring(0, lines.get(1).indexOf(','));
+			assertTrue(lines.get(1).contains(",\"student,reviewer\","));
+			assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), databaseHelper.redeemInvitationCode(code));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	// Many threads racing to redeem the same codes: each code is redeemed exactly once
+	@Test
+	void testConcurrentRedemptionIsAtMostOnce() throws Exception {
+		int codeCount = 200;
+		int threads = 16;
+		List<String> codes = new ArrayList<>();
+		for (int i = 0; i < codeCount; i++) {
+			codes.add(databaseHelper.generateInvitationCode(EnumSet.of(Role.STUDENT), inOneHour()));
+		}
+
+		AtomicIntegerArray redemptions = new AtomicIntegerArray(codeCount);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < codeCount; i++) {
+						if (databaseHelper.redeemInvitationCode(codes.get(i)) != null) {
+							redemptions.incrementAndGet(i);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < codeCount; i++) {
+			assertEquals(1, redemptions.get(i), "code " + codes.get(i));
+		}
+	}
+}
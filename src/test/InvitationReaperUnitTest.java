@@ -0,0 +1,96 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+import databasePart1.InvitationReaper;
+
+public class InvitationReaperUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:invitationreapertest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	private static Timestamp hoursFromNow(int hours) {
+		return new Timestamp(System.currentTimeMillis() + hours * 3_600_000L);
+	}
+
+	// Used codes and codes expired past the retention are deleted; live codes are kept
+	@Test
+	void testReapsUsedAndExpiredCodes() throws SQLException {
+		List<String> live = databaseHelper.generateInvitationCodes(10, EnumSet.of(Role.STUDENT), hoursFromNow(1));
+		databaseHelper.generateInvitationCodes(5, EnumSet.of(Role.STUDENT), hoursFromNow(-48));
+		List<String> recentlyExpired = databaseHelper.generateInvitationCodes(3, EnumSet.of(Role.STUDENT), hoursFromNow(-1));
+		databaseHelper.redeemInvitationCode(live.get(0));
+		databaseHelper.redeemInvitationCode(live.get(1));
+
+		InvitationReaper reaper = databaseHelper.invitationReaper();
+		assertEquals(7, reaper.reapOnce());
+
+		InvitationReaper.Stats stats = reaper.getStats();
+		assertEquals(2, stats.getUsedReaped());
+		assertEquals(5, stats.getExpiredReaped());
+		assertEquals(11, stats.getRemainingRows());
+		assertEquals(0, reaper.reapOnce());
+		assertEquals(2, stats.getRuns());
+
+		assertNotNull(databaseHelper.redeemInvitationCode(live.get(2)));
+		assertNull(databaseHelper.redeemInvitationCode(recentlyExpired.get(0)));
+	}
+
+	// A run deletes at most its number of batches and leaves the rest for the next run
+	@Test
+	void testRunsAreBounded() throws SQLException {
+		databaseHelper.generateInvitationCodes(250, EnumSet.of(Role.STUDENT), hoursFromNow(-48));
+		InvitationReaper reaper = new InvitationReaper(databaseHelper.getConnectionPool(), 50, 2, 0);
+		assertEquals(100, reaper.reapOnce());
+		assertEquals(150, reaper.getStats().getRemainingRows());
+		assertEquals(100, reaper.reapOnce());
+		assertEquals(50, reaper.reapOnce());
+		assertEquals(0, reaper.getStats().getRemainingRows());
+	}
+
+	// The scheduled reaper runs in the background and stops when closed
+	@Test
+	void testScheduledRuns() throws Exception {
+		databaseHelper.generateInvitationCodes(20, EnumSet.of(Role.STUDENT), hoursFromNow(-48));
+		InvitationReaper reaper = new InvitationReaper(databaseHelper.getConnectionPool(), 10, 10, 0);
+		reaper.start(20);
+		try {
+			long deadline = System.currentTimeMillis() + 5_000;
+			while (reaper.getStats().getTotalReaped() < 20 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} finally {
+			reaper.close();
+		}
+		assertEquals(20, reaper.getStats().getTotalReaped());
+		assertEquals(0, reaper.getStats().getFailedRuns());
+	}
+
+	// The reaper keeps working after the helper reconnects to a new pool
+	@Test
+	void testReapsAfterReconnect() throws SQLException {
+		InvitationReaper reaper = databaseHelper.invitationReaper();
+		databaseHelper.connectToDatabase();
+		databaseHelper.generateInvitationCodes(5, EnumSet.of(Role.STUDENT), hoursFromNow(-48));
+		assertEquals(5, reaper.reapOnce());
+		assertSame(reaper, databaseHelper.invitationReaper());
+	}
+}
@@ -0,0 +1,146 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.OperationMetrics;
+
+public class OperationMetricsUnitTest {
+
+	private static OperationMetrics.Snapshot find(List<OperationMetrics.Snapshot> snapshots, String name) {
+		for (OperationMetrics.Snapshot snapshot : snapshots) {
+			if (snapshot.getName().equals(name)) {
+				return snapshot;
+			}
+		}
+		return null;
+	}
+
+	private static void assertWithin(long expected, long actual, double relativeError) {
+		assertTrue(Math.abs(actual - expected) <= expected * relativeError,
+				"expected about " + expected + " but was " + actual);
+	}
+
+	// Percentiles of a known distribution come out within the histogram's resolution
+	@Test
+	void testPercentiles() {
+		OperationMetrics metrics = new OperationMetrics();
+		OperationMetrics.Operation operation = metrics.operation("uniform");
+		for (long micros = 1; micros <= 10_000; micros++) {
+			operation.record(micros * 1_000);
+		}
+		OperationMetrics.Snapshot snapshot = find(metrics.snapshot(), "uniform");
+		assertEquals(10_000, snapshot.getCalls());
+		assertEquals(0, snapshot.getErrors());
+		assertWithin(5_000_000, snapshot.getP50Nanos(), 0.0625);
+		assertWithin(9_500_000, snapshot.getP95Nanos(), 0.0625);
+		assertWithin(9_900_000, snapshot.getP99Nanos(), 0.0625);
+		assertEquals(10_000_000, snapshot.getMaxNanos());
+		assertEquals(5_000_500, snapshot.getMeanNanos());
+	}
+
+	// Tiny and huge latencies land in the first and last buckets without failing
+	@Test
+	void testExtremeLatencies() {
+		OperationMetrics metrics = new OperationMetrics();
+		OperationMetrics.Operation operation = metrics.operation("extreme");
+		operation.record(0);
+		operation.record(7);
+		operation.record(Long.MAX_VALUE / 4);
+		OperationMetrics.Snapshot snapshot = find(metrics.snapshot(), "extreme");
+		assertEquals(7, snapshot.getP50Nanos());
+		assertEquals(Long.MAX_VALUE / 4, snapshot.getP99Nanos()); // capped at the max seen
+	}
+
+	// Concurrent recording loses no calls
+	@Test
+	void testConcurrentRecording() throws Exception {
+		OperationMetrics metrics = new OperationMetrics();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 50_000; i++) {
+					long start = System.nanoTime();
+					metrics.record(i % 2 == 0 ? "even" : "odd", start);
+					if (i % 10 == 0) {
+						metrics.recordError("even");
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+		assertEquals(List.of("even", "odd"), snapshots.stream().map(OperationMetrics.Snapshot::getName).toList());
+		assertEquals(200_000, find(snapshots, "even").getCalls());
+		assertEquals(40_000, find(snapshots, "even").getErrors());
+		assertEquals(200_000, find(snapshots, "odd").getCalls());
+
+		metrics.reset();
+		assertTrue(metrics.snapshot().isEmpty());
+	}
+
+	// DatabaseHelper counts its calls, including failures it only logs
+	@Test
+	void testDatabaseHelperIsInstrumented() throws SQLException {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:operationmetricstest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		OperationMetrics metrics = databaseHelper.getOperationMetrics();
+		metrics.reset();
+
+		databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+		for (int i = 0; i < 5; i++) {
+			databaseHelper.authenticate("alice", "Password1!");
+		}
+		assertThrows(SQLException.class, () -> databaseHelper.register(
+				new User("alice", "Password1!", "student", "alice@asu.edu")));
+		databaseHelper.closeConnection();
+		assertFalse(databaseHelper.setPasswordReset("alice", true)); // the pool is closed
+
+		List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+		assertEquals(5, find(snapshots, "authenticate").getCalls());
+		assertEquals(2, find(snapshots, "register").getCalls());
+		assertEquals(1, find(snapshots, "register").getErrors());
+		assertEquals(1, find(snapshots, "setPasswordReset").getErrors());
+		assertTrue(find(snapshots, "authenticate").getMaxNanos() > 0);
+	}
+
+	// An operation that is implemented with another one is counted once, under its own name
+	@Test
+	void testDelegatingOperationsCountOnce() throws SQLException {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:operationmetricsdelegatetest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+		OperationMetrics metrics = databaseHelper.getOperationMetrics();
+		metrics.reset();
+
+		databaseHelper.generateInvitationCode("student", new Timestamp(System.currentTimeMillis() + 60_000));
+		assertTrue(databaseHelper.isUsernameAvailable("bob"));
+		assertEquals("student", databaseHelper.getUserRole("alice"));
+		databaseHelper.authenticateSession("alice", "Password1!");
+		databaseHelper.rebuildUsernameFilter();
+		databaseHelper.closeConnection();
+
+		List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+		assertEquals(List.of("authenticateSession", "generateInvitationCode", "getUserRole", "isUsernameAvailable",
+				"rebuildUsernameFilter"), snapshots.stream().map(OperationMetrics.Snapshot::getName).sorted().toList());
+		for (OperationMetrics.Snapshot snapshot : snapshots) {
+			assertEquals(1, snapshot.getCalls(), snapshot.getName());
+		}
+	}
+}
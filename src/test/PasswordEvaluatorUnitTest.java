@@ -1,6 +1,11 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -207,4 +212,41 @@ class PasswordEvaluatorTest {
         assertTrue(PasswordEvaluator.foundLongEnough, 
                    "Should be long enough");
     }
+
+    /**
+     * Tests that validatePassword gives the same results as evaluatePassword when many
+     * threads call it at once, and leaves the result attributes alone.
+     */
+    @Test
+    void testValidatePasswordOnManyThreads() throws Exception {
+        String[] inputs = { "Ab1~Cd2#", "Pass=word123", "abc1~abc1", "Ab1~Ab1", "A1b2C3d4~!@#", "" };
+        String[] expected = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = PasswordEvaluator.evaluatePassword(inputs[i]);
+        }
+        PasswordEvaluator.passwordIndexofError = 99;
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(threads.submit(() -> {
+                    for (int n = 0; n < 2_000; n++) {
+                        int i = n % inputs.length;
+                        if (!expected[i].equals(PasswordEvaluator.validatePassword(inputs[i]))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(), "Concurrent runs should not disturb each other.");
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(99, PasswordEvaluator.passwordIndexofError,
+                     "validatePassword should not set the result attributes.");
+    }
 }
@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.*;
+
+import application.PasswordEvaluator;
+import databasePart1.PasswordGenerator;
+
+public class PasswordGeneratorUnitTest {
+
+	// Every generated password passes PasswordEvaluator
+	@Test
+	void testPasswordsPassEvaluator() {
+		PasswordGenerator generator = new PasswordGenerator(new PasswordGenerator.Policy(8, 1, 1, 1, 1,
+				PasswordGenerator.EVALUATOR_SPECIAL_CHARACTERS));
+		for (int i = 0; i < 100; i++) {
+			String password = generator.next();
+			assertEquals(8, password.length());
+			assertEquals("", PasswordEvaluator.evaluatePassword(password), password);
+		}
+	}
+
+	// Minimum counts of each kind are met
+	@Test
+	void testPolicyMinimums() {
+		PasswordGenerator generator = new PasswordGenerator(new PasswordGenerator.Policy(16, 2, 3, 4, 5, "#"));
+		for (String password : generator.next(500)) {
+			assertEquals(16, password.length());
+			assertTrue(password.chars().filter(Character::isUpperCase).count() >= 2, password);
+			assertTrue(password.chars().filter(Character::isLowerCase).count() >= 3, password);
+			assertTrue(password.chars().filter(Character::isDigit).count() >= 4, password);
+			assertTrue(password.chars().filter(c -> c == '#').count() >= 5, password);
+		}
+	}
+
+	// Required characters land in random positions, and bulk passwords do not repeat
+	@Test
+	void testPositionsAreShuffled() {
+		PasswordGenerator generator = new PasswordGenerator(new PasswordGenerator.Policy(12, 1, 1, 1, 1, "!"));
+		List<String> passwords = generator.next(2_000);
+		Set<Integer> specialPositions = new HashSet<>();
+		for (String password : passwords) {
+			specialPositions.add(password.indexOf('!'));
+		}
+		assertEquals(12, specialPositions.size());
+		assertEquals(2_000, new HashSet<>(passwords).size());
+	}
+
+	// Policies PasswordEvaluator would reject are refused
+	@Test
+	void testInvalidPolicies() {
+		assertThrows(IllegalArgumentException.class, () -> new PasswordGenerator.Policy(7, 1, 1, 1, 1, "!"));
+		assertThrows(IllegalArgumentException.class, () -> new PasswordGenerator.Policy(8, 0, 1, 1, 1, "!"));
+		assertThrows(IllegalArgumentException.class, () -> new PasswordGenerator.Policy(8, 3, 3, 3, 1, "!"));
+		assertThrows(IllegalArgumentException.class, () -> new PasswordGenerator.Policy(8, 1, 1, 1, 1, "!="));
+	}
+}
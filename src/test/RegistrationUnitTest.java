@@ -0,0 +1,110 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+import databasePart1.RegistrationResult;
+
+public class RegistrationUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:registrationtest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	private String newCode(Role... roles) throws SQLException {
+		return databaseHelper.generateInvitationCodes(1, EnumSet.of(roles[0], roles),
+				new Timestamp(System.currentTimeMillis() + 3_600_000)).get(0);
+	}
+
+	// A valid code registers the user with the code's roles and is used up
+	@Test
+	void testRegistersWithInvitationRoles() throws SQLException {
+		String code = newCode(Role.STUDENT, Role.REVIEWER);
+		RegistrationResult result = databaseHelper.registerWithInvite("alice", "Password1!", "alice@asu.edu", code);
+		assertTrue(result.isRegistered());
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), result.getUser().getRoles());
+		result.getUser().setSessionToken("token");
+		assertNull(result.getUser().getSessionToken()); // the result hands out copies
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), databaseHelper.getUserRoles("alice"));
+		assertFalse(databaseHelper.isUsernameAvailable("alice"));
+		assertNull(databaseHelper.redeemInvitationCode(code));
+	}
+
+	// A taken userName fails without burning the invitation code
+	@Test
+	void testUsernameTakenKeepsCode() throws SQLException {
+		databaseHelper.registerWithInvite("alice", "Password1!", "alice@asu.edu", newCode(Role.STUDENT));
+		String code = newCode(Role.STUDENT);
+		RegistrationResult result = databaseHelper.registerWithInvite("alice", "Password2!", "other@asu.edu", code);
+		assertEquals(RegistrationResult.Status.USERNAME_TAKEN, result.getStatus());
+		assertNull(result.getUser());
+		assertTrue(databaseHelper.registerWithInvite("bob", "Password1!", "bob@asu.edu", code).isRegistered());
+	}
+
+	// An unknown or used code creates no user
+	@Test
+	void testInvalidInvitation() throws SQLException {
+		assertEquals(RegistrationResult.Status.INVALID_INVITATION,
+				databaseHelper.registerWithInvite("alice", "Password1!", "alice@asu.edu", "NOSUCHCODE").getStatus());
+		assertTrue(databaseHelper.isUsernameAvailable("alice"));
+	}
+
+	// Threads racing for one userName with their own codes: one wins, every loser keeps its code
+	@Test
+	void testConcurrentSignupsForOneName() throws Exception {
+		int threads = 16;
+		List<String> codes = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			codes.add(newCode(Role.STUDENT));
+		}
+
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<RegistrationResult>> results = new ArrayList<>();
+		try {
+			for (String code : codes) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return databaseHelper.registerWithInvite("popular", "Password1!", "p@asu.edu", code);
+				}));
+			}
+			start.countDown();
+
+			int registered = 0;
+			for (int i = 0; i < threads; i++) {
+				RegistrationResult result = results.get(i).get();
+				if (result.isRegistered()) {
+					registered++;
+					assertNull(databaseHelper.redeemInvitationCode(codes.get(i)));
+				} else {
+					assertEquals(RegistrationResult.Status.USERNAME_TAKEN, result.getStatus());
+					assertNotNull(databaseHelper.redeemInvitationCode(codes.get(i)));
+				}
+			}
+			assertEquals(1, registered);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import application.User;
+
+public class RoleUnitTest {
+
+	// Role names are parsed leniently and formatted in a fixed order
+	@Test
+	void testParseAndFormat() {
+		int mask = Role.parseMask(" Reviewer, student ,unknown");
+		assertEquals(Role.STUDENT.bit() | Role.REVIEWER.bit(), mask);
+		assertEquals("student,reviewer", Role.format(mask));
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), Role.fromMask(mask));
+		assertEquals(0, Role.parseMask(null));
+		assertEquals("", Role.format(0));
+	}
+
+	// Every mask containing a role has its bit set, and no other mask is listed
+	@Test
+	void testMasksContaining() {
+		int[] masks = Role.REVIEWER.masksContaining();
+		assertEquals(1 << (Role.values().length - 1), masks.length);
+		for (int mask : masks) {
+			assertTrue(Role.REVIEWER.isIn(mask));
+		}
+	}
+
+	// User keeps its roles as a mask but still offers the comma-separated view
+	@Test
+	void testUserRoles() {
+		User user = new User("alice", "Password1!", "admin,student", "alice@asu.edu");
+		assertTrue(user.hasRole(Role.ADMIN));
+		assertFalse(user.hasRole(Role.STAFF));
+		assertEquals("admin,student", user.getRole());
+
+		user.setRoles(EnumSet.of(Role.STAFF));
+		assertEquals(Role.STAFF.bit(), user.getRoleMask());
+		assertEquals("staff", user.getRole());
+	}
+}
@@ -0,0 +1,115 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.Role;
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+
+public class SchemaMigratorUnitTest {
+
+	@TempDir
+	Path tempDir;
+
+	private String fileUrl() {
+		return "jdbc:h2:" + tempDir.resolve("startup").toAbsolutePath();
+	}
+
+	// A new database gets every migration, an up-to-date one gets none
+	@Test
+	void testOnlyMissingMigrationsAreApplied() throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator();
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:migratortest", "sa", "")) {
+			assertEquals(migrator.getLatestVersion(), migrator.migrate(connection));
+			assertEquals(migrator.getLatestVersion(), migrator.getVersion(connection));
+			assertEquals(0, migrator.migrate(connection));
+
+			// Forget the last migration and only that one is re-applied
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("DELETE FROM schema_version WHERE version = " + migrator.getLatestVersion());
+			}
+			assertEquals(1, migrator.migrate(connection));
+		}
+	}
+
+	// Upgrading a database that still stores roles as text converts them to role masks
+	@Test
+	void testRoleTextIsConvertedToMask() throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator();
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:roleupgrade", "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE schema_version (version INT PRIMARY KEY, description VARCHAR(255), appliedAt TIMESTAMP)");
+			statement.execute("INSERT INTO schema_version VALUES (1, 'v1', NOW()), (2, 'v2', NOW()), (3, 'v3', NOW())");
+			statement.execute("CREATE TABLE cse360users (id INT AUTO_INCREMENT PRIMARY KEY, userName VARCHAR(255) UNIQUE, "
+					+ "password VARCHAR(255), email VARCHAR(255), role VARCHAR(255), passwordReset BOOLEAN DEFAULT FALSE)");
+			statement.execute("CREATE TABLE InvitationCodes (code VARCHAR(10) PRIMARY KEY, role VARCHAR(255), "
+					+ "expiresAt DateTime, isUsed BOOLEAN DEFAULT FALSE)");
+			statement.execute("INSERT INTO cse360users (userName, role) VALUES ('a', 'admin'), ('b', 'student, Reviewer'), ('c', 'oldRole')");
+			statement.execute("INSERT INTO InvitationCodes (code, role) VALUES ('abcd', 'staff,instructor')");
+
+			migrator.migrate(connection);
+
+			try (ResultSet rs = statement.executeQuery("SELECT roleMask FROM cse360users ORDER BY userName")) {
+				rs.next();
+				assertEquals(Role.ADMIN.bit(), rs.getInt(1));
+				rs.next();
+				assertEquals(Role.STUDENT.bit() | Role.REVIEWER.bit(), rs.getInt(1));
+				rs.next();
+				assertEquals(0, rs.getInt(1)); // unknown roles are dropped
+			}
+			try (ResultSet rs = statement.executeQuery("SELECT roleMask FROM InvitationCodes")) {
+				rs.next();
+				assertEquals(Role.STAFF.bit() | Role.INSTRUCTOR.bit(), rs.getInt(1));
+			}
+		}
+	}
+
+	// Data survives a restart; only resetDatabase() clears it
+	@Test
+	void testDataPersistsAcrossRestarts() throws SQLException {
+		DatabaseHelper first = new DatabaseHelper(fileUrl());
+		first.connectToDatabase();
+		first.initializeTestUsers();
+		first.closeConnection();
+
+		DatabaseHelper second = new DatabaseHelper(fileUrl());
+		second.connectToDatabase();
+		try {
+			assertTrue(second.doesUserExist("admin"));
+			second.resetDatabase();
+			assertTrue(second.isDatabaseEmpty());
+		} finally {
+			second.closeConnection();
+		}
+	}
+
+	// A warm start applies no migrations and skips seeding
+	@Test
+	void testWarmStartDoesNoWork() throws SQLException {
+		DatabaseHelper cold = new DatabaseHelper(fileUrl());
+		cold.connectToDatabase();
+		int seeded = cold.initializeTestUsers();
+		assertEquals(new SchemaMigrator().getLatestVersion(), cold.getMigrationsApplied());
+		assertTrue(seeded > 0);
+		cold.closeConnection();
+
+		DatabaseHelper warm = new DatabaseHelper(fileUrl());
+		warm.connectToDatabase();
+		try {
+			assertEquals(0, warm.getMigrationsApplied());
+			assertEquals(0, warm.initializeTestUsers());
+			assertEquals(seeded, warm.getAllUsers().size());
+		} finally {
+			warm.closeConnection();
+		}
+	}
+}
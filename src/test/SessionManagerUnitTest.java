@@ -0,0 +1,204 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.*;
+
+import application.Role;
+import application.User;
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+import databasePart1.OperationMetrics;
+import databasePart1.SessionManager;
+
+public class SessionManagerUnitTest {
+	private static final String URL = "jdbc:h2:mem:sessionmanagertest;DB_CLOSE_DELAY=-1";
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper(DatabaseConfig.forUrl(URL).withPersistentSessions(true));
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+		databaseHelper.register(new User("bob", "Password1!", "admin", "bob@asu.edu"));
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	private SessionManager.Session login(String userName) throws SQLException {
+		AuthenticationResult result = databaseHelper.authenticateSession(userName, "Password1!");
+		return databaseHelper.sessions().get(result.getSessionToken());
+	}
+
+	private long databaseCalls() {
+		long calls = 0;
+		for (OperationMetrics.Snapshot snapshot : databaseHelper.getOperationMetrics().snapshot()) {
+			calls += snapshot.getCalls();
+		}
+		return calls;
+	}
+
+	// Looking a session up returns what was read at login without another database call
+	@Test
+	void testLookupSkipsTheDatabase() throws SQLException {
+		String token = login("alice").getToken();
+		long calls = databaseCalls();
+		for (int i = 0; i < 100; i++) {
+			SessionManager.Session session = databaseHelper.sessions().get(token);
+			assertEquals("alice", session.getUserName());
+			assertEquals("alice@asu.edu", session.getEmail());
+			assertEquals(EnumSet.of(Role.STUDENT), session.getRoles());
+		}
+		assertEquals(calls, databaseCalls());
+
+		User user = databaseHelper.sessions().get(token).toUser();
+		assertEquals(token, user.getSessionToken());
+		assertNull(user.getPassword());
+		assertNull(databaseHelper.sessions().get("no-such-token"));
+		assertNull(databaseHelper.sessions().get(null));
+	}
+
+	// Sessions end after the idle timeout, and after the absolute timeout however busy
+	@Test
+	void testIdleAndAbsoluteExpiry() {
+		AtomicLong now = new AtomicLong(1_000_000);
+		SessionManager sessions = new SessionManager(null, 100, 1_000, 0, now::get);
+		User alice = new User("alice", "Password1!", "student", "alice@asu.edu");
+
+		String idle = sessions.create(alice, false, sessions.stamp("alice")).getToken();
+		now.addAndGet(100);
+		assertNull(sessions.get(idle));
+
+		String busy = sessions.create(alice, false, sessions.stamp("alice")).getToken();
+		for (int i = 0; i < 9; i++) {
+			now.addAndGet(99);
+			assertNotNull(sessions.get(busy)); // each use resets the idle timeout
+		}
+		now.addAndGet(99); // 990 ms in
+		assertNotNull(sessions.get(busy));
+		now.addAndGet(10);
+		assertNull(sessions.get(busy));
+
+		sessions.create(alice, false, sessions.stamp("alice"));
+		now.addAndGet(200);
+		assertEquals(1, sessions.size());
+		assertEquals(1, sessions.purgeExpired());
+		assertEquals(0, sessions.size());
+		assertEquals(3, sessions.getStats().getExpired());
+	}
+
+	// Changing or deleting a user ends that user's sessions and no one else's
+	@Test
+	void testUserChangesEndSessions() throws SQLException {
+		SessionManager sessions = databaseHelper.sessions();
+		String alice = login("alice").getToken();
+		String aliceElsewhere = login("alice").getToken();
+		String bob = login("bob").getToken();
+
+		databaseHelper.updateRoles(List.of("alice"), EnumSet.of(Role.REVIEWER), EnumSet.noneOf(Role.class));
+		assertNull(sessions.get(alice));
+		assertNull(sessions.get(aliceElsewhere));
+		assertNotNull(sessions.get(bob));
+
+		alice = login("alice").getToken();
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), sessions.get(alice).getRoles());
+		databaseHelper.setPasswordReset("alice", true);
+		assertNull(sessions.get(alice));
+
+		alice = login("alice").getToken();
+		assertTrue(sessions.get(alice).isPasswordReset());
+		databaseHelper.deleteUser("alice");
+		assertNull(sessions.get(alice));
+
+		assertTrue(sessions.invalidate(bob)); // logout
+		assertFalse(sessions.invalidate(bob));
+		assertNull(sessions.get(bob));
+		assertEquals(0, sessions.size());
+	}
+
+	// A login that read the user before a change to it does not get a session
+	@Test
+	void testStaleLoginIsRefused() throws SQLException {
+		SessionManager sessions = databaseHelper.sessions();
+		long stamp = sessions.stamp("alice");
+		AuthenticationResult result = databaseHelper.authenticate("alice", "Password1!");
+		databaseHelper.updateRoles(List.of("alice"), EnumSet.of(Role.REVIEWER), EnumSet.noneOf(Role.class));
+
+		assertNull(sessions.create(result.toUser(), result.isPasswordReset(), stamp));
+		assertEquals(1, sessions.getStats().getRefused());
+		assertEquals(0, sessions.size());
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM sessions")) {
+			assertTrue(rs.next());
+			assertEquals(0, rs.getInt(1));
+		}
+
+		// Logging in again reads the new roles
+		String token = databaseHelper.authenticateSession("alice", "Password1!").getSessionToken();
+		assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), sessions.get(token).getRoles());
+	}
+
+	// Persistent sessions survive a restart, are stored only as token hashes, and stay ended
+	// when they were ended before it
+	@Test
+	void testPersistentSessionsSurviveRestart() throws SQLException {
+		String kept = login("alice").getToken();
+		String loggedOut = login("bob").getToken();
+		databaseHelper.sessions().invalidate(loggedOut);
+		databaseHelper.closeConnection();
+
+		databaseHelper = new DatabaseHelper(DatabaseConfig.forUrl(URL).withPersistentSessions(true));
+		databaseHelper.connectToDatabase();
+		SessionManager sessions = databaseHelper.sessions();
+		assertEquals(0, sessions.size());
+		assertEquals("alice", sessions.get(kept).getUserName());
+		assertEquals(1, sessions.getStats().getLoaded());
+		assertNull(sessions.get(loggedOut));
+
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT tokenHash FROM sessions")) {
+			assertTrue(rs.next());
+			assertNotEquals(kept, rs.getString(1));
+			assertEquals(64, rs.getString(1).length());
+			assertFalse(rs.next());
+		}
+
+		databaseHelper.deleteUser("alice");
+		databaseHelper.closeConnection();
+		databaseHelper = new DatabaseHelper(DatabaseConfig.forUrl(URL).withPersistentSessions(true));
+		databaseHelper.connectToDatabase();
+		assertNull(databaseHelper.sessions().get(kept));
+	}
+
+	// Without persistent sessions nothing is written to the table
+	@Test
+	void testMemoryOnlySessions() throws SQLException {
+		databaseHelper.closeConnection();
+		databaseHelper = new DatabaseHelper(URL);
+		databaseHelper.connectToDatabase();
+		String token = login("alice").getToken();
+		assertFalse(databaseHelper.sessions().isPersistent());
+		assertNotNull(databaseHelper.sessions().get(token));
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM sessions")) {
+			assertTrue(rs.next());
+			assertEquals(0, rs.getInt(1));
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.*;
+
+import databasePart1.ConnectionPool;
+import databasePart1.PooledConnection;
+import databasePart1.StatementCache;
+
+public class StatementCacheUnitTest {
+	private static final String URL = "jdbc:h2:mem:statementcachetest;DB_CLOSE_DELAY=-1";
+	private Connection connection;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		connection = DriverManager.getConnection(URL, "sa", "");
+	}
+
+	@AfterEach
+	void disconnect() throws SQLException {
+		connection.close();
+	}
+
+	// The same SQL text returns the same statement
+	@Test
+	void testHitsAndMisses() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 4);
+		PreparedStatement first = cache.prepare("SELECT ?");
+		PreparedStatement second = cache.prepare("SELECT ?");
+		assertSame(first, second);
+		assertEquals(1, cache.getStats().getMisses());
+		assertEquals(1, cache.getStats().getHits());
+		assertEquals(0.5, cache.getStats().getHitRatio());
+	}
+
+	// Cached statements still run with fresh parameters
+	@Test
+	void testReuseWithNewParameters() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 4);
+		for (int i = 0; i < 3; i++) {
+			PreparedStatement pstmt = cache.prepare("SELECT CAST(? AS INT)");
+			pstmt.setInt(1, i);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals(i, rs.getInt(1));
+			}
+		}
+	}
+
+	// The least recently used statement is closed when the cache is full
+	@Test
+	void testLruEviction() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 2);
+		PreparedStatement a = cache.prepare("SELECT 1");
+		PreparedStatement b = cache.prepare("SELECT 2");
+		cache.prepare("SELECT 1"); // touch a so b is eldest
+		cache.prepare("SELECT 3");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getStats().getEvictions());
+		assertTrue(b.isClosed());
+		assertFalse(a.isClosed());
+	}
+
+	// Closing the cache closes every statement
+	@Test
+	void testClose() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 4);
+		PreparedStatement pstmt = cache.prepare("SELECT 1");
+		cache.close();
+		assertTrue(pstmt.isClosed());
+		assertEquals(0, cache.size());
+	}
+
+	// Pooled connections keep their statements between borrows
+	@Test
+	void testPooledConnectionReusesStatements() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 1, 60_000, 1_000, 8);
+		try {
+			for (int i = 0; i < 5; i++) {
+				try (PooledConnection conn = pool.borrow();
+						ResultSet rs = conn.prepareStatement("SELECT 1").executeQuery()) {
+					assertTrue(rs.next());
+				}
+			}
+			assertEquals(1, pool.getStatementCacheStats().getMisses());
+			assertEquals(4, pool.getStatementCacheStats().getHits());
+		} finally {
+			pool.close();
+		}
+	}
+}
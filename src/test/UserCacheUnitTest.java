@@ -0,0 +1,88 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.AuthenticationResult;
+import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
+
+public class UserCacheUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:usercachetest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		databaseHelper.register(new User("alice", "Password1!", "student", "alice@asu.edu"));
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	// Repeated lookups of the same user are served from the cache
+	@Test
+	void testRepeatedLookupsHit() throws SQLException {
+		UserCache.Stats stats = databaseHelper.getUserCache().getStats();
+		long hits = stats.getHits();
+		for (int i = 0; i < 10; i++) {
+			assertEquals("alice@asu.edu", databaseHelper.getUserEmail("alice"));
+			assertTrue(databaseHelper.doesUserExist("alice"));
+		}
+		assertEquals(hits + 20, stats.getHits());
+		assertTrue(stats.getHitRatio() > 0.5);
+
+		// Callers get their own copy, changing it does not change the cache
+		databaseHelper.getUserByUsername("alice").setEmail("changed@asu.edu");
+		assertEquals("alice@asu.edu", databaseHelper.getUserByUsername("alice").getEmail());
+	}
+
+	// Every write path leaves the cache agreeing with the database
+	@Test
+	void testWritesKeepCacheCoherent() throws SQLException {
+		assertFalse(databaseHelper.doesUserExist("bob")); // cached as absent
+		databaseHelper.register(new User("bob", "Password2!", "reviewer", "bob@asu.edu"));
+		assertTrue(databaseHelper.doesUserExist("bob"));
+
+		assertFalse(databaseHelper.getPasswordResetFlag("bob"));
+		databaseHelper.setPasswordReset("bob", true);
+		assertTrue(databaseHelper.getPasswordResetFlag("bob"));
+
+		databaseHelper.updateUser("bob", new User("bobby", "Password3!", "staff", "bobby@asu.edu"));
+		assertFalse(databaseHelper.doesUserExist("bob"));
+		assertEquals("staff", databaseHelper.getUserRole("bobby"));
+
+		User bobby = databaseHelper.getUserByUsername("bobby");
+		databaseHelper.updateUser(bobby, new User("bobby", "Password3!", "staff", "new@asu.edu"));
+		assertEquals("new@asu.edu", databaseHelper.getUserEmail("bobby"));
+
+		databaseHelper.update(new User("robert", "Password3!", "", "robert@asu.edu"), "bobby");
+		assertNull(databaseHelper.getUserEmail("bobby"));
+		assertEquals("robert@asu.edu", databaseHelper.getUserEmail("robert"));
+
+		assertTrue(databaseHelper.deleteUser("robert"));
+		assertNull(databaseHelper.getUserByUsername("robert"));
+		assertEquals(AuthenticationResult.Status.UNKNOWN_USER,
+				databaseHelper.authenticate("robert", "Password3!").getStatus());
+	}
+
+	// The cache stays within its size; older one-off entries are evicted
+	@Test
+	void testCacheIsBounded() throws SQLException {
+		UserCache cache = databaseHelper.getUserCache();
+		for (int i = 0; i < 12_000; i++) {
+			databaseHelper.register(new User("user" + i, "Password1!", "student", "u" + i + "@asu.edu"));
+		}
+		assertTrue(cache.size() <= 10_000, "size " + cache.size());
+		assertTrue(cache.getStats().getEvictions() > 0);
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,83 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.UserExporter;
+
+public class UserExporterUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:exporttest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+		for (int i = 0; i < 5; i++) {
+			databaseHelper.register(new User("user" + i, "Secret" + i + "!", "student", "user" + i + "@asu.edu"));
+		}
+		databaseHelper.register(new User("multi", "Secret9!", "student,reviewer", "multi@asu.edu"));
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	// CSV export has a header, one line per user, quoted multi-role fields and no passwords
+	@Test
+	void testCsvExport() throws IOException, SQLException {
+		Path file = tempDir.resolve("users.csv");
+		long exported = databaseHelper.exportUsers(file, UserExporter.Format.CSV, false, null);
+
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(6, exported);
+		assertEquals(7, lines.size());
+		assertEquals("userName,email,role,passwordReset", lines.get(0));
+		assertTrue(lines.contains("multi,multi@asu.edu,\"student,reviewer\",false"));
+		assertFalse(String.join("\n", lines).contains("Secret"));
+	}
+
+	// Gzipped JSON Lines export, read page by page with progress reports
+	@Test
+	void testGzipJsonLinesExportWithProgress() throws IOException, SQLException {
+		Path file = tempDir.resolve("users.jsonl.gz");
+		List<Long> progress = new ArrayList<>();
+		long exported = new UserExporter(databaseHelper.getConnectionPool(), 2)
+				.export(file, UserExporter.Format.JSON_LINES, true, (done, total) -> {
+					assertEquals(6, total);
+					progress.add(done);
+				});
+
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		assertEquals(6, exported);
+		assertEquals(6, lines.size());
+		assertEquals("{\"userName\":\"user0\",\"email\":\"user0@asu.edu\",\"role\":\"student\",\"passwordReset\":false}",
+				lines.get(0));
+		assertEquals(List.of(2L, 4L, 6L, 6L), progress);
+	}
+}
@@ -0,0 +1,67 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import org.junit.jupiter.api.*;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.ImportReport;
+
+public class UserImporterUnitTest {
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws SQLException {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:importtest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		databaseHelper.resetDatabase();
+	}
+
+	@AfterEach
+	void disconnect() {
+		databaseHelper.closeConnection();
+	}
+
+	// Valid rows are imported and invalid ones are reported with their line numbers
+	@Test
+	void testImportReportsRowErrors() throws IOException, SQLException {
+		String roster = "userName,password,role,email\n"
+				+ "Alice1, Password1!, student, alice@asu.edu\n"
+				+ "Bob22, weak, student, bob@asu.edu\n"
+				+ "Carol3, Password3!, \"student,reviewer\", carol@asu.edu\n"
+				+ "Dave4, Password4!, student\n"
+				+ "Alice1, Password5!, student, alice2@asu.edu\n";
+
+		ImportReport report = databaseHelper.importUsers(new StringReader(roster));
+
+		assertEquals(5, report.getRowsRead());
+		assertEquals(2, report.getRowsImported());
+		assertEquals(3, report.getErrorCount());
+		assertEquals(3, report.getErrors().get(0).getLineNumber());
+		assertEquals(5, report.getErrors().get(1).getLineNumber());
+		assertEquals(6, report.getErrors().get(2).getLineNumber()); // duplicate userName
+		assertEquals("student,reviewer", databaseHelper.getUserRole("Carol3"));
+		assertFalse(databaseHelper.doesUserExist("Bob22"));
+	}
+
+	// Rows spanning many chunks are all imported
+	@Test
+	void testImportAcrossChunks() throws IOException, SQLException {
+		StringBuilder roster = new StringBuilder();
+		int rows = 2500;
+		for (int i = 0; i < rows; i++) {
+			roster.append("User").append(i).append(",Password").append(i).append("!,student,user")
+					.append(i).append("@asu.edu\n");
+		}
+
+		ImportReport report = databaseHelper.importUsers(new StringReader(roster.toString()));
+
+		assertEquals(rows, report.getRowsImported());
+		assertEquals(0, report.getErrorCount());
+		assertTrue(report.getRowsPerSecond() > 0);
+		assertEquals(rows, databaseHelper.getAllUsers().size());
+	}
+}
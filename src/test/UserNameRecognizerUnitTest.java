@@ -1,6 +1,11 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -183,4 +188,41 @@ class UserNameRecognizerTest {
         assertTrue(UserNameRecognizer.userNameRecognizerIndexofError < input.length(), 
                    "Should flag the position of the invalid character.");
     }
+
+    /**
+     * Tests that validateUserName gives the same results as checkForValidUserName when
+     * many threads call it at once, and leaves the result attributes alone.
+     */
+    @Test
+    void testValidateUserNameOnManyThreads() throws Exception {
+        String[] inputs = { "Abc-de", "1abc", "Ab", "Abc^de", "Abcdefghijklmnopq", "A3-c" };
+        String[] expected = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = UserNameRecognizer.checkForValidUserName(inputs[i]);
+        }
+        UserNameRecognizer.userNameRecognizerErrorMessage = "untouched";
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(threads.submit(() -> {
+                    for (int n = 0; n < 2_000; n++) {
+                        int i = n % inputs.length;
+                        if (!expected[i].equals(UserNameRecognizer.validateUserName(inputs[i]))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(), "Concurrent runs should not disturb each other.");
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals("untouched", UserNameRecognizer.userNameRecognizerErrorMessage,
+                     "validateUserName should not set the result attributes.");
+    }
 }
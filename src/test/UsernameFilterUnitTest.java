@@ -0,0 +1,94 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import org.junit.jupiter.api.*;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.UsernameFilter;
+
+public class UsernameFilterUnitTest {
+
+	// Every added name is reported as possibly present
+	@Test
+	void testNoFalseNegatives() {
+		UsernameFilter filter = new UsernameFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("user" + i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("user" + i));
+		}
+		assertEquals(10_000, filter.getInsertions());
+	}
+
+	// The measured false-positive rate stays close to the target
+	@Test
+	void testFalsePositiveRateNearTarget() {
+		UsernameFilter filter = new UsernameFilter(50_000, 0.01);
+		for (int i = 0; i < 50_000; i++) {
+			filter.add("user" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("guest" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+		assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.002);
+	}
+
+	// Invalid sizes are rejected
+	@Test
+	void testInvalidSizes() {
+		assertThrows(IllegalArgumentException.class, () -> new UsernameFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new UsernameFilter(100, 1.0));
+	}
+
+	// Availability follows register, rename and delete
+	@Test
+	void testAvailabilityFollowsWrites() throws SQLException {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:usernamefiltertest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			databaseHelper.resetDatabase();
+			assertTrue(databaseHelper.isUsernameAvailable("alice"));
+
+			User alice = new User("alice", "Password1!", "student", "alice@asu.edu");
+			databaseHelper.register(alice);
+			assertFalse(databaseHelper.isUsernameAvailable("alice"));
+			assertTrue(databaseHelper.getUsernameFilter().mightContain("alice"));
+
+			User renamed = new User("alicia", "Password1!", "student", "alice@asu.edu");
+			assertTrue(databaseHelper.updateUser("alice", renamed));
+			assertTrue(databaseHelper.isUsernameAvailable("alice"));
+			assertFalse(databaseHelper.isUsernameAvailable("alicia"));
+
+			assertTrue(databaseHelper.deleteUser("alicia"));
+			assertTrue(databaseHelper.isUsernameAvailable("alicia"));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+
+	// A rebuild picks up rows written behind the helper's back
+	@Test
+	void testRebuildReadsTable() throws SQLException {
+		DatabaseHelper databaseHelper = new DatabaseHelper("jdbc:h2:mem:usernamefiltertest;DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+		try {
+			databaseHelper.resetDatabase();
+			databaseHelper.register(new User("robert", "Password1!", "student", "robert@asu.edu"));
+			databaseHelper.rebuildUsernameFilter();
+			UsernameFilter filter = databaseHelper.getUsernameFilter();
+			assertEquals(1, filter.getInsertions());
+			assertTrue(filter.mightContain("robert"));
+			assertFalse(databaseHelper.isUsernameAvailable("robert"));
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}